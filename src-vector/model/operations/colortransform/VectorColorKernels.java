@@ -0,0 +1,199 @@
+package model.operations.colortransform;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import model.image.RgbUtils;
+
+/**
+ * The inner loops of AbstractColorTransform, written with the jdk.incubator.vector module so
+ * that each instruction works on a whole vector of pixels. Instead of the lookup tables, each
+ * channel is multiplied by its entry of the colorMatrix, which is exactly the product the table
+ * holds, and the three products are added in the same order, so results are identical.
+ *
+ * <p>Pixels are read and written 8 at a time, as 8 ints or 8 bytes, and converted to one or two
+ * vectors of doubles, whichever fills the widest vectors of the processor. Any pixels left over
+ * at the end go through a scalar loop. It is compiled from src-vector
+ * apart from the rest of the tree, since it needs the module, and only loaded by name (see
+ * AbstractOperation.vectorKernels).</p>
+ */
+final class VectorColorKernels implements ColorKernels {
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+  private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+  // pixels read or written at once.
+  private static final int CHUNK = INTS.length();
+  // vectors of doubles each chunk is converted to.
+  private static final int PARTS = CHUNK / DOUBLES.length();
+  // 2^52, the smallest double whose fraction only holds integers.
+  private static final double ROUNDER = 0x1p52;
+  // pixels transformPixels computes each output channel of at once.
+  private static final int BLOCK = 1024;
+  // shift counts to take the red and green channels out of packed pixels.
+  private static final IntVector RED_SHIFT = IntVector.broadcast(INTS, 16);
+  private static final IntVector GREEN_SHIFT = IntVector.broadcast(INTS, 8);
+
+  /**
+   * Constructs the kernels, which AbstractOperation only does by name when the module is
+   * enabled.
+   *
+   * @throws UnsupportedOperationException if the vectors of this processor hold fewer than 4
+   *                                       doubles.
+   */
+  VectorColorKernels() throws UnsupportedOperationException {
+    if (DOUBLES.vectorBitSize() < 256) {
+      throw new UnsupportedOperationException("vectors must be at least 256 bits");
+    }
+  }
+
+  @Override
+  public void transformPixels(double[][] matrix, int[] src, int[] dst, int from, int to) {
+    for (int blockStart = from; blockStart < to; blockStart += BLOCK) {
+      int blockEnd = Math.min(to, blockStart + BLOCK);
+      transformChannel(matrix[0], src, dst, blockStart, blockEnd, 16);
+      transformChannel(matrix[1], src, dst, blockStart, blockEnd, 8);
+      transformChannel(matrix[2], src, dst, blockStart, blockEnd, 0);
+    }
+  }
+
+  /**
+   * Computes one output channel of the packed pixels from index from (inclusive) to to
+   * (exclusive) of src, and writes it to the same indices of dst. The red channel replaces what
+   * dst held, and the others are added to it.
+   *
+   * @param weights weight of the red, green and blue input channels for the output channel.
+   * @param src     packed RGB pixels to transform.
+   * @param dst     array to write the packed RGB results into.
+   * @param from    index of the first pixel, inclusive.
+   * @param to      index of the last pixel, exclusive.
+   * @param shift   bits to shift the output channel left by, 16 for red, 8 for green, 0 for blue.
+   */
+  private static void transformChannel(double[] weights, int[] src, int[] dst, int from, int to,
+                                       int shift) {
+    IntVector shifts = IntVector.broadcast(INTS, shift);
+    int i = from;
+    for (; i <= to - CHUNK; i += CHUNK) {
+      IntVector packed = IntVector.fromArray(INTS, src, i);
+      IntVector channels = transform(weights,
+              packed.lanewise(VectorOperators.LSHR, RED_SHIFT).and(0xFF),
+              packed.lanewise(VectorOperators.LSHR, GREEN_SHIFT).and(0xFF),
+              packed.and(0xFF)).lanewise(VectorOperators.LSHL, shifts);
+      if (shift != 16) {
+        channels = channels.or(IntVector.fromArray(INTS, dst, i));
+      }
+      channels.intoArray(dst, i);
+    }
+    for (; i < to; i++) {
+      int channel = transform(weights, src[i]) << shift;
+      dst[i] = shift == 16 ? channel : dst[i] | channel;
+    }
+  }
+
+  @Override
+  public void transformPlane(double[] weights, byte[] red, byte[] green, byte[] blue,
+                             byte[] out, int from, int to) {
+    int i = from;
+    for (; i <= to - CHUNK; i += CHUNK) {
+      ((ByteVector) transform(weights, unsigned(red, i), unsigned(green, i), unsigned(blue, i))
+              .convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(out, i);
+    }
+    for (; i < to; i++) {
+      out[i] = (byte) RgbUtils.clamp((int) ((red[i] & 0xFF) * weights[0]
+              + (green[i] & 0xFF) * weights[1] + (blue[i] & 0xFF) * weights[2]));
+    }
+  }
+
+  /**
+   * Computes one output channel for a chunk of pixels, truncated and clamped the same way as
+   * toChannel.
+   *
+   * @param weights weight of the red, green and blue input channels for the output channel.
+   * @param red     red channels of the chunk.
+   * @param green   green channels of the chunk.
+   * @param blue    blue channels of the chunk.
+   * @return the output channel of the chunk, each between 0 and 255.
+   */
+  private static IntVector transform(double[] weights, IntVector red, IntVector green,
+                                     IntVector blue) {
+    IntVector channels = IntVector.zero(INTS);
+    for (int part = 0; part < PARTS; part++) {
+      // each part fills its own lanes and leaves the others 0.
+      channels = channels.or(toChannels(weigh(weights, toDoubles(red, part),
+              toDoubles(green, part), toDoubles(blue, part)), part));
+    }
+    return channels;
+  }
+
+  /**
+   * Weighs the channels of one part of a chunk of pixels, adding the products in the same order
+   * as the lookup tables are added.
+   *
+   * @param weights weight of the red, green and blue input channels for the output channel.
+   * @param red     red channels.
+   * @param green   green channels.
+   * @param blue    blue channels.
+   * @return the output channel, before it is truncated and clamped.
+   */
+  private static DoubleVector weigh(double[] weights, DoubleVector red, DoubleVector green,
+                                    DoubleVector blue) {
+    return red.mul(weights[0]).add(green.mul(weights[1])).add(blue.mul(weights[2]));
+  }
+
+  /**
+   * Truncates and clamps a vector of doubles the same way as toChannel, into its part of a
+   * chunk of ints. The vector module of JDK 17 converts doubles to ints lane by lane, so they are
+   * clamped first, and then rounded down by adding 2^52, which leaves the integer in the low
+   * bits of each double.
+   *
+   * @param sums the doubles, one part of a chunk.
+   * @param part which part of the chunk the doubles are.
+   * @return chunk of ints with the channel values in the lanes of the given part, 0 elsewhere.
+   */
+  private static IntVector toChannels(DoubleVector sums, int part) {
+    // NaN becomes 0 like it does when cast to an int.
+    DoubleVector clamped = sums.blend(0.0, sums.test(VectorOperators.IS_NAN))
+            .max(0.0).min(255.0);
+    DoubleVector shifted = clamped.add(ROUNDER);
+    // adding rounds to the nearest integer, so take 1 off wherever that rounded up.
+    shifted = shifted.sub(1.0, shifted.sub(ROUNDER).compare(VectorOperators.GT, clamped));
+    return (IntVector) shifted.reinterpretAsLongs()
+            .convertShape(VectorOperators.L2I, INTS, -part);
+  }
+
+  /**
+   * Computes one output channel for a single packed pixel.
+   *
+   * @param weights weight of the red, green and blue input channels for the output channel.
+   * @param rgb     packed RGB pixel.
+   * @return the output channel, between 0 and 255.
+   */
+  private static int transform(double[] weights, int rgb) {
+    return RgbUtils.clamp((int) (RgbUtils.red(rgb) * weights[0]
+            + RgbUtils.green(rgb) * weights[1] + RgbUtils.blue(rgb) * weights[2]));
+  }
+
+  /**
+   * Reads a chunk of channel values from a plane, as unsigned ints.
+   *
+   * @param plane row-major plane of one channel.
+   * @param start index of the first channel value of the chunk.
+   * @return the channel values, each between 0 and 255.
+   */
+  private static IntVector unsigned(byte[] plane, int start) {
+    return ((IntVector) ByteVector.fromArray(BYTES, plane, start)
+            .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+  }
+
+  /**
+   * Converts part of a chunk of ints into doubles.
+   *
+   * @param values the chunk of ints.
+   * @param part   which vector of doubles of the chunk to convert.
+   * @return the doubles of the given part.
+   */
+  private static DoubleVector toDoubles(IntVector values, int part) {
+    return (DoubleVector) values.convertShape(VectorOperators.I2D, DOUBLES, part);
+  }
+}
@@ -0,0 +1,311 @@
+package model.operations.filter;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import model.image.RgbUtils;
+
+/**
+ * The inner loops of AbstractFilter, written with the jdk.incubator.vector module so that each
+ * instruction works on a whole vector of pixels. Every method computes exactly what the scalar
+ * loop it replaces does: each sum gets the same products added in the same order, and channels
+ * are truncated and clamped the same way as toChannel, so results are identical.
+ *
+ * <p>Pixels are read and written 8 at a time, as 8 ints or 8 bytes, and converted to one or two
+ * vectors of doubles, whichever fills the widest vectors of the processor. Any pixels left over
+ * at the end of a row go through a scalar loop. The kernels for the integer sums of
+ * FixedPointKernel add up the 8 ints of a chunk directly, with no conversions. They use the same
+ * shape of vectors as the rest, since the JIT compiler stops turning the methods of IntVector
+ * into vector instructions once it has seen them called with two shapes. It is compiled from
+ * src-vector apart from the rest of the tree, since it needs the module, and only loaded by
+ * name (see AbstractOperation.vectorKernels).</p>
+ */
+final class VectorFilterKernels implements FilterKernels {
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+  private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+  // pixels read or written at once.
+  private static final int CHUNK = INTS.length();
+  // vectors of doubles each chunk is converted to.
+  private static final int PARTS = CHUNK / DOUBLES.length();
+  // 2^52, the smallest double whose fraction only holds integers.
+  private static final double ROUNDER = 0x1p52;
+
+  /**
+   * Constructs the kernels, which AbstractOperation only does by name when the module is
+   * enabled.
+   *
+   * @throws UnsupportedOperationException if the vectors of this processor hold fewer than 4
+   *                                       doubles.
+   */
+  VectorFilterKernels() throws UnsupportedOperationException {
+    if (DOUBLES.vectorBitSize() < 256) {
+      throw new UnsupportedOperationException("vectors must be at least 256 bits");
+    }
+  }
+
+  @Override
+  public void addScaled(double[] sums, int sumsStart, double[] values, int valuesStart,
+                        int length, double weight) {
+    int lanes = DOUBLES.length();
+    int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      DoubleVector.fromArray(DOUBLES, sums, sumsStart + i)
+              .add(DoubleVector.fromArray(DOUBLES, values, valuesStart + i).mul(weight))
+              .intoArray(sums, sumsStart + i);
+    }
+    for (; i < length; i++) {
+      sums[sumsStart + i] += values[valuesStart + i] * weight;
+    }
+  }
+
+  @Override
+  public void addScaledPlane(double[] sums, int sumsStart, byte[] plane, int planeStart,
+                             int length, double weight) {
+    int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      IntVector values = ((IntVector) ByteVector.fromArray(BYTES, plane, planeStart + i)
+              .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+      addParts(sums, sumsStart + i, values, weight);
+    }
+    for (; i < length; i++) {
+      sums[sumsStart + i] += (plane[planeStart + i] & 0xFF) * weight;
+    }
+  }
+
+  @Override
+  public void addScaledPixels(double[] red, double[] green, double[] blue, int sumsStart,
+                              int[] pixels, int pixelsStart, int length, double weight) {
+    // one channel at a time, since all three at once makes a loop too big for the JIT compiler
+    // to turn into vector instructions.
+    addScaledChannel(red, sumsStart, pixels, pixelsStart, length, weight, 16);
+    addScaledChannel(green, sumsStart, pixels, pixelsStart, length, weight, 8);
+    addScaledChannel(blue, sumsStart, pixels, pixelsStart, length, weight, 0);
+  }
+
+  @Override
+  public void storePlane(double[] sums, int sumsStart, byte[] out, int outStart, int length) {
+    int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      ((ByteVector) toChannels(sums, sumsStart + i).convertShape(VectorOperators.I2B, BYTES, 0))
+              .intoArray(out, outStart + i);
+    }
+    for (; i < length; i++) {
+      out[outStart + i] = (byte) toChannel(sums[sumsStart + i]);
+    }
+  }
+
+  @Override
+  public void storePixels(double[] red, double[] green, double[] blue, int sumsStart,
+                          int[] dst, int dstStart, int length) {
+    storeChannel(red, sumsStart, dst, dstStart, length, 16);
+    storeChannel(green, sumsStart, dst, dstStart, length, 8);
+    storeChannel(blue, sumsStart, dst, dstStart, length, 0);
+  }
+
+  @Override
+  public void addScaledInts(int[] sums, int sumsStart, int[] values, int valuesStart,
+                            int length, int weight) {
+        int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      IntVector.fromArray(INTS, sums, sumsStart + i)
+              .add(IntVector.fromArray(INTS, values, valuesStart + i).mul(weight))
+              .intoArray(sums, sumsStart + i);
+    }
+    for (; i < length; i++) {
+      sums[sumsStart + i] += values[valuesStart + i] * weight;
+    }
+  }
+
+  @Override
+  public void addScaledPlaneInts(int[] sums, int sumsStart, byte[] plane, int planeStart,
+                                 int length, int weight) {
+        int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      IntVector values = ((IntVector) ByteVector.fromArray(BYTES, plane, planeStart + i)
+              .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+      IntVector.fromArray(INTS, sums, sumsStart + i).add(values.mul(weight))
+              .intoArray(sums, sumsStart + i);
+    }
+    for (; i < length; i++) {
+      sums[sumsStart + i] += (plane[planeStart + i] & 0xFF) * weight;
+    }
+  }
+
+  @Override
+  public void addScaledChannelInts(int[] sums, int sumsStart, int[] pixels, int pixelsStart,
+                                   int length, int weight, int shift) {
+        int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      IntVector values = IntVector.fromArray(INTS, pixels, pixelsStart + i)
+              .lanewise(VectorOperators.LSHR, shift).and(0xFF);
+      IntVector.fromArray(INTS, sums, sumsStart + i).add(values.mul(weight))
+              .intoArray(sums, sumsStart + i);
+    }
+    for (; i < length; i++) {
+      sums[sumsStart + i] += ((pixels[pixelsStart + i] >> shift) & 0xFF) * weight;
+    }
+  }
+
+  @Override
+  public void storePlaneInts(int[] sums, byte[] out, int outStart, int length, int shift) {
+        int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      ((ByteVector) toChannels(IntVector.fromArray(INTS, sums, i), shift)
+              .convertShape(VectorOperators.I2B, BYTES, 0)).intoArray(out, outStart + i);
+    }
+    for (; i < length; i++) {
+      out[outStart + i] = (byte) RgbUtils.clamp(sums[i] >> shift);
+    }
+  }
+
+  @Override
+  public void storePixelsInts(int[] red, int[] green, int[] blue, int[] dst, int dstStart,
+                              int length, int shift) {
+        int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      toChannels(IntVector.fromArray(INTS, red, i), shift).lanewise(VectorOperators.LSHL, 16)
+              .or(toChannels(IntVector.fromArray(INTS, green, i), shift)
+                      .lanewise(VectorOperators.LSHL, 8))
+              .or(toChannels(IntVector.fromArray(INTS, blue, i), shift))
+              .intoArray(dst, dstStart + i);
+    }
+    for (; i < length; i++) {
+      dst[dstStart + i] = RgbUtils.pack(RgbUtils.clamp(red[i] >> shift),
+              RgbUtils.clamp(green[i] >> shift), RgbUtils.clamp(blue[i] >> shift));
+    }
+  }
+
+  /**
+   * Shifts integer sums right and clamps them, like FixedPointKernel does for each sum.
+   *
+   * @param sums  the sums.
+   * @param shift bits to shift each sum right by.
+   * @return the channel values, each between 0 and 255.
+   */
+  private static IntVector toChannels(IntVector sums, int shift) {
+    return sums.lanewise(VectorOperators.ASHR, shift).max(0).min(255);
+  }
+
+  /**
+   * Adds weight times one channel of packed pixels to the sums of that channel.
+   *
+   * @param sums        array of sums of the channel.
+   * @param sumsStart   index of the first sum.
+   * @param pixels      packed RGB pixels.
+   * @param pixelsStart index of the first pixel.
+   * @param length      number of pixels.
+   * @param weight      weight of every pixel.
+   * @param shift       bits the channel is shifted left by in a packed pixel.
+   */
+  private static void addScaledChannel(double[] sums, int sumsStart, int[] pixels,
+                                       int pixelsStart, int length, double weight, int shift) {
+    IntVector shifts = IntVector.broadcast(INTS, shift);
+    int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      addParts(sums, sumsStart + i, IntVector.fromArray(INTS, pixels, pixelsStart + i)
+              .lanewise(VectorOperators.LSHR, shifts).and(0xFF), weight);
+    }
+    for (; i < length; i++) {
+      sums[sumsStart + i] += ((pixels[pixelsStart + i] >> shift) & 0xFF) * weight;
+    }
+  }
+
+  /**
+   * Converts the sums of one channel into channel values the same way as toChannel, and writes
+   * them into their place in packed RGB pixels. The red channel replaces what the pixels held,
+   * and the others are added to it.
+   *
+   * @param sums      array of sums of the channel.
+   * @param sumsStart index of the first sum.
+   * @param dst       array to write the packed pixels into.
+   * @param dstStart  index of the first pixel.
+   * @param length    number of pixels.
+   * @param shift     bits to shift the channel left by, 16 for red, 8 for green, 0 for blue.
+   */
+  private static void storeChannel(double[] sums, int sumsStart, int[] dst, int dstStart,
+                                   int length, int shift) {
+    IntVector shifts = IntVector.broadcast(INTS, shift);
+    int i = 0;
+    for (; i <= length - CHUNK; i += CHUNK) {
+      IntVector channels = toChannels(sums, sumsStart + i)
+              .lanewise(VectorOperators.LSHL, shifts);
+      if (shift != 16) {
+        channels = channels.or(IntVector.fromArray(INTS, dst, dstStart + i));
+      }
+      channels.intoArray(dst, dstStart + i);
+    }
+    for (; i < length; i++) {
+      int channel = toChannel(sums[sumsStart + i]) << shift;
+      dst[dstStart + i] = shift == 16 ? channel : dst[dstStart + i] | channel;
+    }
+  }
+
+  /**
+   * Adds weight times a chunk of values to the chunk of sums starting at the given index.
+   *
+   * @param sums   array of sums to add to.
+   * @param start  index of the first sum of the chunk.
+   * @param values the values of the chunk.
+   * @param weight weight of every value.
+   */
+  private static void addParts(double[] sums, int start, IntVector values, double weight) {
+    for (int part = 0; part < PARTS; part++) {
+      int at = start + part * DOUBLES.length();
+      DoubleVector.fromArray(DOUBLES, sums, at)
+              .add(((DoubleVector) values.convertShape(VectorOperators.I2D, DOUBLES, part))
+                      .mul(weight))
+              .intoArray(sums, at);
+    }
+  }
+
+  /**
+   * Converts a chunk of sums into channel values, by truncating and then clamping each.
+   *
+   * @param sums  array of sums.
+   * @param start index of the first sum of the chunk.
+   * @return the channel values of the chunk, each between 0 and 255.
+   */
+  private static IntVector toChannels(double[] sums, int start) {
+    IntVector channels = IntVector.zero(INTS);
+    for (int part = 0; part < PARTS; part++) {
+      // each part fills its own lanes and leaves the others 0.
+      channels = channels.or(toChannels(
+              DoubleVector.fromArray(DOUBLES, sums, start + part * DOUBLES.length()), part));
+    }
+    return channels;
+  }
+
+  /**
+   * Truncates and clamps a vector of doubles the same way as toChannel, into its part of a
+   * chunk of ints. The vector module of JDK 17 converts doubles to ints lane by lane, so they are
+   * clamped first, and then rounded down by adding 2^52, which leaves the integer in the low
+   * bits of each double.
+   *
+   * @param sums the doubles, one part of a chunk.
+   * @param part which part of the chunk the doubles are.
+   * @return chunk of ints with the channel values in the lanes of the given part, 0 elsewhere.
+   */
+  private static IntVector toChannels(DoubleVector sums, int part) {
+    // NaN becomes 0 like it does when cast to an int.
+    DoubleVector clamped = sums.blend(0.0, sums.test(VectorOperators.IS_NAN))
+            .max(0.0).min(255.0);
+    DoubleVector shifted = clamped.add(ROUNDER);
+    // adding rounds to the nearest integer, so take 1 off wherever that rounded up.
+    shifted = shifted.sub(1.0, shifted.sub(ROUNDER).compare(VectorOperators.GT, clamped));
+    return (IntVector) shifted.reinterpretAsLongs()
+            .convertShape(VectorOperators.L2I, INTS, -part);
+  }
+
+  /**
+   * Converts a sum into a channel value the same way as AbstractOperation.toChannel.
+   *
+   * @param sum the sum.
+   * @return int between 0 and 255, inclusive.
+   */
+  private static int toChannel(double sum) {
+    return RgbUtils.clamp((int) sum);
+  }
+}
@@ -1,5 +1,6 @@
 import controller.IController;
 import controller.ImageController;
+import controller.StreamingController;
 import controller.SwingController;
 import controller.importexport.FileUtils;
 import model.ILayeredModel;
@@ -12,19 +13,27 @@ import view.NewSwingView;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 
 /**
- * Entry point for interacting with this project. Allows interaction through console, Swing GUI
- * and through batch file processing.
+ * Entry point for interacting with this project. Allows interaction through console, Swing GUI,
+ * through batch file processing, and streaming one image file into another through a chain of
+ * operations without loading it (see StreamingController).
  */
 public class FinalCmdLineEntryPoint {
 
   /**
    * Main method for this new jar.
    * @param args arguments needed: -text for console, -interactive for GUI,
-   *             and -script file-path.txt for scripting.
+   *             -script file-path.txt for scripting, and -stream in.ppm out.png followed by
+   *             operations for streaming.
    */
   public static void main(String[] args) {
+    if (args.length >= 3 && args[0].equals("-stream")) {
+      new StreamingController(args[1], args[2], Arrays.asList(args).subList(3, args.length),
+              new BasicView(System.out)).startProcessing();
+      return;
+    }
     switch (args.length) {
       // if no args, just launch the gui.
       case 0:
@@ -59,7 +68,7 @@ public class FinalCmdLineEntryPoint {
           ILayeredModel model = (ILayeredModel) ProcessorModelCreator.create(
                   ProcessorModelCreator.ProcessorType.LAYERED);
           new ImageController(model, fileInput,
-                  new BasicView(System.out)).startProcessing();
+                  new BasicView(System.out), true).startProcessing();
         } catch (FileNotFoundException fnf) {
           System.out.println("File not found");
           return;
@@ -72,7 +81,8 @@ public class FinalCmdLineEntryPoint {
             + "-script path-of-script-file\n"
             + "-text\n"
             + "-interactive\n"
-            + "for script, console, and GUI control, respectively.");
+            + "-stream input.ppm output.ppm|png [operation [parameters...]]...\n"
+            + "for script, console, GUI control, and streaming, respectively.");
   }
 
   /**
@@ -5,21 +5,28 @@ import controller.commands.CurrentLayer;
 import controller.commands.IImageCommand;
 import controller.commands.NumLayers;
 import controller.commands.SetCurrent;
+import controller.commands.SetDeferred;
 import controller.commands.filecommands.Export;
 import controller.commands.filecommands.Import;
 import controller.commands.layercommands.Blur;
+import controller.commands.layercommands.ColorTransformRun;
+import controller.commands.layercommands.GaussianBlur;
 import controller.commands.layercommands.Greyscale;
 import controller.commands.layercommands.MakeInvis;
 import controller.commands.layercommands.MakeVis;
+import controller.commands.layercommands.ParameterizedOperation;
 import controller.commands.layercommands.Remove;
 import controller.commands.layercommands.Sepia;
 import controller.commands.layercommands.Sharpen;
 import model.ILayeredModel;
+import model.operations.OperationType;
 import view.IImageView;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
@@ -27,16 +34,27 @@ import java.util.Scanner;
  * A controller class to handle inputs and outputs. Can read from a file or read inputs from the
  * user. Processes commands to manipulate, add, and remove individual layers of an ILayeredModel,
  * and can read commands from a batch file, provided that they are given in the same format.
+ *
+ * <p>Commands read from a batch file (or from a script, if constructed to) are read ahead, so
+ * that a run of color transformation commands in a row, like greyscale followed by sepia, is
+ * applied by the model in a single pass. Input typed in by a user is never read ahead, since
+ * that would wait for the next command before running the current one.</p>
  */
 public class ImageController implements IController {
   private final Readable rd;
   private final IImageView view;
   private final ILayeredModel model;
   private final Map<String, IImageCommand> commands;
+  // commands that a ColorTransformRun can apply along with others in a single pass.
+  private final Map<String, OperationType> colorTransforms;
+  // commands that are followed by parameters, such as "mosaic 500 7".
+  private final List<String> parameterized;
+  private final boolean readAhead;
 
   /**
    * Creates a new ImageController object with the given model, readable and view.
-   * Initializes commands to those defined in the constructor.
+   * Initializes commands to those defined in the constructor. The readable is treated as input
+   * typed in by a user, so it is never read ahead.
    *
    * @param model model to control and mutate.
    * @param rd readable object to read input from.
@@ -45,25 +63,58 @@ public class ImageController implements IController {
    */
   public ImageController(ILayeredModel model, Readable rd, IImageView view)
           throws IllegalArgumentException {
+    this(model, rd, view, false);
+  }
+
+  /**
+   * Creates a new ImageController object with the given model, readable and view, that reads
+   * ahead in the readable to find runs of color transformations if it is a script.
+   * Initializes commands to those defined in the constructor.
+   *
+   * @param model model to control and mutate.
+   * @param rd readable object to read input from.
+   * @param view view to transmit messages to.
+   * @param script whether rd is a whole script, rather than input typed in by a user.
+   * @throws IllegalArgumentException if either argument is null.
+   */
+  public ImageController(ILayeredModel model, Readable rd, IImageView view, boolean script)
+          throws IllegalArgumentException {
     if (model == null || rd == null || view == null) {
       throw new IllegalArgumentException("no null args");
     }
     this.rd = rd;
     this.view = view;
     this.model = model;
+    this.readAhead = script;
+
+    colorTransforms = new HashMap<>();
+    colorTransforms.put("greyscale", OperationType.GREYSCALE);
+    colorTransforms.put("sepia", OperationType.SEPIA);
 
     commands = new HashMap<>();
     commands.put("add blank", new AddBlank());
     commands.put("num layers", new NumLayers());
     commands.put("current layer", new CurrentLayer());
+    commands.put("deferred on", new SetDeferred(true));
+    commands.put("deferred off", new SetDeferred(false));
     commands.put("set current", new SetCurrent());
     commands.put("remove", new Remove());
     commands.put("make vis", new MakeVis());
     commands.put("make invis", new MakeInvis());
     commands.put("blur", new Blur());
+    commands.put("gaussian blur small", new GaussianBlur(OperationType.GAUSSIAN_BLUR_SMALL));
+    commands.put("gaussian blur medium", new GaussianBlur(OperationType.GAUSSIAN_BLUR_MEDIUM));
+    commands.put("gaussian blur large", new GaussianBlur(OperationType.GAUSSIAN_BLUR_LARGE));
     commands.put("greyscale", new Greyscale());
     commands.put("sepia", new Sepia());
     commands.put("sharpen", new Sharpen());
+    parameterized = new ArrayList<>();
+    putParameterized(OperationType.MOSAIC, "mosaic", "seeds", "random seed", "engine");
+    putParameterized(OperationType.SQUARE_MOSAIC, "square mosaic", "cell size");
+    putParameterized(OperationType.HEX_MOSAIC, "hex mosaic", "cell size");
+    putParameterized(OperationType.BOX_BLUR, "box blur", "radius", "border mode");
+    putParameterized(OperationType.BOX_GAUSSIAN_BLUR, "box gaussian blur", "sigma",
+            "border mode");
     commands.put("import", new Import());
     commands.put("export", new Export());
     commands.put("batch ", new Batch());
@@ -74,7 +125,7 @@ public class ImageController implements IController {
     Scanner sc = new Scanner(this.rd);
     try {
       view.renderMessage("Enter command or type directory of script: \n");
-      processNextLines(sc);
+      processNextLines(sc, this.readAhead);
       view.renderMessage("Pleasure working with you :)");
     } catch (IOException io) {
       throw new IllegalStateException("file reading/writing failed.");
@@ -87,8 +138,9 @@ public class ImageController implements IController {
     -set current <index>
 
   Controls that assume target is selected
-  (assumes current layer index is already defined): 7/7 done
-    -blur, sharpen, greyscale, sepia
+  (assumes current layer index is already defined): 10/10 done
+    -blur, gaussian blur small/medium/large, sharpen, greyscale, sepia
+    -mosaic [seeds] [random seed] [engine], square mosaic [cell size], hex mosaic [cell size]
     -make invis
     -make vis
     -remove
@@ -115,14 +167,19 @@ public class ImageController implements IController {
    * the model according to the commands defined.
    *
    * @param sc Scanner to iterate through. Each line is processed to see if it is a valid command.
+   * @param readAhead whether to read the lines after a color transformation command, to apply
+   *          a run of them in a single pass.
    * @throws IOException if file reading/writing fails during this process. Most IOExceptions, such
    *          as with importing/exporting causes a message to be transmitted to the view.
    */
-  private void processNextLines(Scanner sc) throws IOException {
-    while (sc.hasNextLine()) {
+  private void processNextLines(Scanner sc, boolean readAhead) throws IOException {
+    // a line that was read ahead, but was not part of a run of color transformations.
+    String pending = null;
+    while (pending != null || sc.hasNextLine()) {
       // Assume each line is typed perfectly, except for those that
       // require filename or number. Non-case sensitive...
-      String currLine = sc.nextLine().toLowerCase();
+      String currLine = pending != null ? pending : sc.nextLine().toLowerCase();
+      pending = null;
 
       // if its a comment or has a length of 0, just continue.
       if (currLine.startsWith("#") || currLine.length() == 0) {
@@ -134,8 +191,27 @@ public class ImageController implements IController {
       }
 
       // if a " #" appears in the line, ignore all text after it.
-      if (currLine.contains("#")) {
-        currLine = currLine.substring(0, currLine.indexOf('#') - 1);
+      currLine = stripComment(currLine);
+
+      if (readAhead && this.colorTransforms.containsKey(currLine)) {
+        List<String> run = new ArrayList<>();
+        run.add(currLine);
+        while (sc.hasNextLine()) {
+          String next = sc.nextLine().toLowerCase();
+          if (next.startsWith("#") || next.length() == 0) {
+            continue;
+          }
+          if (next.equals("close program")
+                  || !this.colorTransforms.containsKey(stripComment(next))) {
+            pending = next;
+            break;
+          }
+          run.add(stripComment(next));
+        }
+        if (run.size() > 1) {
+          this.applyColorTransformRun(run);
+          continue;
+        }
       }
 
 
@@ -147,6 +223,8 @@ public class ImageController implements IController {
               && tempCmd.startsWith("set current ")) {
         // we can hard code here, because tempCmd will at least have set current....
         tempCmd = tempCmd.substring(0, 11);
+      } else if (parameterizedName(tempCmd) != null) {
+        tempCmd = parameterizedName(tempCmd);
       } else {
         tempCmd = checkForFileNameCmd(currLine);
       }
@@ -169,6 +247,69 @@ public class ImageController implements IController {
     // just exit when done...
   }
 
+  /**
+   * Adds a command for an operation that takes parameters, which can be followed by up to one
+   * whole number for each of them.
+   *
+   * @param type           the operation to apply.
+   * @param name           the command without parameters.
+   * @param parameterNames names of the parameters of the operation, in order.
+   */
+  private void putParameterized(OperationType type, String name, String... parameterNames) {
+    this.commands.put(name, new ParameterizedOperation(type, name, parameterNames));
+    this.parameterized.add(name);
+  }
+
+  /**
+   * Finds the command that takes parameters that the given line is, followed by parameters.
+   *
+   * @param currLine a current line to traverse.
+   * @return the command without parameters, or null if the line isn't one followed by
+   *         parameters.
+   */
+  private String parameterizedName(String currLine) {
+    for (String name : this.parameterized) {
+      if (currLine.startsWith(name + " ")) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes a comment from the end of the given line, which starts one space before the first
+   * "#" in the line.
+   *
+   * @param line a line that isn't a comment itself.
+   * @return the line without its comment, or the line as it was given if it has none.
+   */
+  private static String stripComment(String line) {
+    if (line.contains("#")) {
+      return line.substring(0, line.indexOf('#') - 1);
+    }
+    return line;
+  }
+
+  /**
+   * Applies a run of color transformation commands in a row to the current layer in a single
+   * pass, and transmits the same messages to the view as running each of them would.
+   *
+   * @param run command lines of the run, each a key of colorTransforms.
+   * @throws IOException if transmitting a message to the view fails.
+   */
+  private void applyColorTransformRun(List<String> run) throws IOException {
+    List<OperationType> transforms = new ArrayList<>();
+    for (String line : run) {
+      transforms.add(this.colorTransforms.get(line));
+    }
+    try {
+      this.view.renderMessage(new ColorTransformRun(transforms)
+              .goCommand(this.model, String.join("\n", run)) + "\n");
+    } catch (IllegalArgumentException ia) {
+      this.view.renderMessage("Command failed: " + ia.getMessage() + "\n");
+    }
+  }
+
   /**
    * Ensures that tempCmd is given as the correct key in containsKey, for the sake of
    * checking for file names.
@@ -213,7 +354,8 @@ public class ImageController implements IController {
       if (extension.equals(".bat") || extension.equals(".txt")) {
         try {
           Scanner newScan = new Scanner(new File(toTraverse.substring(6)));
-          processNextLines(newScan);
+          // a batch file is read all at once, so it can always be read ahead.
+          processNextLines(newScan, true);
         } catch (IOException io) {
           // this case includes if file not found
           return "batch reading unsuccessful with IOException";
@@ -0,0 +1,128 @@
+package controller;
+
+import controller.importexport.FileUtils;
+import model.image.IRowSink;
+import model.image.IRowSource;
+import model.operations.OperationType;
+import model.operations.StreamingPipeline;
+import view.IImageView;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A controller for headless batch jobs, that streams one image file through a chain of
+ * operations into another with a StreamingPipeline, without ever loading the whole image. The
+ * input must be a ppm file, and the output a ppm or png file.
+ *
+ * <p>Operations are given as the names of OperationTypes, in any case and with '-' or '_'
+ * between words (like "box-blur"), each followed by its parameters if it takes any, as
+ * OperationType describes: "sharpen box-blur 5 1 greyscale" sharpens the image, blurs it with
+ * a box of radius 5 clamped at the edges, and then turns it grey. Mosaics need the whole
+ * image, so they can't be streamed.</p>
+ */
+public class StreamingController implements IController {
+  private final String input;
+  private final String output;
+  private final List<String> operations;
+  private final IImageView view;
+
+  /**
+   * Creates a new StreamingController that streams the given input file into the given output
+   * file through the given operations.
+   *
+   * @param input      full path of the ppm file to read.
+   * @param output     full path of the ppm or png file to write.
+   * @param operations names of the operations to apply, first to last, each followed by its
+   *                   parameters.
+   * @param view       view to transmit messages to.
+   * @throws IllegalArgumentException if any argument is null.
+   */
+  public StreamingController(String input, String output, List<String> operations,
+                             IImageView view) throws IllegalArgumentException {
+    if (input == null || output == null || operations == null || view == null) {
+      throw new IllegalArgumentException("no null args");
+    }
+    this.input = input;
+    this.output = output;
+    this.operations = new ArrayList<>(operations);
+    this.view = view;
+  }
+
+  @Override
+  public void startProcessing() {
+    try {
+      try {
+        this.stream();
+        view.renderMessage("streamed " + this.input + " to " + this.output + "\n");
+      } catch (IllegalArgumentException iae) {
+        view.renderMessage(iae.getMessage() + "\n");
+      }
+    } catch (IOException io) {
+      throw new IllegalStateException("file reading/writing failed.");
+    }
+  }
+
+  /**
+   * Reads the header of the input, checks every operation, and only then creates the output
+   * and streams the rows into it.
+   *
+   * @throws IllegalArgumentException if a file can't be streamed, or an operation is unknown,
+   *                                  has invalid parameters or can't be streamed.
+   * @throws IOException              if reading or writing a file fails.
+   */
+  private void stream() throws IllegalArgumentException, IOException {
+    try (IRowSource source = FileUtils.openRowSource(this.input)) {
+      StreamingPipeline pipeline = new StreamingPipeline(source.getWidth(),
+              source.getHeight());
+      int i = 0;
+      while (i < this.operations.size()) {
+        OperationType type = operationType(this.operations.get(i));
+        i++;
+        List<Long> parameters = new ArrayList<>();
+        while (i < this.operations.size() && isNumber(this.operations.get(i))) {
+          parameters.add(Long.parseLong(this.operations.get(i)));
+          i++;
+        }
+        pipeline.add(type, parameters.stream().mapToLong(Long::longValue).toArray());
+      }
+      try (IRowSink sink = FileUtils.openRowSink(this.output, source.getWidth(),
+              source.getHeight())) {
+        pipeline.run(source, sink);
+      }
+    }
+  }
+
+  /**
+   * Finds the OperationType with the given name, in any case and with '-' or '_' between
+   * words.
+   *
+   * @param name name of the operation.
+   * @return the OperationType.
+   * @throws IllegalArgumentException if there is no such operation.
+   */
+  private static OperationType operationType(String name) throws IllegalArgumentException {
+    try {
+      return OperationType.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+    } catch (IllegalArgumentException iae) {
+      throw new IllegalArgumentException("unknown operation: " + name);
+    }
+  }
+
+  /**
+   * Checks whether the given word is a parameter, rather than the name of an operation.
+   *
+   * @param word the word.
+   * @return whether it is a whole number that fits in a long.
+   */
+  private static boolean isNumber(String word) {
+    try {
+      Long.parseLong(word);
+      return true;
+    } catch (NumberFormatException nfe) {
+      return false;
+    }
+  }
+}
@@ -6,6 +6,8 @@ import controller.importexport.IFileExporter;
 import controller.importexport.FileUtils;
 
 import model.ILayeredModel;
+import model.image.IImage;
+import model.operations.MosaicSession;
 import model.operations.OperationType;
 import view.ISwingView;
 
@@ -25,6 +27,8 @@ import java.io.IOException;
 
 import java.io.InputStreamReader;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * IController implementation that uses a model and view, and mutates the view
@@ -37,6 +41,10 @@ public class SwingController implements IController {
   private final ILayeredModel model;
   private final ISwingView view;
   private OperationType currOperation;
+  // the source of every mosaic applied through this controller, by the mosaic that replaced it
+  // in its layer, so its seeds can be changed without building it from scratch. Entries go away
+  // once their mosaic is no longer held by any layer.
+  private final Map<IImage, MosaicTuning> mosaics;
 
   /**
    * Constructs a new SwingController object out of a view and a model.
@@ -53,6 +61,7 @@ public class SwingController implements IController {
     this.view = view;
     // just make the current option the first type of operation, for now
     currOperation = OperationType.values()[0];
+    this.mosaics = new WeakHashMap<>();
   }
 
 
@@ -65,6 +74,7 @@ public class SwingController implements IController {
     view.setListener(new SwingController.LayerSelectListener());
     view.setListener(new SwingController.VisibleCheckboxListener());
     view.setListener(new SwingController.LayerRenameListener());
+    view.setListener(new SwingController.MosaicSeedsListener());
     try {
       UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName());
     } catch (UnsupportedLookAndFeelException | ClassNotFoundException
@@ -109,7 +119,26 @@ public class SwingController implements IController {
           case "apply curr operation":
             // per Piazza @1678: allow operations to be applied to invisible layers
             if (model.getCurrentLayer() != -1) {
-              model.applyIOperation(currOperation, model.getCurrentLayer());
+              if (currOperation == OperationType.MOSAIC) {
+                long[] settings = mosaicSettings();
+                if (settings == null) {
+                  return;
+                }
+                IImage source = model.getImageAt(model.getCurrentLayer());
+                try {
+                  model.applyIOperation(currOperation, model.getCurrentLayer(),
+                          settings[0], settings[1]);
+                } catch (IllegalArgumentException ia) {
+                  // such as more seeds than the layer has pixels.
+                  view.renderMessage("could not apply " + currOperation + ": "
+                          + ia.getMessage());
+                  return;
+                }
+                mosaics.put(model.getImageAt(model.getCurrentLayer()),
+                        new MosaicTuning(source, settings[1]));
+              } else {
+                model.applyIOperation(currOperation, model.getCurrentLayer());
+              }
               view.renderMessage("applied " + currOperation + " to "
                       + (model.getNamesMap().get(model.getCurrentLayer())));
             } else {
@@ -448,4 +477,124 @@ public class SwingController implements IController {
       }
     }
   }
+
+  /**
+   * Listener class that changes the number of seeds of the mosaic in the current layer when a
+   * number of seeds is entered, through the MosaicSession of the layer it was applied to, so
+   * only the pixels near the seeds that are added or removed are measured again.
+   */
+  private class MosaicSeedsListener implements ActionListener {
+    @Override
+    public void actionPerformed(ActionEvent e) {
+      if (!e.getActionCommand().equals("mosaic seeds")) {
+        return;
+      }
+      try {
+        if (model.getCurrentLayer() == -1) {
+          view.renderMessage("no layers present");
+          return;
+        }
+        int layer = model.getCurrentLayer();
+        IImage shown = model.getImageAt(layer);
+        MosaicTuning tuning = mosaics.get(shown);
+        if (tuning == null) {
+          view.renderMessage("apply MOSAIC to this layer before changing its seeds");
+          return;
+        }
+        long[] settings = mosaicSettings();
+        if (settings == null) {
+          return;
+        }
+        IImage result;
+        try {
+          if (settings[0] < 1 || settings[0] > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("number of seeds must be between 1 and the "
+                    + "number of pixels");
+          }
+          result = tuning.tune((int) settings[0]);
+        } catch (IllegalArgumentException ia) {
+          view.renderMessage("could not change the seeds of the mosaic: " + ia.getMessage());
+          return;
+        }
+        model.replaceLayerAt(layer, result);
+        mosaics.remove(shown);
+        mosaics.put(result, tuning);
+        if (model.isLayerInvisible(layer)) {
+          view.renderIImage(null);
+        } else {
+          view.renderIImage(result);
+        }
+        view.renderMessage("changed the mosaic of " + model.getNamesMap().get(layer) + " to "
+                + settings[0] + " seeds");
+      } catch (IOException io) {
+        throw new IllegalStateException("view transmission failed");
+      }
+    }
+  }
+
+  /**
+   * The layer a mosaic was applied to and its random seed, and the MosaicSession that changes
+   * its number of seeds, once they have been changed.
+   */
+  private static class MosaicTuning {
+    private final IImage source;
+    private final long randomSeed;
+    private MosaicSession session;
+
+    /**
+     * Constructs a new MosaicTuning of a mosaic, without a MosaicSession yet.
+     *
+     * @param source     the layer the mosaic was applied to.
+     * @param randomSeed the random seed of the mosaic.
+     */
+    private MosaicTuning(IImage source, long randomSeed) {
+      this.source = source;
+      this.randomSeed = randomSeed;
+    }
+
+    /**
+     * Builds the mosaic of the source with the given number of seeds, starting a MosaicSession
+     * the first time, which every later call only adds seeds to or removes seeds from.
+     *
+     * @param seeds the number of seeds.
+     * @return the mosaic, the same as Mosaic would build with the same seeds.
+     * @throws IllegalArgumentException if the number of seeds is lower than 1 or higher than
+     *                                  the number of pixels.
+     */
+    private IImage tune(int seeds) throws IllegalArgumentException {
+      if (this.session == null) {
+        this.session = new MosaicSession(this.source, seeds, this.randomSeed);
+      } else {
+        this.session.setSeedCount(seeds);
+      }
+      return this.session.getImage();
+    }
+  }
+
+  /**
+   * Reads the number of seeds and the random seed of MOSAIC as they are typed into the view
+   * at the moment. An empty number of seeds is 4% of the pixels, and an empty random seed is 0.
+   *
+   * @return the number of seeds and the random seed, in that order, or null if either isn't a
+   *         valid setting, after telling the view why.
+   * @throws IOException if the view fails to render a message.
+   */
+  private long[] mosaicSettings() throws IOException {
+    String[] typed = view.getMosaicSettings();
+    String[] names = {"mosaic seeds", "random seed"};
+    long[] settings = new long[names.length];
+    for (int i = 0; i < names.length; i++) {
+      try {
+        settings[i] = typed[i].isEmpty() ? 0 : Long.parseLong(typed[i]);
+      } catch (NumberFormatException nfe) {
+        view.renderMessage(names[i] + " must be a whole number");
+        return null;
+      }
+    }
+    if (settings[0] < 0) {
+      view.renderMessage("mosaic seeds cannot be negative");
+      return null;
+    }
+    return settings;
+  }
 }
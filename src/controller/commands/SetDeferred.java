@@ -0,0 +1,27 @@
+package controller.commands;
+
+import model.ILayeredModel;
+
+/**
+ * Command object that mutates the model by turning deferred operations on or off, so that
+ * operations applied afterwards are either computed when their layer is next read, or right
+ * away.
+ */
+public class SetDeferred implements IImageCommand {
+  private final boolean deferred;
+
+  /**
+   * Constructs a new SetDeferred command.
+   *
+   * @param deferred whether the command turns deferred operations on.
+   */
+  public SetDeferred(boolean deferred) {
+    this.deferred = deferred;
+  }
+
+  @Override
+  public String goCommand(ILayeredModel model, String toTraverse) {
+    model.setDeferred(this.deferred);
+    return toTraverse + " performed.";
+  }
+}
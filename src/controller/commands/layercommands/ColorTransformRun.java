@@ -0,0 +1,67 @@
+package controller.commands.layercommands;
+
+import controller.commands.IImageCommand;
+import model.ILayeredModel;
+import model.operations.OperationType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command for a run of color transformation commands (like greyscale followed by sepia) in a
+ * row on the current layer, which the model applies in a single pass. Gives the same output
+ * as running the command for each line of the run one at a time.
+ */
+public class ColorTransformRun implements IImageCommand {
+  private final List<OperationType> transforms;
+
+  /**
+   * Creates a new ColorTransformRun command that applies the given color transformations to
+   * the current layer, first to last.
+   *
+   * @param transforms operation types of the color transformations, such as GREYSCALE or SEPIA.
+   * @throws IllegalArgumentException if given null, an empty list, or a list containing null.
+   */
+  public ColorTransformRun(List<OperationType> transforms) throws IllegalArgumentException {
+    if (transforms == null || transforms.isEmpty() || transforms.contains(null)) {
+      throw new IllegalArgumentException("transforms cannot be null or empty");
+    }
+    this.transforms = new ArrayList<>(transforms);
+  }
+
+  /**
+   * Applies every transformation of this run to the current layer of the model.
+   *
+   * @param model      the model to mutate.
+   * @param toTraverse the command lines of the run, separated by new lines, one per
+   *                   transformation.
+   * @return a line of outcome for each command line of the run, separated by new lines.
+   * @throws IllegalArgumentException if given null, or not one line per transformation.
+   */
+  @Override
+  public String goCommand(ILayeredModel model, String toTraverse)
+          throws IllegalArgumentException {
+    if (model == null || toTraverse == null) {
+      throw new IllegalArgumentException("given null");
+    }
+    String[] lines = toTraverse.split("\n");
+    if (lines.length != this.transforms.size()) {
+      throw new IllegalArgumentException("need one command line per transformation");
+    }
+
+    StringBuilder outcome = new StringBuilder();
+    if (model.numImages() == 0) {
+      for (int i = 0; i < lines.length; i++) {
+        outcome.append(i == 0 ? "" : "\n").append("no layers present");
+      }
+      return outcome.toString();
+    }
+    int currLayer = model.getCurrentLayer();
+    model.applyIOperations(this.transforms, currLayer);
+    for (int i = 0; i < lines.length; i++) {
+      outcome.append(i == 0 ? "" : "\n")
+              .append("applied ").append(lines[i]).append(" on layer #").append(currLayer + 1);
+    }
+    return outcome.toString();
+  }
+}
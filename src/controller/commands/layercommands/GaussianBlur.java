@@ -0,0 +1,32 @@
+package controller.commands.layercommands;
+
+import model.ILayeredModel;
+import model.operations.OperationType;
+
+/**
+ * Gaussian blur implementation and subclass of layered (targeted) command on the current layer,
+ * with a strength given by one of the GAUSSIAN_BLUR operation types.
+ */
+public class GaussianBlur extends AbstractLayerCommand {
+  private final OperationType strength;
+
+  /**
+   * Creates a new GaussianBlur command that applies the given strength of Gaussian blur.
+   *
+   * @param strength GAUSSIAN_BLUR_SMALL, GAUSSIAN_BLUR_MEDIUM or GAUSSIAN_BLUR_LARGE.
+   * @throws IllegalArgumentException if given any other operation type, or null.
+   */
+  public GaussianBlur(OperationType strength) throws IllegalArgumentException {
+    if (strength != OperationType.GAUSSIAN_BLUR_SMALL
+            && strength != OperationType.GAUSSIAN_BLUR_MEDIUM
+            && strength != OperationType.GAUSSIAN_BLUR_LARGE) {
+      throw new IllegalArgumentException("strength must be a Gaussian blur operation type");
+    }
+    this.strength = strength;
+  }
+
+  @Override
+  protected void specificOperation(ILayeredModel model, int currLayer) {
+    model.applyIOperation(this.strength, currLayer);
+  }
+}
@@ -0,0 +1,71 @@
+package controller.commands.layercommands;
+
+import controller.commands.IImageCommand;
+import model.ILayeredModel;
+import model.operations.OperationType;
+
+/**
+ * Command on the current layer for an operation that takes parameters, in the format of its
+ * name followed by up to one whole number for each of its parameters, such as
+ * "mosaic [seeds] [random seed]". Parameters that aren't given take the defaults described by
+ * OperationType, so the same command always gives the same result.
+ */
+public class ParameterizedOperation implements IImageCommand {
+  private final OperationType type;
+  private final String name;
+  private final String format;
+  private final int maxParameters;
+
+  /**
+   * Creates a new ParameterizedOperation command that applies the given operation type.
+   *
+   * @param type           the operation to apply.
+   * @param name           the command without parameters, such as "mosaic".
+   * @param parameterNames names of the parameters of the operation, in the order OperationType
+   *                       describes, to show in the format of the command.
+   * @throws IllegalArgumentException if given null.
+   */
+  public ParameterizedOperation(OperationType type, String name, String... parameterNames)
+          throws IllegalArgumentException {
+    if (type == null || name == null || parameterNames == null) {
+      throw new IllegalArgumentException("given null");
+    }
+    StringBuilder format = new StringBuilder(name);
+    for (String parameter : parameterNames) {
+      format.append(" [").append(parameter).append("]");
+    }
+    this.type = type;
+    this.name = name;
+    this.format = format.toString();
+    this.maxParameters = parameterNames.length;
+  }
+
+  @Override
+  public String goCommand(ILayeredModel model, String toTraverse)
+          throws IllegalArgumentException {
+    if (model == null || toTraverse == null) {
+      throw new IllegalArgumentException("given null");
+    }
+    // can reliably assume the given string starts with the name of the command
+    String rest = toTraverse.substring(this.name.length()).trim();
+    String[] words = rest.isEmpty() ? new String[0] : rest.split(" +");
+    if (words.length > this.maxParameters) {
+      throw new IllegalArgumentException("format is \"" + this.format + "\"");
+    }
+    long[] parameters = new long[words.length];
+    for (int i = 0; i < parameters.length; i++) {
+      try {
+        parameters[i] = Long.parseLong(words[i]);
+      } catch (NumberFormatException nfe) {
+        throw new IllegalArgumentException("format is \"" + this.format + "\"");
+      }
+    }
+
+    if (model.numImages() == 0) {
+      return "no layers present";
+    }
+    int currLayer = model.getCurrentLayer();
+    model.applyIOperation(this.type, currLayer, parameters);
+    return "applied " + toTraverse + " on layer #" + (currLayer + 1);
+  }
+}
@@ -1,49 +1,101 @@
 package controller.importexport;
 
-import model.image.BasicImage;
-import model.image.BasicPixel;
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.IImageBuilder;
+import model.image.PackedImage;
+import model.image.TiledImage;
 
 import javax.imageio.ImageIO;
-import java.awt.Color;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
 
 /**
  * Implementation of IImporter that can import jpeg and png images while disregarding
- * their alpha values, and returns a new BasicImage with all pixels from the original file.
+ * their alpha values, and returns a new PackedImage with all pixels from the original file.
+ * Images too large to fit in the heap are decoded a strip of rows at a time into a TiledImage
+ * instead.
  */
 public class AdvancedBasicImporter implements IImporter {
+  // roughly how many pixels are decoded at once for a TiledImage.
+  private static final int STRIP_PIXELS = 1 << 22;
 
   @Override
   public IImage importFrom(String fileName) throws IllegalArgumentException, IOException {
     if (fileName == null) {
       throw new IllegalArgumentException("given null instead of file name");
     }
-    BufferedImage img;
-    try {
-      img = ImageIO.read(new FileInputStream(fileName));
-    } catch (FileNotFoundException fnf) {
+    File file = new File(fileName);
+    if (!file.isFile()) {
       throw new IllegalArgumentException("file not found!");
     }
 
-    int width = img.getWidth();
-    int height = img.getHeight();
+    ImageInputStream stream = ImageIO.createImageInputStream(file);
+    if (stream == null) {
+      throw new IllegalArgumentException("file not found!");
+    }
+    try {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IllegalArgumentException("unsupported image format");
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
 
-    IPixel[] pixels = new IPixel[width * height];
-    int pixelIter = 0;
-    for (int i = 0; i < width; i++) {
-      for (int j = 0; j < height; j++) {
-        // color constructor disregards alpha, even if .getRGB returns with alpha
-        Color colors = new Color(img.getRGB(i, j));
-        pixels[pixelIter] = new BasicPixel(i, j, colors.getRed(),
-                colors.getGreen(), colors.getBlue());
-        pixelIter++;
+        if (TiledImage.shouldTile(width, height)) {
+          return readStrips(reader, width, height);
+        }
+        BufferedImage img = reader.read(0);
+        IImageBuilder builder = PackedImage.builder(width, height);
+        // copies a strip of rows at a time in row-major order, the builder disregards the
+        // alpha bits that .getRGB returns with.
+        int stripRows = Math.max(1, STRIP_PIXELS / width);
+        int[] rgb = new int[Math.min(stripRows, height) * width];
+        for (int y = 0; y < height; y += stripRows) {
+          int rows = Math.min(stripRows, height - y);
+          img.getRGB(0, y, width, rows, rgb, 0, width);
+          builder.setRows(y, rows, rgb, 0);
+        }
+        return builder.build();
+      } finally {
+        reader.dispose();
       }
+    } finally {
+      stream.close();
+    }
+  }
+
+  /**
+   * Decodes the image a strip of rows at a time into a TiledImage, so that only one strip is
+   * ever held in the heap.
+   *
+   * @param reader reader with its input set to the image file.
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @return new TiledImage with all pixels from the file.
+   * @throws IOException if decoding the file fails.
+   */
+  private static IImage readStrips(ImageReader reader, int width, int height)
+          throws IOException {
+    IImageBuilder builder = TiledImage.builder(width, height);
+    int stripRows = Math.max(1, STRIP_PIXELS / width);
+    int[] rgb = new int[Math.min(stripRows, height) * width];
+    ImageReadParam param = reader.getDefaultReadParam();
+    for (int y = 0; y < height; y += stripRows) {
+      int rows = Math.min(stripRows, height - y);
+      param.setSourceRegion(new Rectangle(0, y, width, rows));
+      BufferedImage strip = reader.read(0, param);
+      strip.getRGB(0, 0, width, rows, rgb, 0, width);
+      builder.setRows(y, rows, rgb, 0);
     }
-    return new BasicImage(width, height, pixels);
+    return builder.build();
   }
 }
@@ -1,10 +1,10 @@
 package controller.importexport;
 
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.TiledImage;
+import model.operations.DeferredImage;
 
 import javax.imageio.ImageIO;
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -28,15 +28,26 @@ public class AdvancedUtilExporter implements IFileExporter {
 
   @Override
   public void export(IImage img, String fileName) throws IllegalArgumentException, IOException {
+    if (img == null || fileName == null) {
+      throw new IllegalArgumentException("given null argument.");
+    }
+    if (img instanceof DeferredImage) {
+      // compute it now, to see what kind of image it is.
+      img = ((DeferredImage) img).evaluate();
+    }
+    if (this.currType == AdvancedFileType.PNG && img instanceof TiledImage) {
+      // a BufferedImage of a TiledImage may not fit in the heap, so write it a row at a time.
+      StreamingPngWriter.write(img, fileName + ".png");
+      return;
+    }
+
     BufferedImage bImg = new BufferedImage(img.getWidth(),
             img.getHeight(), BufferedImage.TYPE_INT_RGB);
-    for (int i = 0; i < img.getWidth(); i++) {
-      for (int j = 0; j < img.getHeight(); j++) {
-        IPixel currPix = img.getPixelAt(i, j);
-        int convertedRGB = new Color(currPix.getRed(),
-                currPix.getGreen(), currPix.getBlue()).getRGB();
-        bImg.setRGB(i, j , convertedRGB);
-      }
+    // packed RGB ints are already in the TYPE_INT_RGB format, so rows copy over directly.
+    int[] row = new int[img.getWidth()];
+    for (int j = 0; j < img.getHeight(); j++) {
+      img.getRow(j, row);
+      bImg.setRGB(0, j, row.length, 1, row, 0, row.length);
     }
 
     String extension;
@@ -1,18 +1,16 @@
 package controller.importexport;
 
-import model.image.BasicImage;
-import model.image.BasicPixel;
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.IImageBuilder;
+import model.image.PackedImage;
+import model.image.TiledImage;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.io.IOException;
 
 /**
- * Implementation of IImporter that outputs IImage objects using the classes BasicPixel and
- * BasicImage.
+ * Implementation of IImporter that outputs IImage objects using the PackedImage class, or the
+ * TiledImage class for images too large to fit in the heap. The file is read one row at a time
+ * with a PpmRowReader, so it is never held in memory all at once.
  */
 public class BasicPpmImporter implements IImporter {
 
@@ -22,51 +20,20 @@ public class BasicPpmImporter implements IImporter {
       throw new IllegalArgumentException("given null");
     }
 
-    Scanner input;
-    try {
-      input = new Scanner(new FileInputStream(fileName));
-    } catch (FileNotFoundException fnf) {
-      throw new IllegalArgumentException("file not found!");
-    }
-
-    StringBuilder builder = new StringBuilder();
-    //read the file line by line, and populate a string. This will throw away any comment lines
-    while (input.hasNextLine()) {
-      String s = input.nextLine();
-      if ((s.length() != 0) && (s.charAt(0) != '#')) {
-        builder.append(s + System.lineSeparator());
-      }
-    }
-
-    input = new Scanner(builder.toString());
-
-    String token;
-
-    token = input.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Invalid PPM file: plain RAW file should begin with P3");
-    }
-    int width = input.nextInt();
-    int height = input.nextInt();
-    input.nextInt();
-
-    IPixel[] pixels = new IPixel[width * height];
-    int pixelsIterator = 0;
-
-    try {
+    try (PpmRowReader reader = new PpmRowReader(fileName)) {
+      int width = reader.getWidth();
+      int height = reader.getHeight();
+      // rows go straight into the image being built, one at a time.
+      IImageBuilder builder = TiledImage.shouldTile(width, height)
+              ? TiledImage.builder(width, height) : PackedImage.builder(width, height);
+      int[] row = new int[width];
       for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          int r = input.nextInt();
-          int g = input.nextInt();
-          int b = input.nextInt();
-          pixels[pixelsIterator] = new BasicPixel(j, i, r, g, b);
-          pixelsIterator++;
-        }
+        reader.readRow(row, 0);
+        builder.setRows(i, 1, row, 0);
       }
-    } catch (NoSuchElementException nse) {
-      throw new IllegalArgumentException("insufficient data, malformed ppm file.");
+      return builder.build();
+    } catch (IOException io) {
+      throw new IllegalArgumentException("could not read file!");
     }
-
-    return new BasicImage(width, height, pixels);
   }
 }
@@ -1,5 +1,9 @@
 package controller.importexport;
 
+import model.image.IRowSink;
+import model.image.IRowSource;
+
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Locale;
 
@@ -62,6 +66,52 @@ public class FileUtils {
     }
   }
 
+  /**
+   * Opens the given file to read its rows one at a time, for a StreamingPipeline. Only ppm
+   * files can be read a row at a time.
+   *
+   * @param filePath String representing filepath in format "C:\\user\\dir\\file.ppm".
+   * @return IRowSource reading the rows of the file, which the caller must close.
+   * @throws IllegalArgumentException if given null, the file path isn't a ppm file, or the file
+   *                                  is not found or isn't a valid ppm file.
+   * @throws IOException              if reading the file fails.
+   */
+  public static IRowSource openRowSource(String filePath)
+          throws IllegalArgumentException, IOException {
+    if (!getExtension(filePath).equalsIgnoreCase("ppm")) {
+      throw new IllegalArgumentException("only ppm files can be read a row at a time");
+    }
+    return new PpmRowReader(filePath);
+  }
+
+  /**
+   * Creates the given file to write the rows of an image to one at a time, for a
+   * StreamingPipeline. Only ppm and png files can be written a row at a time.
+   *
+   * @param filePath String representing filepath in format "C:\\user\\dir\\file.png".
+   * @param width    width of the image in pixels, at least 1.
+   * @param height   height of the image in pixels, at least 1.
+   * @return IRowSink writing the rows to the file, which the caller must close to finish it.
+   * @throws IllegalArgumentException if given null, the file path isn't a ppm or png file, or
+   *                                  width or height is less than 1.
+   * @throws IOException              if the file can't be created or written.
+   */
+  public static IRowSink openRowSink(String filePath, int width, int height)
+          throws IllegalArgumentException, IOException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("width and height must be at least 1");
+    }
+    switch (getExtension(filePath).toLowerCase(Locale.ROOT)) {
+      case "ppm":
+        return new PpmRowWriter(filePath, width, height);
+      case "png":
+        return new StreamingPngWriter(filePath, width, height);
+      default:
+        throw new IllegalArgumentException("only ppm and png files can be written a row at a "
+                + "time");
+    }
+  }
+
   /**
    * Returns the file extension from the given file path. Note, does not check if the extension
    * is valid as an image extension or txt.
@@ -0,0 +1,146 @@
+package controller.importexport;
+
+import model.image.IRowSource;
+import model.image.RgbUtils;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+
+/**
+ * Implementation of IRowSource that reads the rows of a plain (P3) ppm file one at a time. The
+ * file is read one line at a time, so it is never held in memory all at once.
+ */
+public class PpmRowReader implements IRowSource {
+  private final PpmTokens input;
+  private final int width;
+  private final int height;
+  private int rowsRead;
+
+  /**
+   * Opens the given ppm file and reads its header.
+   *
+   * @param fileName full name of the file to read, including extension.
+   * @throws IllegalArgumentException if given null, the file is not found, or its header isn't
+   *                                  that of a plain ppm file.
+   * @throws IOException              if reading the file fails.
+   */
+  public PpmRowReader(String fileName) throws IllegalArgumentException, IOException {
+    if (fileName == null) {
+      throw new IllegalArgumentException("given null");
+    }
+    BufferedReader reader;
+    try {
+      reader = new BufferedReader(new FileReader(fileName));
+    } catch (FileNotFoundException fnf) {
+      throw new IllegalArgumentException("file not found!");
+    }
+    this.input = new PpmTokens(reader);
+    try {
+      if (!this.input.next().equals("P3")) {
+        throw new IllegalArgumentException(
+                "Invalid PPM file: plain RAW file should begin with P3");
+      }
+      this.width = this.input.nextInt();
+      this.height = this.input.nextInt();
+      this.input.nextInt();
+    } catch (NoSuchElementException | NumberFormatException nse) {
+      reader.close();
+      throw new IllegalArgumentException("insufficient data, malformed ppm file.");
+    } catch (IllegalArgumentException | IOException e) {
+      reader.close();
+      throw e;
+    }
+    this.rowsRead = 0;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public void readRow(int[] rgbOut, int offset) throws IllegalArgumentException, IOException {
+    if (rgbOut == null || offset < 0 || rgbOut.length - offset < this.width) {
+      throw new IllegalArgumentException("rgbOut is too small to hold a row");
+    }
+    if (this.rowsRead == this.height) {
+      throw new IllegalArgumentException("every row has already been read");
+    }
+    try {
+      for (int x = 0; x < this.width; x++) {
+        int r = this.input.nextInt();
+        int g = this.input.nextInt();
+        int b = this.input.nextInt();
+        rgbOut[offset + x] = RgbUtils.pack(r, g, b);
+      }
+    } catch (NoSuchElementException | NumberFormatException nse) {
+      throw new IllegalArgumentException("insufficient data, malformed ppm file.");
+    }
+    this.rowsRead++;
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.input.reader.close();
+  }
+
+  /**
+   * Splits a ppm file into whitespace separated tokens one line at a time, throwing away any
+   * empty lines and comment lines.
+   */
+  private static class PpmTokens {
+    private final BufferedReader reader;
+    private StringTokenizer line;
+
+    /**
+     * Creates a new PpmTokens reading from the given reader.
+     *
+     * @param reader reader of the ppm file.
+     */
+    private PpmTokens(BufferedReader reader) {
+      this.reader = reader;
+      this.line = new StringTokenizer("");
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return the next token in the file.
+     * @throws IOException            if reading the file fails.
+     * @throws NoSuchElementException if there are no tokens left.
+     */
+    private String next() throws IOException, NoSuchElementException {
+      while (!this.line.hasMoreTokens()) {
+        String s = this.reader.readLine();
+        if (s == null) {
+          throw new NoSuchElementException("no tokens left");
+        }
+        if ((s.length() != 0) && (s.charAt(0) != '#')) {
+          this.line = new StringTokenizer(s);
+        }
+      }
+      return this.line.nextToken();
+    }
+
+    /**
+     * Reads the next token as an integer.
+     *
+     * @return the next token in the file as an integer.
+     * @throws IOException            if reading the file fails.
+     * @throws NoSuchElementException if there are no tokens left.
+     * @throws NumberFormatException  if the next token is not an integer.
+     */
+    private int nextInt() throws IOException, NoSuchElementException, NumberFormatException {
+      return Integer.parseInt(this.next());
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package controller.importexport;
+
+import model.image.IRowSink;
+import model.image.RgbUtils;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * Implementation of IRowSink that writes the rows of an image to a plain (P3) ppm file one at a
+ * time, in the same format as PPMExporter.
+ */
+public class PpmRowWriter implements IRowSink {
+  private final BufferedWriter out;
+  private final int width;
+  private final int height;
+  private int rowsWritten;
+
+  /**
+   * Creates the given ppm file and writes its header.
+   *
+   * @param fileName full name of the file to write, including extension.
+   * @param width    width of the image in pixels.
+   * @param height   height of the image in pixels.
+   * @throws IllegalArgumentException if given null, or width or height is less than 0.
+   * @throws IOException              if the file can't be created or written.
+   */
+  public PpmRowWriter(String fileName, int width, int height)
+          throws IllegalArgumentException, IOException {
+    if (fileName == null) {
+      throw new IllegalArgumentException("given null argument.");
+    }
+    if (width < 0 || height < 0) {
+      throw new IllegalArgumentException("width and height cannot be negative");
+    }
+    this.out = new BufferedWriter(new FileWriter(fileName));
+    this.width = width;
+    this.height = height;
+    this.rowsWritten = 0;
+    // writing:  P3 # filename.ppm width height maxColorValue
+    this.out.write("P3 \n" + "# " + fileName + " \n" + width + " " + height + " 256 \n");
+  }
+
+  @Override
+  public void writeRow(int[] rgb, int offset) throws IllegalArgumentException, IOException {
+    if (rgb == null || offset < 0 || rgb.length - offset < this.width) {
+      throw new IllegalArgumentException("rgb is too small to hold a row");
+    }
+    if (this.rowsWritten == this.height) {
+      throw new IllegalArgumentException("every row has already been written");
+    }
+    for (int x = 0; x < this.width; x++) {
+      int pixel = rgb[offset + x];
+      this.out.write(RgbUtils.red(pixel) + " " + RgbUtils.green(pixel) + " "
+              + RgbUtils.blue(pixel) + " ");
+    }
+    this.rowsWritten++;
+    if (this.rowsWritten != this.height) {
+      this.out.write("\n");
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.out.close();
+  }
+}
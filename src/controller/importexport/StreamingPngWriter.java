@@ -0,0 +1,196 @@
+package controller.importexport;
+
+import model.image.IImage;
+import model.image.IRowSink;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an image to a PNG file one row at a time, without ever building a BufferedImage of
+ * the whole image, so that images larger than the heap (like TiledImages) can be exported, and
+ * the rows of a StreamingPipeline can be written as they are computed. Writes 8 bit RGB with no
+ * filtering on each row, which every PNG decoder can read.
+ */
+class StreamingPngWriter implements IRowSink {
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  // compressed bytes are buffered up to this size before being written as an IDAT chunk.
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  private final DataOutputStream out;
+  private final DeflaterOutputStream deflater;
+  private final byte[] scanline;
+  private final int width;
+  private final int height;
+  private int rowsWritten;
+
+  /**
+   * Creates the given PNG file and writes its header.
+   *
+   * @param fileName full name of the file to write, including extension.
+   * @param width    width of the image in pixels, at least 1.
+   * @param height   height of the image in pixels, at least 1.
+   * @throws IOException if the file can't be created or written.
+   */
+  StreamingPngWriter(String fileName, int width, int height) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+    this.width = width;
+    this.height = height;
+    this.rowsWritten = 0;
+    try {
+      this.out.write(SIGNATURE);
+      ByteArrayOutputStream header = new ByteArrayOutputStream();
+      DataOutputStream headerData = new DataOutputStream(header);
+      headerData.writeInt(width);
+      headerData.writeInt(height);
+      // bit depth 8, color type 2 (RGB), default compression, filtering and no interlacing.
+      headerData.write(new byte[]{8, 2, 0, 0, 0});
+      writeChunk(this.out, "IHDR", header.toByteArray(), header.size());
+    } catch (IOException io) {
+      this.out.close();
+      throw io;
+    }
+
+    this.deflater = new DeflaterOutputStream(new IdatStream(this.out));
+    this.scanline = new byte[1 + 3 * width];
+  }
+
+  /**
+   * Writes the given image to the given file as a PNG.
+   *
+   * @param img      image to write, at least 1x1.
+   * @param fileName full name of the file to write, including extension.
+   * @throws IOException if writing the file fails.
+   */
+  static void write(IImage img, String fileName) throws IOException {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    try (StreamingPngWriter writer = new StreamingPngWriter(fileName, width, height)) {
+      int[] row = new int[width];
+      for (int y = 0; y < height; y++) {
+        img.getRow(y, row);
+        writer.writeRow(row, 0);
+      }
+    }
+  }
+
+  @Override
+  public void writeRow(int[] rgb, int offset) throws IllegalArgumentException, IOException {
+    if (rgb == null || offset < 0 || rgb.length - offset < this.width) {
+      throw new IllegalArgumentException("rgb is too small to hold a row");
+    }
+    if (this.rowsWritten == this.height) {
+      throw new IllegalArgumentException("every row has already been written");
+    }
+    // scanline[0] stays 0, meaning no filter on this row.
+    for (int x = 0; x < this.width; x++) {
+      int pixel = rgb[offset + x];
+      this.scanline[1 + 3 * x] = (byte) (pixel >> 16);
+      this.scanline[2 + 3 * x] = (byte) (pixel >> 8);
+      this.scanline[3 + 3 * x] = (byte) pixel;
+    }
+    this.deflater.write(this.scanline);
+    this.rowsWritten++;
+  }
+
+  /**
+   * Finishes the compressed image data and writes the end of the file, then closes it.
+   *
+   * @throws IOException if writing the file fails.
+   */
+  @Override
+  public void close() throws IOException {
+    try (DataOutputStream closing = this.out) {
+      this.deflater.close();
+      writeChunk(closing, "IEND", new byte[0], 0);
+    }
+  }
+
+  /**
+   * Writes a single PNG chunk: its length, type, data and CRC.
+   *
+   * @param out    stream to write to.
+   * @param type   four letter chunk type.
+   * @param data   array holding the chunk data.
+   * @param length number of bytes of data to write from the start of the array.
+   * @throws IOException if writing fails.
+   */
+  private static void writeChunk(DataOutputStream out, String type, byte[] data, int length)
+          throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    out.writeInt((int) crc.getValue());
+  }
+
+  /**
+   * Stream that splits the compressed image data into IDAT chunks of at most CHUNK_SIZE bytes.
+   * Closing it writes the last chunk, but does not close the underlying stream.
+   */
+  private static class IdatStream extends OutputStream {
+    private final DataOutputStream out;
+    private final byte[] buffer;
+    private int size;
+
+    /**
+     * Creates a new IdatStream writing chunks to the given stream.
+     *
+     * @param out stream to write IDAT chunks to.
+     */
+    private IdatStream(DataOutputStream out) {
+      this.out = out;
+      this.buffer = new byte[CHUNK_SIZE];
+      this.size = 0;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (this.size == this.buffer.length) {
+        this.flushChunk();
+      }
+      this.buffer[this.size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (this.size == this.buffer.length) {
+          this.flushChunk();
+        }
+        int copied = Math.min(len, this.buffer.length - this.size);
+        System.arraycopy(b, off, this.buffer, this.size, copied);
+        this.size += copied;
+        off += copied;
+        len -= copied;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (this.size > 0) {
+        this.flushChunk();
+      }
+    }
+
+    /**
+     * Writes everything buffered so far as one IDAT chunk.
+     *
+     * @throws IOException if writing fails.
+     */
+    private void flushChunk() throws IOException {
+      writeChunk(this.out, "IDAT", this.buffer, this.size);
+      this.size = 0;
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import model.image.IImage;
+import model.image.IImmutableImage;
 import model.image.IPixel;
 import model.image.patterns.PatternCreator;
 import model.operations.IOperationAdapterImpl;
@@ -21,7 +22,8 @@ import java.util.List;
  */
 public class BasicProcessorModel implements IProcessorModel {
   // NOTE: all images returned and received by this model will be shallow copies,
-  // so that no image or pixel references can be mutated from the outside.
+  // so that no image or pixel references can be mutated from the outside. The exception is
+  // IImmutableImages, which cannot be mutated at all, so they are shared by reference.
   private final List<IImage> images;
 
   /**
@@ -76,10 +78,13 @@ public class BasicProcessorModel implements IProcessorModel {
   }
 
   /**
-   * Helper method that returns a defensive copy of the given IImage.
+   * Helper method that returns a defensive copy of the given IImage. IImmutableImages are
+   * returned as they are, since no one can mutate them, which avoids copying every pixel of
+   * them each time they enter or leave this model.
    *
    * @param reference an IImage that could be mutated from outside.
-   * @return an IImage copy in the same class implementation as the given IImage.
+   * @return the given IImage if it is an IImmutableImage, otherwise an IImage copy in the same
+   *                class implementation as the given IImage.
    * @throws IllegalArgumentException if given null.
    */
   private IImage defensiveCopyGenerator(IImage reference)
@@ -87,6 +92,9 @@ public class BasicProcessorModel implements IProcessorModel {
     if (reference == null) {
       throw new IllegalArgumentException("given null instead of IIMage");
     }
+    if (reference instanceof IImmutableImage) {
+      return reference;
+    }
     return reference.createImage(reference.getWidth(),
             reference.getHeight(), pixelsFromImage(reference));
   }
@@ -107,7 +115,13 @@ public class BasicProcessorModel implements IProcessorModel {
 
   @Override
   public void applyIOperation(OperationType toPerform, int index) throws IllegalArgumentException {
-    if (toPerform == null) {
+    this.applyIOperation(toPerform, index, new long[0]);
+  }
+
+  @Override
+  public void applyIOperation(OperationType toPerform, int index, long... parameters)
+          throws IllegalArgumentException {
+    if (toPerform == null || parameters == null) {
       throw new IllegalArgumentException("given null for toApply");
     }
 
@@ -119,6 +133,22 @@ public class BasicProcessorModel implements IProcessorModel {
     // they pass us from the outside, so we need a defensive copy....
     this.images.add(defensiveCopyGenerator(
             new IOperationAdapterImpl().adaptOperation(toPerform,
+                    this.images.get(index), parameters)));
+  }
+
+  @Override
+  public void applyIOperations(List<OperationType> toPerform, int index)
+          throws IllegalArgumentException {
+    if (toPerform == null) {
+      throw new IllegalArgumentException("given null for toPerform");
+    }
+
+    if (index < 0 || index > this.numImages() - 1) {
+      throw new IllegalArgumentException("index out of bounds");
+    }
+
+    this.images.add(defensiveCopyGenerator(
+            new IOperationAdapterImpl().adaptOperations(toPerform,
                     this.images.get(index))));
   }
 
@@ -1,6 +1,7 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import model.image.IImage;
 import model.image.patterns.PatternCreator;
@@ -137,6 +138,71 @@ public interface ILayeredModel extends LayeredModelState, IProcessorModel {
   @Override
   void applyIOperation(OperationType toPerform, int index) throws IllegalArgumentException;
 
+  /**
+   * SPECIFIC to this interface: this replaces the IImage (layer) at the specific index with
+   * the given IOperation applied to it with the given parameters, the same as applyIOperation
+   * without them. Any IImage this is done on retains visibility status.
+   *
+   * @param toPerform  enum designation for IOperation to apply.
+   * @param index      IImage index to apply the operation on.
+   * @param parameters parameters of the operation, in the order OperationType describes.
+   * @throws IllegalArgumentException if given null instead of OperationType or parameters, if
+   *                                  index is out of bounds or not current layer, or if the
+   *                                  parameters aren't valid for the operation.
+   */
+  @Override
+  void applyIOperation(OperationType toPerform, int index, long... parameters)
+          throws IllegalArgumentException;
+
+  /**
+   * SPECIFIC to this interface: this replaces the IImage (layer) at the specific index with
+   * the result of each of the given IOperations applied to it, one after another, the same as
+   * calling applyIOperation with each. Any IImage this is done on retains visibility status.
+   *
+   * @param toPerform enum designations for IOperations to apply, first to last.
+   * @param index     IImage index to apply the operations on.
+   * @throws IllegalArgumentException if given null instead of a list, an empty list or a list
+   *                                  containing null, if index is out of bounds, or index is
+   *                                  not current layer.
+   */
+  @Override
+  void applyIOperations(List<OperationType> toPerform, int index)
+          throws IllegalArgumentException;
+
+  /**
+   * Replaces the IImage (layer) at the given index with the given IImage, such as a mosaic that
+   * a MosaicSession made out of it. Any IImage this is done on retains visibility status and
+   * position, the same as applyIOperation.
+   *
+   * @param index   IImage index to replace.
+   * @param toPlace the IImage to put in its place, the same size as the layer.
+   * @throws IllegalArgumentException if given null, if index is out of bounds or not current
+   *                                  layer, or if the IImage is not the same size as the layer.
+   */
+  void replaceLayerAt(int index, IImage toPlace) throws IllegalArgumentException;
+
+  /**
+   * Sets whether applyIOperation and applyIOperations compute the new layer right away, or
+   * only record the operations and compute them the first time the layer is read (when it is
+   * viewed or exported, for example). Operations applied one after another to a layer that
+   * hasn't been read yet are then computed together in a single pass, a band of rows at a time,
+   * without building an image between them. Either way, the layers hold the same pixels, and
+   * invalid operations throw when they are applied. Starts as false, and only affects
+   * operations applied after this call.
+   *
+   * @param deferred true to compute operations when their layer is read, false to compute them
+   *                 when applied.
+   */
+  void setDeferred(boolean deferred);
+
+  /**
+   * Observer for whether operations are computed when their layer is read, rather than when
+   * they are applied.
+   *
+   * @return true if operations are deferred.
+   */
+  boolean isDeferred();
+
   /**
    * Adds the IImage associated with the given PatternCreator object to the history of IImages
    * processed. SPECIFIC to this interface: ensures that the IImage creates from the given object
@@ -4,6 +4,8 @@ import model.image.IImage;
 import model.image.patterns.PatternCreator;
 import model.operations.OperationType;
 
+import java.util.List;
+
 /**
  * Interface that defines behavior that a model of an Image processing program should possess,
  * using interface type IImage to represent image objects. Retrieves images, and creates new
@@ -49,6 +51,37 @@ public interface IProcessorModel extends ViewModelState {
    */
   void applyIOperation(OperationType toPerform, int index) throws IllegalArgumentException;
 
+  /**
+   * Method that adds a new IImage to the history of IImages in the IProcessorModel
+   * implementation class that is the result of having the given IOperation applied with the
+   * given parameters, as described by OperationType, to the IImage at the given index. Giving
+   * no parameters is the same as calling applyIOperation without them.
+   *
+   * @param toPerform  enum designation for IOperation to apply.
+   * @param index      IImage to apply the operation on.
+   * @param parameters parameters of the operation, in the order OperationType describes.
+   * @throws IllegalArgumentException if given null instead of OperationType or parameters, an
+   *                                  index out of bounds, more parameters than the operation
+   *                                  takes, or a parameter out of range.
+   */
+  void applyIOperation(OperationType toPerform, int index, long... parameters)
+          throws IllegalArgumentException;
+
+  /**
+   * Method that adds a new IImage to the history of IImages in the IProcessorModel
+   * implementation class that is the result of having each of the given IOperations applied
+   * one after another, to the IImage at the given index. Only the final result is added, and
+   * runs of color transformations are applied in a single pass without building an IImage for
+   * each one.
+   *
+   * @param toPerform enum designations for IOperations to apply, first to last.
+   * @param index IImage to apply the operations on.
+   * @throws IllegalArgumentException if given null instead of a list, an empty list, a list
+   *                                  containing null, or an index out of bounds.
+   */
+  void applyIOperations(List<OperationType> toPerform, int index)
+          throws IllegalArgumentException;
+
 
   /**
    * Adds the IImage associated with the given PatternCreator object to the history of IImages
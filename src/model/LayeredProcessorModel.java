@@ -1,17 +1,19 @@
 package model;
 
-import model.image.BasicImage;
-import model.image.BasicPixel;
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.PackedImage;
 import model.image.patterns.PatternCreator;
+import model.operations.IOperationAdapter;
 import model.operations.IOperationAdapterImpl;
 import model.operations.OperationType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 /**
  * A model that treats each IImage added to it as a new layer. INVARIANT: each layer is the same
@@ -28,6 +30,9 @@ public class LayeredProcessorModel extends BasicProcessorModel implements ILayer
   // each index value is mapped to a String name.
   private Map<Integer, String> layerNames;
 
+  // whether operations are only computed once their layer is read.
+  private boolean deferred;
+
   /**
    * Constructs a new LayeredProcessorModel object.
    */
@@ -125,16 +130,10 @@ public class LayeredProcessorModel extends BasicProcessorModel implements ILayer
       height = lastImage.getHeight();
     }
 
-    IPixel[] blankPixels = new IPixel[width * height];
-    int blankIter = 0;
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        blankPixels[blankIter] = new BasicPixel(j, i, 255, 255, 255);
-        blankIter++;
-      }
-    }
+    int[] blankPixels = new int[width * height];
+    Arrays.fill(blankPixels, 0xFFFFFF);
 
-    IImage newBlank = new BasicImage(width, height, blankPixels);
+    IImage newBlank = new PackedImage(width, height, blankPixels);
     this.addImage(newBlank);
     this.renameLayerAt(currentLayer, "new blank");
   }
@@ -221,10 +220,91 @@ public class LayeredProcessorModel extends BasicProcessorModel implements ILayer
     if (toPerform == null) {
       throw new IllegalArgumentException("given null as argument");
     }
+    this.applyIOperations(Collections.singletonList(toPerform), index);
+  }
+
+  @Override
+  public void applyIOperation(OperationType toPerform, int index, long... parameters)
+          throws IllegalArgumentException {
+    if (index != this.currentLayer) {
+      throw new IllegalArgumentException("cannot apply to non-current layer");
+    }
+    if (toPerform == null || parameters == null) {
+      throw new IllegalArgumentException("given null as argument");
+    }
+    indexOutOfBoundsChecker(index);
+    IOperationAdapter adapter = new IOperationAdapterImpl();
+    if (this.deferred) {
+      this.replaceLayer(index, img -> adapter.deferOperation(toPerform, img, parameters));
+    } else {
+      this.replaceLayer(index, img -> adapter.adaptOperation(toPerform, img, parameters));
+    }
+  }
+
+  @Override
+  public void applyIOperations(List<OperationType> toPerform, int index)
+          throws IllegalArgumentException {
+    if (index != this.currentLayer) {
+      throw new IllegalArgumentException("cannot apply to non-current layer");
+    }
+    if (toPerform == null || toPerform.isEmpty() || toPerform.contains(null)) {
+      throw new IllegalArgumentException("given null as argument");
+    }
     indexOutOfBoundsChecker(index);
+    IOperationAdapter adapter = new IOperationAdapterImpl();
+    if (this.deferred) {
+      this.replaceLayer(index, img -> {
+        IImage result = img;
+        for (OperationType type : toPerform) {
+          result = adapter.deferOperation(type, result);
+        }
+        return result;
+      });
+    } else {
+      this.replaceLayer(index, img -> adapter.adaptOperations(toPerform, img));
+    }
+  }
+
+  @Override
+  public void replaceLayerAt(int index, IImage toPlace) throws IllegalArgumentException {
+    if (index != this.currentLayer) {
+      throw new IllegalArgumentException("cannot replace non-current layer");
+    }
+    if (toPlace == null) {
+      throw new IllegalArgumentException("given null as argument");
+    }
+    indexOutOfBoundsChecker(index);
+    IImage layer = super.getImageAt(index);
+    if (layer.getWidth() != toPlace.getWidth() || layer.getHeight() != toPlace.getHeight()) {
+      throw new IllegalArgumentException("image must be the same size as the layer");
+    }
+    this.replaceLayer(index, img -> toPlace);
+  }
+
+  @Override
+  public void setDeferred(boolean deferred) {
+    this.deferred = deferred;
+  }
+
+  @Override
+  public boolean isDeferred() {
+    return this.deferred;
+  }
+
+  /**
+   * Replaces the layer at the given index with the result of the given operation on it, keeping
+   * every layer in the same position.
+   *
+   * @param index     index of the layer to replace, which must be in bounds.
+   * @param operation function from the layer to the IImage to replace it with.
+   */
+  private void replaceLayer(int index, UnaryOperator<IImage> operation) {
+    // apply the operation before removing anything, so the layers are left as they were if it
+    // throws (such as a mosaic with too many seeds).
+    IImage result = operation.apply(super.getImageAt(index));
 
     // remove the current index.
-    IImage toApplyTo = super.removeAt(index);
+    super.removeAt(index);
 
     // we don't need to change the invisibleLayers indices,
     // as everything should be added to the place it was before
@@ -243,7 +323,7 @@ public class LayeredProcessorModel extends BasicProcessorModel implements ILayer
     for (int i = index; i < tempRemovalIterator; i++) {
       toAddBack.add(super.removeAt(index));
     }
-    super.addImage(new IOperationAdapterImpl().adaptOperation(toPerform, toApplyTo));
+    super.addImage(result);
 
     for (IImage img : toAddBack) {
       super.addImage(img);
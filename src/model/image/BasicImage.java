@@ -56,6 +56,16 @@ public class BasicImage implements IImage {
     }
   }
 
+  /**
+   * Constructs a new BasicImage out of the rows of pixels a Builder has finished filling,
+   * without validating them again.
+   *
+   * @param pixels rows of pixels, each at the position matching its index.
+   */
+  private BasicImage(IPixel[][] pixels) {
+    this.pixels = pixels;
+  }
+
   @Override
   public int getWidth() {
     return pixels[0].length;
@@ -80,9 +90,122 @@ public class BasicImage implements IImage {
             pixelRef.getRed(), pixelRef.getGreen(), pixelRef.getBlue());
   }
 
+  @Override
+  public void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    RgbUtils.checkRegion(this, x, y, w, h, rgbOut, offset, scanSize);
+    // reading the channels straight from the array doesn't need a defensive copy, as only
+    // ints leave this image.
+    for (int j = 0; j < h; j++) {
+      IPixel[] row = pixels[y + j];
+      int rowStart = offset + j * scanSize;
+      for (int i = 0; i < w; i++) {
+        rgbOut[rowStart + i] = RgbUtils.pack(row[x + i]);
+      }
+    }
+  }
+
+  @Override
+  public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    if (this.getClass() != BasicImage.class
+            || this.pixels[0][0].getClass() != BasicPixel.class) {
+      // a subclass may override createImage, and other IPixel implementations have to be kept,
+      // so those are built through createImage instead.
+      return IImage.super.createBuilder(w, h);
+    }
+    return new Builder(w, h);
+  }
+
   @Override
   public IImage createImage(int w, int h, IPixel[] pixels)
           throws IllegalArgumentException {
     return new BasicImage(w, h, pixels);
   }
+
+  /**
+   * IImageBuilder for BasicImages, which creates a BasicPixel for each pixel straight into the
+   * rows that the built image will use. Every position is known to be valid and used exactly
+   * once, so none of the checks of the public constructor are needed.
+   */
+  private static class Builder implements IImageBuilder {
+    private final int width;
+    private final int height;
+    private IPixel[][] pixels;
+
+    /**
+     * Creates a new Builder for an image of the given size, with every pixel black.
+     *
+     * @param width  width of the image to build.
+     * @param height height of the image to build.
+     * @throws IllegalArgumentException if given width or height less than 1.
+     */
+    private Builder(int width, int height) throws IllegalArgumentException {
+      if (width < 1 || height < 1) {
+        throw new IllegalArgumentException("width and height cannot be less than 1 pixel");
+      }
+      this.width = width;
+      this.height = height;
+      this.pixels = new IPixel[height][width];
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public void setRows(int y, int h, int[] rgb, int offset)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.pixels == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRows(this, y, h, rgb, offset);
+      for (int j = 0; j < h; j++) {
+        IPixel[] row = this.pixels[y + j];
+        int rowStart = offset + j * this.width;
+        for (int i = 0; i < this.width; i++) {
+          row[i] = new BasicPixel(i, y + j, rgb[rowStart + i]);
+        }
+      }
+    }
+
+    @Override
+    public void setRegion(int x, int y, int w, int h, int[] rgb, int offset, int scanSize)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.pixels == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRegion(this, x, y, w, h, rgb, offset, scanSize);
+      for (int j = 0; j < h; j++) {
+        IPixel[] row = this.pixels[y + j];
+        int rowStart = offset + j * scanSize;
+        for (int i = 0; i < w; i++) {
+          row[x + i] = new BasicPixel(x + i, y + j, rgb[rowStart + i]);
+        }
+      }
+    }
+
+    @Override
+    public IImage build() throws IllegalStateException {
+      if (this.pixels == null) {
+        throw new IllegalStateException("image already built");
+      }
+      for (int j = 0; j < this.height; j++) {
+        for (int i = 0; i < this.width; i++) {
+          if (this.pixels[j][i] == null) {
+            this.pixels[j][i] = new BasicPixel(i, j, 0);
+          }
+        }
+      }
+      IImage image = new BasicImage(this.pixels);
+      // the image owns the rows now, so this builder must not be able to reach them.
+      this.pixels = null;
+      return image;
+    }
+  }
 }
@@ -60,6 +60,24 @@ public class BasicPixel implements IPixel {
     this.blue = blue;
   }
 
+  /**
+   * Constructs a new BasicPixel from a packed RGB integer (0xRRGGBB, see RgbUtils), without
+   * checking the position or clamping, since every channel of a packed integer is already
+   * between 0 and 255. Only for images in this package that already know the position is
+   * valid, such as IImageBuilders.
+   *
+   * @param x   x position of the BasicPixel, at least 0.
+   * @param y   y position of the BasicPixel, at least 0.
+   * @param rgb packed RGB integer, any bits above the lowest 24 are ignored.
+   */
+  BasicPixel(int x, int y, int rgb) {
+    this.x = x;
+    this.y = y;
+    this.red = RgbUtils.red(rgb);
+    this.green = RgbUtils.green(rgb);
+    this.blue = RgbUtils.blue(rgb);
+  }
+
   @Override
   public int getRed() {
     return this.red;
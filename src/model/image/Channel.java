@@ -0,0 +1,8 @@
+package model.image;
+
+/**
+ * Enum for the three color channels that every IImage has.
+ */
+public enum Channel {
+  RED, GREEN, BLUE;
+}
@@ -31,6 +31,62 @@ public interface IImage {
    */
   IPixel getPixelAt(int x, int y) throws IllegalArgumentException;
 
+  /**
+   * Bulk observer method that reads the pixels of the given rectangle of this image into the
+   * given array as packed RGB integers (0xRRGGBB, see RgbUtils), one row after another. The
+   * pixel at (x + i, y + j) is written to rgbOut[offset + j * scanSize + i]. This avoids
+   * creating an IPixel for every pixel read, so implementations that store their pixels in
+   * primitive arrays should override it. The default implementation goes through getPixelAt.
+   *
+   * @param x        x coordinate of the left column of the rectangle.
+   * @param y        y coordinate of the top row of the rectangle.
+   * @param w        width of the rectangle, at least 0.
+   * @param h        height of the rectangle, at least 0.
+   * @param rgbOut   caller-supplied array to write the packed pixels into.
+   * @param offset   index in rgbOut to write the top left pixel of the rectangle to.
+   * @param scanSize distance in rgbOut between the start of one row and the next, at least w.
+   * @throws IllegalArgumentException if the rectangle isn't inside this image, or rgbOut is null
+   *                                  or too small to hold the rectangle at the given offset
+   *                                  and scan size.
+   */
+  default void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    RgbUtils.checkRegion(this, x, y, w, h, rgbOut, offset, scanSize);
+    for (int j = 0; j < h; j++) {
+      int rowStart = offset + j * scanSize;
+      for (int i = 0; i < w; i++) {
+        rgbOut[rowStart + i] = RgbUtils.pack(this.getPixelAt(x + i, y + j));
+      }
+    }
+  }
+
+  /**
+   * Bulk observer method that reads a whole row of this image into the given array as packed
+   * RGB integers (0xRRGGBB), where the pixel at (i, y) is written to rgbOut[i].
+   *
+   * @param y      y coordinate of the row to read.
+   * @param rgbOut caller-supplied array, with at least getWidth() elements.
+   * @throws IllegalArgumentException if y is out of bounds, or rgbOut is null or too small.
+   */
+  default void getRow(int y, int[] rgbOut) throws IllegalArgumentException {
+    this.getRegion(0, y, this.getWidth(), 1, rgbOut, 0, this.getWidth());
+  }
+
+  /**
+   * Creates a new IImageBuilder that builds an image of the implementation type that this
+   * method can be called from, a few rows at a time. The default implementation collects the
+   * rows in memory and calls createImage on build, implementations that store their pixels
+   * differently should override it.
+   *
+   * @param w the width of the image to build.
+   * @param h the height of the image to build.
+   * @return a new IImageBuilder for an image of the given size.
+   * @throws IllegalArgumentException if w or h is less than 0.
+   */
+  default IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    return new PixelArrayBuilder(this, w, h);
+  }
+
   /**
    * Creates a new Image of the implementation type that this method can be called from.
    *
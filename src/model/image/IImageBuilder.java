@@ -0,0 +1,70 @@
+package model.image;
+
+/**
+ * Interface for objects that build a new IImage of a fixed width and height one or more rows at
+ * a time, from packed RGB integers (0xRRGGBB, see RgbUtils). Lets code that produces images,
+ * like operations and importers, write their results without ever holding an IPixel for every
+ * pixel, and lets IImage implementations decide where those rows are stored.
+ */
+public interface IImageBuilder {
+
+  /**
+   * Observer method for the width of the image being built.
+   *
+   * @return number of pixels wide the image will be.
+   */
+  int getWidth();
+
+  /**
+   * Observer method for the height of the image being built.
+   *
+   * @return number of pixels tall the image will be.
+   */
+  int getHeight();
+
+  /**
+   * Sets the pixels of the given whole rows of the image being built. Pixel (x, y + j) is taken
+   * from rgb[offset + j * getWidth() + x]. Rows can be set in any order, and setting a row again
+   * replaces it. Any rows that are never set will be black.
+   *
+   * @param y      y coordinate of the first row to set.
+   * @param h      number of rows to set, at least 0.
+   * @param rgb    row-major packed RGB integers, any bits above the lowest 24 are ignored.
+   * @param offset index in rgb of the first pixel of row y.
+   * @throws IllegalArgumentException if the rows are out of bounds, or rgb is null or too small.
+   * @throws IllegalStateException    if build has already been called.
+   */
+  void setRows(int y, int h, int[] rgb, int offset)
+          throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Sets the pixels of the given rectangle of the image being built, the write counterpart of
+   * IImage.getRegion. Pixel (x + i, y + j) is taken from rgb[offset + j * scanSize + i], and
+   * every pixel outside the rectangle is left as it was. Images themselves are immutable, so
+   * writing to part of an image means copying it into a builder with setRows and then
+   * overwriting the part with this method.
+   *
+   * @param x        x coordinate of the left column of the rectangle.
+   * @param y        y coordinate of the top row of the rectangle.
+   * @param w        width of the rectangle, at least 0.
+   * @param h        height of the rectangle, at least 0.
+   * @param rgb      packed RGB integers, any bits above the lowest 24 are ignored.
+   * @param offset   index in rgb of the top left pixel of the rectangle.
+   * @param scanSize distance in rgb between the start of one row and the next, at least w.
+   * @throws IllegalArgumentException if the rectangle isn't inside the image being built, or
+   *                                  rgb is null or too small to hold the rectangle at the
+   *                                  given offset and scan size.
+   * @throws IllegalStateException    if build has already been called.
+   */
+  void setRegion(int x, int y, int w, int h, int[] rgb, int offset, int scanSize)
+          throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Finishes building and returns the image. Once this is called, the builder can no longer be
+   * used.
+   *
+   * @return the built IImage.
+   * @throws IllegalStateException if build has already been called.
+   */
+  IImage build() throws IllegalStateException;
+}
@@ -0,0 +1,11 @@
+package model.image;
+
+/**
+ * Marker interface for IImages that can never change after construction, from the inside or
+ * the outside. Implementations must be final classes that copy any array they are constructed
+ * from, never hand out references to their internal state, and only return new IPixels from
+ * getPixelAt. Because of this, an IImmutableImage can be shared by reference between a model
+ * and its callers without any defensive copying.
+ */
+public interface IImmutableImage extends IImage {
+}
@@ -0,0 +1,23 @@
+package model.image;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interface for objects that take the rows of an image one at a time, from top to bottom, as
+ * packed RGB integers (0xRRGGBB, see RgbUtils), like a file being written. The image is never
+ * held in memory all at once, so closing the sink finishes it, once every row has been written.
+ */
+public interface IRowSink extends Closeable {
+
+  /**
+   * Writes the next row of the image, where the pixel at x is taken from rgb[offset + x].
+   *
+   * @param rgb    row of packed RGB integers, any bits above the lowest 24 are ignored.
+   * @param offset index in rgb of the first pixel of the row.
+   * @throws IllegalArgumentException if rgb is null or too small, or every row has already been
+   *                                  written.
+   * @throws IOException              if writing the row fails.
+   */
+  void writeRow(int[] rgb, int offset) throws IllegalArgumentException, IOException;
+}
@@ -0,0 +1,39 @@
+package model.image;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interface for objects that hand out the rows of an image one at a time, from top to bottom,
+ * as packed RGB integers (0xRRGGBB, see RgbUtils), like a file being read. Unlike an IImage,
+ * a row can only be read once and only in order, so the image never has to be held in memory
+ * all at once.
+ */
+public interface IRowSource extends Closeable {
+
+  /**
+   * Observer method for the width of the image.
+   *
+   * @return number of pixels wide the image is, at least 1.
+   */
+  int getWidth();
+
+  /**
+   * Observer method for the height of the image.
+   *
+   * @return number of pixels tall the image is, at least 1.
+   */
+  int getHeight();
+
+  /**
+   * Reads the next row of the image into the given array, where the pixel at x is written to
+   * rgbOut[offset + x].
+   *
+   * @param rgbOut caller-supplied array to write the packed pixels into.
+   * @param offset index in rgbOut to write the first pixel of the row to.
+   * @throws IllegalArgumentException if rgbOut is null or too small, the rows of the image don't
+   *                                  follow its format, or every row has already been read.
+   * @throws IOException              if reading the rows fails.
+   */
+  void readRow(int[] rgbOut, int offset) throws IllegalArgumentException, IOException;
+}
@@ -0,0 +1,258 @@
+package model.image;
+
+import java.util.Arrays;
+
+/**
+ * Image representation that stores every pixel as one packed RGB integer (0xRRGGBB) inside a
+ * single flat, row-major array of ints, rather than one IPixel object per pixel. This takes 4
+ * bytes of heap per pixel, compared to the roughly 36 bytes per pixel that BasicImage needs for
+ * each BasicPixel object (header, five int fields, and the array reference to it).
+ *
+ * <p>Pixels are only turned back into IPixel objects when requested through getPixelAt, so
+ * every IPixel returned is a new BasicPixel that cannot mutate this image. The array of ints is
+ * copied when constructed and never handed out, so PackedImages are immutable and can be shared
+ * without defensive copies.</p>
+ */
+public final class PackedImage implements IImmutableImage {
+  // INVARIANT: width and height are at least 1, and rgb has exactly width x height elements,
+  // where the pixel at (x, y) is stored at index y * width + x. Every element only uses the
+  // lowest 24 bits, so each channel is between 0 and 255, inclusive.
+  private final int width;
+  private final int height;
+  private final int[] rgb;
+
+  /**
+   * Constructs a new PackedImage object out of width and height in pixels and an array of
+   * IPixels to populate the image with. Follows the same rules as the BasicImage constructor.
+   *
+   * @param width      width of image in pixels.
+   * @param height     height of image in pixels.
+   * @param fromPixels some array of IPixel, with no pixels that share the same position, and
+   *                   each x and y value is between 0 and the width and height of this
+   *                   PackedImage, respectively.
+   * @throws IllegalArgumentException if given width or height less than 1 or an array of pixels
+   *                                  that doesn't have exactly width x height elements. Or if
+   *                                  any pixel in the array has a position lower than 0 or
+   *                                  higher than the width/height, or is repeated. Or if given
+   *                                  null instead of array of IPixel.
+   */
+  public PackedImage(int width, int height, IPixel[] fromPixels)
+          throws IllegalArgumentException {
+    checkDimensions(width, height);
+    if (fromPixels == null) {
+      throw new IllegalArgumentException("fromPixels cannot be null");
+    }
+    if (fromPixels.length != width * height) {
+      throw new IllegalArgumentException("image cannot be created from number of "
+              + "pixels that doesn't match width x height");
+    }
+
+    this.width = width;
+    this.height = height;
+    this.rgb = new int[width * height];
+    // -1 can never be a valid packed value, so it marks positions that aren't yet filled.
+    Arrays.fill(this.rgb, -1);
+    for (IPixel p : fromPixels) {
+      if (p == null) {
+        throw new IllegalArgumentException("fromPixels cannot contain null");
+      }
+      if (p.getX() < 0 || p.getX() > width - 1
+              || p.getY() < 0 || p.getY() > height - 1) {
+        throw new IllegalArgumentException("pixel position out of bounds");
+      }
+      int idx = p.getY() * width + p.getX();
+      if (this.rgb[idx] != -1) {
+        throw new IllegalArgumentException("pixel at (" + p.getX() + ", "
+                + p.getY() + ") already occupied");
+      }
+      this.rgb[idx] = RgbUtils.pack(p);
+    }
+  }
+
+  /**
+   * Constructs a new PackedImage object out of width and height in pixels and a row-major
+   * array of packed RGB integers (0xRRGGBB), where the pixel at (x, y) is at index
+   * y * width + x. Any bits above the lowest 24 are ignored. The given array is copied, so
+   * later changes to it will not affect this image.
+   *
+   * @param width  width of image in pixels.
+   * @param height height of image in pixels.
+   * @param rgb    row-major array of packed RGB integers.
+   * @throws IllegalArgumentException if given width or height less than 1, null instead of an
+   *                                  array, or an array that doesn't have exactly
+   *                                  width x height elements.
+   */
+  public PackedImage(int width, int height, int[] rgb) throws IllegalArgumentException {
+    checkDimensions(width, height);
+    if (rgb == null) {
+      throw new IllegalArgumentException("rgb cannot be null");
+    }
+    if (rgb.length != width * height) {
+      throw new IllegalArgumentException("image cannot be created from number of "
+              + "pixels that doesn't match width x height");
+    }
+    this.width = width;
+    this.height = height;
+    this.rgb = new int[rgb.length];
+    for (int i = 0; i < rgb.length; i++) {
+      this.rgb[i] = rgb[i] & 0xFFFFFF;
+    }
+  }
+
+  /**
+   * Constructs a new PackedImage out of the array a Builder has finished writing to, without
+   * copying or validating it again.
+   *
+   * @param builder the Builder that is building this image.
+   */
+  private PackedImage(Builder builder) {
+    this.width = builder.width;
+    this.height = builder.height;
+    this.rgb = builder.rgb;
+  }
+
+  /**
+   * Creates a new IImageBuilder that writes rows straight into the array of a new PackedImage,
+   * so that building it never creates an IPixel or copies the finished array.
+   *
+   * @param width  width of the image to build.
+   * @param height height of the image to build.
+   * @return a new IImageBuilder that builds a PackedImage.
+   * @throws IllegalArgumentException if given width or height less than 1, or the image would
+   *                                  have more pixels than can fit in a single array.
+   */
+  public static IImageBuilder builder(int width, int height) throws IllegalArgumentException {
+    return new Builder(width, height);
+  }
+
+  /**
+   * Ensures that the given dimensions are valid for an image.
+   *
+   * @param width  width of image in pixels.
+   * @param height height of image in pixels.
+   * @throws IllegalArgumentException if either is less than 1, or the image would have more
+   *                                  pixels than can fit in a single array.
+   */
+  private static void checkDimensions(int width, int height) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("width and height cannot be less than 1 pixel");
+    }
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("image is too large to fit in a single array");
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IPixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    if (x < 0 || y < 0 || x > this.width - 1 || y > this.height - 1) {
+      throw new IllegalArgumentException("x or y cannot be less than 0 or greater "
+              + "than width or height - 1, respectively");
+    }
+    return new BasicPixel(x, y, this.rgb[y * this.width + x]);
+  }
+
+  @Override
+  public void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    RgbUtils.checkRegion(this, x, y, w, h, rgbOut, offset, scanSize);
+    for (int j = 0; j < h; j++) {
+      System.arraycopy(this.rgb, (y + j) * this.width + x, rgbOut, offset + j * scanSize, w);
+    }
+  }
+
+  @Override
+  public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    return new Builder(w, h);
+  }
+
+  @Override
+  public IImage createImage(int w, int h, IPixel[] pixels)
+          throws IllegalArgumentException {
+    return new PackedImage(w, h, pixels);
+  }
+
+  /**
+   * IImageBuilder for PackedImages, which copies rows straight into the array that the built
+   * image will use. Rows are checked in bulk for each call to setRows, rather than per pixel.
+   */
+  private static class Builder implements IImageBuilder {
+    private final int width;
+    private final int height;
+    private int[] rgb;
+
+    /**
+     * Creates a new Builder for an image of the given size, with every pixel black.
+     *
+     * @param width  width of the image to build.
+     * @param height height of the image to build.
+     * @throws IllegalArgumentException if given width or height less than 1, or the image
+     *                                  would have more pixels than can fit in a single array.
+     */
+    private Builder(int width, int height) throws IllegalArgumentException {
+      checkDimensions(width, height);
+      this.width = width;
+      this.height = height;
+      this.rgb = new int[width * height];
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public void setRows(int y, int h, int[] rgb, int offset)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.rgb == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRows(this, y, h, rgb, offset);
+      int start = y * this.width;
+      for (int i = 0; i < h * this.width; i++) {
+        this.rgb[start + i] = rgb[offset + i] & 0xFFFFFF;
+      }
+    }
+
+    @Override
+    public void setRegion(int x, int y, int w, int h, int[] rgb, int offset, int scanSize)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.rgb == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRegion(this, x, y, w, h, rgb, offset, scanSize);
+      for (int j = 0; j < h; j++) {
+        int start = (y + j) * this.width + x;
+        int rowStart = offset + j * scanSize;
+        for (int i = 0; i < w; i++) {
+          this.rgb[start + i] = rgb[rowStart + i] & 0xFFFFFF;
+        }
+      }
+    }
+
+    @Override
+    public IImage build() throws IllegalStateException {
+      if (this.rgb == null) {
+        throw new IllegalStateException("image already built");
+      }
+      IImage image = new PackedImage(this);
+      // the image owns the array now, so this builder must not be able to reach it.
+      this.rgb = null;
+      return image;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package model.image;
+
+/**
+ * Default IImageBuilder that collects packed rows into a single int array, and on build turns
+ * them into an array of IPixel for the createImage method of the image it was made from. This
+ * keeps the built image in the same IImage and IPixel implementation as that image, for any
+ * implementation that doesn't have its own builder.
+ */
+class PixelArrayBuilder implements IImageBuilder {
+  private final IImage prototype;
+  private final int width;
+  private final int height;
+  private int[] rgb;
+
+  /**
+   * Constructs a new PixelArrayBuilder for an image of the given size.
+   *
+   * @param prototype the image whose createImage and pixels will be used on build.
+   * @param width     width of the image to build, at least 0.
+   * @param height    height of the image to build, at least 0.
+   * @throws IllegalArgumentException if given null, or a negative or too large size.
+   */
+  PixelArrayBuilder(IImage prototype, int width, int height) throws IllegalArgumentException {
+    if (prototype == null) {
+      throw new IllegalArgumentException("prototype cannot be null");
+    }
+    if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("invalid width or height");
+    }
+    this.prototype = prototype;
+    this.width = width;
+    this.height = height;
+    this.rgb = new int[width * height];
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public void setRows(int y, int h, int[] rgb, int offset)
+          throws IllegalArgumentException, IllegalStateException {
+    if (this.rgb == null) {
+      throw new IllegalStateException("image already built");
+    }
+    RgbUtils.checkRows(this, y, h, rgb, offset);
+    System.arraycopy(rgb, offset, this.rgb, y * this.width, h * this.width);
+  }
+
+  @Override
+  public void setRegion(int x, int y, int w, int h, int[] rgb, int offset, int scanSize)
+          throws IllegalArgumentException, IllegalStateException {
+    if (this.rgb == null) {
+      throw new IllegalStateException("image already built");
+    }
+    RgbUtils.checkRegion(this, x, y, w, h, rgb, offset, scanSize);
+    for (int j = 0; j < h; j++) {
+      System.arraycopy(rgb, offset + j * scanSize, this.rgb, (y + j) * this.width + x, w);
+    }
+  }
+
+  @Override
+  public IImage build() throws IllegalStateException {
+    if (this.rgb == null) {
+      throw new IllegalStateException("image already built");
+    }
+    IPixel[] pixels = new IPixel[this.width * this.height];
+    // creating pixels from one that already exists keeps the output in the same IPixel
+    // implementation as the prototype.
+    IPixel pixelPrototype = this.prototype.getWidth() > 0 && this.prototype.getHeight() > 0
+            ? this.prototype.getPixelAt(0, 0) : new BasicPixel(0, 0, 0, 0, 0);
+    for (int i = 0; i < pixels.length; i++) {
+      int packed = this.rgb[i];
+      pixels[i] = pixelPrototype.createPixel(i % this.width, i / this.width,
+              RgbUtils.red(packed), RgbUtils.green(packed), RgbUtils.blue(packed));
+    }
+    this.rgb = null;
+    return this.prototype.createImage(this.width, this.height, pixels);
+  }
+}
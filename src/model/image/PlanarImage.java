@@ -0,0 +1,357 @@
+package model.image;
+
+/**
+ * Image representation that stores each color channel in its own flat, row-major array of
+ * bytes (a "plane"), rather than keeping the three channels of each pixel together. This takes
+ * 3 bytes of heap per pixel, and lets operations stream through one channel at a time, reading
+ * memory one byte after another, which is friendlier to the JIT's loop vectorization than
+ * unpacking a packed int for every pixel.
+ *
+ * <p>Like PackedImage, every plane is copied when constructed and never handed out, so
+ * PlanarImages are immutable and can be shared without defensive copies.</p>
+ */
+public final class PlanarImage implements IImmutableImage {
+  // INVARIANT: width and height are at least 1, and each plane has exactly width x height
+  // elements, where the channel of the pixel at (x, y) is stored at index y * width + x. Each
+  // byte is read as unsigned, between 0 and 255, inclusive.
+  private final int width;
+  private final int height;
+  private final byte[] red;
+  private final byte[] green;
+  private final byte[] blue;
+
+  /**
+   * Constructs a new PlanarImage object out of width and height in pixels and an array of
+   * IPixels to populate the image with. Follows the same rules as the BasicImage constructor.
+   *
+   * @param width      width of image in pixels.
+   * @param height     height of image in pixels.
+   * @param fromPixels some array of IPixel, with no pixels that share the same position, and
+   *                   each x and y value is between 0 and the width and height of this
+   *                   PlanarImage, respectively.
+   * @throws IllegalArgumentException if given width or height less than 1 or an array of pixels
+   *                                  that doesn't have exactly width x height elements. Or if
+   *                                  any pixel in the array has a position lower than 0 or
+   *                                  higher than the width/height, or is repeated. Or if given
+   *                                  null instead of array of IPixel.
+   */
+  public PlanarImage(int width, int height, IPixel[] fromPixels)
+          throws IllegalArgumentException {
+    checkDimensions(width, height);
+    if (fromPixels == null) {
+      throw new IllegalArgumentException("fromPixels cannot be null");
+    }
+    if (fromPixels.length != width * height) {
+      throw new IllegalArgumentException("image cannot be created from number of "
+              + "pixels that doesn't match width x height");
+    }
+
+    this.width = width;
+    this.height = height;
+    this.red = new byte[width * height];
+    this.green = new byte[width * height];
+    this.blue = new byte[width * height];
+    boolean[] filled = new boolean[width * height];
+    for (IPixel p : fromPixels) {
+      if (p == null) {
+        throw new IllegalArgumentException("fromPixels cannot contain null");
+      }
+      if (p.getX() < 0 || p.getX() > width - 1
+              || p.getY() < 0 || p.getY() > height - 1) {
+        throw new IllegalArgumentException("pixel position out of bounds");
+      }
+      int idx = p.getY() * width + p.getX();
+      if (filled[idx]) {
+        throw new IllegalArgumentException("pixel at (" + p.getX() + ", "
+                + p.getY() + ") already occupied");
+      }
+      filled[idx] = true;
+      this.red[idx] = (byte) RgbUtils.clamp(p.getRed());
+      this.green[idx] = (byte) RgbUtils.clamp(p.getGreen());
+      this.blue[idx] = (byte) RgbUtils.clamp(p.getBlue());
+    }
+  }
+
+  /**
+   * Constructs a new PlanarImage object out of width and height in pixels and one row-major
+   * plane of unsigned bytes per channel, where the channel of the pixel at (x, y) is at index
+   * y * width + x. The given planes are copied, so later changes to them will not affect this
+   * image.
+   *
+   * @param width  width of image in pixels.
+   * @param height height of image in pixels.
+   * @param red    row-major plane of red channel values.
+   * @param green  row-major plane of green channel values.
+   * @param blue   row-major plane of blue channel values.
+   * @throws IllegalArgumentException if given width or height less than 1, null instead of any
+   *                                  plane, or any plane that doesn't have exactly
+   *                                  width x height elements.
+   */
+  public PlanarImage(int width, int height, byte[] red, byte[] green, byte[] blue)
+          throws IllegalArgumentException {
+    checkDimensions(width, height);
+    if (red == null || green == null || blue == null) {
+      throw new IllegalArgumentException("planes cannot be null");
+    }
+    if (red.length != width * height || green.length != width * height
+            || blue.length != width * height) {
+      throw new IllegalArgumentException("image cannot be created from planes that "
+              + "don't match width x height");
+    }
+    this.width = width;
+    this.height = height;
+    this.red = red.clone();
+    this.green = green.clone();
+    this.blue = blue.clone();
+  }
+
+  /**
+   * Constructs a new PlanarImage out of the planes a Builder has finished writing to, without
+   * copying or validating them again.
+   *
+   * @param builder the Builder that is building this image.
+   */
+  private PlanarImage(Builder builder) {
+    this.width = builder.width;
+    this.height = builder.height;
+    this.red = builder.red;
+    this.green = builder.green;
+    this.blue = builder.blue;
+  }
+
+  /**
+   * Creates a new IImageBuilder that splits rows straight into the planes of a new PlanarImage,
+   * so that building it never creates an IPixel or copies the finished planes.
+   *
+   * @param width  width of the image to build.
+   * @param height height of the image to build.
+   * @return a new IImageBuilder that builds a PlanarImage.
+   * @throws IllegalArgumentException if given width or height less than 1, or the image would
+   *                                  have more pixels than can fit in a single array.
+   */
+  public static IImageBuilder builder(int width, int height) throws IllegalArgumentException {
+    return new Builder(width, height);
+  }
+
+  /**
+   * Converts any IImage, such as a BasicImage, into a PlanarImage with the same pixels.
+   *
+   * @param img the IImage to convert.
+   * @return a PlanarImage with the same width, height and pixels as the given IImage.
+   * @throws IllegalArgumentException if given null, or an IImage less than 1x1.
+   */
+  public static PlanarImage fromImage(IImage img) throws IllegalArgumentException {
+    if (img == null) {
+      throw new IllegalArgumentException("given null instead of image");
+    }
+    if (img instanceof PlanarImage) {
+      return (PlanarImage) img;
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    checkDimensions(width, height);
+    byte[] red = new byte[width * height];
+    byte[] green = new byte[width * height];
+    byte[] blue = new byte[width * height];
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      img.getRow(y, row);
+      int rowStart = y * width;
+      for (int x = 0; x < width; x++) {
+        red[rowStart + x] = (byte) RgbUtils.red(row[x]);
+        green[rowStart + x] = (byte) RgbUtils.green(row[x]);
+        blue[rowStart + x] = (byte) RgbUtils.blue(row[x]);
+      }
+    }
+    return new PlanarImage(width, height, red, green, blue);
+  }
+
+  /**
+   * Converts this PlanarImage into a BasicImage with the same pixels.
+   *
+   * @return a BasicImage made of BasicPixels with the same width, height and pixels as this.
+   */
+  public BasicImage toBasicImage() {
+    IPixel[] pixels = new IPixel[this.width * this.height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = new BasicPixel(i % this.width, i / this.width, this.red[i] & 0xFF,
+              this.green[i] & 0xFF, this.blue[i] & 0xFF);
+    }
+    return new BasicImage(this.width, this.height, pixels);
+  }
+
+  /**
+   * Observer method for a whole channel of this image at once.
+   *
+   * @param channel the channel to return.
+   * @return a copy of the row-major plane of the given channel, where each byte is unsigned.
+   * @throws IllegalArgumentException if given null.
+   */
+  public byte[] getPlane(Channel channel) throws IllegalArgumentException {
+    if (channel == null) {
+      throw new IllegalArgumentException("channel cannot be null");
+    }
+    switch (channel) {
+      case RED:
+        return this.red.clone();
+      case GREEN:
+        return this.green.clone();
+      case BLUE:
+        return this.blue.clone();
+      default:
+        // should not get here....
+        throw new IllegalArgumentException("channel cannot be null");
+    }
+  }
+
+  /**
+   * Ensures that the given dimensions are valid for an image.
+   *
+   * @param width  width of image in pixels.
+   * @param height height of image in pixels.
+   * @throws IllegalArgumentException if either is less than 1, or the image would have more
+   *                                  pixels than can fit in a single array.
+   */
+  private static void checkDimensions(int width, int height) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("width and height cannot be less than 1 pixel");
+    }
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("image is too large to fit in a single array");
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IPixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    if (x < 0 || y < 0 || x > this.width - 1 || y > this.height - 1) {
+      throw new IllegalArgumentException("x or y cannot be less than 0 or greater "
+              + "than width or height - 1, respectively");
+    }
+    int idx = y * this.width + x;
+    return new BasicPixel(x, y, ((this.red[idx] & 0xFF) << 16)
+            | ((this.green[idx] & 0xFF) << 8) | (this.blue[idx] & 0xFF));
+  }
+
+  @Override
+  public void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    RgbUtils.checkRegion(this, x, y, w, h, rgbOut, offset, scanSize);
+    for (int j = 0; j < h; j++) {
+      int srcStart = (y + j) * this.width + x;
+      int outStart = offset + j * scanSize;
+      for (int i = 0; i < w; i++) {
+        rgbOut[outStart + i] = ((this.red[srcStart + i] & 0xFF) << 16)
+                | ((this.green[srcStart + i] & 0xFF) << 8)
+                | (this.blue[srcStart + i] & 0xFF);
+      }
+    }
+  }
+
+  @Override
+  public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    return new Builder(w, h);
+  }
+
+  @Override
+  public IImage createImage(int w, int h, IPixel[] pixels)
+          throws IllegalArgumentException {
+    return new PlanarImage(w, h, pixels);
+  }
+
+  /**
+   * IImageBuilder for PlanarImages, which splits rows straight into the planes that the built
+   * image will use. Rows are checked in bulk for each call to setRows, rather than per pixel.
+   */
+  private static class Builder implements IImageBuilder {
+    private final int width;
+    private final int height;
+    private byte[] red;
+    private byte[] green;
+    private byte[] blue;
+
+    /**
+     * Creates a new Builder for an image of the given size, with every pixel black.
+     *
+     * @param width  width of the image to build.
+     * @param height height of the image to build.
+     * @throws IllegalArgumentException if given width or height less than 1, or the image
+     *                                  would have more pixels than can fit in a single array.
+     */
+    private Builder(int width, int height) throws IllegalArgumentException {
+      checkDimensions(width, height);
+      this.width = width;
+      this.height = height;
+      this.red = new byte[width * height];
+      this.green = new byte[width * height];
+      this.blue = new byte[width * height];
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public void setRows(int y, int h, int[] rgb, int offset)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.red == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRows(this, y, h, rgb, offset);
+      int start = y * this.width;
+      for (int i = 0; i < h * this.width; i++) {
+        int packed = rgb[offset + i];
+        this.red[start + i] = (byte) RgbUtils.red(packed);
+        this.green[start + i] = (byte) RgbUtils.green(packed);
+        this.blue[start + i] = (byte) RgbUtils.blue(packed);
+      }
+    }
+
+    @Override
+    public void setRegion(int x, int y, int w, int h, int[] rgb, int offset, int scanSize)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.red == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRegion(this, x, y, w, h, rgb, offset, scanSize);
+      for (int j = 0; j < h; j++) {
+        int start = (y + j) * this.width + x;
+        int rowStart = offset + j * scanSize;
+        for (int i = 0; i < w; i++) {
+          int packed = rgb[rowStart + i];
+          this.red[start + i] = (byte) RgbUtils.red(packed);
+          this.green[start + i] = (byte) RgbUtils.green(packed);
+          this.blue[start + i] = (byte) RgbUtils.blue(packed);
+        }
+      }
+    }
+
+    @Override
+    public IImage build() throws IllegalStateException {
+      if (this.red == null) {
+        throw new IllegalStateException("image already built");
+      }
+      IImage image = new PlanarImage(this);
+      // the image owns the planes now, so this builder must not be able to reach them.
+      this.red = null;
+      this.green = null;
+      this.blue = null;
+      return image;
+    }
+  }
+}
@@ -0,0 +1,167 @@
+package model.image;
+
+/**
+ * Utility class for working with RGB values packed into a single integer, in the format
+ * 0xRRGGBB (the same layout used by java.awt.image.BufferedImage.TYPE_INT_RGB). Any bits above
+ * the lowest 24 (such as an alpha channel) are ignored when unpacking.
+ */
+public class RgbUtils {
+
+  /**
+   * Packs the given RGB values into a single integer, clamping each to be between 0 and 255,
+   * inclusive, the same way that BasicPixel does.
+   *
+   * @param red   R channel value integer.
+   * @param green G channel value integer.
+   * @param blue  B channel value integer.
+   * @return integer in the format 0xRRGGBB.
+   */
+  public static int pack(int red, int green, int blue) {
+    return (clamp(red) << 16) | (clamp(green) << 8) | clamp(blue);
+  }
+
+  /**
+   * Packs the RGB values of the given IPixel into a single integer.
+   *
+   * @param pixel the IPixel to take RGB values from.
+   * @return integer in the format 0xRRGGBB.
+   * @throws IllegalArgumentException if given null.
+   */
+  public static int pack(IPixel pixel) throws IllegalArgumentException {
+    if (pixel == null) {
+      throw new IllegalArgumentException("given null instead of pixel");
+    }
+    return pack(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+  }
+
+  /**
+   * Observer for the red channel of a packed RGB integer.
+   *
+   * @param rgb integer in the format 0xRRGGBB.
+   * @return int between 0 and 255, inclusive.
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * Observer for the green channel of a packed RGB integer.
+   *
+   * @param rgb integer in the format 0xRRGGBB.
+   * @return int between 0 and 255, inclusive.
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * Observer for the blue channel of a packed RGB integer.
+   *
+   * @param rgb integer in the format 0xRRGGBB.
+   * @return int between 0 and 255, inclusive.
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  /**
+   * Clamps the given channel value to be between 0 and 255, inclusive.
+   *
+   * @param channel any integer channel value.
+   * @return 0 if given a negative value, 255 if given a value over 255, and the value otherwise.
+   */
+  public static int clamp(int channel) {
+    if (channel > 255) {
+      return 255;
+    } else if (channel < 0) {
+      return 0;
+    }
+    return channel;
+  }
+
+  /**
+   * Ensures that the given rectangle and array are valid arguments for IImage.getRegion on the
+   * given image, so that every implementation of it enforces the same rules.
+   *
+   * @param img      the image to be read from.
+   * @param x        x coordinate of the left column of the rectangle.
+   * @param y        y coordinate of the top row of the rectangle.
+   * @param w        width of the rectangle.
+   * @param h        height of the rectangle.
+   * @param rgbOut   array that the rectangle will be written into.
+   * @param offset   index in rgbOut that the top left pixel will be written to.
+   * @param scanSize distance in rgbOut between the start of one row and the next.
+   * @throws IllegalArgumentException if the rectangle isn't inside the image, or rgbOut is null
+   *                                  or too small to hold the rectangle at the given offset
+   *                                  and scan size.
+   */
+  public static void checkRegion(IImage img, int x, int y, int w, int h, int[] rgbOut,
+                                 int offset, int scanSize) throws IllegalArgumentException {
+    if (rgbOut == null) {
+      throw new IllegalArgumentException("rgbOut cannot be null");
+    }
+    if (x < 0 || y < 0 || w < 0 || h < 0
+            || (long) x + w > img.getWidth() || (long) y + h > img.getHeight()) {
+      throw new IllegalArgumentException("region out of bounds of image");
+    }
+    if (offset < 0 || scanSize < w
+            || (h > 0 && offset + (long) (h - 1) * scanSize + w > rgbOut.length)) {
+      throw new IllegalArgumentException("rgbOut too small for region");
+    }
+  }
+
+  /**
+   * Ensures that the given rows and array are valid arguments for IImageBuilder.setRows on the
+   * given builder, so that every implementation of it enforces the same rules.
+   *
+   * @param builder the builder to be written to.
+   * @param y       y coordinate of the first row.
+   * @param h       number of rows.
+   * @param rgb     array that the rows will be read from.
+   * @param offset  index in rgb of the first pixel of row y.
+   * @throws IllegalArgumentException if the rows are out of bounds, or rgb is null or too small.
+   */
+  public static void checkRows(IImageBuilder builder, int y, int h, int[] rgb, int offset)
+          throws IllegalArgumentException {
+    if (rgb == null) {
+      throw new IllegalArgumentException("rgb cannot be null");
+    }
+    if (y < 0 || h < 0 || (long) y + h > builder.getHeight()) {
+      throw new IllegalArgumentException("rows out of bounds of image");
+    }
+    if (offset < 0 || offset + (long) h * builder.getWidth() > rgb.length) {
+      throw new IllegalArgumentException("rgb too small for rows");
+    }
+  }
+
+  /**
+   * Ensures that the given rectangle and array are valid arguments for IImageBuilder.setRegion
+   * on the given builder, so that every implementation of it enforces the same rules.
+   *
+   * @param builder  the builder to be written to.
+   * @param x        x coordinate of the left column of the rectangle.
+   * @param y        y coordinate of the top row of the rectangle.
+   * @param w        width of the rectangle.
+   * @param h        height of the rectangle.
+   * @param rgb      array that the rectangle will be read from.
+   * @param offset   index in rgb of the top left pixel of the rectangle.
+   * @param scanSize distance in rgb between the start of one row and the next.
+   * @throws IllegalArgumentException if the rectangle isn't inside the image being built, or
+   *                                  rgb is null or too small to hold the rectangle at the
+   *                                  given offset and scan size.
+   */
+  public static void checkRegion(IImageBuilder builder, int x, int y, int w, int h, int[] rgb,
+                                 int offset, int scanSize) throws IllegalArgumentException {
+    if (rgb == null) {
+      throw new IllegalArgumentException("rgb cannot be null");
+    }
+    if (x < 0 || y < 0 || w < 0 || h < 0
+            || (long) x + w > builder.getWidth() || (long) y + h > builder.getHeight()) {
+      throw new IllegalArgumentException("region out of bounds of image");
+    }
+    if (offset < 0 || scanSize < w
+            || (h > 0 && offset + (long) (h - 1) * scanSize + w > rgb.length)) {
+      throw new IllegalArgumentException("rgb too small for region");
+    }
+  }
+}
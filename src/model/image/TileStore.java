@@ -0,0 +1,170 @@
+package model.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Storage for the packed RGB pixels of a TiledImage, kept in a memory-mapped scratch file
+ * instead of the heap. The image is split into square tiles of TILE_SIZE x TILE_SIZE pixels,
+ * each stored row-major in its own contiguous section of the file, and a tile is only mapped
+ * into memory once it is read or written. At most MAX_RESIDENT_TILES tiles are kept mapped at
+ * once, the least recently used tile is dropped first, and the operating system pages the
+ * rest of the file in and out as needed.
+ */
+class TileStore {
+  static final int TILE_SIZE = 256;
+  private static final int TILE_INTS = TILE_SIZE * TILE_SIZE;
+  private static final int MAX_RESIDENT_TILES = 64;
+
+  private final int width;
+  private final int tilesAcross;
+  private final File scratch;
+  private final RandomAccessFile file;
+  private final FileChannel channel;
+  // access-ordered, so iteration starts from the least recently used tile.
+  private final Map<Integer, IntBuffer> resident;
+  private boolean readOnly;
+
+  /**
+   * Creates a new TileStore with a new scratch file big enough for an image of the given size,
+   * with every pixel black. The scratch file is created in the directory given by the
+   * "imageprocessor.scratch.dir" system property, or java.io.tmpdir if it isn't set.
+   *
+   * @param width  width of the image in pixels, at least 1.
+   * @param height height of the image in pixels, at least 1.
+   * @throws UncheckedIOException if the scratch file cannot be created.
+   */
+  TileStore(int width, int height) throws UncheckedIOException {
+    this.width = width;
+    this.tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+    this.resident = new LinkedHashMap<>(MAX_RESIDENT_TILES, 0.75f, true);
+    this.readOnly = false;
+    try {
+      String dir = System.getProperty("imageprocessor.scratch.dir");
+      this.scratch = File.createTempFile("tiled", ".img",
+              dir == null ? null : new File(dir));
+      this.scratch.deleteOnExit();
+      this.file = new RandomAccessFile(this.scratch, "rw");
+      // the file is sparse until tiles are written to.
+      this.file.setLength((long) this.tilesAcross * tilesDown * TILE_INTS * 4);
+      this.channel = this.file.getChannel();
+    } catch (IOException io) {
+      throw new UncheckedIOException("could not create scratch file for tiled image", io);
+    }
+  }
+
+  /**
+   * Makes every later access to this store read only, once all of the pixels are written.
+   */
+  synchronized void seal() {
+    this.readOnly = true;
+    this.resident.clear();
+  }
+
+  /**
+   * Reads part of a row of pixels into the given array.
+   *
+   * @param x      x coordinate of the first pixel to read.
+   * @param y      y coordinate of the row.
+   * @param w      number of pixels to read.
+   * @param out    array to read into.
+   * @param offset index in out for the first pixel.
+   */
+  void readRow(int x, int y, int w, int[] out, int offset) {
+    while (w > 0) {
+      int inTile = Math.min(w, TILE_SIZE - x % TILE_SIZE);
+      IntBuffer tile = this.tile(x / TILE_SIZE, y / TILE_SIZE);
+      tile.position((y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE);
+      tile.get(out, offset, inTile);
+      x += inTile;
+      offset += inTile;
+      w -= inTile;
+    }
+  }
+
+  /**
+   * Writes part of a row of pixels from the given array.
+   *
+   * @param x      x coordinate of the first pixel to write.
+   * @param y      y coordinate of the row.
+   * @param w      number of pixels to write.
+   * @param in     array to write from.
+   * @param offset index in in of the first pixel.
+   */
+  void writeRow(int x, int y, int w, int[] in, int offset) {
+    while (w > 0) {
+      int inTile = Math.min(w, TILE_SIZE - x % TILE_SIZE);
+      IntBuffer tile = this.tile(x / TILE_SIZE, y / TILE_SIZE);
+      tile.position((y % TILE_SIZE) * TILE_SIZE + x % TILE_SIZE);
+      for (int i = 0; i < inTile; i++) {
+        tile.put(in[offset + i] & 0xFFFFFF);
+      }
+      x += inTile;
+      offset += inTile;
+      w -= inTile;
+    }
+  }
+
+  /**
+   * Returns a view of the given tile, mapping it into memory if it isn't already. Each call
+   * returns a new view, so callers on different threads never share a buffer position.
+   *
+   * @param tileX column of the tile.
+   * @param tileY row of the tile.
+   * @return a new IntBuffer view of the whole tile.
+   * @throws UncheckedIOException if mapping the tile fails.
+   */
+  private synchronized IntBuffer tile(int tileX, int tileY) throws UncheckedIOException {
+    int index = tileY * this.tilesAcross + tileX;
+    IntBuffer mapped = this.resident.get(index);
+    if (mapped == null) {
+      if (this.resident.size() >= MAX_RESIDENT_TILES) {
+        // unmapped once the buffer is garbage collected.
+        Integer eldest = this.resident.keySet().iterator().next();
+        this.resident.remove(eldest);
+      }
+      try {
+        mapped = this.channel.map(this.readOnly ? FileChannel.MapMode.READ_ONLY
+                        : FileChannel.MapMode.READ_WRITE, (long) index * TILE_INTS * 4,
+                TILE_INTS * 4L).order(ByteOrder.nativeOrder()).asIntBuffer();
+      } catch (IOException io) {
+        throw new UncheckedIOException("could not map tile of tiled image", io);
+      }
+      this.resident.put(index, mapped);
+    }
+    return mapped.duplicate();
+  }
+
+  /**
+   * Closes and deletes the scratch file if seal has not been called yet. Used for builders that
+   * are garbage collected without building their image.
+   */
+  synchronized void releaseIfUnsealed() {
+    if (!this.readOnly) {
+      this.release();
+    }
+  }
+
+  /**
+   * Closes and deletes the scratch file. Used once the TiledImage using this store is garbage
+   * collected.
+   */
+  synchronized void release() {
+    this.resident.clear();
+    try {
+      this.channel.close();
+      this.file.close();
+    } catch (IOException io) {
+      // nothing else to do, the file is still deleted on exit.
+    }
+    this.scratch.delete();
+  }
+}
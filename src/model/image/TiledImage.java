@@ -0,0 +1,217 @@
+package model.image;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * Image representation whose pixels live outside of the heap, in a memory-mapped scratch file
+ * split into fixed-size tiles (see TileStore), so that images several times larger than the
+ * maximum heap size can be imported, edited and exported. Only the tiles that are being read
+ * are mapped into memory at any time. The scratch file is deleted once the TiledImage is
+ * garbage collected, or when the program exits.
+ *
+ * <p>TiledImages are built with an IImageBuilder from TiledImage.builder or createBuilder,
+ * which writes rows straight into the scratch file, and cannot be written to after they are
+ * built, so they are immutable and can be shared without defensive copies. Reading them
+ * through getRegion/getRow is much faster than through getPixelAt.</p>
+ */
+public final class TiledImage implements IImmutableImage {
+  private static final Cleaner CLEANER = Cleaner.create();
+  // images with more pixels than the heap can hold this many times over are tiled.
+  private static final long HEAP_BYTES_PER_PIXEL = 64;
+
+  private final int width;
+  private final int height;
+  private final TileStore store;
+
+  /**
+   * Constructs a new TiledImage object out of width and height in pixels and an array of
+   * IPixels to populate the image with. Follows the same rules as the BasicImage constructor,
+   * though building with TiledImage.builder avoids holding every pixel in the heap.
+   *
+   * @param width      width of image in pixels.
+   * @param height     height of image in pixels.
+   * @param fromPixels some array of IPixel, with no pixels that share the same position, and
+   *                   each x and y value is between 0 and the width and height of this
+   *                   TiledImage, respectively.
+   * @throws IllegalArgumentException if given width or height less than 1 or an array of pixels
+   *                                  that doesn't have exactly width x height elements. Or if
+   *                                  any pixel in the array has a position lower than 0 or
+   *                                  higher than the width/height, or is repeated. Or if given
+   *                                  null instead of array of IPixel.
+   */
+  public TiledImage(int width, int height, IPixel[] fromPixels)
+          throws IllegalArgumentException {
+    // PackedImage enforces the same rules, then the rows are copied out of it.
+    this(new PackedImage(width, height, fromPixels));
+  }
+
+  /**
+   * Constructs a TiledImage with the same pixels as the given image, row by row.
+   *
+   * @param source image to copy from, at least 1x1.
+   */
+  private TiledImage(IImage source) {
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+    this.store = new TileStore(this.width, this.height);
+    int[] row = new int[this.width];
+    for (int y = 0; y < this.height; y++) {
+      source.getRow(y, row);
+      this.store.writeRow(0, y, this.width, row, 0);
+    }
+    this.store.seal();
+    CLEANER.register(this, this.store::release);
+  }
+
+  /**
+   * Constructs a TiledImage out of a store that a Builder has finished writing to.
+   *
+   * @param width  width of image in pixels.
+   * @param height height of image in pixels.
+   * @param store  sealed store holding every pixel.
+   */
+  private TiledImage(int width, int height, TileStore store) {
+    this.width = width;
+    this.height = height;
+    this.store = store;
+    CLEANER.register(this, this.store::release);
+  }
+
+  /**
+   * Creates a new IImageBuilder that writes rows straight into the scratch file of a new
+   * TiledImage.
+   *
+   * @param width  width of the image to build.
+   * @param height height of the image to build.
+   * @return a new IImageBuilder that builds a TiledImage.
+   * @throws IllegalArgumentException if width or height is less than 1.
+   */
+  public static IImageBuilder builder(int width, int height) throws IllegalArgumentException {
+    return new Builder(width, height);
+  }
+
+  /**
+   * Decides if an image of the given size is too large to comfortably fit in the heap, with
+   * room to spare for the copies that operations make, and should be a TiledImage instead.
+   *
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @return true if an image of this size should be tiled.
+   */
+  public static boolean shouldTile(long width, long height) {
+    return width * height > Runtime.getRuntime().maxMemory() / HEAP_BYTES_PER_PIXEL
+            || width * height > Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IPixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    if (x < 0 || y < 0 || x > this.width - 1 || y > this.height - 1) {
+      throw new IllegalArgumentException("x or y cannot be less than 0 or greater "
+              + "than width or height - 1, respectively");
+    }
+    int[] packed = new int[1];
+    this.store.readRow(x, y, 1, packed, 0);
+    return new BasicPixel(x, y, packed[0]);
+  }
+
+  @Override
+  public void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    RgbUtils.checkRegion(this, x, y, w, h, rgbOut, offset, scanSize);
+    for (int j = 0; j < h; j++) {
+      this.store.readRow(x, y + j, w, rgbOut, offset + j * scanSize);
+    }
+  }
+
+  @Override
+  public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    return new Builder(w, h);
+  }
+
+  @Override
+  public IImage createImage(int w, int h, IPixel[] pixels)
+          throws IllegalArgumentException {
+    return new TiledImage(w, h, pixels);
+  }
+
+  /**
+   * IImageBuilder for TiledImages, which writes each row into the scratch file as it is set.
+   */
+  private static class Builder implements IImageBuilder {
+    private final int width;
+    private final int height;
+    private TileStore store;
+
+    /**
+     * Creates a new Builder with a new scratch file for an image of the given size.
+     *
+     * @param width  width of the image to build.
+     * @param height height of the image to build.
+     * @throws IllegalArgumentException if width or height is less than 1.
+     */
+    private Builder(int width, int height) throws IllegalArgumentException {
+      if (width < 1 || height < 1) {
+        throw new IllegalArgumentException("width and height cannot be less than 1 pixel");
+      }
+      this.width = width;
+      this.height = height;
+      this.store = new TileStore(width, height);
+      CLEANER.register(this, this.store::releaseIfUnsealed);
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public void setRows(int y, int h, int[] rgb, int offset)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.store == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRows(this, y, h, rgb, offset);
+      for (int j = 0; j < h; j++) {
+        this.store.writeRow(0, y + j, this.width, rgb, offset + j * this.width);
+      }
+    }
+
+    @Override
+    public void setRegion(int x, int y, int w, int h, int[] rgb, int offset, int scanSize)
+            throws IllegalArgumentException, IllegalStateException {
+      if (this.store == null) {
+        throw new IllegalStateException("image already built");
+      }
+      RgbUtils.checkRegion(this, x, y, w, h, rgb, offset, scanSize);
+      for (int j = 0; j < h; j++) {
+        this.store.writeRow(x, y + j, w, rgb, offset + j * scanSize);
+      }
+    }
+
+    @Override
+    public IImage build() throws IllegalStateException {
+      if (this.store == null) {
+        throw new IllegalStateException("image already built");
+      }
+      this.store.seal();
+      IImage built = new TiledImage(this.width, this.height, this.store);
+      this.store = null;
+      return built;
+    }
+  }
+}
@@ -1,13 +1,11 @@
 package model.image.patterns;
 
-import model.image.BasicImage;
-import model.image.BasicPixel;
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.PackedImage;
 
 /**
  * Function object that creates a checkerboard with black and white squares of a certain cellsize.
- * Implementation of PatternCreator that uses BasicImage/BasicPixel.
+ * Implementation of PatternCreator that uses PackedImage.
  */
 public class CheckerBoardCreator implements PatternCreator {
   private final int w;
@@ -35,25 +33,29 @@ public class CheckerBoardCreator implements PatternCreator {
 
   @Override
   public IImage create() {
-    IPixel[] pixels = new IPixel[this.w * this.h];
+    int white = 0xFFFFFF;
+    int black = 0x000000;
+    int[] pixels = new int[this.w * this.h];
     int ind = 0;
+    // the pattern is symmetric in r and c, so filling row-major with x = c and y = r gives the
+    // same squares for any width and height.
     for (int r = 0; r < this.h; r++) {
       for (int c = 0; c < this.w; c++) {
         if (c % this.cellSize < this.cellSize / 2
                 && r % this.cellSize < this.cellSize / 2) {
-          pixels[ind] = new BasicPixel(r, c, 255, 255, 255);
+          pixels[ind] = white;
         } else if (c % this.cellSize < this.cellSize / 2
                 && r % this.cellSize > this.cellSize / 2) {
-          pixels[ind] = new BasicPixel(r, c, 0, 0, 0);
+          pixels[ind] = black;
         } else if (c % this.cellSize >= this.cellSize / 2
                 && r % this.cellSize >= this.cellSize / 2) {
-          pixels[ind] = new BasicPixel(r, c, 255, 255, 255);
+          pixels[ind] = white;
         } else {
-          pixels[ind] = new BasicPixel(r, c, 0, 0, 0);
+          pixels[ind] = black;
         }
         ind++;
       }
     }
-    return new BasicImage(this.w, this.h, pixels);
+    return new PackedImage(this.w, this.h, pixels);
   }
 }
@@ -1,7 +1,9 @@
 package model.operations;
 
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.IImageBuilder;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
 
 /**
  * Highest level of operation hierarchy under IOperation interface. Child classes are
@@ -9,6 +11,9 @@ import model.image.IPixel;
  * filter/transform classes.
  */
 public abstract class AbstractOperation implements IOperation {
+  // roughly how many pixels applyPacked processes at once.
+  private static final int BAND_PIXELS = 1 << 20;
+
   protected final IImage img;
 
   /**
@@ -24,33 +29,279 @@ public abstract class AbstractOperation implements IOperation {
     this.img = img;
   }
 
+  /**
+   * Sets the number of threads that every AbstractOperation uses to compute its rows, for
+   * operations applied after this call. Results are identical for any number of threads. Starts
+   * as the "imageprocessor.parallelism" system property, or the number of available processors
+   * if it isn't set.
+   *
+   * @param threads number of threads, 1 to compute every row on the calling thread.
+   * @throws IllegalArgumentException if given less than 1.
+   */
+  public static void setParallelism(int threads) throws IllegalArgumentException {
+    RowBandExecutor.setParallelism(threads);
+  }
+
+  /**
+   * Observer for the number of threads that every AbstractOperation uses to compute its rows.
+   *
+   * @return number of threads, at least 1.
+   */
+  public static int getParallelism() {
+    return RowBandExecutor.getParallelism();
+  }
+
+  /**
+   * Sets whether AbstractColorTransforms and AbstractFilters compute their pixels with the
+   * kernels written with the jdk.incubator.vector module, for operations applied after this
+   * call. Results are identical either way. Starts as true if they are available, unless the
+   * "imageprocessor.vector" system property is "false".
+   *
+   * @param vectorized whether to use the vector kernels.
+   * @throws IllegalStateException if asked to use them when isVectorAvailable is false.
+   */
+  public static void setVectorized(boolean vectorized) throws IllegalStateException {
+    VectorSupport.setEnabled(vectorized);
+  }
+
+  /**
+   * Observer for whether operations compute their pixels with the vector kernels.
+   *
+   * @return whether the vector kernels are used.
+   */
+  public static boolean isVectorized() {
+    return VectorSupport.isEnabled();
+  }
+
+  /**
+   * Observer for whether the vector kernels can be used, which needs the jdk.incubator.vector
+   * module to be enabled (with "--add-modules jdk.incubator.vector") and vectors of at least 256
+   * bits.
+   *
+   * @return whether setVectorized(true) is allowed.
+   */
+  public static boolean isVectorAvailable() {
+    return VectorSupport.isAvailable();
+  }
+
+  /**
+   * Returns the vector kernels of the given class for subclasses to use while isVectorized is
+   * true, as the interface they implement. The kernels are compiled apart from the rest of the
+   * tree with the jdk.incubator.vector module, so they are only ever named, never referred to.
+   *
+   * @param className name of the class of the kernels.
+   * @param seam      interface the kernels implement.
+   * @param <T>       type of the interface.
+   * @return new kernels, or null if isVectorAvailable is false.
+   */
+  protected static <T> T vectorKernels(String className, Class<T> seam) {
+    return VectorSupport.kernels(className, seam);
+  }
+
   @Override
-  public IImage apply() {
-    IPixel[] pixels = new IPixel[img.getHeight() * img.getWidth()];
-    int pixelsIter = 0;
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        pixels[pixelsIter] = this.pixelApply(j, i);
-        pixelsIter++;
+  public IImage apply() throws IllegalStateException {
+    // invariants are checked up front, rather than separately by each thread.
+    this.checkInvariants();
+    if (img instanceof PlanarImage) {
+      return this.applyPlanar((PlanarImage) img);
+    }
+    return this.applyPacked();
+  }
+
+  /**
+   * Applies this operation to a PlanarImage, keeping its channels in separate planes. Subclasses
+   * that can process one channel plane at a time should override this, by default it goes
+   * through the same packed pixel path as every other IImage, which still returns a
+   * PlanarImage thanks to createImage.
+   *
+   * @param src the PlanarImage this operation was constructed with.
+   * @return the edited image, as a PlanarImage.
+   * @throws IllegalStateException if matrix of subclass does not follow the invariants of
+   *                               AbstractColorTransform or AbstractFilter.
+   */
+  protected IImage applyPlanar(PlanarImage src) throws IllegalStateException {
+    return this.applyPacked();
+  }
+
+  /**
+   * Applies this operation by reading the image into packed RGB ints one band of rows at a
+   * time, applying applyRows to the rows of each band in parallel (see forEachRowBand), and
+   * writing the results into a builder from the createBuilder method of the img field. Each
+   * band is read along with rowHalo extra rows above and below it, so only a band's worth of
+   * pixels is ever held in memory, which lets images larger than the heap (like TiledImages) be
+   * edited. If rowHalo covers the whole image, it is read as a single band. If wrapsRows, the
+   * rows past each edge of the image are read from the other edge instead, so the rows above
+   * and below every band are always there and applyRows never reaches the edge of what it is
+   * given.
+   *
+   * @return the edited image, in the same implementation as the img field.
+   * @throws IllegalStateException if matrix of subclass does not follow the invariants of
+   *                               AbstractColorTransform or AbstractFilter.
+   */
+  private IImage applyPacked() throws IllegalStateException {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int halo = this.rowHalo();
+    boolean wraps = this.wrapsRows();
+    IImageBuilder builder = img.createBuilder(width, height);
+    // each thread gets roughly BAND_PIXELS of every band to work on.
+    long bandPixels = (long) BAND_PIXELS * getParallelism();
+    int bandRows = (int) Math.max(1, Math.min(height, bandPixels / Math.max(1, width)));
+    if (halo >= height && !wraps) {
+      // every band would read the whole image anyway.
+      bandRows = height;
+    }
+    int[] src = null;
+    int[] dst = null;
+    for (int bandStart = 0; bandStart < height; bandStart += bandRows) {
+      int bandEnd = Math.min(height, bandStart + bandRows);
+      // rows that are read but not written, clipped to the image so edges stay edges, unless
+      // they wrap around.
+      int windowStart = wraps ? bandStart - halo : Math.max(0, bandStart - halo);
+      int windowEnd = wraps ? bandEnd + halo : Math.min(height, bandEnd + halo);
+      int windowRows = windowEnd - windowStart;
+      if (src == null || src.length < windowRows * width) {
+        src = new int[windowRows * width];
+        dst = new int[windowRows * width];
       }
+      if (wraps) {
+        readWrapped(img, windowStart, windowEnd, src);
+      } else {
+        img.getRegion(0, windowStart, width, windowRows, src, 0, width);
+      }
+      int[] bandSrc = src;
+      int[] bandDst = dst;
+      int firstRow = bandStart - windowStart;
+      forEachRowBand(bandEnd - bandStart, width, (fromRow, toRow) ->
+              this.applyRows(bandSrc, bandDst, width, windowRows,
+                      firstRow + fromRow, firstRow + toRow));
+      builder.setRows(bandStart, bandEnd - bandStart, dst, (bandStart - windowStart) * width);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads the rows from fromRow (inclusive) to toRow (exclusive) of an image, where rows past
+   * either edge are read from the other edge, as rows of the image repeated above and below
+   * it. Each run of rows that doesn't cross an edge is read at once, so a window a few rows
+   * past each edge takes three reads.
+   *
+   * @param image   image to read.
+   * @param fromRow first row to read, which may be negative.
+   * @param toRow   last row to read, exclusive, which may be past the height.
+   * @param rgbOut  array to write the rows into, one after another.
+   */
+  private static void readWrapped(IImage image, int fromRow, int toRow, int[] rgbOut) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int y = fromRow;
+    while (y < toRow) {
+      int row = Math.floorMod(y, height);
+      int rows = Math.min(toRow - y, height - row);
+      image.getRegion(0, row, width, rows, rgbOut, (y - fromRow) * width, width);
+      y += rows;
     }
-    return img.createImage(img.getWidth(), img.getHeight(), pixels);
   }
 
   /**
-   * Applies the effect dictated by the kernel to a single pixel of the field img
-   * model.image.IImage. Able to be used for any kernel size, assuming all kernels possess
-   * equal and odd width and height. Also is able to apply any pixel color transformation
-   * from the Abstract ColorTransform subclasses.
+   * Observer for whether rows of this operation past the top and bottom of the image wrap
+   * around to the other edge, as for BorderMode.WRAP. If so, applyPacked gives applyRows the
+   * rowHalo rows above and below every band from the other edge of the image, so that it never
+   * reads past the edge of what it is given. By default false.
+   *
+   * @return whether rows past one edge of the image are read from the other.
+   */
+  protected boolean wrapsRows() {
+    return false;
+  }
+
+  /**
+   * Ensures that the matrix of this operation follows its invariants, before any rows are
+   * computed. By default there are none to check.
+   *
+   * @throws IllegalStateException if matrix of subclass does not follow the invariants of
+   *                               AbstractColorTransform or AbstractFilter.
+   */
+  protected void checkInvariants() throws IllegalStateException {
+    // nothing to check by default.
+  }
+
+  /**
+   * Runs the given task over every row from 0 (inclusive) to rows (exclusive), split into bands
+   * of rows that are computed in parallel by getParallelism threads. Every row is given to
+   * exactly one call of the task, and calls return once every band is done, so tasks that only
+   * write their own rows give the same results as computing every row on one thread.
    *
-   * @param i x coordinate of the pixel to apply the RGB value shift to.
-   * @param j y coordinate of the pixel to apply the RGB value shift to.
-   * @return a new model.image.IPixel object of the implementation existing within the IImage
-   *              in this AbstractFilter.
-   * @throws IllegalArgumentException if i or j are out of bounds.
-   * @throws IllegalStateException    if matrix of subclass does not follow the invariants of
-   *                                  AbstractColorTransform or AbstractFilter.
+   * @param rows      number of rows to run over.
+   * @param rowPixels number of pixels in each row, used to decide how finely to split.
+   * @param task      computation to run on each band of rows.
+   * @throws IllegalStateException if the task throws it for any band.
    */
-  protected abstract IPixel pixelApply(int i, int j)
-          throws IllegalArgumentException, IllegalStateException;
+  protected static void forEachRowBand(int rows, int rowPixels, RowTask task)
+          throws IllegalStateException {
+    RowBandExecutor.run(rows, rowPixels, task);
+  }
+
+  /**
+   * A computation over a band of rows, for forEachRowBand.
+   */
+  @FunctionalInterface
+  protected interface RowTask {
+    /**
+     * Computes the rows from fromRow (inclusive) to toRow (exclusive).
+     *
+     * @param fromRow first row to compute, inclusive.
+     * @param toRow   last row to compute, exclusive.
+     */
+    void run(int fromRow, int toRow);
+  }
+
+  /**
+   * Returns how many rows above and below a row applyRows needs to read to compute it, so that
+   * applyPacked can split the image into bands. By default 0, since color transforms only read
+   * the pixel they write. Returning the height of the image or more means every row needs the
+   * whole image.
+   *
+   * @return number of rows of context needed on each side of a row, at least 0.
+   * @throws IllegalStateException if matrix of subclass does not follow the invariants of
+   *                               AbstractColorTransform or AbstractFilter.
+   */
+  protected int rowHalo() throws IllegalStateException {
+    return 0;
+  }
+
+  /**
+   * Applies the effect of this operation to every pixel in the rows fromRow (inclusive) to
+   * toRow (exclusive). Both src and dst are row-major arrays of packed RGB integers (0xRRGGBB,
+   * see RgbUtils) for a width x height image, where pixel (x, y) is at index y * width + x.
+   * This image may be a band of rows from a taller one, in which case it has at least rowHalo
+   * rows above and below fromRow and toRow, except where the band meets the edge of the image.
+   * Only the given rows of dst are written to, and src is never mutated, so separate calls on
+   * separate rows do not depend on each other. Able to be used for any kernel size, assuming all
+   * kernels possess equal and odd width and height, and also able to apply any pixel color
+   * transformation from the AbstractColorTransform subclasses.
+   *
+   * @param src     packed pixels of the image this operation was constructed with.
+   * @param dst     array to write the packed pixels of the result into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromRow first row to compute, inclusive.
+   * @param toRow   last row to compute, exclusive.
+   * @throws IllegalStateException if matrix of subclass does not follow the invariants of
+   *                               AbstractColorTransform or AbstractFilter.
+   */
+  protected abstract void applyRows(int[] src, int[] dst, int width, int height,
+                                    int fromRow, int toRow) throws IllegalStateException;
+
+  /**
+   * Converts a computed channel value into an integer channel value the same way that
+   * BasicPixel.createPixel does: by truncating the decimal part, then clamping to be between 0
+   * and 255, inclusive.
+   *
+   * @param channel computed channel value.
+   * @return int between 0 and 255, inclusive.
+   */
+  protected static int toChannel(double channel) {
+    return RgbUtils.clamp((int) channel);
+  }
 }
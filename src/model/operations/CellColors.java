@@ -0,0 +1,152 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.RgbUtils;
+
+/**
+ * Colors every pixel of an image with the average color of the cell it belongs to, for mosaics
+ * that split an image into cells. Which cell each pixel belongs to is given a band of rows at a
+ * time by a RowLabeler, so no array the size of the image is needed, and images larger than the
+ * heap (see TiledImage) can be split into cells.
+ *
+ * <p>The rows are split into up to one stripe per thread, each of which adds up the channels of
+ * its own pixels for each cell in long arrays, and the totals of the stripes are then added
+ * together for each cell in parallel, so no object is created for any pixel and the result is
+ * the same on any number of threads.</p>
+ */
+final class CellColors {
+  // rows of the result are computed and written this many pixels at a time.
+  private static final int BAND_PIXELS = 1 << 20;
+
+  /**
+   * Gives the cell of every pixel of a band of rows of an image.
+   */
+  interface RowLabeler {
+    /**
+     * Writes the index of the cell of every pixel of the given rows. It may be called from
+     * several threads at once, for different rows.
+     *
+     * @param fromY  the first row to label.
+     * @param toY    one past the last row to label.
+     * @param labels array to write the cell of pixel (x, y) to, at index
+     *               (y - fromY) * width + x.
+     */
+    void labelRows(int fromY, int toY, int[] labels);
+  }
+
+  private CellColors() {
+    // only static methods.
+  }
+
+  /**
+   * Builds an image the size of root where every pixel is the average color of the pixels of
+   * root in the same cell, rounded down.
+   *
+   * @param root    image to average the colors of.
+   * @param cells   number of cells, some of which may not have any pixels.
+   * @param labeler the cell of every pixel, each between 0 and cells - 1.
+   * @return the new image, built through the createBuilder method of root.
+   */
+  static IImage average(IImage root, int cells, RowLabeler labeler) {
+    int width = root.getWidth();
+    int height = root.getHeight();
+    // each stripe keeps 32 bytes for every cell, so there are only as many stripes as keep
+    // them within the size of the image itself, and within an eighth of the heap.
+    long stripeLimit = Math.min(4L * width * height, Runtime.getRuntime().maxMemory() / 8)
+            / (32L * cells);
+    int stripes = (int) Math.max(1, Math.min(Math.min(height, RowBandExecutor.getParallelism()),
+            stripeLimit));
+    // stripes read and label this many rows at a time, so all of them together hold about
+    // BAND_PIXELS pixels.
+    int chunkRows = Math.max(1, BAND_PIXELS / stripes / width);
+    // sums[stripe][4 * cell + c] is the total of red, green, blue, and the count for c = 0..3.
+    long[][] sums = new long[stripes][];
+    RowBandExecutor.run(stripes, width * (height / stripes), (fromStripe, toStripe) -> {
+      int[] rgb = new int[chunkRows * width];
+      int[] labels = new int[chunkRows * width];
+      for (int stripe = fromStripe; stripe < toStripe; stripe++) {
+        long[] stripeSums = new long[4 * cells];
+        int end = stripeStart(stripe + 1, stripes, height);
+        for (int y = stripeStart(stripe, stripes, height); y < end; y += chunkRows) {
+          int rows = Math.min(chunkRows, end - y);
+          root.getRegion(0, y, width, rows, rgb, 0, width);
+          labeler.labelRows(y, y + rows, labels);
+          for (int i = 0; i < rows * width; i++) {
+            int at = 4 * labels[i];
+            stripeSums[at] += RgbUtils.red(rgb[i]);
+            stripeSums[at + 1] += RgbUtils.green(rgb[i]);
+            stripeSums[at + 2] += RgbUtils.blue(rgb[i]);
+            stripeSums[at + 3]++;
+          }
+        }
+        sums[stripe] = stripeSums;
+      }
+    });
+
+    int[] averages = new int[cells];
+    RowBandExecutor.run(cells, 4 * stripes, (fromCell, toCell) -> {
+      for (int cell = fromCell; cell < toCell; cell++) {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        long count = 0;
+        for (long[] stripeSums : sums) {
+          red += stripeSums[4 * cell];
+          green += stripeSums[4 * cell + 1];
+          blue += stripeSums[4 * cell + 2];
+          count += stripeSums[4 * cell + 3];
+        }
+        // cells without pixels are never used.
+        if (count > 0) {
+          averages[cell] = RgbUtils.pack((int) (red / count), (int) (green / count),
+                  (int) (blue / count));
+        }
+      }
+    });
+
+    return paint(root, averages, labeler);
+  }
+
+  /**
+   * Builds an image the size of root where every pixel is the color of its cell.
+   *
+   * @param root    image to build the new image like.
+   * @param colors  packed RGB color of every cell.
+   * @param labeler the cell of every pixel, each an index in colors.
+   * @return the new image, built through the createBuilder method of root.
+   */
+  static IImage paint(IImage root, int[] colors, RowLabeler labeler) {
+    int width = root.getWidth();
+    int height = root.getHeight();
+    IImageBuilder builder = root.createBuilder(width, height);
+    int bandRows = Math.max(1, Math.min(height, BAND_PIXELS / width));
+    int[] band = new int[bandRows * width];
+    for (int bandStart = 0; bandStart < height; bandStart += bandRows) {
+      int start = bandStart;
+      int rows = Math.min(bandRows, height - bandStart);
+      RowBandExecutor.run(rows, width, (fromRow, toRow) -> {
+        int[] labels = new int[(toRow - fromRow) * width];
+        labeler.labelRows(start + fromRow, start + toRow, labels);
+        for (int i = 0; i < labels.length; i++) {
+          band[fromRow * width + i] = colors[labels[i]];
+        }
+      });
+      builder.setRows(bandStart, rows, band, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Finds the first row of a stripe, when the rows of an image are split into stripes of
+   * nearly equal size.
+   *
+   * @param stripe  index of the stripe, or the number of stripes for the end of the last one.
+   * @param stripes number of stripes.
+   * @param height  number of rows.
+   * @return the first row of the stripe.
+   */
+  private static int stripeStart(int stripe, int stripes, int height) {
+    return (int) ((long) stripe * height / stripes);
+  }
+}
@@ -0,0 +1,191 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IImmutableImage;
+import model.image.IPixel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An IImage that is the result of an IOperation that hasn't been applied yet. Nothing is
+ * computed until the first time its pixels are read (by getPixelAt, getRegion, getRow,
+ * createBuilder or createImage), after which the result is kept and the operation and the image
+ * it was applied to are let go. The width and height are known up front, since no IOperation
+ * changes them.
+ *
+ * <p>DeferredImages whose images are themselves DeferredImages make a chain of operations. When
+ * one is read, every unevaluated AbstractOperation up the chain is computed together in a single
+ * pass (see FusedBands), a band of rows at a time, so no image is built between them and only a
+ * few bands of pixels are held in memory at once. Runs of color transformations are also merged
+ * into a ColorTransformChain. Operations that need the whole image at once (mosaics, and filters
+ * whose rowHalo covers the whole image) end a chain, and are applied the usual way.</p>
+ *
+ * <p>The results are identical to applying each operation right away. DeferredImages are
+ * created by IOperationAdapter.deferOperation, which only ever gives them IImmutableImages, so
+ * a DeferredImage never changes either. Each DeferredImage is evaluated at most once, under a
+ * lock of its own, so they can be shared between threads. Operations that end a chain are only
+ * applied once the image they read has been evaluated on the calling thread, since mosaics read
+ * it from the threads they compute on.</p>
+ */
+public final class DeferredImage implements IImmutableImage {
+  private final int width;
+  private final int height;
+  // held while evaluating this image, so it is only ever computed once.
+  private final Object lock;
+
+  // both null once evaluated, only read or written while holding the lock.
+  private IImage source;
+  private IOperation operation;
+
+  // null until evaluated, and never changed after that.
+  private volatile IImage result;
+
+  /**
+   * Constructs a new DeferredImage for the given IOperation, which must have been constructed
+   * with the given image and must not change its size.
+   *
+   * @param source    image the operation is applied to, which must never change.
+   * @param operation operation to apply when the pixels are first read.
+   * @throws IllegalArgumentException if given null.
+   */
+  DeferredImage(IImage source, IOperation operation) throws IllegalArgumentException {
+    if (source == null || operation == null) {
+      throw new IllegalArgumentException("arguments given cannot be null");
+    }
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+    this.lock = new Object();
+    this.source = source;
+    this.operation = operation;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public IPixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    return this.evaluate().getPixelAt(x, y);
+  }
+
+  @Override
+  public void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    this.evaluate().getRegion(x, y, w, h, rgbOut, offset, scanSize);
+  }
+
+  @Override
+  public void getRow(int y, int[] rgbOut) throws IllegalArgumentException {
+    this.evaluate().getRow(y, rgbOut);
+  }
+
+  @Override
+  public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    return this.evaluate().createBuilder(w, h);
+  }
+
+  @Override
+  public IImage createImage(int w, int h, IPixel[] pixels) throws IllegalArgumentException {
+    return this.evaluate().createImage(w, h, pixels);
+  }
+
+  /**
+   * Observer for whether the pixels of this image have been computed yet.
+   *
+   * @return true if they have, false if the operation is still waiting to be applied.
+   */
+  public boolean isEvaluated() {
+    return this.result != null;
+  }
+
+  /**
+   * Computes the pixels of this image if they haven't been yet, and returns the image holding
+   * them, which is of the implementation type the operation builds (the type of the image at
+   * the start of the chain for AbstractOperations). Readers that treat some implementations
+   * specially, like exporters that stream TiledImages, can use this to see that type.
+   *
+   * @return the result of the operation.
+   * @throws IllegalStateException if the operation throws it when applied.
+   */
+  public IImage evaluate() throws IllegalStateException {
+    IImage evaluated = this.result;
+    if (evaluated != null) {
+      return evaluated;
+    }
+    synchronized (this.lock) {
+      if (this.result == null) {
+        this.result = this.compute();
+        this.source = null;
+        this.operation = null;
+      }
+      return this.result;
+    }
+  }
+
+  /**
+   * Applies the operation of this image, along with every unevaluated AbstractOperation up
+   * the chain of DeferredImages before it that can be computed in the same pass. Must be called
+   * while holding the lock of this image. The locks of the images up the chain are only held
+   * while reading their operations, so two images read at once that share part of a chain may
+   * both compute that part, with the same pixels.
+   *
+   * @return the result of the operation.
+   * @throws IllegalStateException if any of the operations throw it when applied.
+   */
+  private IImage compute() throws IllegalStateException {
+    if (!this.isFusable()) {
+      // mosaics read their image from the threads of RowBandExecutor, which must not be the
+      // ones to evaluate it, since evaluating it needs those threads too.
+      if (this.source instanceof DeferredImage) {
+        ((DeferredImage) this.source).evaluate();
+      }
+      return this.operation.apply();
+    }
+    List<AbstractOperation> stages = new ArrayList<>();
+    AbstractOperation stage = (AbstractOperation) this.operation;
+    IImage base = this.source;
+    while (true) {
+      stages.add(0, stage);
+      if (!(base instanceof DeferredImage)) {
+        break;
+      }
+      DeferredImage parent = (DeferredImage) base;
+      synchronized (parent.lock) {
+        if (parent.result != null || !parent.isFusable()) {
+          break;
+        }
+        stage = (AbstractOperation) parent.operation;
+        base = parent.source;
+      }
+    }
+    if (base instanceof DeferredImage) {
+      base = ((DeferredImage) base).evaluate();
+    }
+    return FusedBands.apply(base, stages);
+  }
+
+  /**
+   * Observer for whether the operation of this image can be computed a band of rows at a time
+   * along with others, which needs an AbstractOperation that doesn't read the whole image for
+   * each row, or the rows at the other edge of it. Only valid before this image is evaluated,
+   * while holding its lock.
+   *
+   * @return true if the operation can be part of a fused chain.
+   * @throws IllegalStateException if the operation doesn't follow its invariants.
+   */
+  private boolean isFusable() throws IllegalStateException {
+    if (!(this.operation instanceof AbstractOperation)) {
+      return false;
+    }
+    AbstractOperation op = (AbstractOperation) this.operation;
+    return !op.wrapsRows() && op.rowHalo() < this.height;
+  }
+}
@@ -0,0 +1,242 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IRowSink;
+import model.image.IRowSource;
+import model.operations.colortransform.AbstractColorTransform;
+import model.operations.colortransform.ColorTransformChain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a chain of AbstractOperations, each to the result of the one before it, in a single
+ * pass over the image. The image is split into bands of whole rows, small enough that a band
+ * and its intermediate results stay in the processor's caches, and each band goes through every
+ * operation before the next band is read. Only two bands of pixels are held at once, so no
+ * image is built between the operations.
+ *
+ * <p>Each operation needs rowHalo rows above and below the rows it writes, so a band is read
+ * along with the halos of every operation added together, and each operation computes just
+ * enough rows around the band for the operations after it. The rows each operation reads are
+ * clipped to the image, the same as applyPacked does, so the edges of the image are treated
+ * the same way and the results are identical to applying each operation on its own. Bands are
+ * always whole rows, since applyRows treats the first and last columns it is given as the edges
+ * of the image.</p>
+ *
+ * <p>The rows can also come from an IRowSource and go to an IRowSink (see StreamingPipeline),
+ * so that neither the image nor its result is ever held in memory.</p>
+ */
+final class FusedBands {
+  // roughly how many pixels each thread computes of every band.
+  private static final int BAND_PIXELS = 1 << 16;
+
+  private FusedBands() {
+    // only static methods.
+  }
+
+  /**
+   * Applies each of the given operations, first to last, to the given image. Every operation
+   * must have a rowHalo less than the height of the image, and must not change its size. Only
+   * their applyRows, rowHalo and checkInvariants methods are used, not the images they were
+   * constructed with.
+   *
+   * @param base   image to apply the first operation to.
+   * @param stages operations to apply, first to last.
+   * @return the result of the last operation, in the same implementation as base.
+   * @throws IllegalStateException if any of the operations don't follow their invariants.
+   */
+  static IImage apply(IImage base, List<AbstractOperation> stages)
+          throws IllegalStateException {
+    List<AbstractOperation> ops = mergeColorTransforms(base, stages);
+    int width = base.getWidth();
+    int height = base.getHeight();
+    int[] reach = reach(ops, height);
+    int rows = bandRows(width, height, reach[0]);
+    int windowRows = (int) Math.min(height, rows + 2L * reach[0]);
+    int[] src = new int[windowRows * width];
+    int[] dst = new int[windowRows * width];
+
+    IImageBuilder builder = base.createBuilder(width, height);
+    for (int bandStart = 0; bandStart < height; bandStart += rows) {
+      int bandEnd = Math.min(height, bandStart + rows);
+      int windowStart = Math.max(0, bandStart - reach[0]);
+      int windowEnd = Math.min(height, bandEnd + reach[0]);
+      base.getRegion(0, windowStart, width, windowEnd - windowStart, src, 0, width);
+      int[] result = applyStages(ops, reach, src, dst, width, height, bandStart, bandEnd);
+      builder.setRows(bandStart, bandEnd - bandStart, result, (bandStart - windowStart) * width);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Applies each of the given operations, first to last, to the rows of an image as they are
+   * read, and writes the rows of the result as soon as they are computed. The same bands go
+   * through the operations as in apply, but the rows read for one band that the next band
+   * also reads are kept, so each row is read exactly once and in order. At most the rows of one
+   * band and the rows every operation reads around it are held at once, no matter how tall the
+   * image is. Neither the source nor the sink is closed.
+   *
+   * @param source rows of the image to apply the first operation to.
+   * @param shape  image of the same size as source, which the operations were constructed with,
+   *               whose pixels are never read.
+   * @param stages operations to apply, first to last.
+   * @param sink   where to write the rows of the result of the last operation.
+   * @throws IllegalArgumentException if the source runs out of rows or they don't follow its
+   *                                  format.
+   * @throws IllegalStateException    if any of the operations don't follow their invariants.
+   * @throws IOException              if reading from the source or writing to the sink fails.
+   */
+  static void stream(IRowSource source, IImage shape, List<AbstractOperation> stages,
+                     IRowSink sink)
+          throws IllegalArgumentException, IllegalStateException, IOException {
+    List<AbstractOperation> ops = mergeColorTransforms(shape, stages);
+    int width = source.getWidth();
+    int height = source.getHeight();
+    int[] reach = reach(ops, height);
+    int rows = bandRows(width, height, reach[0]);
+    int windowRows = (int) Math.min(height, rows + 2L * reach[0]);
+    // the rows read so far that a band still needs, as read, from row inputStart on.
+    int[] input = new int[windowRows * width];
+    int inputStart = 0;
+    int inputEnd = 0;
+    int[] src = new int[windowRows * width];
+    int[] dst = new int[windowRows * width];
+
+    for (int bandStart = 0; bandStart < height; bandStart += rows) {
+      int bandEnd = Math.min(height, bandStart + rows);
+      int windowStart = Math.max(0, bandStart - reach[0]);
+      int windowEnd = Math.min(height, bandEnd + reach[0]);
+      // rows above this window are done with, and the rest move up to make room.
+      System.arraycopy(input, (windowStart - inputStart) * width, input, 0,
+              (inputEnd - windowStart) * width);
+      inputStart = windowStart;
+      for (; inputEnd < windowEnd; inputEnd++) {
+        source.readRow(input, (inputEnd - inputStart) * width);
+      }
+      System.arraycopy(input, 0, src, 0, (windowEnd - windowStart) * width);
+      int[] result = applyStages(ops, reach, src, dst, width, height, bandStart, bandEnd);
+      for (int y = bandStart; y < bandEnd; y++) {
+        sink.writeRow(result, (y - windowStart) * width);
+      }
+    }
+  }
+
+  /**
+   * Checks the invariants of each operation, and finds how many rows around a band each one
+   * reads: the sum of its halo and the halos of every operation after it. Operations whose rows
+   * wrap around read the rows at the other edge of the image, so they are taken to read every
+   * row, and are given the whole image at once.
+   *
+   * @param ops    operations to apply, first to last.
+   * @param height height of the image in pixels.
+   * @return array where index k holds the rows operation k reads around a band, and the last
+   *         index holds 0.
+   * @throws IllegalStateException if any of the operations don't follow their invariants.
+   */
+  private static int[] reach(List<AbstractOperation> ops, int height)
+          throws IllegalStateException {
+    int[] reach = new int[ops.size() + 1];
+    for (int k = ops.size() - 1; k >= 0; k--) {
+      AbstractOperation op = ops.get(k);
+      op.checkInvariants();
+      reach[k] = reach[k + 1] + (op.wrapsRows() ? height : op.rowHalo());
+    }
+    return reach;
+  }
+
+  /**
+   * Chooses how many rows each band holds, so that every thread has about BAND_PIXELS pixels
+   * of it to compute.
+   *
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @param reach  how many rows around a band the first operation reads.
+   * @return the rows of a band, between 1 and height.
+   */
+  private static int bandRows(int width, int height, int reach) {
+    long bandPixels = (long) BAND_PIXELS * RowBandExecutor.getParallelism();
+    // bands much shorter than the rows read around them would compute the same rows many times.
+    long bandRows = Math.max(bandPixels / Math.max(1, width), 4L * reach);
+    return (int) Math.max(1, Math.min(height, bandRows));
+  }
+
+  /**
+   * Applies each of the given operations to one band, whose input and the rows around it that
+   * the operations read are in src, starting from row max(0, bandStart - reach[0]).
+   *
+   * @param ops       operations to apply, first to last.
+   * @param reach     how many rows around a band each operation reads, as given by reach.
+   * @param src       the input of the band and the rows around it.
+   * @param dst       array as large as src, for the results of every other operation.
+   * @param width     width of the image in pixels.
+   * @param height    height of the image in pixels.
+   * @param bandStart first row of the band, inclusive.
+   * @param bandEnd   last row of the band, exclusive.
+   * @return src or dst, whichever holds the result of the last operation, at the same rows.
+   */
+  private static int[] applyStages(List<AbstractOperation> ops, int[] reach, int[] src,
+                                   int[] dst, int width, int height, int bandStart,
+                                   int bandEnd) {
+    int windowStart = Math.max(0, bandStart - reach[0]);
+    for (int k = 0; k < ops.size(); k++) {
+      AbstractOperation op = ops.get(k);
+      // rows of src that hold the input of this operation end here, and it writes the rows
+      // from fromRow to toRow, all relative to windowStart.
+      int validRows = Math.min(height, bandEnd + reach[k]) - windowStart;
+      int fromRow = Math.max(0, bandStart - reach[k + 1]) - windowStart;
+      int toRow = Math.min(height, bandEnd + reach[k + 1]) - windowStart;
+      int[] stageSrc = src;
+      int[] stageDst = dst;
+      RowBandExecutor.run(toRow - fromRow, width, (from, to) ->
+              op.applyRows(stageSrc, stageDst, width, validRows, fromRow + from, fromRow + to));
+      src = stageDst;
+      dst = stageSrc;
+    }
+    return src;
+  }
+
+  /**
+   * Replaces each run of more than one AbstractColorTransform in the given operations with a
+   * ColorTransformChain, so each pixel of a band goes through the whole run at once.
+   *
+   * @param base   image the operations are applied to.
+   * @param stages operations to apply, first to last.
+   * @return the operations to apply, first to last.
+   */
+  private static List<AbstractOperation> mergeColorTransforms(IImage base,
+                                                              List<AbstractOperation> stages) {
+    List<AbstractOperation> merged = new ArrayList<>();
+    List<AbstractColorTransform> run = new ArrayList<>();
+    for (AbstractOperation stage : stages) {
+      if (stage instanceof AbstractColorTransform) {
+        run.add((AbstractColorTransform) stage);
+        continue;
+      }
+      addRun(base, run, merged);
+      merged.add(stage);
+    }
+    addRun(base, run, merged);
+    return merged;
+  }
+
+  /**
+   * Adds a run of color transformations to the given operations as a single operation, and
+   * empties it.
+   *
+   * @param base   image the operations are applied to.
+   * @param run    color transformations to apply, first to last, possibly none.
+   * @param merged operations to add the run to.
+   */
+  private static void addRun(IImage base, List<AbstractColorTransform> run,
+                             List<AbstractOperation> merged) {
+    if (run.size() == 1) {
+      merged.add(run.get(0));
+    } else if (run.size() > 1) {
+      merged.add(new ColorTransformChain(base, run));
+    }
+    run.clear();
+  }
+}
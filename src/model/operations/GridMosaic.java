@@ -0,0 +1,107 @@
+package model.operations;
+
+import model.image.IImage;
+
+/**
+ * Function object implementation of IOperation that generates a mosaic of the given IImage
+ * out of a regular grid of cells, square or hexagonal, instead of the randomly placed seeds of
+ * Mosaic. Every pixel is replaced by the average color of its cell.
+ *
+ * <p>The cell of a pixel is computed directly from its coordinates, so the mosaic takes time
+ * linear in the number of pixels no matter how many cells there are, and the colors of the
+ * cells are added up and painted through CellColors in parallel.</p>
+ */
+public class GridMosaic implements IOperation {
+  private static final double SQRT_3 = Math.sqrt(3);
+
+  private final IImage root;
+  private final int cellSize;
+  private final GridShape shape;
+
+  /**
+   * Constructs a new GridMosaic out of the given IImage, size of cells, and shape of cells.
+   *
+   * @param root     the IImage to construct and build a manipulated IImage from.
+   * @param cellSize width of each cell in pixels, see GridShape.
+   * @param shape    shape of the cells.
+   * @throws IllegalArgumentException if given null, or a cell size lower than 1.
+   */
+  public GridMosaic(IImage root, int cellSize, GridShape shape) throws IllegalArgumentException {
+    if (root == null || shape == null) {
+      throw new IllegalArgumentException("root image or shape cannot be null");
+    }
+    if (cellSize < 1) {
+      throw new IllegalArgumentException("cell size must be at least 1");
+    }
+    this.root = root;
+    this.cellSize = cellSize;
+    this.shape = shape;
+  }
+
+  @Override
+  public IImage apply() {
+    int width = root.getWidth();
+    if (this.shape == GridShape.SQUARE) {
+      int across = (width + cellSize - 1) / cellSize;
+      int down = (root.getHeight() + cellSize - 1) / cellSize;
+      return CellColors.average(root, across * down, (fromY, toY, labels) -> {
+        for (int y = fromY; y < toY; y++) {
+          int rowStart = (y / cellSize) * across;
+          for (int x = 0; x < width; x++) {
+            labels[(y - fromY) * width + x] = rowStart + x / cellSize;
+          }
+        }
+      });
+    }
+
+    // hexagons of this radius are cellSize wide between flat sides, and their rows are
+    // 1.5 radii apart.
+    double radius = cellSize / SQRT_3;
+    // columns of cells start half a cell left of the image, so they can be shifted left or
+    // right, and rows start one row above the image, so every cell has a non-negative index.
+    int across = (width + cellSize - 1) / cellSize + 3;
+    int down = (int) Math.ceil(root.getHeight() / (1.5 * radius)) + 3;
+    return CellColors.average(root, across * down, (fromY, toY, labels) -> {
+      for (int y = fromY; y < toY; y++) {
+        for (int x = 0; x < width; x++) {
+          labels[(y - fromY) * width + x] = hexCell(x, y, radius, across);
+        }
+      }
+    });
+  }
+
+  /**
+   * Finds the hexagon that holds the center of a pixel, by converting the center to fractional
+   * axial coordinates of the grid and rounding them to the nearest hexagon.
+   *
+   * @param x      x coordinate of the pixel.
+   * @param y      y coordinate of the pixel.
+   * @param radius distance from the center of each hexagon to its points.
+   * @param across number of columns of cells.
+   * @return the index of the hexagon.
+   */
+  private static int hexCell(int x, int y, double radius, int across) {
+    double px = x + 0.5;
+    double py = y + 0.5;
+    double q = (SQRT_3 / 3 * px - py / 3) / radius;
+    double r = (2.0 / 3 * py) / radius;
+    double s = -q - r;
+    long roundQ = Math.round(q);
+    long roundR = Math.round(r);
+    long roundS = Math.round(s);
+    // the three rounded coordinates must add up to 0, so the one that moved the most is
+    // recomputed from the other two.
+    double diffQ = Math.abs(roundQ - q);
+    double diffR = Math.abs(roundR - r);
+    double diffS = Math.abs(roundS - s);
+    if (diffQ > diffR && diffQ > diffS) {
+      roundQ = -roundR - roundS;
+    } else if (diffR > diffS) {
+      roundR = -roundQ - roundS;
+    }
+    // every other row is shifted half a cell, so columns line up down the image.
+    long column = roundQ + Math.floorDiv(roundR, 2) + 1;
+    long row = roundR + 1;
+    return (int) (row * across + column);
+  }
+}
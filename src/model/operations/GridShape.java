@@ -0,0 +1,17 @@
+package model.operations;
+
+/**
+ * Shapes of the cells of a GridMosaic.
+ */
+public enum GridShape {
+  /**
+   * Square cells, cellSize pixels on each side, starting from the top left corner.
+   */
+  SQUARE,
+
+  /**
+   * Hexagonal cells with a point at the top and bottom, cellSize pixels wide from one flat
+   * side to the other, with every other row shifted by half a cell.
+   */
+  HEX
+}
@@ -2,6 +2,8 @@ package model.operations;
 
 import model.image.IImage;
 
+import java.util.List;
+
 /**
  * Returns a new IImage object based on the given enum and
  * IImage. Applied with the given enum value and IImage.
@@ -17,4 +19,52 @@ public interface IOperationAdapter {
    */
   IImage adaptOperation(OperationType toPerform, IImage toApplyTo)
           throws IllegalArgumentException;
+
+  /**
+   * Returns an IImage with the specified IOperation applied to the given IImage, with the given
+   * parameters, as described by OperationType. Parameters that aren't given take their default
+   * values, so giving none is the same as calling adaptOperation without parameters.
+   *
+   * @param toPerform  enum type of Operation to apply.
+   * @param toApplyTo  IImage to apply Operation on.
+   * @param parameters parameters of the Operation, in the order OperationType describes.
+   * @return an IImage result of the applied Operation.
+   * @throws IllegalArgumentException if any argument is null, there are more parameters than
+   *                                  the Operation takes, or a parameter is out of range.
+   */
+  IImage adaptOperation(OperationType toPerform, IImage toApplyTo, long... parameters)
+          throws IllegalArgumentException;
+
+  /**
+   * Returns an IImage that will hold the specified IOperation applied to the given IImage, with
+   * the given parameters, the same as adaptOperation, but without computing any pixels yet. The
+   * parameters are checked right away, and the pixels are only computed the first time the
+   * returned image is read. An IImage returned by this method can itself be given to it, and
+   * each chain of deferred operations is computed in a single pass when read (see
+   * DeferredImage).
+   *
+   * @param toPerform  enum type of Operation to apply.
+   * @param toApplyTo  IImage to apply Operation on.
+   * @param parameters parameters of the Operation, in the order OperationType describes.
+   * @return an IImage result of the Operation, computed when first read.
+   * @throws IllegalArgumentException if any argument is null, there are more parameters than
+   *                                  the Operation takes, or a parameter is out of range.
+   */
+  IImage deferOperation(OperationType toPerform, IImage toApplyTo, long... parameters)
+          throws IllegalArgumentException;
+
+  /**
+   * Returns an IImage with each of the specified IOperations applied to the given IImage, one
+   * after another, the same as if adaptOperation was called on the result of each. Runs of
+   * color transformations (greyscale and sepia) are applied in a single pass, without building
+   * an IImage between them.
+   *
+   * @param toPerform enum types of Operations to apply, first to last.
+   * @param toApplyTo IImage to apply the Operations on.
+   * @return an IImage result of the applied Operations.
+   * @throws IllegalArgumentException if either argument is null, the list is empty, or the list
+   *                                  contains null.
+   */
+  IImage adaptOperations(List<OperationType> toPerform, IImage toApplyTo)
+          throws IllegalArgumentException;
 }
@@ -1,31 +1,117 @@
 package model.operations;
 
 import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IImmutableImage;
+import model.operations.colortransform.AbstractColorTransform;
+import model.operations.colortransform.ColorTransformChain;
 import model.operations.colortransform.Greyscale;
 import model.operations.colortransform.Sepia;
 import model.operations.filter.BlurFilter;
+import model.operations.filter.BorderMode;
+import model.operations.filter.BoxBlurFilter;
+import model.operations.filter.BoxGaussianBlurFilter;
+import model.operations.filter.GaussianBlurFilter;
 import model.operations.filter.SharpenFilter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 /**
  * Implementation of IOperation adapter that returns the appropriate IImage
  * created from the IOperation specified by toPerform enum, applied on the toApplyTo IImage.
+ *
+ * <p>adaptOperation looks up its result in an OperationResultCache first, and only applies the
+ * IOperation if it isn't held. adaptOperations looks up every operation the same way, and each
+ * run of color transformations it applies as one ColorTransformChain by the list of its types.
+ * Every OperationType gives the same pixels for the same pixels and parameters (mosaics are
+ * seeded by their parameters) under the same AbstractFilter.getFftKernelSize, which the cache
+ * keys its results by, so every one of them can be looked up.</p>
  */
 public class IOperationAdapterImpl implements IOperationAdapter {
+  private final OperationResultCache cache;
+
+  /**
+   * Constructs a new IOperationAdapterImpl that looks up results in the cache shared by every
+   * adapter, OperationResultCache.getShared().
+   */
+  public IOperationAdapterImpl() {
+    this(OperationResultCache.getShared());
+  }
+
+  /**
+   * Constructs a new IOperationAdapterImpl that looks up results in the given cache.
+   *
+   * @param cache cache to look up and hold results in.
+   * @throws IllegalArgumentException if given null.
+   */
+  public IOperationAdapterImpl(OperationResultCache cache) throws IllegalArgumentException {
+    if (cache == null) {
+      throw new IllegalArgumentException("cache cannot be null");
+    }
+    this.cache = cache;
+  }
 
   @Override
   public IImage adaptOperation(OperationType toPerform, IImage toApplyTo)
           throws IllegalArgumentException {
-    if (toPerform == null || toApplyTo == null) {
+    return this.adaptOperation(toPerform, toApplyTo, new long[0]);
+  }
+
+  @Override
+  public IImage adaptOperation(OperationType toPerform, IImage toApplyTo, long... parameters)
+          throws IllegalArgumentException {
+    IOperation operation = createOperation(toPerform, toApplyTo, parameters);
+    return this.cache.apply(toPerform, toApplyTo, parameters, operation);
+  }
+
+  @Override
+  public IImage deferOperation(OperationType toPerform, IImage toApplyTo, long... parameters)
+          throws IllegalArgumentException {
+    if (toApplyTo == null) {
       throw new IllegalArgumentException("arguments given cannot be null");
     }
+    // the operation reads its image when evaluated, so it must not be able to change before.
+    IImage source = toApplyTo instanceof IImmutableImage ? toApplyTo : snapshot(toApplyTo);
+    return new DeferredImage(source, createOperation(toPerform, source, parameters));
+  }
+
+  /**
+   * Creates the IOperation for the given enum, applied on the given IImage with the given
+   * parameters, as described by OperationType. Only the parameters are checked here, the image
+   * isn't read until the IOperation is applied.
+   *
+   * @param toPerform  enum type of Operation to create.
+   * @param toApplyTo  IImage to apply the Operation on.
+   * @param parameters parameters of the Operation, in the order OperationType describes.
+   * @return the IOperation, ready to be applied.
+   * @throws IllegalArgumentException if any argument is null, there are more parameters than
+   *                                  the Operation takes, or a parameter is out of range.
+   */
+  static IOperation createOperation(OperationType toPerform, IImage toApplyTo,
+                                    long... parameters) throws IllegalArgumentException {
+    if (toPerform == null || toApplyTo == null || parameters == null) {
+      throw new IllegalArgumentException("arguments given cannot be null");
+    }
+    if (parameters.length > maxParameters(toPerform)) {
+      throw new IllegalArgumentException("too many parameters for " + toPerform);
+    }
 
     IOperation operation;
     switch (toPerform) {
       case BLUR:
         operation = new BlurFilter(toApplyTo);
         break;
+      case GAUSSIAN_BLUR_SMALL:
+        operation = new GaussianBlurFilter(toApplyTo, 1);
+        break;
+      case GAUSSIAN_BLUR_MEDIUM:
+        operation = new GaussianBlurFilter(toApplyTo, 3);
+        break;
+      case GAUSSIAN_BLUR_LARGE:
+        operation = new GaussianBlurFilter(toApplyTo, 8);
+        break;
       case GREYSCALE:
         operation  = new Greyscale(toApplyTo);
         break;
@@ -36,19 +122,176 @@ public class IOperationAdapterImpl implements IOperationAdapter {
         operation = new SharpenFilter(toApplyTo);
         break;
       case MOSAIC:
-        // DESIGN CHOICE: num seeds is 4% of pixels with unseeded random object.
-        // Reasoning: we would have to restructure how we tell the model to take in
-        // OperationTypes, and although we were able to add a Seed Level chooser to the GUI,
-        // we thought it was less necessary to upend our model and controller code to
-        // accommodate one operation type. Our examples still show a range of percentage of
-        // seeding.
-        operation = new Mosaic(toApplyTo,
-                (int) (toApplyTo.getHeight() * toApplyTo.getWidth() * 0.04), new Random());
+        // DESIGN CHOICE: num seeds is 4% of pixels and the random object is seeded with 0,
+        // unless given as parameters. A fixed seed means the same image always gives the same
+        // mosaic, so scripts can be rerun and their results compared or reused.
+        long pixels = (long) toApplyTo.getHeight() * toApplyTo.getWidth();
+        long seeds = parameters.length > 0 && parameters[0] != 0 ? parameters[0]
+                : Math.min(Integer.MAX_VALUE, Math.max(1, (long) (pixels * 0.04)));
+        if (seeds < 1 || seeds > pixels || seeds > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("number of seeds must be between 1 and the "
+                  + "number of pixels");
+        }
+        operation = new Mosaic(toApplyTo, (int) seeds,
+                new Random(parameters.length > 1 ? parameters[1] : 0),
+                mosaicEngine(parameters.length > 2 ? parameters[2] : 0));
+        break;
+      case SQUARE_MOSAIC:
+      case HEX_MOSAIC:
+        long cellSize = parameters.length > 0 ? parameters[0] : 16;
+        if (cellSize < 1 || cellSize > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("cell size must be a positive int");
+        }
+        operation = new GridMosaic(toApplyTo, (int) cellSize,
+                toPerform == OperationType.SQUARE_MOSAIC ? GridShape.SQUARE : GridShape.HEX);
+        break;
+      case BOX_BLUR:
+      case BOX_GAUSSIAN_BLUR:
+        long size = parameters.length > 0 && parameters[0] != 0 ? parameters[0] : 10;
+        if (size < 1 || size > BoxBlurFilter.MAX_RADIUS) {
+          throw new IllegalArgumentException("radius or sigma must be between 1 and "
+                  + BoxBlurFilter.MAX_RADIUS);
+        }
+        BorderMode mode = borderMode(parameters.length > 1 ? parameters[1] : 0);
+        operation = toPerform == OperationType.BOX_BLUR
+                ? new BoxBlurFilter(toApplyTo, (int) size, mode)
+                : new BoxGaussianBlurFilter(toApplyTo, size, mode);
         break;
       default:
         // shouldn't get here....
         throw new IllegalArgumentException("toPerform cannot be null");
     }
-    return operation.apply();
+    return operation;
+  }
+
+  @Override
+  public IImage adaptOperations(List<OperationType> toPerform, IImage toApplyTo)
+          throws IllegalArgumentException {
+    if (toPerform == null || toApplyTo == null) {
+      throw new IllegalArgumentException("arguments given cannot be null");
+    }
+    if (toPerform.isEmpty() || toPerform.contains(null)) {
+      throw new IllegalArgumentException("toPerform cannot be empty or contain null");
+    }
+
+    IImage result = toApplyTo;
+    int i = 0;
+    while (i < toPerform.size()) {
+      // the longest run of color transformations starting at i, if any.
+      int start = i;
+      List<AbstractColorTransform> run = new ArrayList<>();
+      while (i < toPerform.size()) {
+        AbstractColorTransform step = colorTransform(toPerform.get(i), result);
+        if (step == null) {
+          break;
+        }
+        run.add(step);
+        i++;
+      }
+      if (run.size() > 1) {
+        result = this.cache.apply(toPerform.subList(start, i), result, new long[0],
+                new ColorTransformChain(result, run));
+      } else if (run.size() == 1) {
+        result = this.adaptOperation(toPerform.get(start), result);
+      } else {
+        result = this.adaptOperation(toPerform.get(i), result);
+        i++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Copies an IImage that may change into one of the same implementation type, a band of rows
+   * at a time.
+   *
+   * @param img IImage to copy.
+   * @return a copy of the image, which nothing else references.
+   */
+  private static IImage snapshot(IImage img) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    IImageBuilder builder = img.createBuilder(width, height);
+    int bandRows = Math.max(1, Math.min(height, (1 << 16) / Math.max(1, width)));
+    int[] rgb = new int[bandRows * width];
+    for (int y = 0; y < height; y += bandRows) {
+      int rows = Math.min(bandRows, height - y);
+      img.getRegion(0, y, width, rows, rgb, 0, width);
+      builder.setRows(y, rows, rgb, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the number of parameters the given enum can be applied with, as OperationType
+   * describes.
+   *
+   * @param type enum type of Operation.
+   * @return the most parameters it takes.
+   */
+  private static int maxParameters(OperationType type) {
+    switch (type) {
+      case MOSAIC:
+        return 3;
+      case BOX_BLUR:
+      case BOX_GAUSSIAN_BLUR:
+        return 2;
+      case SQUARE_MOSAIC:
+      case HEX_MOSAIC:
+        return 1;
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Returns the BorderMode at the given position in BorderMode, as OperationType describes.
+   *
+   * @param position position of the BorderMode, from 0.
+   * @return the BorderMode.
+   * @throws IllegalArgumentException if there is no BorderMode at the position.
+   */
+  private static BorderMode borderMode(long position) throws IllegalArgumentException {
+    BorderMode[] modes = BorderMode.values();
+    if (position < 0 || position >= modes.length) {
+      throw new IllegalArgumentException("border mode must be between 0 and "
+              + (modes.length - 1));
+    }
+    return modes[(int) position];
+  }
+
+  /**
+   * Returns the MosaicEngine at the given position in MosaicEngine, as OperationType describes.
+   *
+   * @param position position of the MosaicEngine, from 0.
+   * @return the MosaicEngine.
+   * @throws IllegalArgumentException if there is no MosaicEngine at the position.
+   */
+  private static MosaicEngine mosaicEngine(long position) throws IllegalArgumentException {
+    MosaicEngine[] engines = MosaicEngine.values();
+    if (position < 0 || position >= engines.length) {
+      throw new IllegalArgumentException("mosaic engine must be between 0 and "
+              + (engines.length - 1));
+    }
+    return engines[(int) position];
+  }
+
+  /**
+   * Returns the color transformation for the given enum, which ColorTransformChain can apply
+   * along with others in a single pass.
+   *
+   * @param type      enum type of Operation.
+   * @param toApplyTo IImage to apply the Operation on.
+   * @return the color transformation, or null if the Operation is not one.
+   */
+  private static AbstractColorTransform colorTransform(OperationType type, IImage toApplyTo) {
+    switch (type) {
+      case GREYSCALE:
+        return new Greyscale(toApplyTo);
+      case SEPIA:
+        return new Sepia(toApplyTo);
+      default:
+        return null;
+    }
   }
 }
@@ -0,0 +1,177 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.PackedImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies of an image at every power of 2 smaller than it, for showing it smaller than its full
+ * resolution (to fit in a window, or as a thumbnail) without reading all of its pixels every
+ * time. Level 0 is the image itself, and each level after it is half the width and height of
+ * the one before, rounded up, down to a single pixel. Every pixel of a level is the average of
+ * the (up to) 2x2 pixels of the level before it that it covers, rounded to the nearest value.
+ *
+ * <p>Levels are built the first time they are asked for, each one from the level before it, a
+ * band of rows at a time with the rows of each band computed in parallel (see
+ * AbstractOperation.setParallelism), so building level 1 reads the image once and every level
+ * after it costs a quarter of the one before. Images can't be edited, so the levels never go
+ * stale: an edited layer is a new image, which needs a new ImagePyramid.</p>
+ */
+public final class ImagePyramid {
+  // rows of a level are computed this many pixels at a time, so huge images aren't read at once.
+  private static final int BAND_PIXELS = 1 << 20;
+
+  private final IImage source;
+  // the levels built so far, starting with the image itself.
+  private final List<IImage> levels;
+
+  /**
+   * Constructs a new ImagePyramid of the given image, without building any level yet.
+   *
+   * @param source the image, which is level 0.
+   * @throws IllegalArgumentException if given null, or an image without any pixels.
+   */
+  public ImagePyramid(IImage source) throws IllegalArgumentException {
+    if (source == null) {
+      throw new IllegalArgumentException("image cannot be null");
+    }
+    if (source.getWidth() < 1 || source.getHeight() < 1) {
+      throw new IllegalArgumentException("image must have at least one pixel");
+    }
+    this.source = source;
+    this.levels = new ArrayList<>();
+    this.levels.add(source);
+  }
+
+  /**
+   * Observer for the number of levels, including level 0, whether they have been built or not.
+   *
+   * @return number of levels, at least 1.
+   */
+  public int numLevels() {
+    int longest = Math.max(this.source.getWidth(), this.source.getHeight());
+    return 33 - Integer.numberOfLeadingZeros(longest - 1);
+  }
+
+  /**
+   * Returns the given level, building it and the levels before it if they haven't been built.
+   *
+   * @param level the level, where 0 is the image itself.
+   * @return the image at that level, 2^level times smaller than the image, rounded up.
+   * @throws IllegalArgumentException if level is negative or at least numLevels().
+   */
+  public synchronized IImage getLevel(int level) throws IllegalArgumentException {
+    if (level < 0 || level >= this.numLevels()) {
+      throw new IllegalArgumentException("level must be between 0 and "
+              + (this.numLevels() - 1));
+    }
+    while (this.levels.size() <= level) {
+      this.levels.add(halve(this.levels.get(this.levels.size() - 1)));
+    }
+    return this.levels.get(level);
+  }
+
+  /**
+   * Returns the smallest level that is still at least the given width and height, which is the
+   * best level to shrink into an area of that size. If even the image itself is smaller, it is
+   * returned.
+   *
+   * @param width  width the level should cover, at least 1.
+   * @param height height the level should cover, at least 1.
+   * @return the smallest level that covers the given size.
+   * @throws IllegalArgumentException if width or height is less than 1.
+   */
+  public IImage levelFor(int width, int height) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("width and height must be at least 1");
+    }
+    int level = 0;
+    // level + 1 is (size + 2^(level + 1) - 1) >> (level + 1) wide and tall.
+    while (level + 1 < this.numLevels()
+            && halved(this.source.getWidth(), level + 1) >= width
+            && halved(this.source.getHeight(), level + 1) >= height) {
+      level++;
+    }
+    return this.getLevel(level);
+  }
+
+  /**
+   * Computes the length of a side of the image at a level.
+   *
+   * @param length length of the side of the image itself.
+   * @param level  the level.
+   * @return the length at that level, at least 1.
+   */
+  private static int halved(int length, int level) {
+    return (int) (((long) length + (1L << level) - 1) >> level);
+  }
+
+  /**
+   * Averages every 2x2 square of pixels of an image into one pixel of a new image half its
+   * width and height, rounded up. The squares along the right and bottom edges of an image of
+   * odd width or height only have the pixels that are inside it.
+   *
+   * @param img the image to halve.
+   * @return the new image, a PackedImage.
+   */
+  private static IImage halve(IImage img) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int halfWidth = (width + 1) / 2;
+    int halfHeight = (height + 1) / 2;
+    IImageBuilder builder = PackedImage.builder(halfWidth, halfHeight);
+    int bandRows = Math.max(1, Math.min(halfHeight, BAND_PIXELS / (2 * width)));
+    int[] src = new int[2 * bandRows * width];
+    int[] dst = new int[bandRows * halfWidth];
+    for (int bandStart = 0; bandStart < halfHeight; bandStart += bandRows) {
+      int rows = Math.min(bandRows, halfHeight - bandStart);
+      int srcRows = Math.min(2 * rows, height - 2 * bandStart);
+      img.getRegion(0, 2 * bandStart, width, srcRows, src, 0, width);
+      RowBandExecutor.run(rows, 4 * halfWidth, (fromRow, toRow) -> {
+        for (int j = fromRow; j < toRow; j++) {
+          int top = 2 * j * width;
+          // the last row of an odd height is averaged with itself.
+          int bottom = 2 * j + 1 < srcRows ? top + width : top;
+          for (int i = 0; i < halfWidth; i++) {
+            int left = 2 * i;
+            int right = Math.min(left + 1, width - 1);
+            dst[j * halfWidth + i] = average(src[top + left], src[top + right],
+                    src[bottom + left], src[bottom + right]);
+          }
+        }
+      });
+      builder.setRows(bandStart, rows, dst, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Averages four packed pixels, channel by channel, rounded to the nearest value. Squares cut
+   * off by an edge give each of their pixels twice (or four times), so they are still weighed
+   * equally.
+   *
+   * @param a first packed pixel.
+   * @param b second packed pixel.
+   * @param c third packed pixel.
+   * @param d fourth packed pixel.
+   * @return the packed average.
+   */
+  private static int average(int a, int b, int c, int d) {
+    // the channels are summed in place, each has room for the 10 bits of 4 * 255.
+    long sum = spread(a) + spread(b) + spread(c) + spread(d) + spread(0x020202);
+    return (int) ((sum >> 2) & 0xFF | (sum >> 14) & 0xFF00 | (sum >> 26) & 0xFF0000);
+  }
+
+  /**
+   * Spreads the channels of a packed pixel 20 bits apart, so four of them can be added at once.
+   *
+   * @param rgb packed pixel.
+   * @return red in bits 40 to 49, green in bits 20 to 29, and blue in bits 0 to 9.
+   */
+  private static long spread(int rgb) {
+    return (long) (rgb & 0xFF0000) << 24 | (long) (rgb & 0xFF00) << 12 | rgb & 0xFF;
+  }
+}
@@ -0,0 +1,169 @@
+package model.operations;
+
+import java.util.Arrays;
+
+/**
+ * Computes which seed every pixel of an image belongs to by jump flooding, an image-space
+ * algorithm that works on every pixel at once rather than on one seed or pixel at a time.
+ * Starting from the seeds themselves, each pass lets every pixel look at the pixels step away
+ * from it in each of the 8 directions, and take whichever of their seeds is closest to it. The
+ * step starts at the largest power of 2 that fits in the image and halves every pass, with one
+ * more pass of step 1 at the end to fix most of the pixels that the others get wrong.
+ *
+ * <p>Each pass only reads what the previous pass wrote, so its rows are computed in parallel
+ * through RowBandExecutor, and the result is the same for any number of threads. A pass takes
+ * the same time no matter how many seeds there are, and there are about log2 of the size of
+ * the image passes. Seeds at the same distance are broken by lowest index, but since pixels
+ * only see the seeds their neighbors found, a small fraction of pixels along the edges between
+ * seeds may end up with a seed slightly further away than the closest one.</p>
+ */
+final class JumpFlood {
+  // position of no seed, since positions are never negative.
+  private static final long NONE = -1;
+
+  private JumpFlood() {
+    // only static methods.
+  }
+
+  /**
+   * Finds the seed that every pixel belongs to.
+   *
+   * @param seedX  x coordinate of each seed, between 0 and width - 1.
+   * @param seedY  y coordinate of each seed, between 0 and height - 1.
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @return row-major array of the index of the seed of each pixel.
+   * @throws IllegalArgumentException if there are no seeds, the arrays have different lengths,
+   *                                  or a seed is outside of the image.
+   */
+  static int[] labels(int[] seedX, int[] seedY, int width, int height)
+          throws IllegalArgumentException {
+    if (seedX.length == 0 || seedX.length != seedY.length) {
+      throw new IllegalArgumentException("need the same number of x and y coordinates");
+    }
+    // seedAt[y * width + x] is the index of the seed at (x, y), or -1 if there is none.
+    int[] seedAt = new int[width * height];
+    Arrays.fill(seedAt, -1);
+    for (int i = seedX.length - 1; i >= 0; i--) {
+      if (seedX[i] < 0 || seedX[i] >= width || seedY[i] < 0 || seedY[i] >= height) {
+        throw new IllegalArgumentException("seed out of bounds of image");
+      }
+      // going backwards, so the lowest index wins if two seeds share a pixel.
+      seedAt[seedY[i] * width + seedX[i]] = i;
+    }
+    // passes carry the position of each seed rather than its index, so that measuring the
+    // distance to it reads the pixel next to this one instead of somewhere in seedX and seedY.
+    long[] current = new long[width * height];
+    for (int i = 0; i < current.length; i++) {
+      current[i] = seedAt[i] < 0 ? NONE : position(i % width, i / width);
+    }
+    long[] next = new long[width * height];
+    for (int step = Integer.highestOneBit(Math.max(width, height)); step >= 1; step >>= 1) {
+      flood(seedAt, current, next, width, height, step);
+      long[] swap = current;
+      current = next;
+      next = swap;
+    }
+    flood(seedAt, current, next, width, height, 1);
+
+    // only the pixels with a seed on them are read through seedAt, and each of those is the
+    // closest seed to itself, so seedAt can be overwritten with the labels as it is read.
+    int[] labels = seedAt;
+    long[] found = next;
+    RowBandExecutor.run(height, width, (fromRow, toRow) -> {
+      for (int i = fromRow * width; i < toRow * width; i++) {
+        labels[i] = indexAt(seedAt, found[i], width);
+      }
+    });
+    return labels;
+  }
+
+  /**
+   * Runs one pass of jump flooding with the given step, reading current and writing next.
+   *
+   * @param seedAt  index of the seed at each pixel, or -1 if there is none.
+   * @param current position of the seed of each pixel so far, or NONE for none yet.
+   * @param next    array to write the position of the seed of each pixel after this pass to.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param step    distance in pixels to look in each direction.
+   */
+  private static void flood(int[] seedAt, long[] current, long[] next, int width, int height,
+                            int step) {
+    RowBandExecutor.run(height, width, (fromRow, toRow) -> {
+      long[] bestDistance = new long[width];
+      for (int y = fromRow; y < toRow; y++) {
+        int rowStart = y * width;
+        for (int x = 0; x < width; x++) {
+          long seed = current[rowStart + x];
+          next[rowStart + x] = seed;
+          bestDistance[x] = seed == NONE ? Long.MAX_VALUE : distance(seed, x, y);
+        }
+        // each neighbor is compared for the whole row at once, which keeps the inner loop
+        // reading one row of current after another. The lowest distance and then the lowest
+        // index wins, so the order the neighbors are compared in doesn't matter.
+        for (int ny = y - step; ny <= y + step; ny += step) {
+          if (ny < 0 || ny >= height) {
+            continue;
+          }
+          for (int dx = -step; dx <= step; dx += step) {
+            if (ny == y && dx == 0) {
+              continue;
+            }
+            int neighborStart = ny * width + dx;
+            for (int x = Math.max(0, -dx); x < Math.min(width, width - dx); x++) {
+              long seed = current[neighborStart + x];
+              if (seed == NONE) {
+                continue;
+              }
+              long distance = distance(seed, x, y);
+              if (distance < bestDistance[x] || (distance == bestDistance[x]
+                      && seed != next[rowStart + x] && indexAt(seedAt, seed, width)
+                      < indexAt(seedAt, next[rowStart + x], width))) {
+                bestDistance[x] = distance;
+                next[rowStart + x] = seed;
+              }
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Packs the position of a pixel into a single long.
+   *
+   * @param x x coordinate of the pixel.
+   * @param y y coordinate of the pixel.
+   * @return y in the upper 32 bits and x in the lower 32 bits.
+   */
+  private static long position(int x, int y) {
+    return (long) y << 32 | x;
+  }
+
+  /**
+   * Finds the index of the seed at the given position.
+   *
+   * @param seedAt   index of the seed at each pixel, or -1 if there is none.
+   * @param position position of the seed, from the position method.
+   * @param width    width of the image in pixels.
+   * @return index of the seed.
+   */
+  private static int indexAt(int[] seedAt, long position, int width) {
+    return seedAt[(int) (position >> 32) * width + (int) position];
+  }
+
+  /**
+   * Computes the squared distance from a seed to a pixel.
+   *
+   * @param position position of the seed, from the position method.
+   * @param x        x coordinate of the pixel.
+   * @param y        y coordinate of the pixel.
+   * @return the exact squared distance.
+   */
+  private static long distance(long position, int x, int y) {
+    long dx = (int) position - x;
+    long dy = (int) (position >> 32) - y;
+    return dx * dx + dy * dy;
+  }
+}
@@ -0,0 +1,21 @@
+package model.operations;
+
+/**
+ * Ways for a Mosaic to decide which seed each pixel belongs to.
+ */
+public enum MosaicEngine {
+  /**
+   * Every pixel belongs to the seed closest to it, or the first one chosen if several are
+   * equally close, found through a SeedGrid. This is the default.
+   */
+  EXACT,
+
+  /**
+   * Every pixel belongs to a seed found by jump flooding (see JumpFlood), which computes every
+   * row in parallel and takes the same time no matter how many seeds there are. A small fraction
+   * of pixels may belong to a seed slightly further away than the closest one, along the edges
+   * between seeds. It needs the seed of every pixel in the heap, so images large enough to be
+   * tiled (see TiledImage.shouldTile) are labeled like EXACT instead.
+   */
+  JUMP_FLOOD
+}
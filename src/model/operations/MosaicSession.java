@@ -0,0 +1,495 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.RgbUtils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * A mosaic of an IImage whose number of seeds can be changed over and over, such as while a user
+ * tunes it, without building the mosaic from scratch every time. The seed of every pixel and the
+ * total color of every seed are kept between changes, so adding or removing seeds only measures
+ * the pixels near them and only changes the totals of the seeds whose pixels moved.
+ *
+ * <p>Seeds are drawn from a Random with the given seed exactly like Mosaic draws them, so the
+ * first n seeds are always the same, and changing the number of seeds only ever adds or removes
+ * the last ones. A pixel belongs to the seed closest to it, or the first one drawn if several
+ * are equally close, so getImage always gives exactly the same mosaic as
+ * Mosaic(root, getSeedCount(), new Random(randomSeed)).</p>
+ *
+ * <p>To find the pixels a seed can take or give up, the image is split into square tiles that
+ * each remember how far their furthest pixel is from its seed: a new seed can only take pixels
+ * from tiles that are closer to it than that. Pixels of a removed seed are given to the nearest
+ * of the remaining seeds through a grid of buckets of seeds, like SeedGrid.</p>
+ */
+public class MosaicSession {
+  // width and height of the tiles, in pixels.
+  private static final int TILE = 8;
+
+  private final IImage root;
+  private final int width;
+  private final int height;
+  private final Random rand;
+  // every pixel that has ever been drawn as a seed, so seeds are drawn the same way as Mosaic.
+  private final BitSet taken;
+  // seeds 0 to drawn - 1 are at (seedX[i], seedY[i]), and only the first count are in use.
+  private int[] seedX;
+  private int[] seedY;
+  private int drawn;
+  private int count;
+  // row-major index of the seed of every pixel.
+  private final int[] labels;
+  // sums[4 * seed + c] is the total red, green, blue and count of the pixels of a seed.
+  private long[] sums;
+
+  private final int tilesAcross;
+  // the largest squared distance from a pixel of each tile to its seed.
+  private final long[] tileFurthest;
+  // at least the largest squared distance from any pixel to its seed.
+  private long furthest;
+
+  // buckets of seeds in use, each bucketSize pixels wide and tall.
+  private int bucketSize;
+  private int bucketsAcross;
+  private int bucketsDown;
+  private int[][] buckets;
+  private int[] bucketCounts;
+  // number of seeds the buckets were sized for.
+  private int bucketsSizedFor;
+
+  /**
+   * Constructs a new MosaicSession of the given IImage, starting with the given number of seeds.
+   *
+   * @param root       the IImage to build mosaics of.
+   * @param seeds      the number of seeds to start with.
+   * @param randomSeed seed of the Random that places the seeds.
+   * @throws IllegalArgumentException if given null, an image with more than Integer.MAX_VALUE
+   *                                  pixels, a seed count lower than 1, or higher than the
+   *                                  number of pixels.
+   */
+  public MosaicSession(IImage root, int seeds, long randomSeed)
+          throws IllegalArgumentException {
+    if (root == null) {
+      throw new IllegalArgumentException("root image cannot be null");
+    }
+    // the seed of every pixel is kept in an int array.
+    if ((long) root.getWidth() * root.getHeight() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("image has too many pixels for a MosaicSession");
+    }
+    this.root = root;
+    this.width = root.getWidth();
+    this.height = root.getHeight();
+    checkSeedCount(seeds);
+    this.rand = new Random(randomSeed);
+    this.taken = new BitSet(this.width * this.height);
+    this.seedX = new int[seeds];
+    this.seedY = new int[seeds];
+    this.sums = new long[4 * seeds];
+    this.drawSeeds(seeds);
+    this.count = seeds;
+
+    this.labels = new SeedGrid(Arrays.copyOf(this.seedX, seeds), Arrays.copyOf(this.seedY, seeds),
+            this.width, this.height).nearestSeeds();
+    int[] row = new int[this.width];
+    for (int y = 0; y < this.height; y++) {
+      root.getRow(y, row);
+      for (int x = 0; x < this.width; x++) {
+        this.addToSums(this.labels[y * this.width + x], row[x], 1);
+      }
+    }
+
+    this.tilesAcross = (this.width + TILE - 1) / TILE;
+    int tilesDown = (this.height + TILE - 1) / TILE;
+    this.tileFurthest = new long[this.tilesAcross * tilesDown];
+    for (int tile = 0; tile < this.tileFurthest.length; tile++) {
+      this.measureTile(tile);
+    }
+    this.buildBuckets(seeds);
+  }
+
+  /**
+   * Observer for the number of seeds in the current mosaic.
+   *
+   * @return the number of seeds, at least 1.
+   */
+  public int getSeedCount() {
+    return this.count;
+  }
+
+  /**
+   * Changes the number of seeds of the mosaic, by adding seeds after the last one or removing
+   * the last ones, and moves only the pixels whose seed changes.
+   *
+   * @param seeds the new number of seeds.
+   * @throws IllegalArgumentException if given a seed count lower than 1, or higher than the
+   *                                  number of pixels.
+   */
+  public void setSeedCount(int seeds) throws IllegalArgumentException {
+    checkSeedCount(seeds);
+    // tiles only remember how far their pixels are from their seeds, which adding seeds can
+    // only lower, so the furthest distance of all is measured again each time.
+    this.furthest = 0;
+    for (long tileDistance : this.tileFurthest) {
+      this.furthest = Math.max(this.furthest, tileDistance);
+    }
+    if (seeds > 2 * this.bucketsSizedFor || seeds < this.bucketsSizedFor / 2) {
+      this.buildBuckets(seeds);
+    }
+
+    if (seeds > this.drawn) {
+      this.seedX = Arrays.copyOf(this.seedX, seeds);
+      this.seedY = Arrays.copyOf(this.seedY, seeds);
+      this.sums = Arrays.copyOf(this.sums, 4 * seeds);
+      this.drawSeeds(seeds);
+    }
+    while (this.count < seeds) {
+      this.addSeed(this.count);
+      this.count++;
+    }
+    while (this.count > seeds) {
+      this.count--;
+      this.removeSeed(this.count);
+    }
+  }
+
+  /**
+   * Builds the current mosaic, where every pixel has the average color of the pixels of its
+   * seed, rounded down.
+   *
+   * @return the mosaic, built through the createBuilder method of the root image.
+   */
+  public IImage getImage() {
+    int[] averages = new int[this.count];
+    for (int seed = 0; seed < this.count; seed++) {
+      // every seed has at least its own pixel.
+      long pixels = this.sums[4 * seed + 3];
+      averages[seed] = RgbUtils.pack((int) (this.sums[4 * seed] / pixels),
+              (int) (this.sums[4 * seed + 1] / pixels), (int) (this.sums[4 * seed + 2] / pixels));
+    }
+    return CellColors.paint(this.root, averages,
+        (fromY, toY, band) -> System.arraycopy(this.labels, fromY * this.width, band, 0,
+                (toY - fromY) * this.width));
+  }
+
+  /**
+   * Ensures that a number of seeds can be drawn from the root image.
+   *
+   * @param seeds the number of seeds.
+   * @throws IllegalArgumentException if it is lower than 1, or higher than the number of pixels.
+   */
+  private void checkSeedCount(int seeds) throws IllegalArgumentException {
+    if (seeds < 1 || seeds > (long) this.width * this.height) {
+      throw new IllegalArgumentException("number of seeds must be between 1 and the number of "
+              + "pixels");
+    }
+  }
+
+  /**
+   * Draws seeds until there are the given number, exactly like Mosaic does.
+   *
+   * @param seeds the number of seeds to have drawn, which seedX and seedY have room for.
+   */
+  private void drawSeeds(int seeds) {
+    while (this.drawn < seeds) {
+      int x;
+      int y;
+      do {
+        x = this.rand.nextInt(this.width);
+        y = this.rand.nextInt(this.height);
+      }
+      while (this.taken.get(y * this.width + x));
+      this.taken.set(y * this.width + x);
+      this.seedX[this.drawn] = x;
+      this.seedY[this.drawn] = y;
+      this.drawn++;
+    }
+  }
+
+  /**
+   * Adds the given seed, which must come after every seed in use, by giving it every pixel that
+   * is strictly closer to it than to its current seed.
+   *
+   * @param seed index of the seed to add.
+   */
+  private void addSeed(int seed) {
+    this.addToBucket(seed);
+    this.forEachTileInReach(seed, true, (tile, fromX, fromY, toX, toY) -> {
+      int[] rgb = null;
+      for (int y = fromY; y < toY; y++) {
+        for (int x = fromX; x < toX; x++) {
+          int at = y * this.width + x;
+          if (this.distance(seed, x, y) < this.distance(this.labels[at], x, y)) {
+            if (rgb == null) {
+              rgb = this.readTile(fromX, fromY, toX, toY);
+            }
+            this.moveTo(at, seed, rgb[(y - fromY) * (toX - fromX) + x - fromX]);
+          }
+        }
+      }
+      if (rgb != null) {
+        this.measureTile(tile);
+      }
+    });
+  }
+
+  /**
+   * Removes the given seed, which must be the last seed in use, by giving each of its pixels to
+   * the nearest of the remaining seeds.
+   *
+   * @param seed index of the seed to remove.
+   */
+  private void removeSeed(int seed) {
+    this.removeFromBucket(seed);
+    this.forEachTileInReach(seed, false, (tile, fromX, fromY, toX, toY) -> {
+      int[] rgb = null;
+      for (int y = fromY; y < toY; y++) {
+        for (int x = fromX; x < toX; x++) {
+          int at = y * this.width + x;
+          if (this.labels[at] == seed) {
+            if (rgb == null) {
+              rgb = this.readTile(fromX, fromY, toX, toY);
+            }
+            this.moveTo(at, this.nearestSeed(x, y), rgb[(y - fromY) * (toX - fromX) + x - fromX]);
+          }
+        }
+      }
+      if (rgb != null) {
+        this.measureTile(tile);
+        // pixels of a removed seed are further from their new seeds.
+        this.furthest = Math.max(this.furthest, this.tileFurthest[tile]);
+      }
+    });
+  }
+
+  /**
+   * Action on a tile, given its index and the bounds of its pixels.
+   */
+  private interface TileAction {
+    /**
+     * Performs this action on a tile.
+     *
+     * @param tile  index of the tile.
+     * @param fromX left column of the tile.
+     * @param fromY top row of the tile.
+     * @param toX   one past the right column of the tile.
+     * @param toY   one past the bottom row of the tile.
+     */
+    void apply(int tile, int fromX, int fromY, int toX, int toY);
+  }
+
+  /**
+   * Performs the given action on every tile that could have pixels that the given seed takes
+   * when added, or gives up when removed: those with a pixel closer to the seed than the
+   * furthest pixel of the tile is from its own seed.
+   *
+   * @param seed   index of the seed.
+   * @param strict whether pixels must be strictly closer to the seed than to their own, which
+   *               is the case when adding it.
+   * @param action action to perform on each tile.
+   */
+  private void forEachTileInReach(int seed, boolean strict, TileAction action) {
+    int reach = (int) Math.min(Math.max(this.width, this.height),
+            (long) Math.ceil(Math.sqrt((double) this.furthest)));
+    int fromTileX = Math.max(0, this.seedX[seed] - reach) / TILE;
+    int toTileX = Math.min(this.width - 1, this.seedX[seed] + reach) / TILE;
+    int fromTileY = Math.max(0, this.seedY[seed] - reach) / TILE;
+    int toTileY = Math.min(this.height - 1, this.seedY[seed] + reach) / TILE;
+    for (int tileY = fromTileY; tileY <= toTileY; tileY++) {
+      for (int tileX = fromTileX; tileX <= toTileX; tileX++) {
+        int tile = tileY * this.tilesAcross + tileX;
+        int fromX = tileX * TILE;
+        int fromY = tileY * TILE;
+        int toX = Math.min(this.width, fromX + TILE);
+        int toY = Math.min(this.height, fromY + TILE);
+        long nearX = Math.max(0, Math.max(fromX - this.seedX[seed], this.seedX[seed] - toX + 1));
+        long nearY = Math.max(0, Math.max(fromY - this.seedY[seed], this.seedY[seed] - toY + 1));
+        long near = nearX * nearX + nearY * nearY;
+        if (strict ? near < this.tileFurthest[tile] : near <= this.tileFurthest[tile]) {
+          action.apply(tile, fromX, fromY, toX, toY);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the pixels of a tile of the root image.
+   *
+   * @param fromX left column of the tile.
+   * @param fromY top row of the tile.
+   * @param toX   one past the right column of the tile.
+   * @param toY   one past the bottom row of the tile.
+   * @return row-major packed RGB ints of the pixels of the tile.
+   */
+  private int[] readTile(int fromX, int fromY, int toX, int toY) {
+    int[] rgb = new int[(toX - fromX) * (toY - fromY)];
+    this.root.getRegion(fromX, fromY, toX - fromX, toY - fromY, rgb, 0, toX - fromX);
+    return rgb;
+  }
+
+  /**
+   * Measures how far the furthest pixel of a tile is from its seed.
+   *
+   * @param tile index of the tile.
+   */
+  private void measureTile(int tile) {
+    int fromX = (tile % this.tilesAcross) * TILE;
+    int fromY = (tile / this.tilesAcross) * TILE;
+    long tileDistance = 0;
+    for (int y = fromY; y < Math.min(this.height, fromY + TILE); y++) {
+      for (int x = fromX; x < Math.min(this.width, fromX + TILE); x++) {
+        tileDistance = Math.max(tileDistance, this.distance(this.labels[y * this.width + x], x, y));
+      }
+    }
+    this.tileFurthest[tile] = tileDistance;
+    this.furthest = Math.max(this.furthest, tileDistance);
+  }
+
+  /**
+   * Moves a pixel to the given seed, taking its color out of the totals of its old seed.
+   *
+   * @param at   row-major index of the pixel.
+   * @param seed index of its new seed.
+   * @param rgb  packed RGB color of the pixel.
+   */
+  private void moveTo(int at, int seed, int rgb) {
+    this.addToSums(this.labels[at], rgb, -1);
+    this.labels[at] = seed;
+    this.addToSums(seed, rgb, 1);
+  }
+
+  /**
+   * Adds a pixel to, or takes it out of, the totals of a seed.
+   *
+   * @param seed  index of the seed.
+   * @param rgb   packed RGB color of the pixel.
+   * @param times 1 to add the pixel, or -1 to take it out.
+   */
+  private void addToSums(int seed, int rgb, int times) {
+    this.sums[4 * seed] += times * RgbUtils.red(rgb);
+    this.sums[4 * seed + 1] += times * RgbUtils.green(rgb);
+    this.sums[4 * seed + 2] += times * RgbUtils.blue(rgb);
+    this.sums[4 * seed + 3] += times;
+  }
+
+  /**
+   * Measures the squared distance between a seed and a pixel.
+   *
+   * @param seed index of the seed.
+   * @param x    x coordinate of the pixel.
+   * @param y    y coordinate of the pixel.
+   * @return the squared distance.
+   */
+  private long distance(int seed, int x, int y) {
+    long dx = this.seedX[seed] - x;
+    long dy = this.seedY[seed] - y;
+    return dx * dx + dy * dy;
+  }
+
+  /**
+   * Finds the seed in use nearest to a pixel, the lowest index if several are equally near, by
+   * visiting rings of buckets further and further out from it until no unvisited bucket can
+   * hold a nearer one.
+   *
+   * @param x x coordinate of the pixel.
+   * @param y y coordinate of the pixel.
+   * @return index of the nearest seed.
+   */
+  private int nearestSeed(int x, int y) {
+    int bucketX = x / this.bucketSize;
+    int bucketY = y / this.bucketSize;
+    int best = -1;
+    long bestDistance = Long.MAX_VALUE;
+    int maxRing = Math.max(this.bucketsAcross, this.bucketsDown);
+    for (int ring = 0; ring <= maxRing; ring++) {
+      int top = bucketY - ring;
+      int bottom = bucketY + ring;
+      for (int by = Math.max(0, top); by <= Math.min(this.bucketsDown - 1, bottom); by++) {
+        // rows in the middle of the ring only have a bucket on each side.
+        int step = (by == top || by == bottom) ? 1 : Math.max(1, 2 * ring);
+        for (int bx = bucketX - ring; bx <= bucketX + ring; bx += step) {
+          if (bx < 0 || bx >= this.bucketsAcross) {
+            continue;
+          }
+          int bucket = by * this.bucketsAcross + bx;
+          for (int i = 0; i < this.bucketCounts[bucket]; i++) {
+            int seed = this.buckets[bucket][i];
+            long seedDistance = this.distance(seed, x, y);
+            if (seedDistance < bestDistance || (seedDistance == bestDistance && seed < best)) {
+              bestDistance = seedDistance;
+              best = seed;
+            }
+          }
+        }
+      }
+      // every bucket of the next ring is at least this far from the pixel.
+      long gap = (long) ring * this.bucketSize + 1;
+      if (gap * gap > bestDistance) {
+        break;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Sorts the seeds in use into buckets of about two seeds each, once there are the given number
+   * of seeds.
+   *
+   * @param seeds the number of seeds to size the buckets for.
+   */
+  private void buildBuckets(int seeds) {
+    this.bucketsSizedFor = seeds;
+    this.bucketSize = Math.max(1,
+            (int) Math.ceil(Math.sqrt(2.0 * this.width * this.height / seeds)));
+    this.bucketsAcross = (this.width + this.bucketSize - 1) / this.bucketSize;
+    this.bucketsDown = (this.height + this.bucketSize - 1) / this.bucketSize;
+    this.buckets = new int[this.bucketsAcross * this.bucketsDown][];
+    this.bucketCounts = new int[this.buckets.length];
+    for (int seed = 0; seed < this.count; seed++) {
+      this.addToBucket(seed);
+    }
+  }
+
+  /**
+   * Adds a seed to its bucket.
+   *
+   * @param seed index of the seed.
+   */
+  private void addToBucket(int seed) {
+    int bucket = this.bucketOf(seed);
+    if (this.buckets[bucket] == null) {
+      this.buckets[bucket] = new int[4];
+    } else if (this.bucketCounts[bucket] == this.buckets[bucket].length) {
+      this.buckets[bucket] = Arrays.copyOf(this.buckets[bucket], 2 * this.bucketCounts[bucket]);
+    }
+    this.buckets[bucket][this.bucketCounts[bucket]++] = seed;
+  }
+
+  /**
+   * Removes a seed from its bucket.
+   *
+   * @param seed index of the seed.
+   */
+  private void removeFromBucket(int seed) {
+    int bucket = this.bucketOf(seed);
+    for (int i = 0; i < this.bucketCounts[bucket]; i++) {
+      if (this.buckets[bucket][i] == seed) {
+        // order within a bucket doesn't matter, ties are decided by index.
+        this.buckets[bucket][i] = this.buckets[bucket][--this.bucketCounts[bucket]];
+        return;
+      }
+    }
+  }
+
+  /**
+   * Finds the bucket a seed belongs in.
+   *
+   * @param seed index of the seed.
+   * @return index of its bucket.
+   */
+  private int bucketOf(int seed) {
+    return (this.seedY[seed] / this.bucketSize) * this.bucketsAcross
+            + this.seedX[seed] / this.bucketSize;
+  }
+}
@@ -0,0 +1,407 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.IImmutableImage;
+import model.operations.filter.AbstractFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers the results of operations, so applying the same operation with the same parameters
+ * to an image with the same pixels (after undoing, re-importing, or comparing variants side by
+ * side) returns the earlier result instead of computing it again. Results are found by a 128-bit
+ * hash of the pixels of the image they were applied to, along with its size and class (since
+ * results are built in the implementation of the image) and the operation and parameters, so
+ * two different image objects of the same class with the same pixels share results. Chains of
+ * operations applied in one pass are found by the list of their types. Results are also found
+ * by AbstractFilter.getFftKernelSize when they were computed, since kernels applied through
+ * their Fourier transforms can differ by 1 from summing every entry, so changing it never
+ * returns a result that the new setting wouldn't compute. Hashing
+ * reads every pixel once, a band of rows at a time in parallel like AbstractOperation, and the
+ * hash of an IImmutableImage is remembered for as long as the image is referenced, so it is only
+ * read once.
+ *
+ * <p>Only IImmutableImage results are kept, since they are handed out to every caller that asks
+ * for them. Each one is counted as 4 bytes per pixel, whatever its implementation, and the least
+ * recently used results are dropped once they add up to more than the budget. Results larger
+ * than the whole budget aren't kept at all.</p>
+ */
+public final class OperationResultCache {
+  // multipliers of the two hashes, odd constants with well mixed bits.
+  private static final long FIRST_MULTIPLIER = 0x9E3779B97F4A7C15L;
+  private static final long SECOND_MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+  // rows are hashed this many pixels at a time, so huge images aren't read at once.
+  private static final int BAND_PIXELS = 1 << 20;
+
+  private static final OperationResultCache SHARED = new OperationResultCache(initialBudget());
+
+  private final LinkedHashMap<Key, IImage> results;
+  // hashes of IImmutableImages, which can never change, dropped along with their image.
+  private final Map<IImage, long[]> hashes;
+  private long budget;
+  private long bytes;
+  private long hits;
+  private long misses;
+
+  /**
+   * Constructs a new, empty OperationResultCache that holds at most the given number of bytes
+   * of results.
+   *
+   * @param budget most bytes of results to hold, 0 to hold none.
+   * @throws IllegalArgumentException if given a negative budget.
+   */
+  public OperationResultCache(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget cannot be negative");
+    }
+    this.budget = budget;
+    // access order, so the first entry is always the least recently used.
+    this.results = new LinkedHashMap<>(16, 0.75f, true);
+    this.hashes = new WeakHashMap<>();
+  }
+
+  /**
+   * Returns the cache that every IOperationAdapterImpl constructed without one shares. Its
+   * budget starts as the "imageprocessor.cache.bytes" system property, or an eighth of the most
+   * memory the heap can grow to if it isn't set.
+   *
+   * @return the shared cache.
+   */
+  public static OperationResultCache getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Reads the starting budget of the shared cache from the system property, or uses an eighth
+   * of the maximum heap if the property isn't set or isn't a non-negative integer.
+   *
+   * @return budget to start with, at least 0.
+   */
+  private static long initialBudget() {
+    String property = System.getProperty("imageprocessor.cache.bytes");
+    if (property != null) {
+      try {
+        long fromProperty = Long.parseLong(property.trim());
+        if (fromProperty >= 0) {
+          return fromProperty;
+        }
+      } catch (NumberFormatException nfe) {
+        // fall back to a share of the heap.
+      }
+    }
+    return Runtime.getRuntime().maxMemory() / 8;
+  }
+
+  /**
+   * Returns the result of the given operation applied to the given image, computing it with
+   * the given IOperation only if no result of it is held. The result is then held if it is an
+   * IImmutableImage that fits in the budget.
+   *
+   * @param type       enum type of the Operation.
+   * @param toApplyTo  IImage the Operation is applied to.
+   * @param parameters parameters of the Operation.
+   * @param operation  the Operation, which is only applied if no result is held.
+   * @return the result of the Operation.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException    if applying the Operation throws it.
+   */
+  IImage apply(OperationType type, IImage toApplyTo, long[] parameters, IOperation operation)
+          throws IllegalArgumentException, IllegalStateException {
+    if (type == null) {
+      throw new IllegalArgumentException("arguments given cannot be null");
+    }
+    return this.apply(Collections.singletonList(type), toApplyTo, parameters, operation);
+  }
+
+  /**
+   * Returns the result of the given chain of operations applied to the given image in one
+   * pass, computing it with the given IOperation only if no result of it is held. Chains are
+   * held apart from the results of their operations applied one at a time, even when they are
+   * a single operation.
+   *
+   * @param types      enum types of the Operations in the chain, first to last.
+   * @param toApplyTo  IImage the first Operation is applied to.
+   * @param parameters parameters of the chain.
+   * @param operation  the chain, which is only applied if no result is held.
+   * @return the result of the chain.
+   * @throws IllegalArgumentException if any argument is null, or types is empty or contains
+   *                                  null.
+   * @throws IllegalStateException    if applying the chain throws it.
+   */
+  IImage apply(List<OperationType> types, IImage toApplyTo, long[] parameters,
+               IOperation operation) throws IllegalArgumentException, IllegalStateException {
+    if (types == null || toApplyTo == null || parameters == null || operation == null) {
+      throw new IllegalArgumentException("arguments given cannot be null");
+    }
+    if (types.isEmpty() || types.contains(null)) {
+      throw new IllegalArgumentException("types cannot be empty or contain null");
+    }
+    if (this.getBudget() == 0) {
+      return operation.apply();
+    }
+    Key key = new Key(types, parameters, toApplyTo, this.hashOf(toApplyTo));
+    synchronized (this) {
+      IImage held = this.results.get(key);
+      if (held != null) {
+        this.hits++;
+        return held;
+      }
+      this.misses++;
+    }
+    // computed outside of the lock, so other operations can be looked up meanwhile.
+    IImage result = operation.apply();
+    if (result instanceof IImmutableImage) {
+      this.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Holds the given result, dropping the least recently used results until they fit in the
+   * budget. A result larger than the whole budget isn't held.
+   *
+   * @param key    what the result was computed from.
+   * @param result the result.
+   */
+  private synchronized void put(Key key, IImage result) {
+    long size = sizeOf(result);
+    if (size > this.budget) {
+      return;
+    }
+    IImage replaced = this.results.put(key, result);
+    if (replaced != null) {
+      this.bytes -= sizeOf(replaced);
+    }
+    this.bytes += size;
+    this.evict();
+  }
+
+  /**
+   * Drops the least recently used results until the rest fit in the budget.
+   */
+  private void evict() {
+    Iterator<IImage> eldest = this.results.values().iterator();
+    while (this.bytes > this.budget && eldest.hasNext()) {
+      this.bytes -= sizeOf(eldest.next());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * Counts the bytes a result is taken to hold, 4 for every pixel.
+   *
+   * @param img the result.
+   * @return bytes it is counted as.
+   */
+  private static long sizeOf(IImage img) {
+    return 4L * img.getWidth() * img.getHeight();
+  }
+
+  /**
+   * Returns the hash of the pixels of the given image, remembering it if the image can never
+   * change.
+   *
+   * @param img the image to hash.
+   * @return the two 64-bit halves of the hash.
+   */
+  private long[] hashOf(IImage img) {
+    if (!(img instanceof IImmutableImage)) {
+      return hashPixels(img);
+    }
+    synchronized (this.hashes) {
+      long[] known = this.hashes.get(img);
+      if (known != null) {
+        return known;
+      }
+    }
+    long[] hash = hashPixels(img);
+    synchronized (this.hashes) {
+      this.hashes.put(img, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * Hashes every pixel of an image into two independent 64-bit hashes. Each row is hashed on
+   * its own, with the rows of each band hashed in parallel, and the hashes of the rows are then
+   * combined in order, so the hash is the same on any number of threads.
+   *
+   * @param img the image to hash.
+   * @return the two 64-bit halves of the hash.
+   */
+  private static long[] hashPixels(IImage img) {
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int bandRows = Math.max(1, Math.min(height, BAND_PIXELS / Math.max(1, width)));
+    int[] rgb = new int[bandRows * width];
+    long[] rowHashes = new long[2 * bandRows];
+    long first = width;
+    long second = height;
+    for (int bandStart = 0; bandStart < height; bandStart += bandRows) {
+      int rows = Math.min(bandRows, height - bandStart);
+      img.getRegion(0, bandStart, width, rows, rgb, 0, width);
+      RowBandExecutor.run(rows, width, (fromRow, toRow) -> {
+        for (int j = fromRow; j < toRow; j++) {
+          long a = 0;
+          long b = 0;
+          for (int i = j * width; i < (j + 1) * width; i++) {
+            a = (a ^ rgb[i]) * FIRST_MULTIPLIER;
+            b = Long.rotateLeft(b + rgb[i] * SECOND_MULTIPLIER, 31) * FIRST_MULTIPLIER;
+          }
+          rowHashes[2 * j] = a;
+          rowHashes[2 * j + 1] = b;
+        }
+      });
+      for (int j = 0; j < rows; j++) {
+        first = mix(first * SECOND_MULTIPLIER + rowHashes[2 * j]);
+        second = mix(second * FIRST_MULTIPLIER + rowHashes[2 * j + 1]);
+      }
+    }
+    return new long[]{first, second};
+  }
+
+  /**
+   * Mixes the bits of a hash, so every bit of it affects every bit of the result (the
+   * finalizer of MurmurHash3).
+   *
+   * @param h the hash.
+   * @return the mixed hash.
+   */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+
+  /**
+   * Sets the most bytes of results to hold, dropping the least recently used results until
+   * the rest fit.
+   *
+   * @param budget most bytes of results to hold, 0 to hold none.
+   * @throws IllegalArgumentException if given a negative budget.
+   */
+  public synchronized void setBudget(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget cannot be negative");
+    }
+    this.budget = budget;
+    this.evict();
+  }
+
+  /**
+   * Observer for the most bytes of results this holds.
+   *
+   * @return the budget in bytes.
+   */
+  public synchronized long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Observer for the bytes of results this holds, counting 4 for every pixel.
+   *
+   * @return bytes held, at most the budget.
+   */
+  public synchronized long getBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Observer for the number of results this holds.
+   *
+   * @return number of results held.
+   */
+  public synchronized int size() {
+    return this.results.size();
+  }
+
+  /**
+   * Observer for the number of operations that were given a result this held.
+   *
+   * @return number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Observer for the number of operations that had to be computed, while the budget wasn't 0.
+   *
+   * @return number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Drops every result this holds, and sets the hits and misses back to 0.
+   */
+  public synchronized void clear() {
+    this.results.clear();
+    this.bytes = 0;
+    this.hits = 0;
+    this.misses = 0;
+  }
+
+  /**
+   * What a result was computed from: the operations, their parameters, the smallest kernel
+   * filters applied through its Fourier transform, and the class, size and hash of the image
+   * they were applied to.
+   */
+  private static final class Key {
+    private final List<OperationType> types;
+    private final long[] parameters;
+    private final int fftKernelSize;
+    private final Class<?> imageClass;
+    private final int width;
+    private final int height;
+    private final long[] hash;
+
+    /**
+     * Constructs a new Key, copying the types and parameters, with the current
+     * AbstractFilter.getFftKernelSize.
+     *
+     * @param types      enum types of the Operations, first to last.
+     * @param parameters parameters of the Operations.
+     * @param img        the image they were applied to.
+     * @param hash       hash of the pixels of the image they were applied to.
+     */
+    private Key(List<OperationType> types, long[] parameters, IImage img, long[] hash) {
+      this.types = new ArrayList<>(types);
+      this.parameters = parameters.clone();
+      this.fftKernelSize = AbstractFilter.getFftKernelSize();
+      this.imageClass = img.getClass();
+      this.width = img.getWidth();
+      this.height = img.getHeight();
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return this.types.equals(key.types) && this.fftKernelSize == key.fftKernelSize
+              && this.imageClass == key.imageClass
+              && this.width == key.width && this.height == key.height
+              && Arrays.equals(this.parameters, key.parameters)
+              && Arrays.equals(this.hash, key.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) this.hash[0] * 31 + this.types.hashCode() * 17
+              + Arrays.hashCode(this.parameters);
+    }
+  }
+}
@@ -2,8 +2,26 @@ package model.operations;
 
 
 /**
- * Contains all possible (current) IOperation types.
+ * Contains all possible (current) IOperation types. The GAUSSIAN_BLUR types are Gaussian blurs
+ * of increasing strength, with sigma of 1, 3 and 8 pixels.
+ *
+ * <p>MOSAIC takes up to three parameters when applied: the number of seeds, which is 4% of the
+ * pixels (at least 1) if not given or 0, the seed of the random object that places them, which
+ * is 0 if not given, and the MosaicEngine that finds the seed of each pixel, as its position in
+ * MosaicEngine (0 for EXACT, 1 for JUMP_FLOOD), which is EXACT if not given. The same
+ * parameters always give the same mosaic of the same image.</p>
+ *
+ * <p>SQUARE_MOSAIC and HEX_MOSAIC are GridMosaics of square and hexagonal cells, which take one
+ * parameter: the width of each cell in pixels, which is 16 if not given. The types not listed
+ * here take no parameters.</p>
+ *
+ * <p>BOX_BLUR and BOX_GAUSSIAN_BLUR are blurs that cost the same per pixel no matter how strong
+ * they are (see BoxBlurFilter and BoxGaussianBlurFilter). They take up to two parameters: the
+ * radius of the box in pixels, or the sigma of the Gaussian in pixels, which is 10 if not given
+ * or 0, and the BorderMode for pixels outside of the image, as its position in BorderMode
+ * (0 for ZERO, 1 for CLAMP, 2 for MIRROR and 3 for WRAP), which is ZERO if not given.</p>
  */
 public enum OperationType {
-  BLUR, GREYSCALE, MOSAIC, SEPIA, SHARPEN;
+  BLUR, BOX_BLUR, BOX_GAUSSIAN_BLUR, GAUSSIAN_BLUR_SMALL, GAUSSIAN_BLUR_MEDIUM,
+  GAUSSIAN_BLUR_LARGE, GREYSCALE, HEX_MOSAIC, MOSAIC, SEPIA, SHARPEN, SQUARE_MOSAIC;
 }
@@ -0,0 +1,151 @@
+package model.operations;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a computation over a range of rows by splitting it into bands of rows and computing the
+ * bands in parallel on a shared ForkJoinPool. Each band is computed exactly the same way as if
+ * the whole range was computed in one call, so as long as rows don't depend on each other the
+ * results are identical to running sequentially.
+ *
+ * <p>The number of threads is given by the "imageprocessor.parallelism" system property, or the
+ * number of available processors if it isn't set, and can be changed with setParallelism. A
+ * parallelism of 1 runs everything on the calling thread.</p>
+ */
+final class RowBandExecutor {
+  // ranges with fewer pixels than this aren't worth splitting up.
+  private static final int MIN_BAND_PIXELS = 1 << 14;
+  // bands per thread, so that threads that finish early can steal more work.
+  private static final int BANDS_PER_THREAD = 4;
+
+  private static int parallelism = initialParallelism();
+  private static ForkJoinPool pool = null;
+
+  private RowBandExecutor() {
+    // only static methods.
+  }
+
+  /**
+   * Reads the starting parallelism from the system property, or uses the number of available
+   * processors if the property isn't set or isn't a positive integer.
+   *
+   * @return parallelism to start with, at least 1.
+   */
+  private static int initialParallelism() {
+    String property = System.getProperty("imageprocessor.parallelism");
+    if (property != null) {
+      try {
+        int fromProperty = Integer.parseInt(property.trim());
+        if (fromProperty > 0) {
+          return fromProperty;
+        }
+      } catch (NumberFormatException nfe) {
+        // fall back to the number of processors.
+      }
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Sets the number of threads used to compute bands of rows.
+   *
+   * @param threads number of threads, at least 1.
+   * @throws IllegalArgumentException if given less than 1.
+   */
+  static synchronized void setParallelism(int threads) throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("parallelism cannot be less than 1");
+    }
+    if (threads != parallelism) {
+      // the old pool isn't shut down, since another thread may be about to run bands on it.
+      // its threads end on their own once they've been idle for a while, like any
+      // ForkJoinPool's, and it is garbage collected once nothing runs on it.
+      pool = null;
+    }
+    parallelism = threads;
+  }
+
+  /**
+   * Observer for the number of threads used to compute bands of rows.
+   *
+   * @return number of threads, at least 1.
+   */
+  static synchronized int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Returns the pool to run bands on, creating it for the current parallelism if needed.
+   *
+   * @return a ForkJoinPool with the current parallelism.
+   */
+  private static synchronized ForkJoinPool pool() {
+    if (pool == null) {
+      pool = new ForkJoinPool(parallelism);
+    }
+    return pool;
+  }
+
+  /**
+   * Runs the given task over every row from 0 (inclusive) to rows (exclusive), split into
+   * bands that may run in parallel. Every row is given to exactly one call of the task.
+   *
+   * @param rows      number of rows to run over.
+   * @param rowPixels number of pixels in each row, used to decide how finely to split.
+   * @param task      computation to run on each band of rows.
+   * @throws IllegalStateException if the task throws it for any band.
+   */
+  static void run(int rows, int rowPixels, AbstractOperation.RowTask task)
+          throws IllegalStateException {
+    int threads = getParallelism();
+    long pixels = (long) rows * rowPixels;
+    if (threads == 1 || pixels < 2L * MIN_BAND_PIXELS) {
+      task.run(0, rows);
+      return;
+    }
+    int minRows = Math.max(1, MIN_BAND_PIXELS / Math.max(1, rowPixels));
+    int grain = Math.max(minRows, rows / (threads * BANDS_PER_THREAD));
+    pool().invoke(new Band(task, 0, rows, grain));
+  }
+
+  /**
+   * ForkJoin task that splits its rows in half until they are at most grain rows, then runs
+   * the task on them.
+   */
+  private static class Band extends RecursiveAction {
+    // bands are never serialized, but RecursiveAction is Serializable.
+    private static final long serialVersionUID = 1L;
+
+    private final AbstractOperation.RowTask task;
+    private final int fromRow;
+    private final int toRow;
+    private final int grain;
+
+    /**
+     * Creates a new Band over the given rows.
+     *
+     * @param task    computation to run on each band of rows.
+     * @param fromRow first row, inclusive.
+     * @param toRow   last row, exclusive.
+     * @param grain   largest number of rows to run without splitting.
+     */
+    private Band(AbstractOperation.RowTask task, int fromRow, int toRow, int grain) {
+      this.task = task;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.toRow - this.fromRow <= this.grain) {
+        this.task.run(this.fromRow, this.toRow);
+        return;
+      }
+      int middle = (this.fromRow + this.toRow) >>> 1;
+      invokeAll(new Band(this.task, this.fromRow, middle, this.grain),
+              new Band(this.task, middle, this.toRow, this.grain));
+    }
+  }
+}
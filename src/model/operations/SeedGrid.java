@@ -0,0 +1,220 @@
+package model.operations;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index over the seeds of a Mosaic, for finding the seed nearest to every pixel without
+ * measuring the distance to every seed. The image is split into square cells of about two seeds
+ * each, and only the seeds in cells near enough to a pixel are measured.
+ *
+ * <p>Distances are compared as exact squared distances, and among seeds at the same distance
+ * the one with the lowest index wins, so the result is exactly the first strict minimum of a
+ * linear scan over the seeds in index order.</p>
+ */
+final class SeedGrid {
+  private final int[] seedX;
+  private final int[] seedY;
+  private final int width;
+  private final int height;
+  private final int cellSize;
+  private final int cellsAcross;
+  private final int cellsDown;
+  // seeds in cell c are cellSeeds[cellStart[c]] to cellSeeds[cellStart[c + 1] - 1], by index.
+  private final int[] cellStart;
+  private final int[] cellSeeds;
+
+  /**
+   * Builds a SeedGrid over the given seeds of an image of the given size.
+   *
+   * @param seedX  x coordinate of each seed, between 0 and width - 1.
+   * @param seedY  y coordinate of each seed, between 0 and height - 1.
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @throws IllegalArgumentException if there are no seeds, the arrays have different lengths,
+   *                                  or a seed is outside of the image.
+   */
+  SeedGrid(int[] seedX, int[] seedY, int width, int height) throws IllegalArgumentException {
+    if (seedX.length == 0 || seedX.length != seedY.length) {
+      throw new IllegalArgumentException("need the same number of x and y coordinates");
+    }
+    this.seedX = seedX;
+    this.seedY = seedY;
+    this.width = width;
+    this.height = height;
+    // cells of about two seeds each, on average, which measured fastest, and no bigger than
+    // the image.
+    this.cellSize = (int) Math.max(1, Math.min(Math.max(width, height),
+            Math.ceil(Math.sqrt(2.0 * width * height / seedX.length))));
+    this.cellsAcross = (width + this.cellSize - 1) / this.cellSize;
+    this.cellsDown = (height + this.cellSize - 1) / this.cellSize;
+
+    int[] counts = new int[this.cellsAcross * this.cellsDown + 1];
+    int[] cellOf = new int[seedX.length];
+    for (int i = 0; i < seedX.length; i++) {
+      if (seedX[i] < 0 || seedX[i] >= width || seedY[i] < 0 || seedY[i] >= height) {
+        throw new IllegalArgumentException("seed out of bounds of image");
+      }
+      cellOf[i] = (seedY[i] / this.cellSize) * this.cellsAcross + seedX[i] / this.cellSize;
+      counts[cellOf[i] + 1]++;
+    }
+    for (int c = 1; c < counts.length; c++) {
+      counts[c] += counts[c - 1];
+    }
+    this.cellStart = counts.clone();
+    this.cellSeeds = new int[seedX.length];
+    // seeds are added in index order, so each cell lists them in index order.
+    for (int i = 0; i < seedX.length; i++) {
+      this.cellSeeds[counts[cellOf[i]]++] = i;
+    }
+  }
+
+  /**
+   * Finds the seed nearest to every pixel of the image, which must have at most
+   * Integer.MAX_VALUE pixels.
+   *
+   * @return row-major array of the index of the nearest seed to each pixel, the lowest index
+   *         if several are equally near.
+   */
+  int[] nearestSeeds() {
+    int[] nearest = new int[this.width * this.height];
+    // rows of cells only write their own pixels, so they are computed in parallel.
+    RowBandExecutor.run(this.cellsDown, this.cellSize * this.width, (fromCellY, toCellY) -> {
+      int fromY = fromCellY * this.cellSize;
+      this.nearestSeeds(fromY, Math.min(this.height, toCellY * this.cellSize), nearest,
+              fromY * this.width);
+    });
+    return nearest;
+  }
+
+  /**
+   * Finds the seed nearest to every pixel of a band of rows, so images too large for an array of
+   * every pixel can be labeled a band at a time. Pixels are visited one cell at a time, and the
+   * seeds that could be nearest to any pixel of a cell are found once for the part of the cell
+   * in the band: every seed that is no further from the cell than the furthest corner of the
+   * cell is from the seed that is closest to all of it. Each pixel then only measures those.
+   *
+   * @param fromY   the first row.
+   * @param toY     one past the last row.
+   * @param nearest array to write the index of the nearest seed to pixel (x, y) to, at index
+   *                offset + (y - fromY) * width + x, the lowest index if several are equally
+   *                near.
+   * @param offset  index in nearest of the first pixel of the band.
+   */
+  void nearestSeeds(int fromY, int toY, int[] nearest, int offset) {
+    int[] candidates = new int[16];
+    for (int cellY = fromY / this.cellSize; cellY <= (toY - 1) / this.cellSize; cellY++) {
+      for (int cellX = 0; cellX < this.cellsAcross; cellX++) {
+        candidates = this.candidates(cellX, cellY, candidates);
+        this.nearestInCell(cellX, cellY, fromY, toY, candidates, nearest, offset);
+      }
+    }
+  }
+
+  /**
+   * Finds the nearest seed to every pixel of the given cell within a band of rows, out of the
+   * given candidates.
+   *
+   * @param cellX      column of the cell.
+   * @param cellY      row of the cell.
+   * @param bandFromY  first row of the band.
+   * @param bandToY    one past the last row of the band.
+   * @param candidates the number of candidates at index 0, followed by the index of each
+   *                   candidate seed in increasing order.
+   * @param nearest    array to write the index of the nearest seed of each pixel of the band to,
+   *                   row by row.
+   * @param offset     index in nearest of the first pixel of the band.
+   */
+  private void nearestInCell(int cellX, int cellY, int bandFromY, int bandToY, int[] candidates,
+                             int[] nearest, int offset) {
+    int count = candidates[0];
+    int fromX = cellX * this.cellSize;
+    int toX = Math.min(this.width, fromX + this.cellSize);
+    int fromY = Math.max(bandFromY, cellY * this.cellSize);
+    int toY = Math.min(bandToY, cellY * this.cellSize + this.cellSize);
+    for (int y = fromY; y < toY; y++) {
+      for (int x = fromX; x < toX; x++) {
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        // candidates are in index order, so the first strict minimum has the lowest index.
+        for (int c = 1; c <= count; c++) {
+          int seed = candidates[c];
+          long dx = this.seedX[seed] - x;
+          long dy = this.seedY[seed] - y;
+          long distance = dx * dx + dy * dy;
+          if (distance < bestDistance) {
+            bestDistance = distance;
+            best = seed;
+          }
+        }
+        nearest[offset + (y - bandFromY) * this.width + x] = best;
+      }
+    }
+  }
+
+  /**
+   * Finds every seed that could be the nearest seed to some pixel of the given cell, by
+   * visiting rings of cells further and further out from it until no unvisited cell can hold
+   * one.
+   *
+   * @param cellX  column of the cell.
+   * @param cellY  row of the cell.
+   * @param buffer array to reuse for the result, if it is big enough.
+   * @return array holding the number of candidates at index 0, followed by the index of each
+   *         candidate seed in increasing order.
+   */
+  private int[] candidates(int cellX, int cellY, int[] buffer) {
+    int fromX = cellX * this.cellSize;
+    int toX = Math.min(this.width, fromX + this.cellSize) - 1;
+    int fromY = cellY * this.cellSize;
+    int toY = Math.min(this.height, fromY + this.cellSize) - 1;
+    // every pixel of the cell is at most this far from its nearest seed.
+    long bound = Long.MAX_VALUE;
+    int count = 0;
+    int maxRing = Math.max(this.cellsAcross, this.cellsDown);
+    for (int ring = 0; ring <= maxRing; ring++) {
+      int top = cellY - ring;
+      int bottom = cellY + ring;
+      for (int cy = Math.max(0, top); cy <= Math.min(this.cellsDown - 1, bottom); cy++) {
+        // rows in the middle of the ring only have a cell on each side.
+        int step = (cy == top || cy == bottom) ? 1 : 2 * ring;
+        for (int cx = cellX - ring; cx <= cellX + ring; cx += Math.max(1, step)) {
+          if (cx < 0 || cx >= this.cellsAcross) {
+            continue;
+          }
+          int cell = cy * this.cellsAcross + cx;
+          for (int s = this.cellStart[cell]; s < this.cellStart[cell + 1]; s++) {
+            int seed = this.cellSeeds[s];
+            long farX = Math.max(Math.abs(this.seedX[seed] - fromX),
+                    Math.abs(this.seedX[seed] - toX));
+            long farY = Math.max(Math.abs(this.seedY[seed] - fromY),
+                    Math.abs(this.seedY[seed] - toY));
+            bound = Math.min(bound, farX * farX + farY * farY);
+            if (count + 2 > buffer.length) {
+              buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[++count] = seed;
+          }
+        }
+      }
+      // every cell of the next ring is at least this far from every pixel of this cell.
+      long gap = (long) ring * this.cellSize + 1;
+      if (gap * gap > bound) {
+        break;
+      }
+    }
+
+    // only keep the seeds that are no further from the cell than the bound.
+    int kept = 0;
+    for (int c = 1; c <= count; c++) {
+      int seed = buffer[c];
+      long nearX = Math.max(0, Math.max(fromX - this.seedX[seed], this.seedX[seed] - toX));
+      long nearY = Math.max(0, Math.max(fromY - this.seedY[seed], this.seedY[seed] - toY));
+      if (nearX * nearX + nearY * nearY <= bound) {
+        buffer[++kept] = seed;
+      }
+    }
+    Arrays.sort(buffer, 1, kept + 1);
+    buffer[0] = kept;
+    return buffer;
+  }
+}
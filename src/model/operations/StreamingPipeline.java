@@ -0,0 +1,141 @@
+package model.operations;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IPixel;
+import model.image.IRowSink;
+import model.image.IRowSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chain of operations applied to an image as its rows are read, which writes each row of the
+ * result as soon as it is computed, for batch jobs where the image is read from one file and
+ * written to another without ever being shown. No image is built at any point: a band of rows
+ * goes through every operation before the next band is read (see FusedBands), so at most the
+ * rows of one band and the rows every operation reads around it are held at once. A chain of
+ * 3x3 filters on an image of any height holds a few dozen rows.
+ *
+ * <p>Only filters and color transformations can be streamed, since each of them only reads a
+ * few rows around each row it computes. Mosaics read the whole image, so they can't be added.
+ * Filters with BorderMode.WRAP also read the whole image, since the rows past the top edge are
+ * the bottom rows, so they can be added but make the pipeline hold every row. The results are
+ * identical to applying each operation to a whole image.</p>
+ */
+public final class StreamingPipeline {
+  private final IImage shape;
+  private final List<AbstractOperation> stages;
+
+  /**
+   * Constructs a new StreamingPipeline with no operations, for images of the given size.
+   *
+   * @param width  width of the images to stream, in pixels.
+   * @param height height of the images to stream, in pixels.
+   * @throws IllegalArgumentException if width or height is less than 1.
+   */
+  public StreamingPipeline(int width, int height) throws IllegalArgumentException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException("width and height must be at least 1");
+    }
+    this.shape = new Shape(width, height);
+    this.stages = new ArrayList<>();
+  }
+
+  /**
+   * Adds an operation to the end of the pipeline, applied to the result of the operations
+   * before it, with parameters as described by OperationType.
+   *
+   * @param type       enum type of Operation to add.
+   * @param parameters parameters of the Operation, in the order OperationType describes.
+   * @throws IllegalArgumentException if any argument is null, a parameter is out of range, or
+   *                                  the Operation needs the whole image at once.
+   */
+  public void add(OperationType type, long... parameters) throws IllegalArgumentException {
+    IOperation operation = IOperationAdapterImpl.createOperation(type, this.shape, parameters);
+    if (!(operation instanceof AbstractOperation)) {
+      throw new IllegalArgumentException(type + " needs the whole image, so it can't be "
+              + "streamed");
+    }
+    this.stages.add((AbstractOperation) operation);
+  }
+
+  /**
+   * Observer for the number of operations in the pipeline.
+   *
+   * @return number of operations added.
+   */
+  public int size() {
+    return this.stages.size();
+  }
+
+  /**
+   * Reads every row of the given source, applies every operation of the pipeline to them in
+   * order, and writes every row of the result to the given sink, from top to bottom. Neither
+   * the source nor the sink is closed.
+   *
+   * @param source rows of the image to apply the operations to.
+   * @param sink   where to write the rows of the result.
+   * @throws IllegalArgumentException if given null, the source isn't the size of the pipeline,
+   *                                  or it runs out of rows or they don't follow its format.
+   * @throws IOException              if reading from the source or writing to the sink fails.
+   */
+  public void run(IRowSource source, IRowSink sink)
+          throws IllegalArgumentException, IOException {
+    if (source == null || sink == null) {
+      throw new IllegalArgumentException("arguments given cannot be null");
+    }
+    if (source.getWidth() != this.shape.getWidth()
+            || source.getHeight() != this.shape.getHeight()) {
+      throw new IllegalArgumentException("source must be " + this.shape.getWidth() + "x"
+              + this.shape.getHeight());
+    }
+    FusedBands.stream(source, this.shape, this.stages, sink);
+  }
+
+  /**
+   * Stands in for the images a StreamingPipeline streams when constructing its operations,
+   * which only read their size. None of its pixels exist, so they can't be read.
+   */
+  private static final class Shape implements IImage {
+    private final int width;
+    private final int height;
+
+    /**
+     * Constructs a new Shape of the given size.
+     *
+     * @param width  width in pixels.
+     * @param height height in pixels.
+     */
+    private Shape(int width, int height) {
+      this.width = width;
+      this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public IPixel getPixelAt(int x, int y) throws IllegalArgumentException {
+      throw new IllegalStateException("the rows of a stream are never held in an image");
+    }
+
+    @Override
+    public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+      throw new IllegalStateException("the rows of a stream are never held in an image");
+    }
+
+    @Override
+    public IImage createImage(int w, int h, IPixel[] pixels) throws IllegalArgumentException {
+      throw new IllegalStateException("the rows of a stream are never held in an image");
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package model.operations;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Decides whether AbstractColorTransform and AbstractFilter run their inner loops through the
+ * kernels written with the jdk.incubator.vector module, or through their scalar loops. Both
+ * compute every pixel with the same operations in the same order, so the results are identical
+ * either way.
+ *
+ * <p>The vector kernels are compiled from src-vector apart from the rest of the tree, since
+ * they need the module, and nothing else names them or any class of the module: they are loaded
+ * by name, so the rest of the tree builds and runs without the module. They can only be used
+ * when the module is enabled (with "--add-modules jdk.incubator.vector"), they were compiled,
+ * and the processor has vectors of at least 256 bits. They are then used unless the
+ * "imageprocessor.vector" system property is "false", and can be turned on and off with
+ * setEnabled.</p>
+ */
+final class VectorSupport {
+  private static final String MODULE = "jdk.incubator.vector";
+  // every class of vector kernels, which are all loaded up front to see if they can be used.
+  private static final String[] KERNELS = {"model.operations.filter.VectorFilterKernels",
+      "model.operations.colortransform.VectorColorKernels"};
+
+  private static final boolean AVAILABLE = checkAvailable();
+  private static boolean enabled = AVAILABLE
+          && !"false".equalsIgnoreCase(System.getProperty("imageprocessor.vector"));
+
+  private VectorSupport() {
+    // only static methods.
+  }
+
+  /**
+   * Checks whether the vector module is enabled, and whether every class of vector kernels can
+   * be constructed, which they only can if the vectors they would use on this processor hold at
+   * least 4 doubles, since they convert 8 pixels at a time into at most 2 vectors of doubles.
+   *
+   * @return whether the vector kernels can be used.
+   */
+  private static boolean checkAvailable() {
+    if (ModuleLayer.boot().findModule(MODULE).isEmpty()) {
+      return false;
+    }
+    for (String className : KERNELS) {
+      if (construct(className) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Constructs the vector kernels of the given class.
+   *
+   * @param className name of the class of the kernels.
+   * @return new kernels, or null if the class wasn't compiled, the module isn't readable, or
+   *         the kernels can't be used on this processor.
+   */
+  private static Object construct(String className) {
+    try {
+      Constructor<?> constructor = Class.forName(className).getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return constructor.newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+  /**
+   * Constructs the vector kernels of the given class, as the given interface they implement.
+   *
+   * @param className name of the class of the kernels.
+   * @param seam      interface the kernels implement.
+   * @param <T>       type of the interface.
+   * @return new kernels, or null if they aren't available.
+   */
+  static <T> T kernels(String className, Class<T> seam) {
+    return AVAILABLE ? seam.cast(construct(className)) : null;
+  }
+
+  /**
+   * Observer for whether the vector kernels can be used at all.
+   *
+   * @return whether the module is enabled and the processor has wide enough vectors.
+   */
+  static boolean isAvailable() {
+    return AVAILABLE;
+  }
+
+  /**
+   * Observer for whether the vector kernels are used.
+   *
+   * @return whether operations use the vector kernels.
+   */
+  static synchronized boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Sets whether the vector kernels are used, for operations applied after this call.
+   *
+   * @param vectorized whether to use the vector kernels.
+   * @throws IllegalStateException if asked to use them when they aren't available.
+   */
+  static synchronized void setEnabled(boolean vectorized) throws IllegalStateException {
+    if (vectorized && !AVAILABLE) {
+      throw new IllegalStateException("vector kernels need the " + MODULE + " module enabled "
+              + "and 256-bit vectors");
+    }
+    enabled = vectorized;
+  }
+}
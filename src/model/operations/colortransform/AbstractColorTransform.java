@@ -1,17 +1,30 @@
 package model.operations.colortransform;
 
+import model.image.Channel;
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
 import model.operations.AbstractOperation;
 
 /**
- * Abstract class that extends AbstractOperation to specialize in color transformations.
+ * Abstract class that extends AbstractOperation to specialize in color transformations. Since
+ * every channel is one of only 256 values, each entry of the colorMatrix is turned into a table
+ * of its product with every channel value before the image is read, so transforming a pixel
+ * takes table lookups and additions instead of multiplications. The tables hold the exact same
+ * products, added in the same order, so the results are identical to multiplying.
  */
 public abstract class AbstractColorTransform extends AbstractOperation {
+  // the vector kernels, used while isVectorized is true, or null if they aren't available.
+  private static final ColorKernels VECTOR_KERNELS = vectorKernels(
+          "model.operations.colortransform.VectorColorKernels", ColorKernels.class);
+
   // note: this is final, unlike the kernel matrix, which may not be a fixed size.
   // According to piazza @1507, color matrices MUST be 3x3.
   protected final double[][] colorMatrix;
 
+  // lookup[out][in][v] is colorMatrix[out][in] * v, built from the colorMatrix on each apply.
+  private double[][][] lookup;
+
   /**
    * Creates a new AbstractColorTransform object, for child color transformation objects
    * to call in their own constructors.
@@ -24,45 +37,152 @@ public abstract class AbstractColorTransform extends AbstractOperation {
     colorMatrix = new double[3][3];
 
     // INVARIANT: all subclasses of AbstractColorTransform will possess a 3x3 colorMatrix,
-    // also enforced in pixelApply to not have subclasses re-assign colorMatrix to a new
+    // also enforced in applyRows to not have subclasses re-assign colorMatrix to a new
     // matrix. Enforced with the colorMatrix being final....
   }
 
   @Override
-  protected IPixel pixelApply(int i, int j)
-          throws IllegalArgumentException, IllegalStateException {
-    if (this.colorMatrix.length != 3 || this.colorMatrix[0].length != 3) {
-      throw new IllegalStateException("colorMatrix must be 3x3");
+  protected IImage applyPlanar(PlanarImage src) throws IllegalStateException {
+    double[][][] tables = this.lookupTables();
+    byte[] red = src.getPlane(Channel.RED);
+    byte[] green = src.getPlane(Channel.GREEN);
+    byte[] blue = src.getPlane(Channel.BLUE);
+    int width = src.getWidth();
+    // each output channel is one pass over the three input planes.
+    return new PlanarImage(width, src.getHeight(),
+            transformPlane(tables[0], this.colorMatrix[0], red, green, blue, width),
+            transformPlane(tables[1], this.colorMatrix[1], red, green, blue, width),
+            transformPlane(tables[2], this.colorMatrix[2], red, green, blue, width));
+  }
+
+  @Override
+  protected void checkInvariants() throws IllegalStateException {
+    checkMatrix();
+    this.lookup = buildLookup(this.colorMatrix);
+  }
+
+  /**
+   * Checks the colorMatrix and builds new lookup tables from it, for ColorTransformChain to
+   * apply this transformation as one step of many.
+   *
+   * @return array where [out][in][v] is colorMatrix[out][in] * v.
+   * @throws IllegalStateException if colorMatrix is not 3x3.
+   */
+  double[][][] prepareLookup() throws IllegalStateException {
+    checkMatrix();
+    return buildLookup(this.colorMatrix);
+  }
+
+  /**
+   * Returns the lookup tables built by checkInvariants, or builds them if applyRows was called
+   * without it.
+   *
+   * @return tables of the products of each colorMatrix entry with every channel value.
+   * @throws IllegalStateException if colorMatrix is not 3x3.
+   */
+  private double[][][] lookupTables() throws IllegalStateException {
+    double[][][] tables = this.lookup;
+    if (tables == null) {
+      checkMatrix();
+      tables = buildLookup(this.colorMatrix);
     }
-    if (i < 0 || i > this.img.getWidth() - 1 || j < 0 || j > this.img.getHeight() - 1) {
-      throw new IllegalArgumentException("i or j is out of bounds");
+    return tables;
+  }
+
+  /**
+   * Builds a table for each entry of the given 3x3 matrix of its product with every channel
+   * value from 0 to 255.
+   *
+   * @param matrix 3x3 color matrix.
+   * @return array where [out][in][v] is matrix[out][in] * v.
+   */
+  private static double[][][] buildLookup(double[][] matrix) {
+    double[][][] tables = new double[3][3][256];
+    for (int out = 0; out < 3; out++) {
+      for (int in = 0; in < 3; in++) {
+        double weight = matrix[out][in];
+        for (int v = 0; v < 256; v++) {
+          tables[out][in][v] = weight * v;
+        }
+      }
     }
+    return tables;
+  }
 
-    IPixel basePixel = this.img.getPixelAt(i, j);
-
-    double newR = 0.0;
-    double newG = 0.0;
-    double newB = 0.0;
-
-    for (int k = 0; k < 3; k++) {
-      double currColor = this.colorMatrix[k][0] * basePixel.getRed()
-              + this.colorMatrix[k][1] * basePixel.getGreen()
-              + this.colorMatrix[k][2] * basePixel.getBlue();
-      switch (k) {
-        case 0:
-          newR = currColor;
-          break;
-        case 1:
-          newG = currColor;
-          break;
-        case 2:
-          newB = currColor;
-          break;
-        default:
-          // should not get here.
+  /**
+   * Computes one output channel plane from the three input channel planes.
+   *
+   * @param tables    the lookup tables for the output channel, one per input channel.
+   * @param weights   the row of the colorMatrix for the output channel, for the vector kernels.
+   * @param red       red plane of the input.
+   * @param green     green plane of the input.
+   * @param blue      blue plane of the input.
+   * @param width     width of the image in pixels, so the planes can be split into rows.
+   * @return new plane of the output channel.
+   */
+  private static byte[] transformPlane(double[][] tables, double[] weights, byte[] red,
+                                       byte[] green, byte[] blue, int width) {
+    double[] fromR = tables[0];
+    double[] fromG = tables[1];
+    double[] fromB = tables[2];
+    boolean vectorized = isVectorized();
+    byte[] out = new byte[red.length];
+    forEachRowBand(red.length / width, width, (fromRow, toRow) -> {
+      if (vectorized) {
+        VECTOR_KERNELS.transformPlane(weights, red, green, blue, out, fromRow * width,
+                toRow * width);
+        return;
       }
+      for (int i = fromRow * width; i < toRow * width; i++) {
+        out[i] = (byte) toChannel(fromR[red[i] & 0xFF] + fromG[green[i] & 0xFF]
+                + fromB[blue[i] & 0xFF]);
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Ensures the invariant that the colorMatrix is 3x3.
+   *
+   * @throws IllegalStateException if colorMatrix is not 3x3.
+   */
+  private void checkMatrix() throws IllegalStateException {
+    if (this.colorMatrix.length != 3 || this.colorMatrix[0].length != 3) {
+      throw new IllegalStateException("colorMatrix must be 3x3");
+    }
+  }
+
+  @Override
+  protected void applyRows(int[] src, int[] dst, int width, int height, int fromRow, int toRow)
+          throws IllegalStateException {
+    checkMatrix();
+    if (isVectorized()) {
+      VECTOR_KERNELS.transformPixels(this.colorMatrix, src, dst, fromRow * width,
+              toRow * width);
+      return;
     }
+    double[][][] tables = this.lookupTables();
+    double[] redFromR = tables[0][0];
+    double[] redFromG = tables[0][1];
+    double[] redFromB = tables[0][2];
+    double[] greenFromR = tables[1][0];
+    double[] greenFromG = tables[1][1];
+    double[] greenFromB = tables[1][2];
+    double[] blueFromR = tables[2][0];
+    double[] blueFromG = tables[2][1];
+    double[] blueFromB = tables[2][2];
+
+    for (int idx = fromRow * width; idx < toRow * width; idx++) {
+      int rgb = src[idx];
+      int red = RgbUtils.red(rgb);
+      int green = RgbUtils.green(rgb);
+      int blue = RgbUtils.blue(rgb);
 
-    return basePixel.createPixel(i, j, newR, newG, newB);
+      double newR = redFromR[red] + redFromG[green] + redFromB[blue];
+      double newG = greenFromR[red] + greenFromG[green] + greenFromB[blue];
+      double newB = blueFromR[red] + blueFromG[green] + blueFromB[blue];
+
+      dst[idx] = RgbUtils.pack(toChannel(newR), toChannel(newG), toChannel(newB));
+    }
   }
 }
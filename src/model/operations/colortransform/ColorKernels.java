@@ -0,0 +1,40 @@
+package model.operations.colortransform;
+
+/**
+ * The inner loops of AbstractColorTransform that have vector implementations. The only
+ * implementation, VectorColorKernels, needs the jdk.incubator.vector module, so it is compiled
+ * from src-vector apart from the rest of the tree, and only loaded by name when the module is
+ * enabled (see AbstractOperation.vectorKernels). Each method computes exactly what the lookup
+ * tables do, so results are identical.
+ */
+interface ColorKernels {
+  /**
+   * Transforms the packed pixels from index from (inclusive) to to (exclusive) of src by the
+   * given color matrix, and writes them to the same indices of dst. Pixels are done a block at a
+   * time, and each output channel of a block is a separate pass, since computing all three at
+   * once makes a loop too big for the JIT compiler to turn into vector instructions.
+   *
+   * @param matrix 3x3 color matrix, where matrix[out][in] weighs channel in of the input for
+   *               channel out of the output.
+   * @param src    packed RGB pixels to transform.
+   * @param dst    array to write the packed RGB results into.
+   * @param from   index of the first pixel, inclusive.
+   * @param to     index of the last pixel, exclusive.
+   */
+  void transformPixels(double[][] matrix, int[] src, int[] dst, int from, int to);
+
+  /**
+   * Computes one output channel plane from the three input channel planes, for the channel
+   * values from index from (inclusive) to to (exclusive).
+   *
+   * @param weights weight of the red, green and blue input channels for the output channel.
+   * @param red     red plane of the input.
+   * @param green   green plane of the input.
+   * @param blue    blue plane of the input.
+   * @param out     plane to write the output channel into.
+   * @param from    index of the first channel value, inclusive.
+   * @param to      index of the last channel value, exclusive.
+   */
+  void transformPlane(double[] weights, byte[] red, byte[] green, byte[] blue,
+                      byte[] out, int from, int to);
+}
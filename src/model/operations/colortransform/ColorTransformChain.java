@@ -0,0 +1,127 @@
+package model.operations.colortransform;
+
+import model.image.Channel;
+import model.image.IImage;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
+import model.operations.AbstractOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies several color transformations one after another in a single pass over the image, so
+ * that no image is built between them. Each pixel goes through every transformation in order,
+ * and is converted back to whole channel values between 0 and 255 after each one, exactly like
+ * applying them one at a time would, so the results are identical.
+ *
+ * <p>The matrices are not multiplied into one, since that would skip the rounding down between
+ * transformations, which changes the result for almost every pixel (greyscale followed by sepia,
+ * for example). Each transformation still only costs the table lookups of
+ * AbstractColorTransform.</p>
+ */
+public class ColorTransformChain extends AbstractOperation {
+  private final List<AbstractColorTransform> steps;
+
+  // steps[i] as lookup tables, built from the colorMatrix of each step on each apply.
+  private double[][][][] lookups;
+
+  /**
+   * Constructs a new ColorTransformChain that applies the given color transformations to the
+   * given image, in the given order. Only the colorMatrix of each transformation is used, not
+   * the image it was constructed with.
+   *
+   * @param img   IImage to apply the transformations to.
+   * @param steps color transformations to apply, first to last.
+   * @throws IllegalArgumentException if given null, a list with null in it, or an empty list.
+   */
+  public ColorTransformChain(IImage img, List<AbstractColorTransform> steps)
+          throws IllegalArgumentException {
+    super(img);
+    if (steps == null || steps.isEmpty()) {
+      throw new IllegalArgumentException("steps cannot be null or empty");
+    }
+    for (AbstractColorTransform step : steps) {
+      if (step == null) {
+        throw new IllegalArgumentException("steps cannot contain null");
+      }
+    }
+    this.steps = new ArrayList<>(steps);
+  }
+
+  @Override
+  protected void checkInvariants() throws IllegalStateException {
+    double[][][][] tables = new double[this.steps.size()][][][];
+    for (int i = 0; i < tables.length; i++) {
+      tables[i] = this.steps.get(i).prepareLookup();
+    }
+    this.lookups = tables;
+  }
+
+  @Override
+  protected IImage applyPlanar(PlanarImage src) throws IllegalStateException {
+    double[][][][] tables = this.lookupTables();
+    byte[] red = src.getPlane(Channel.RED);
+    byte[] green = src.getPlane(Channel.GREEN);
+    byte[] blue = src.getPlane(Channel.BLUE);
+    byte[] outRed = new byte[red.length];
+    byte[] outGreen = new byte[red.length];
+    byte[] outBlue = new byte[red.length];
+    int width = src.getWidth();
+    forEachRowBand(src.getHeight(), width, (fromRow, toRow) -> {
+      for (int i = fromRow * width; i < toRow * width; i++) {
+        int rgb = transform(tables, red[i] & 0xFF, green[i] & 0xFF, blue[i] & 0xFF);
+        outRed[i] = (byte) RgbUtils.red(rgb);
+        outGreen[i] = (byte) RgbUtils.green(rgb);
+        outBlue[i] = (byte) RgbUtils.blue(rgb);
+      }
+    });
+    return new PlanarImage(width, src.getHeight(), outRed, outGreen, outBlue);
+  }
+
+  @Override
+  protected void applyRows(int[] src, int[] dst, int width, int height, int fromRow, int toRow)
+          throws IllegalStateException {
+    double[][][][] tables = this.lookupTables();
+    for (int idx = fromRow * width; idx < toRow * width; idx++) {
+      int rgb = src[idx];
+      dst[idx] = transform(tables, RgbUtils.red(rgb), RgbUtils.green(rgb), RgbUtils.blue(rgb));
+    }
+  }
+
+  /**
+   * Returns the lookup tables built by checkInvariants, or builds them if applyRows was called
+   * without it.
+   *
+   * @return lookup tables of each step, first to last.
+   * @throws IllegalStateException if the colorMatrix of any step is not 3x3.
+   */
+  private double[][][][] lookupTables() throws IllegalStateException {
+    if (this.lookups == null) {
+      this.checkInvariants();
+    }
+    return this.lookups;
+  }
+
+  /**
+   * Applies every step to one pixel, converting to whole channel values after each step the
+   * same way that AbstractColorTransform does.
+   *
+   * @param tables lookup tables of each step, first to last.
+   * @param red    red channel of the pixel.
+   * @param green  green channel of the pixel.
+   * @param blue   blue channel of the pixel.
+   * @return the transformed pixel, packed as 0xRRGGBB.
+   */
+  private static int transform(double[][][][] tables, int red, int green, int blue) {
+    for (double[][][] step : tables) {
+      int newR = toChannel(step[0][0][red] + step[0][1][green] + step[0][2][blue]);
+      int newG = toChannel(step[1][0][red] + step[1][1][green] + step[1][2][blue]);
+      int newB = toChannel(step[2][0][red] + step[2][1][green] + step[2][2][blue]);
+      red = newR;
+      green = newG;
+      blue = newB;
+    }
+    return RgbUtils.pack(red, green, blue);
+  }
+}
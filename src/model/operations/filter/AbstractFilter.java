@@ -1,57 +1,669 @@
 package model.operations.filter;
 
+import model.image.Channel;
 import model.image.IImage;
-import model.image.IPixel;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
 import model.operations.AbstractOperation;
 
+import java.util.Arrays;
+
 
 /**
- * Abstracts the Filter classes (blur and sharpen for now).
+ * Abstracts the Filter classes (blur, Gaussian blur and sharpen for now). Kernels that are
+ * separable are applied as two 1-D passes, and any other kernel is applied in full. Pixels the
+ * kernel reaches outside of the image are read according to a BorderMode, by padding the rows
+ * that are read beforehand, so the loops that apply the kernel never check bounds. Kernels
+ * that aren't separable and are at least getFftKernelSize long are applied through their
+ * Fourier transforms instead (see FftConvolver), which costs far less per pixel for large
+ * kernels, and gives channels within 1 of summing every entry. Any other kernel whose weights
+ * are all multiples of a power of 2 (like BlurFilter and SharpenFilter) is applied with integer
+ * sums when no sum can overflow (see FixedPointKernel), which gives identical results.
  */
 public abstract class AbstractFilter extends AbstractOperation {
+  // the kernel length that getFftKernelSize starts as, where the transforms get faster than
+  // summing every entry with the scalar loops. It doesn't depend on whether the vector kernels
+  // are used, since the transforms can differ by 1 from summing, and turning the vector kernels
+  // on or off must not change any pixel.
+  public static final int DEFAULT_FFT_KERNEL_SIZE = 15;
+
+  // kernels at least this long that aren't separable are applied with an FftConvolver.
+  private static volatile int fftKernelSize = DEFAULT_FFT_KERNEL_SIZE;
+  // whether kernels are applied with integer sums when that gives identical results.
+  private static volatile boolean fixedPoint = true;
+  // the vector kernels, used while isVectorized is true, or null if they aren't available.
+  static final FilterKernels VECTOR_KERNELS = vectorKernels(
+          "model.operations.filter.VectorFilterKernels", FilterKernels.class);
+
   // this represents the kernel, and may be of a specific size depending on the
   // model.operations.filter subclass. Must be a square 2D matrix of odd width/height.
 
   // INVARIANT: we can't have the constructor for AbstractFilter enforce this odd width/height
-  // square kernel restraint, so we make pixelApply throw IllegalStateException if the subclass
+  // square kernel restraint, so we make applyRows throw IllegalStateException if the subclass
   // attempts to create a non-square or non-even length kernel, to enforce this invariant.
+  // Subclasses whose kernelFactors always gives the factors may leave it null instead, so the
+  // kernel is their outer product and a k x k array is never created for it.
   protected double[][] kernel;
 
+  // if the kernel is separable, kernel[r][c] is xWeights[r] * yWeights[c], and both are set by
+  // checkInvariants so the kernel can be applied as two 1-D passes. Otherwise both are null.
+  private double[] xWeights;
+  private double[] yWeights;
+
+  // set by checkInvariants if the kernel is applied through its Fourier transform, else null.
+  private FftConvolver fft;
+  // set by checkInvariants if the kernel is applied with integer sums, else null.
+  private FixedPointKernel fixed;
+
+  private final BorderMode borderMode;
+
   /**
-   * Constructs a new AbstractFilter object, called by child class constructors.
+   * Constructs a new AbstractFilter object, called by child class constructors. Pixels outside
+   * of the image contribute nothing (BorderMode.ZERO).
    *
    * @param img IImage to apply filter to.
    * @throws IllegalArgumentException if given null.
    */
   public AbstractFilter(IImage img) throws IllegalArgumentException {
+    this(img, BorderMode.ZERO);
+  }
+
+  /**
+   * Constructs a new AbstractFilter object that treats pixels outside of the image according
+   * to the given BorderMode, called by child class constructors.
+   *
+   * @param img        IImage to apply filter to.
+   * @param borderMode how to read pixels outside of the image.
+   * @throws IllegalArgumentException if given null.
+   */
+  public AbstractFilter(IImage img, BorderMode borderMode) throws IllegalArgumentException {
     super(img);
+    if (borderMode == null) {
+      throw new IllegalArgumentException("borderMode cannot be null");
+    }
+    this.borderMode = borderMode;
   }
 
+  /**
+   * Sets the smallest length of kernel that isn't separable that AbstractFilters apply through
+   * its Fourier transform, for filters applied after this call. Until this is called, it is
+   * DEFAULT_FFT_KERNEL_SIZE, whether the vector kernels are used or not.
+   *
+   * @param size the smallest kernel length, Integer.MAX_VALUE to always sum every kernel entry,
+   *             or 0 to go back to the default.
+   * @throws IllegalArgumentException if given less than 0.
+   */
+  public static void setFftKernelSize(int size) throws IllegalArgumentException {
+    if (size < 0) {
+      throw new IllegalArgumentException("size cannot be negative");
+    }
+    fftKernelSize = size == 0 ? DEFAULT_FFT_KERNEL_SIZE : size;
+  }
+
+  /**
+   * Observer for the smallest length of kernel that isn't separable that AbstractFilters apply
+   * through its Fourier transform.
+   *
+   * @return the smallest kernel length.
+   */
+  public static int getFftKernelSize() {
+    return fftKernelSize;
+  }
+
+  /**
+   * Sets whether AbstractFilters applied after this call use integer sums for kernels whose
+   * weights are all multiples of a power of 2, when no sum can overflow. The results are
+   * identical either way, so this is only for comparing the two.
+   *
+   * @param enabled whether to use integer sums where possible.
+   */
+  public static void setFixedPoint(boolean enabled) {
+    fixedPoint = enabled;
+  }
+
+  /**
+   * Observer for whether AbstractFilters use integer sums where possible.
+   *
+   * @return whether integer sums are used.
+   */
+  public static boolean isFixedPoint() {
+    return fixedPoint;
+  }
 
   @Override
-  protected IPixel pixelApply(int i, int j) throws IllegalStateException {
+  protected IImage applyPlanar(PlanarImage src) throws IllegalStateException {
+    checkKernel();
+    if (this.fft != null) {
+      // the transforms work on all three channels of packed rows at once.
+      return super.applyPlanar(src);
+    }
+    int width = src.getWidth();
+    int height = src.getHeight();
+    return new PlanarImage(width, height,
+            this.filterPlane(src.getPlane(Channel.RED), width, height),
+            this.filterPlane(src.getPlane(Channel.GREEN), width, height),
+            this.filterPlane(src.getPlane(Channel.BLUE), width, height));
+  }
+
+  /**
+   * Applies the kernel to a single channel plane. Rather than visiting every kernel entry for
+   * one pixel at a time, each kernel entry is applied to a whole row of pixels at once, so
+   * the inner loop reads the plane one byte after another. Each pixel still sums the kernel
+   * entries in the same order as applyRows, so the results are identical.
+   *
+   * @param plane  row-major plane of one channel.
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @return new plane of the filtered channel.
+   */
+  private byte[] filterPlane(byte[] plane, int width, int height) {
+    byte[] out = new byte[plane.length];
+    forEachRowBand(height, width, (fromRow, toRow) ->
+            this.filterPlaneRows(plane, out, width, height, fromRow, toRow));
+    return out;
+  }
+
+  /**
+   * Applies the kernel to the rows fromRow (inclusive) to toRow (exclusive) of a single channel
+   * plane, for filterPlane. The rows the kernel reaches are first copied into a padded band,
+   * with offset extra columns on each side, so that every row of the kernel can be applied to a
+   * whole row of pixels without checking bounds.
+   *
+   * @param plane   row-major plane of one channel.
+   * @param out     plane to write the filtered channel into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromRow first row to compute, inclusive.
+   * @param toRow   last row to compute, exclusive.
+   */
+  private void filterPlaneRows(byte[] plane, byte[] out, int width, int height, int fromRow,
+                               int toRow) {
+    FixedPointKernel integers = this.fixed;
+    if (integers != null) {
+      integers.applyPlaneRows(plane, out, width, height, fromRow, toRow);
+      return;
+    }
+    double[] x = this.xWeights;
+    double[] y = this.yWeights;
+    if (x != null) {
+      this.separablePlaneRows(plane, out, width, height, fromRow, toRow, x, y);
+      return;
+    }
+    int offset = this.kernel.length / 2;
+    int paddedWidth = width + 2 * offset;
+    int[] columns = this.paddedColumns(width, offset);
+    double[] padded = new double[(toRow - fromRow + 2 * offset) * paddedWidth];
+    for (int j = fromRow - offset; j < toRow + offset; j++) {
+      int row = this.borderMode.map(j, height);
+      if (row < 0) {
+        // rows outside of the image stay 0.
+        continue;
+      }
+      int srcStart = row * width;
+      int paddedStart = (j - fromRow + offset) * paddedWidth;
+      for (int i = 0; i < paddedWidth; i++) {
+        int column = columns[i];
+        padded[paddedStart + i] = column < 0 ? 0 : plane[srcStart + column] & 0xFF;
+      }
+    }
+
+    boolean vectorized = isVectorized();
+    double[] sums = new double[width];
+    for (int j = fromRow; j < toRow; j++) {
+      Arrays.fill(sums, 0);
+      for (int r = 0; r < this.kernel.length; r++) {
+        for (int c = 0; c < this.kernel.length; c++) {
+          double weight = this.kernel[r][c];
+          // the pixel at (i + r - offset, j + c - offset), in padded coordinates.
+          int rowStart = (j - fromRow + c) * paddedWidth + r;
+          if (vectorized) {
+            VECTOR_KERNELS.addScaled(sums, 0, padded, rowStart, width, weight);
+            continue;
+          }
+          for (int i = 0; i < width; i++) {
+            sums[i] += padded[rowStart + i] * weight;
+          }
+        }
+      }
+      int outStart = j * width;
+      if (vectorized) {
+        VECTOR_KERNELS.storePlane(sums, 0, out, outStart, width);
+        continue;
+      }
+      for (int i = 0; i < width; i++) {
+        out[outStart + i] = (byte) toChannel(sums[i]);
+      }
+    }
+  }
+
+  /**
+   * Applies a separable kernel to the rows fromRow (inclusive) to toRow (exclusive) of a single
+   * channel plane. For each row, the vertical weights are summed into one value per column, the
+   * sums are padded by offset columns on each side, and then the horizontal weights are applied
+   * to the padded sums.
+   *
+   * @param plane   row-major plane of one channel.
+   * @param out     plane to write the filtered channel into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromRow first row to compute, inclusive.
+   * @param toRow   last row to compute, exclusive.
+   * @param x       weight of each horizontal offset.
+   * @param y       weight of each vertical offset.
+   */
+  private void separablePlaneRows(byte[] plane, byte[] out, int width, int height,
+                                  int fromRow, int toRow, double[] x, double[] y) {
+    int offset = x.length / 2;
+    int[] columns = this.paddedColumns(width, offset);
+    boolean vectorized = isVectorized();
+    double[] columnSums = new double[width + 2 * offset];
+    // the vector kernels sum a whole row of pixels at once, rather than one pixel at a time.
+    double[] rowSums = vectorized ? new double[width] : null;
+    for (int j = fromRow; j < toRow; j++) {
+      Arrays.fill(columnSums, 0);
+      for (int c = 0; c < y.length; c++) {
+        int row = this.borderMode.map(j + c - offset, height);
+        if (row < 0) {
+          continue;
+        }
+        double weight = y[c];
+        int rowStart = row * width;
+        if (vectorized) {
+          VECTOR_KERNELS.addScaledPlane(columnSums, offset, plane, rowStart, width, weight);
+          continue;
+        }
+        for (int i = 0; i < width; i++) {
+          columnSums[offset + i] += (plane[rowStart + i] & 0xFF) * weight;
+        }
+      }
+      padEdges(columnSums, columns, offset, width);
+      int outStart = j * width;
+      if (vectorized) {
+        Arrays.fill(rowSums, 0);
+        for (int r = 0; r < x.length; r++) {
+          VECTOR_KERNELS.addScaled(rowSums, 0, columnSums, r, width, x[r]);
+        }
+        VECTOR_KERNELS.storePlane(rowSums, 0, out, outStart, width);
+        continue;
+      }
+      for (int i = 0; i < width; i++) {
+        double sum = 0;
+        for (int r = 0; r < x.length; r++) {
+          sum += columnSums[i + r] * x[r];
+        }
+        out[outStart + i] = (byte) toChannel(sum);
+      }
+    }
+  }
+
+  /**
+   * Maps every column of a row padded by offset columns on each side to the column of the
+   * image it reads from, according to the border mode.
+   *
+   * @param width  width of the image in pixels.
+   * @param offset number of padding columns on each side.
+   * @return array of width + 2 * offset columns, where index i holds the image column for
+   *         padded column i, or -1 if it reads nothing.
+   */
+  private int[] paddedColumns(int width, int offset) {
+    int[] columns = new int[width + 2 * offset];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = this.borderMode.map(i - offset, width);
+    }
+    return columns;
+  }
+
+  /**
+   * Fills in the offset padding columns on each side of a row of values, whose columns of the
+   * image start at index offset, from the columns they map to.
+   *
+   * @param values  padded row, with the width columns of the image already filled in.
+   * @param columns image column for each padded column, or -1 for none.
+   * @param offset  number of padding columns on each side.
+   * @param width   width of the image in pixels.
+   */
+  private static void padEdges(double[] values, int[] columns, int offset, int width) {
+    for (int i = 0; i < offset; i++) {
+      values[i] = columns[i] < 0 ? 0 : values[offset + columns[i]];
+    }
+    for (int i = offset + width; i < values.length; i++) {
+      values[i] = columns[i] < 0 ? 0 : values[offset + columns[i]];
+    }
+  }
+
+  /**
+   * Ensures the invariant that the kernel is square with an odd length, or that there is no
+   * kernel and kernelFactors gives two factors of the same odd length.
+   *
+   * @throws IllegalStateException if kernel is non-square or has an even length, or there is
+   *                               no kernel and no valid factors.
+   */
+  private void checkKernel() throws IllegalStateException {
+    if (this.kernel == null) {
+      double[][] factors = this.kernelFactors();
+      if (factors == null || factors.length != 2 || factors[0] == null || factors[1] == null
+              || factors[0].length != factors[1].length || factors[0].length % 2 != 1) {
+        throw new IllegalStateException("cannot have no kernel without factors of the same "
+                + "odd length");
+      }
+      return;
+    }
     if ((this.kernel.length % 2 != 1) || (this.kernel.length != this.kernel[0].length)) {
       throw new IllegalStateException("cannot have kernel that is non-square "
               + "or has non-odd length/width");
     }
-    if (i < 0 || i > this.img.getWidth() - 1 || j < 0 || j > this.img.getHeight() - 1) {
-      throw new IllegalArgumentException("i or j is out of bounds");
+  }
+
+  @Override
+  protected void checkInvariants() throws IllegalStateException {
+    checkKernel();
+    this.findSeparableWeights();
+    this.fft = this.xWeights == null && this.kernel.length >= getFftKernelSize()
+            ? new FftConvolver(this.kernel) : null;
+    this.fixed = null;
+    if (this.fft == null && isFixedPoint()) {
+      this.fixed = this.xWeights != null
+              ? FixedPointKernel.separable(this.xWeights, this.yWeights, this.borderMode)
+              : FixedPointKernel.of(this.kernel, this.borderMode);
     }
-    double sumR = 0;
-    double sumG = 0;
-    double sumB = 0;
-    int offset = this.kernel.length / 2;
-    for (int r = -offset; r <= offset; r++) {
-      for (int c = -offset; c <= offset; c++) {
-        if (!(i + r < 0 || i + r >= img.getWidth()
-                || j + c < 0 || j + c >= img.getHeight())) {
-          IPixel kerPix = img.getPixelAt(i + r, j + c);
-          sumR += kerPix.getRed() * this.kernel[r + offset][c + offset];
-          sumG += kerPix.getGreen() * this.kernel[r + offset][c + offset];
-          sumB += kerPix.getBlue() * this.kernel[r + offset][c + offset];
+  }
+
+  /**
+   * Finds the weights to apply the kernel as two passes with, if it is separable, and stores
+   * them in xWeights and yWeights. The weights from kernelFactors are only used if their outer
+   * product is exactly equal to the kernel, so the separable passes always compute the same
+   * filter as the full kernel. Without a kernel, the factors are the kernel.
+   */
+  private void findSeparableWeights() {
+    this.xWeights = null;
+    this.yWeights = null;
+    double[][] factors = this.kernelFactors();
+    if (this.kernel == null) {
+      // checked by checkKernel.
+      this.xWeights = factors[0].clone();
+      this.yWeights = factors[1].clone();
+      return;
+    }
+    if (factors == null || factors.length != 2 || factors[0] == null || factors[1] == null
+            || factors[0].length != this.kernel.length
+            || factors[1].length != this.kernel.length) {
+      return;
+    }
+    double[] x = factors[0];
+    double[] y = factors[1];
+    for (int r = 0; r < this.kernel.length; r++) {
+      for (int c = 0; c < this.kernel.length; c++) {
+        if (this.kernel[r][c] != x[r] * y[c]) {
+          return;
+        }
+      }
+    }
+    this.xWeights = x.clone();
+    this.yWeights = y.clone();
+  }
+
+  /**
+   * Returns the factors of the kernel if it is separable, meaning it is the outer product of a
+   * column of weights for each horizontal offset and a row of weights for each vertical offset
+   * (a rank-1 matrix, like the kernels of BlurFilter and GaussianBlurFilter). Separable kernels
+   * are applied as one vertical pass and then one horizontal pass, which costs O(k) per pixel
+   * instead of O(k^2) for a k x k kernel. When every weight is a multiple of a small power of
+   * 2 (like 1/16 or 2^-20), every sum is exact, so both ways of applying the kernel give
+   * identical results.
+   *
+   * <p>By default, factors the kernel around its largest entry. Subclasses that build their
+   * kernel from known factors can override this to return them, since dividing by the largest
+   * entry may not give factors whose product is exactly the kernel, and must if they leave the
+   * kernel null.</p>
+   *
+   * @return an array of the horizontal weights and the vertical weights, so that
+   *         kernel[r][c] == factors[0][r] * factors[1][c], or null if there are none.
+   */
+  protected double[][] kernelFactors() {
+    if (this.kernel == null) {
+      return null;
+    }
+    int size = this.kernel.length;
+    // the largest entry is divided by, so it is the most accurate to factor around.
+    int pivotR = 0;
+    int pivotC = 0;
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        if (Math.abs(this.kernel[r][c]) > Math.abs(this.kernel[pivotR][pivotC])) {
+          pivotR = r;
+          pivotC = c;
+        }
+      }
+    }
+    double pivot = this.kernel[pivotR][pivotC];
+    if (pivot == 0 || size == 1) {
+      // nothing to gain from two passes.
+      return null;
+    }
+    double[] x = new double[size];
+    double[] y = new double[size];
+    for (int i = 0; i < size; i++) {
+      x[i] = this.kernel[i][pivotC];
+      y[i] = this.kernel[pivotR][i] / pivot;
+    }
+    return new double[][]{x, y};
+  }
+
+  @Override
+  protected int rowHalo() throws IllegalStateException {
+    checkKernel();
+    return this.kernelLength() / 2;
+  }
+
+  @Override
+  protected boolean wrapsRows() {
+    return this.borderMode == BorderMode.WRAP;
+  }
+
+  /**
+   * Observer for the length of the kernel, which is the length of its factors if there is no
+   * kernel.
+   *
+   * @return length of each side of the kernel.
+   */
+  private int kernelLength() {
+    return this.kernel != null ? this.kernel.length : this.kernelFactors()[0].length;
+  }
+
+  @Override
+  protected void applyRows(int[] src, int[] dst, int width, int height, int fromRow, int toRow)
+          throws IllegalStateException {
+    checkKernel();
+    FixedPointKernel integers = this.fixed;
+    if (integers != null) {
+      integers.applyRows(src, dst, width, height, fromRow, toRow);
+      return;
+    }
+    double[] x = this.xWeights;
+    double[] y = this.yWeights;
+    if (x != null) {
+      this.separableRows(src, dst, width, height, fromRow, toRow, x, y);
+      return;
+    }
+    int size = this.kernel.length;
+    int offset = size / 2;
+    int paddedWidth = width + 2 * offset;
+    int[] columns = this.paddedColumns(width, offset);
+    // the rows the kernel reaches, split into channels and padded on each side, so the loop
+    // over the kernel never checks bounds.
+    int paddedRows = toRow - fromRow + 2 * offset;
+    double[] red = new double[paddedRows * paddedWidth];
+    double[] green = new double[paddedRows * paddedWidth];
+    double[] blue = new double[paddedRows * paddedWidth];
+    for (int j = fromRow - offset; j < toRow + offset; j++) {
+      int row = this.borderMode.map(j, height);
+      if (row < 0) {
+        // rows outside of the image stay 0.
+        continue;
+      }
+      int srcStart = row * width;
+      int paddedStart = (j - fromRow + offset) * paddedWidth;
+      for (int i = 0; i < paddedWidth; i++) {
+        int column = columns[i];
+        if (column >= 0) {
+          int rgb = src[srcStart + column];
+          red[paddedStart + i] = RgbUtils.red(rgb);
+          green[paddedStart + i] = RgbUtils.green(rgb);
+          blue[paddedStart + i] = RgbUtils.blue(rgb);
+        }
+      }
+    }
+
+    FftConvolver transform = this.fft;
+    if (transform != null) {
+      transform.convolve(red, green, blue, dst, width, paddedWidth, fromRow, toRow);
+      return;
+    }
+    // weights[r * size + c] weighs the pixel at (i + r - offset, j + c - offset).
+    double[] weights = new double[size * size];
+    for (int r = 0; r < size; r++) {
+      System.arraycopy(this.kernel[r], 0, weights, r * size, size);
+    }
+    if (isVectorized()) {
+      this.vectorRows(red, green, blue, weights, dst, width, paddedWidth, fromRow, toRow);
+      return;
+    }
+    for (int j = fromRow; j < toRow; j++) {
+      int bandRow = j - fromRow;
+      for (int i = 0; i < width; i++) {
+        double sumR = 0;
+        double sumG = 0;
+        double sumB = 0;
+        for (int r = 0; r < size; r++) {
+          int tap = bandRow * paddedWidth + i + r;
+          int weightStart = r * size;
+          for (int c = 0; c < size; c++) {
+            double weight = weights[weightStart + c];
+            sumR += red[tap] * weight;
+            sumG += green[tap] * weight;
+            sumB += blue[tap] * weight;
+            tap += paddedWidth;
+          }
+        }
+        dst[j * width + i] = RgbUtils.pack(toChannel(sumR), toChannel(sumG), toChannel(sumB));
+      }
+    }
+  }
+
+  /**
+   * Applies a kernel that isn't separable to the given rows with the vector kernels, for
+   * applyRows. Each kernel entry is applied to a whole row of padded channels at once, in the
+   * same order that applyRows applies them to each pixel, so the results are identical.
+   *
+   * @param red         red channels of the rows the kernel reaches, padded on each side.
+   * @param green       green channels of the rows the kernel reaches, padded on each side.
+   * @param blue        blue channels of the rows the kernel reaches, padded on each side.
+   * @param weights     the kernel, where weights[r * size + c] weighs the pixel at
+   *                    (i + r - offset, j + c - offset).
+   * @param dst         array to write the packed pixels of the result into.
+   * @param width       width of the image in pixels.
+   * @param paddedWidth width of each padded row.
+   * @param fromRow     first row to compute, inclusive.
+   * @param toRow       last row to compute, exclusive.
+   */
+  private void vectorRows(double[] red, double[] green, double[] blue, double[] weights,
+                          int[] dst, int width, int paddedWidth, int fromRow, int toRow) {
+    int size = this.kernel.length;
+    double[] sumsR = new double[width];
+    double[] sumsG = new double[width];
+    double[] sumsB = new double[width];
+    for (int j = fromRow; j < toRow; j++) {
+      Arrays.fill(sumsR, 0);
+      Arrays.fill(sumsG, 0);
+      Arrays.fill(sumsB, 0);
+      for (int r = 0; r < size; r++) {
+        for (int c = 0; c < size; c++) {
+          double weight = weights[r * size + c];
+          int tapStart = (j - fromRow + c) * paddedWidth + r;
+          VECTOR_KERNELS.addScaled(sumsR, 0, red, tapStart, width, weight);
+          VECTOR_KERNELS.addScaled(sumsG, 0, green, tapStart, width, weight);
+          VECTOR_KERNELS.addScaled(sumsB, 0, blue, tapStart, width, weight);
+        }
+      }
+      VECTOR_KERNELS.storePixels(sumsR, sumsG, sumsB, 0, dst, j * width, width);
+    }
+  }
+
+  /**
+   * Applies a separable kernel to the given rows of packed pixels, the same way that
+   * separablePlaneRows does for one channel plane, but for all three channels at once.
+   *
+   * @param src     packed pixels of the image.
+   * @param dst     array to write the packed pixels of the result into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromRow first row to compute, inclusive.
+   * @param toRow   last row to compute, exclusive.
+   * @param x       weight of each horizontal offset.
+   * @param y       weight of each vertical offset.
+   */
+  private void separableRows(int[] src, int[] dst, int width, int height, int fromRow,
+                             int toRow, double[] x, double[] y) {
+    int offset = x.length / 2;
+    int[] columns = this.paddedColumns(width, offset);
+    boolean vectorized = isVectorized();
+    double[] sumsR = new double[width + 2 * offset];
+    double[] sumsG = new double[width + 2 * offset];
+    double[] sumsB = new double[width + 2 * offset];
+    // the vector kernels sum a whole row of pixels at once, rather than one pixel at a time.
+    double[][] rowSums = vectorized ? new double[3][width] : null;
+    for (int j = fromRow; j < toRow; j++) {
+      Arrays.fill(sumsR, 0);
+      Arrays.fill(sumsG, 0);
+      Arrays.fill(sumsB, 0);
+      for (int c = 0; c < y.length; c++) {
+        int row = this.borderMode.map(j + c - offset, height);
+        if (row < 0) {
+          continue;
+        }
+        double weight = y[c];
+        int rowStart = row * width;
+        if (vectorized) {
+          VECTOR_KERNELS.addScaledPixels(sumsR, sumsG, sumsB, offset, src, rowStart, width,
+                  weight);
+          continue;
+        }
+        for (int i = 0; i < width; i++) {
+          int kerPix = src[rowStart + i];
+          sumsR[offset + i] += RgbUtils.red(kerPix) * weight;
+          sumsG[offset + i] += RgbUtils.green(kerPix) * weight;
+          sumsB[offset + i] += RgbUtils.blue(kerPix) * weight;
+        }
+      }
+      padEdges(sumsR, columns, offset, width);
+      padEdges(sumsG, columns, offset, width);
+      padEdges(sumsB, columns, offset, width);
+      int outStart = j * width;
+      if (vectorized) {
+        for (double[] sums : rowSums) {
+          Arrays.fill(sums, 0);
+        }
+        for (int r = 0; r < x.length; r++) {
+          VECTOR_KERNELS.addScaled(rowSums[0], 0, sumsR, r, width, x[r]);
+          VECTOR_KERNELS.addScaled(rowSums[1], 0, sumsG, r, width, x[r]);
+          VECTOR_KERNELS.addScaled(rowSums[2], 0, sumsB, r, width, x[r]);
+        }
+        VECTOR_KERNELS.storePixels(rowSums[0], rowSums[1], rowSums[2], 0, dst, outStart,
+                width);
+        continue;
+      }
+      for (int i = 0; i < width; i++) {
+        double sumR = 0;
+        double sumG = 0;
+        double sumB = 0;
+        for (int r = 0; r < x.length; r++) {
+          double weight = x[r];
+          sumR += sumsR[i + r] * weight;
+          sumG += sumsG[i + r] * weight;
+          sumB += sumsB[i + r] * weight;
         }
+        dst[outStart + i] = RgbUtils.pack(toChannel(sumR), toChannel(sumG), toChannel(sumB));
       }
     }
-    return img.getPixelAt(i, j).createPixel(i, j, sumR, sumG, sumB);
   }
 }
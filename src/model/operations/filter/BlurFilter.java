@@ -4,7 +4,7 @@ import model.image.IImage;
 
 /**
  * Applies the blurring effect on the model.image. Inherits apply() and
- * pixelApply from model.operations.filter.AbstractFilter.
+ * applyRows from model.operations.filter.AbstractFilter.
  */
 public class BlurFilter extends AbstractFilter {
   /**
@@ -18,7 +18,19 @@ public class BlurFilter extends AbstractFilter {
    * @throws IllegalArgumentException if given null.
    */
   public BlurFilter(IImage img) throws IllegalArgumentException {
-    super(img);
+    this(img, BorderMode.ZERO);
+  }
+
+  /**
+   * Will construct a new model.operations.filter.BlurFilter object with the same kernel as
+   * above, that reads pixels outside of the image according to the given BorderMode.
+   *
+   * @param img        IImage to apply Blur effect to.
+   * @param borderMode how to read pixels outside of the image.
+   * @throws IllegalArgumentException if given null.
+   */
+  public BlurFilter(IImage img, BorderMode borderMode) throws IllegalArgumentException {
+    super(img, borderMode);
     this.kernel = new double[3][3];
     for (int r = 0; r < 3; r++) {
       for (int c = 0; c < 3; c++) {
@@ -0,0 +1,65 @@
+package model.operations.filter;
+
+/**
+ * Ways for an AbstractFilter to treat the pixels its kernel reaches outside of the image. Each
+ * mode maps a position along one axis of the image to the position it reads from, and the two
+ * axes are mapped independently.
+ */
+public enum BorderMode {
+  /**
+   * Pixels outside of the image are black, so they contribute nothing to the filter. This is
+   * how filters have always treated the border, and is the default.
+   */
+  ZERO {
+    @Override
+    int map(int index, int length) {
+      return index < 0 || index >= length ? -1 : index;
+    }
+  },
+
+  /**
+   * Pixels outside of the image repeat the nearest pixel on its edge.
+   */
+  CLAMP {
+    @Override
+    int map(int index, int length) {
+      return Math.max(0, Math.min(length - 1, index));
+    }
+  },
+
+  /**
+   * Pixels outside of the image reflect the image across its edge, without repeating the edge
+   * pixel itself, so position -1 reads position 1.
+   */
+  MIRROR {
+    @Override
+    int map(int index, int length) {
+      if (length == 1) {
+        return 0;
+      }
+      // reflecting back and forth repeats every 2 * (length - 1) positions.
+      int period = 2 * (length - 1);
+      int folded = Math.floorMod(index, period);
+      return folded < length ? folded : period - folded;
+    }
+  },
+
+  /**
+   * Pixels outside of the image wrap around to the opposite edge, as if the image was tiled.
+   */
+  WRAP {
+    @Override
+    int map(int index, int length) {
+      return Math.floorMod(index, length);
+    }
+  };
+
+  /**
+   * Maps a position along one axis of the image to the position that should be read for it.
+   *
+   * @param index  position along the axis, which may be outside of the image.
+   * @param length number of pixels along the axis, at least 1.
+   * @return position between 0 and length - 1 to read from, or -1 if nothing should be read.
+   */
+  abstract int map(int index, int length);
+}
@@ -0,0 +1,366 @@
+package model.operations.filter;
+
+import model.image.Channel;
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
+import model.image.TiledImage;
+import model.operations.AbstractOperation;
+
+/**
+ * Blurs an image by replacing each pixel with the mean of the (2 * radius + 1) x (2 * radius +
+ * 1) square of pixels around it, one or more times. Pixels the square reaches outside of the
+ * image are read according to a BorderMode, the same way AbstractFilter reads them, so one pass
+ * gives the same image as an AbstractFilter whose kernel has every entry 1 / (2 * radius + 1)^2,
+ * except that the mean is computed exactly with whole numbers and then rounded down, where the
+ * AbstractFilter may round its sum of doubles either way by a tiny amount. Each pass rounds its
+ * channels down, exactly like applying the passes as separate operations.
+ *
+ * <p>Rather than reading the whole square for each pixel, each pass keeps running sums: first
+ * of each row of the square, then of each column of those sums, so a pixel costs the same no
+ * matter the radius. The rows of the horizontal sums are computed in parallel, and so are strips
+ * of columns of the vertical sums.</p>
+ */
+public class BoxBlurFilter extends AbstractOperation {
+  // the largest radius, so that sums of channels over a square never overflow an int.
+  public static final int MAX_RADIUS = 1000;
+  // columns of the vertical sums that each task computes.
+  private static final int STRIP = 64;
+  // rows copied into the builder of the result at once.
+  private static final int COPY_ROWS = 64;
+
+  private final int[] radii;
+  private final BorderMode borderMode;
+
+  /**
+   * Constructs a new BoxBlurFilter of a single pass of the given radius, where pixels outside
+   * of the image contribute nothing (BorderMode.ZERO).
+   *
+   * @param img    IImage to blur.
+   * @param radius pixels on each side of a pixel that its mean includes.
+   * @throws IllegalArgumentException if given null, or a radius less than 0 or more than
+   *                                  MAX_RADIUS.
+   */
+  public BoxBlurFilter(IImage img, int radius) throws IllegalArgumentException {
+    this(img, radius, BorderMode.ZERO);
+  }
+
+  /**
+   * Constructs a new BoxBlurFilter of a single pass of the given radius, that treats pixels
+   * outside of the image according to the given BorderMode.
+   *
+   * @param img        IImage to blur.
+   * @param radius     pixels on each side of a pixel that its mean includes.
+   * @param borderMode how to read pixels outside of the image.
+   * @throws IllegalArgumentException if given null, or a radius less than 0 or more than
+   *                                  MAX_RADIUS.
+   */
+  public BoxBlurFilter(IImage img, int radius, BorderMode borderMode)
+          throws IllegalArgumentException {
+    this(img, new int[]{radius}, borderMode);
+  }
+
+  /**
+   * Constructs a new BoxBlurFilter that applies a pass of each of the given radii, first to
+   * last, called by child class constructors.
+   *
+   * @param img        IImage to blur.
+   * @param radii      radius of each pass, first to last.
+   * @param borderMode how to read pixels outside of the image.
+   * @throws IllegalArgumentException if given null or no radii, or any radius is less than 0
+   *                                  or more than MAX_RADIUS.
+   */
+  protected BoxBlurFilter(IImage img, int[] radii, BorderMode borderMode)
+          throws IllegalArgumentException {
+    super(img);
+    if (radii == null || radii.length == 0 || borderMode == null) {
+      throw new IllegalArgumentException("radii and borderMode cannot be null or empty");
+    }
+    for (int radius : radii) {
+      if (radius < 0 || radius > MAX_RADIUS) {
+        throw new IllegalArgumentException("radius must be between 0 and " + MAX_RADIUS);
+      }
+    }
+    this.radii = radii.clone();
+    this.borderMode = borderMode;
+  }
+
+  /**
+   * Applies every pass to the whole image, one channel plane at a time, so the running sums of
+   * each row and column only start once. A TiledImage may not fit in the heap, so it is instead
+   * blurred a band of rows at a time like any other AbstractOperation.
+   *
+   * @return the blurred image, in the same implementation as the img field.
+   */
+  @Override
+  public IImage apply() {
+    if (img instanceof TiledImage) {
+      return super.apply();
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    PlanarImage src = img instanceof PlanarImage ? (PlanarImage) img : PlanarImage.fromImage(img);
+    byte[][] planes = {src.getPlane(Channel.RED), src.getPlane(Channel.GREEN),
+        src.getPlane(Channel.BLUE)};
+    int[] sums = new int[width * height];
+    for (int radius : this.radii) {
+      for (int c = 0; c < planes.length; c++) {
+        planes[c] = this.blurPlane(planes[c], sums, width, height, radius);
+      }
+    }
+    PlanarImage result = new PlanarImage(width, height, planes[0], planes[1], planes[2]);
+    if (img instanceof PlanarImage) {
+      return result;
+    }
+    IImageBuilder builder = img.createBuilder(width, height);
+    int[] rgb = new int[COPY_ROWS * width];
+    for (int y = 0; y < height; y += COPY_ROWS) {
+      int rows = Math.min(COPY_ROWS, height - y);
+      result.getRegion(0, y, width, rows, rgb, 0, width);
+      builder.setRows(y, rows, rgb, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Applies one pass to a single channel plane.
+   *
+   * @param plane  row-major plane of one channel.
+   * @param sums   array of width * height ints to hold the horizontal sums in.
+   * @param width  width of the image in pixels.
+   * @param height height of the image in pixels.
+   * @param radius radius of the pass.
+   * @return new plane of the blurred channel.
+   */
+  private byte[] blurPlane(byte[] plane, int[] sums, int width, int height, int radius) {
+    byte[] out = new byte[plane.length];
+    forEachRowBand(height, width, (fromRow, toRow) -> {
+      int[] row = new int[width];
+      for (int y = fromRow; y < toRow; y++) {
+        for (int x = 0; x < width; x++) {
+          row[x] = plane[y * width + x] & 0xFF;
+        }
+        this.horizontalSums(row, sums, y * width, width, radius);
+      }
+    });
+    int area = (2 * radius + 1) * (2 * radius + 1);
+    int strips = (width + STRIP - 1) / STRIP;
+    forEachRowBand(strips, STRIP * height, (fromStrip, toStrip) -> {
+      for (int s = fromStrip; s < toStrip; s++) {
+        this.verticalSums(sums, out, width, height, s * STRIP,
+                Math.min(width, (s + 1) * STRIP), radius, area);
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Computes the sum of each square of one pass for the columns from fromCol (inclusive) to
+   * toCol (exclusive) of every row, from the horizontal sums, and writes their means into a
+   * plane.
+   *
+   * @param sums    horizontal sums of every row.
+   * @param out     plane to write the means into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromCol first column to compute, inclusive.
+   * @param toCol   last column to compute, exclusive.
+   * @param radius  radius of the pass.
+   * @param area    number of pixels in each square.
+   */
+  private void verticalSums(int[] sums, byte[] out, int width, int height, int fromCol,
+                            int toCol, int radius, int area) {
+    int columns = toCol - fromCol;
+    int[] column = new int[columns];
+    for (int k = -radius; k <= radius; k++) {
+      addRow(column, sums, this.borderMode.map(k, height), width, fromCol, 1);
+    }
+    for (int y = 0; y < height; y++) {
+      int start = y * width + fromCol;
+      for (int i = 0; i < columns; i++) {
+        out[start + i] = (byte) (column[i] / area);
+      }
+      addRow(column, sums, this.borderMode.map(y + radius + 1, height), width, fromCol, 1);
+      addRow(column, sums, this.borderMode.map(y - radius, height), width, fromCol, -1);
+    }
+  }
+
+  /**
+   * Adds or subtracts part of one row of horizontal sums to running column sums.
+   *
+   * @param column  running sums of each column.
+   * @param sums    horizontal sums of every row.
+   * @param row     row to add, or -1 to add nothing.
+   * @param width   width of the image in pixels.
+   * @param fromCol column of the first running sum.
+   * @param sign    1 to add the row, -1 to subtract it.
+   */
+  private static void addRow(int[] column, int[] sums, int row, int width, int fromCol,
+                             int sign) {
+    if (row < 0) {
+      return;
+    }
+    int start = row * width + fromCol;
+    for (int i = 0; i < column.length; i++) {
+      column[i] += sign * sums[start + i];
+    }
+  }
+
+  /**
+   * Computes the sum of the 2 * radius + 1 values around each value of a row, reading values
+   * outside of the row according to the BorderMode.
+   *
+   * @param row       channel values of one row.
+   * @param sums      array to write the sums into.
+   * @param sumsStart index of the sum of the first value.
+   * @param width     number of values in the row.
+   * @param radius    values on each side of a value that its sum includes.
+   */
+  private void horizontalSums(int[] row, int[] sums, int sumsStart, int width, int radius) {
+    int sum = 0;
+    for (int k = -radius; k <= radius; k++) {
+      sum += this.valueAt(row, k, width);
+    }
+    for (int x = 0; x < width; x++) {
+      sums[sumsStart + x] = sum;
+      if (x >= radius && x + radius + 1 < width) {
+        sum += row[x + radius + 1] - row[x - radius];
+      } else {
+        sum += this.valueAt(row, x + radius + 1, width) - this.valueAt(row, x - radius, width);
+      }
+    }
+  }
+
+  /**
+   * Reads a value of a row at a position that may be outside of it, according to the
+   * BorderMode.
+   *
+   * @param row   channel values of one row.
+   * @param x     position to read.
+   * @param width number of values in the row.
+   * @return the value, 0 if nothing should be read.
+   */
+  private int valueAt(int[] row, int x, int width) {
+    int mapped = this.borderMode.map(x, width);
+    return mapped < 0 ? 0 : row[mapped];
+  }
+
+  @Override
+  protected int rowHalo() {
+    int halo = 0;
+    for (int radius : this.radii) {
+      halo += radius;
+    }
+    return halo;
+  }
+
+  @Override
+  protected boolean wrapsRows() {
+    return this.borderMode == BorderMode.WRAP;
+  }
+
+  /**
+   * Applies every pass to the given rows of packed pixels. Each pass but the last computes the
+   * rows around fromRow and toRow that the passes after it read, which is every row if they
+   * reach past both edges, or past either edge if they wrap around. applyPacked always gives
+   * wrapped rows around the band (see wrapsRows), so they only reach past an edge when given
+   * the whole image. Each pass starts its running sums over, so this costs a little more per
+   * pixel the larger the radius is compared to the number of rows, which is why apply doesn't
+   * use it for images that fit in the heap.
+   */
+  @Override
+  protected void applyRows(int[] src, int[] dst, int width, int height, int fromRow, int toRow) {
+    int after = this.rowHalo() - this.radii[0];
+    boolean whole = this.wrapsRows() ? fromRow < after || toRow + after > height
+            : this.rowHalo() >= height;
+    int[] in = src;
+    int inFirst = 0;
+    for (int p = 0; p < this.radii.length; p++) {
+      boolean last = p == this.radii.length - 1;
+      int outFrom = last ? fromRow : whole ? 0 : Math.max(0, fromRow - after);
+      int outTo = last ? toRow : whole ? height : Math.min(height, toRow + after);
+      int[] out = last ? dst : new int[(outTo - outFrom) * width];
+      int outFirst = last ? 0 : outFrom;
+      this.blurRows(in, inFirst, out, outFirst, width, height, outFrom, outTo, this.radii[p]);
+      in = out;
+      inFirst = outFirst;
+      if (!last) {
+        after -= this.radii[p + 1];
+      }
+    }
+  }
+
+  /**
+   * Applies one pass to the rows fromRow (inclusive) to toRow (exclusive) of packed pixels.
+   * Both arrays may hold just some of the rows of the image, so row y of the image is at index
+   * (y - first) * width of each.
+   *
+   * @param in       packed pixels of every row the pass reads.
+   * @param inFirst  row of the image at the start of in.
+   * @param out      array to write the packed pixels of the result into.
+   * @param outFirst row of the image at the start of out.
+   * @param width    width of the image in pixels.
+   * @param height   height of the image in pixels.
+   * @param fromRow  first row to compute, inclusive.
+   * @param toRow    last row to compute, exclusive.
+   * @param radius   radius of the pass.
+   */
+  private void blurRows(int[] in, int inFirst, int[] out, int outFirst, int width, int height,
+                        int fromRow, int toRow, int radius) {
+    int area = (2 * radius + 1) * (2 * radius + 1);
+    // running sums of the red, green and blue columns, one after another.
+    int[] columns = new int[3 * width];
+    int[] row = new int[width];
+    int[] sums = new int[width];
+    for (int k = fromRow - radius; k <= fromRow + radius; k++) {
+      this.addPixelRow(columns, in, inFirst, this.borderMode.map(k, height), width, radius,
+              1, row, sums);
+    }
+    for (int y = fromRow; y < toRow; y++) {
+      int start = (y - outFirst) * width;
+      for (int x = 0; x < width; x++) {
+        out[start + x] = RgbUtils.pack(columns[x] / area, columns[width + x] / area,
+                columns[2 * width + x] / area);
+      }
+      if (y + 1 < toRow) {
+        this.addPixelRow(columns, in, inFirst, this.borderMode.map(y + radius + 1, height),
+                width, radius, 1, row, sums);
+        this.addPixelRow(columns, in, inFirst, this.borderMode.map(y - radius, height),
+                width, radius, -1, row, sums);
+      }
+    }
+  }
+
+  /**
+   * Adds or subtracts the horizontal sums of each channel of one row of packed pixels to the
+   * running column sums of that channel.
+   *
+   * @param columns running sums of the red, green and blue columns, one after another.
+   * @param in      packed pixels.
+   * @param inFirst row of the image at the start of in.
+   * @param y       row of the image to add, or -1 to add nothing.
+   * @param width   width of the image in pixels.
+   * @param radius  radius of the pass.
+   * @param sign    1 to add the row, -1 to subtract it.
+   * @param row     array of width ints to hold the channel values in.
+   * @param sums    array of width ints to hold the horizontal sums in.
+   */
+  private void addPixelRow(int[] columns, int[] in, int inFirst, int y, int width, int radius,
+                           int sign, int[] row, int[] sums) {
+    if (y < 0) {
+      return;
+    }
+    int start = (y - inFirst) * width;
+    for (int c = 0; c < 3; c++) {
+      int shift = 16 - 8 * c;
+      for (int x = 0; x < width; x++) {
+        row[x] = (in[start + x] >> shift) & 0xFF;
+      }
+      this.horizontalSums(row, sums, 0, width, radius);
+      for (int x = 0; x < width; x++) {
+        columns[c * width + x] += sign * sums[x];
+      }
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package model.operations.filter;
+
+import model.image.IImage;
+
+/**
+ * Subclass of AbstractFilter that applies any given kernel, such as a motion blur along a
+ * diagonal or the disc of a lens blur. Large kernels that aren't separable are applied through
+ * their Fourier transforms, as AbstractFilter describes.
+ */
+public class ConvolutionFilter extends AbstractFilter {
+
+  /**
+   * Constructs a new ConvolutionFilter of the given kernel, where pixels outside of the image
+   * contribute nothing (BorderMode.ZERO).
+   *
+   * @param img    IImage to apply the kernel to.
+   * @param kernel square kernel of odd length, where kernel[r][c] weighs the pixel r - offset
+   *               columns right of and c - offset rows below each pixel, for offset =
+   *               kernel.length / 2. It is copied, so changing it afterwards does nothing.
+   * @throws IllegalArgumentException if given null, or a kernel that isn't square with an odd
+   *                                  length.
+   */
+  public ConvolutionFilter(IImage img, double[][] kernel) throws IllegalArgumentException {
+    this(img, kernel, BorderMode.ZERO);
+  }
+
+  /**
+   * Constructs a new ConvolutionFilter of the given kernel, that reads pixels outside of the
+   * image according to the given BorderMode.
+   *
+   * @param img        IImage to apply the kernel to.
+   * @param kernel     square kernel of odd length, as described above.
+   * @param borderMode how to read pixels outside of the image.
+   * @throws IllegalArgumentException if given null, or a kernel that isn't square with an odd
+   *                                  length.
+   */
+  public ConvolutionFilter(IImage img, double[][] kernel, BorderMode borderMode)
+          throws IllegalArgumentException {
+    super(img, borderMode);
+    if (kernel == null || kernel.length % 2 != 1) {
+      throw new IllegalArgumentException("kernel must have an odd length");
+    }
+    this.kernel = new double[kernel.length][];
+    for (int r = 0; r < kernel.length; r++) {
+      if (kernel[r] == null || kernel[r].length != kernel.length) {
+        throw new IllegalArgumentException("kernel must be square");
+      }
+      this.kernel[r] = kernel[r].clone();
+    }
+  }
+}
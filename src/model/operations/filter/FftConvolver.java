@@ -0,0 +1,230 @@
+package model.operations.filter;
+
+import model.image.RgbUtils;
+
+import java.util.Arrays;
+
+/**
+ * Applies a kernel to padded channels by multiplying their Fourier transforms, for kernels large
+ * enough that summing every kernel entry for every pixel costs more. The rows to compute are
+ * split into square tiles, and each tile is transformed along with the kernel.length - 1 rows and
+ * columns past it that its kernel reaches, so the wrap-around of the transform only lands on the
+ * extra rows and columns, which are thrown away (the overlap-save form of overlap-add). The red
+ * and green channels of a tile are transformed together as the real and imaginary parts of one
+ * complex tile, since the kernel is real and keeps them apart.
+ *
+ * <p>Sums come out well within 1e-9 of the exact sums, a little less accurate than summing
+ * directly. A sum within SNAP of a whole number is taken to be that whole number before it is
+ * rounded down, so kernels whose sums are exact whole numbers (like a uniform kernel over a
+ * flat color) give the same channels as summing directly. Every other channel is at most 1 away
+ * from the direct one, and only when the exact sum is within SNAP of a whole number.</p>
+ */
+final class FftConvolver {
+  // sums this close to a whole number are taken to be it.
+  private static final double SNAP = 1e-6;
+
+  private final int size;
+  private final int n;
+  private final int block;
+  // the transform of the kernel, placed so the tile is correlated with it.
+  private final double[] kernelRe;
+  private final double[] kernelIm;
+  // cos and sin of each angle 2 * pi * k / n, and where each index goes in bit-reversed order.
+  private final double[] cos;
+  private final double[] sin;
+  private final int[] reversed;
+
+  /**
+   * Constructs a new FftConvolver for the given kernel, choosing a tile size about 4 times its
+   * length so most of each transform is kept.
+   *
+   * @param kernel square kernel of odd length, where kernel[r][c] weighs the pixel at
+   *               (i + r - offset, j + c - offset), like AbstractFilter.
+   */
+  FftConvolver(double[][] kernel) {
+    this.size = kernel.length;
+    this.n = Integer.highestOneBit(Math.max(16, 4 * (this.size - 1)) - 1) << 1;
+    this.block = this.n - this.size + 1;
+    this.cos = new double[this.n / 2];
+    this.sin = new double[this.n / 2];
+    for (int k = 0; k < this.n / 2; k++) {
+      this.cos[k] = Math.cos(2 * Math.PI * k / this.n);
+      this.sin[k] = Math.sin(2 * Math.PI * k / this.n);
+    }
+    this.reversed = new int[this.n];
+    int bits = Integer.numberOfTrailingZeros(this.n);
+    for (int i = 0; i < this.n; i++) {
+      this.reversed[i] = Integer.reverse(i) >>> (32 - bits);
+    }
+    this.kernelRe = new double[this.n * this.n];
+    this.kernelIm = new double[this.n * this.n];
+    // the weight of the pixel c rows down and r columns right goes at (-c, -r), wrapped, so
+    // the circular convolution of a tile with it sums each kernel entry times its pixel.
+    for (int r = 0; r < this.size; r++) {
+      for (int c = 0; c < this.size; c++) {
+        int row = (this.n - c) % this.n;
+        int column = (this.n - r) % this.n;
+        this.kernelRe[row * this.n + column] = kernel[r][c];
+      }
+    }
+    this.transform(this.kernelRe, this.kernelIm, false);
+  }
+
+  /**
+   * Applies the kernel to rows of padded channels, the same way as the loop over every kernel
+   * entry in AbstractFilter.applyRows, and writes the packed results into dst.
+   *
+   * @param red         red channels of the rows the kernel reaches, padded on each side.
+   * @param green       green channels of the rows the kernel reaches, padded on each side.
+   * @param blue        blue channels of the rows the kernel reaches, padded on each side.
+   * @param dst         array to write the packed pixels of the result into.
+   * @param width       width of the image in pixels.
+   * @param paddedWidth width of each padded row, width + kernel.length - 1.
+   * @param fromRow     first row to compute, inclusive, which is padded row 0.
+   * @param toRow       last row to compute, exclusive.
+   */
+  void convolve(double[] red, double[] green, double[] blue, int[] dst, int width,
+                int paddedWidth, int fromRow, int toRow) {
+    int rows = toRow - fromRow;
+    int paddedRows = rows + this.size - 1;
+    double[] re = new double[this.n * this.n];
+    double[] im = new double[this.n * this.n];
+    double[] blueRe = new double[this.n * this.n];
+    double[] blueIm = new double[this.n * this.n];
+    for (int tileRow = 0; tileRow < rows; tileRow += this.block) {
+      for (int tileColumn = 0; tileColumn < width; tileColumn += this.block) {
+        Arrays.fill(re, 0);
+        Arrays.fill(im, 0);
+        Arrays.fill(blueRe, 0);
+        Arrays.fill(blueIm, 0);
+        int tileRows = Math.min(this.n, paddedRows - tileRow);
+        int tileColumns = Math.min(this.n, paddedWidth - tileColumn);
+        for (int j = 0; j < tileRows; j++) {
+          int from = (tileRow + j) * paddedWidth + tileColumn;
+          System.arraycopy(red, from, re, j * this.n, tileColumns);
+          System.arraycopy(green, from, im, j * this.n, tileColumns);
+          System.arraycopy(blue, from, blueRe, j * this.n, tileColumns);
+        }
+        this.transform(re, im, false);
+        this.transform(blueRe, blueIm, false);
+        this.multiplyByKernel(re, im);
+        this.multiplyByKernel(blueRe, blueIm);
+        this.transform(re, im, true);
+        this.transform(blueRe, blueIm, true);
+
+        int outRows = Math.min(this.block, rows - tileRow);
+        int outColumns = Math.min(this.block, width - tileColumn);
+        for (int j = 0; j < outRows; j++) {
+          int outStart = (fromRow + tileRow + j) * width + tileColumn;
+          for (int i = 0; i < outColumns; i++) {
+            int at = j * this.n + i;
+            dst[outStart + i] = RgbUtils.pack(toChannel(re[at]), toChannel(im[at]),
+                    toChannel(blueRe[at]));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Multiplies a transformed tile by the transform of the kernel, entry by entry.
+   *
+   * @param re real parts of the tile.
+   * @param im imaginary parts of the tile.
+   */
+  private void multiplyByKernel(double[] re, double[] im) {
+    for (int k = 0; k < re.length; k++) {
+      double a = re[k];
+      double b = im[k];
+      re[k] = a * this.kernelRe[k] - b * this.kernelIm[k];
+      im[k] = a * this.kernelIm[k] + b * this.kernelRe[k];
+    }
+  }
+
+  /**
+   * Transforms an n x n complex tile in place, along every row and then every column. The
+   * inverse transform divides by n^2, so it undoes the forward one.
+   *
+   * @param re      real parts of the tile, row-major.
+   * @param im      imaginary parts of the tile, row-major.
+   * @param inverse whether to apply the inverse transform.
+   */
+  private void transform(double[] re, double[] im, boolean inverse) {
+    for (int row = 0; row < this.n; row++) {
+      this.transform1d(re, im, row * this.n, inverse);
+    }
+    double[] columnRe = new double[this.n];
+    double[] columnIm = new double[this.n];
+    for (int column = 0; column < this.n; column++) {
+      for (int j = 0; j < this.n; j++) {
+        columnRe[j] = re[j * this.n + column];
+        columnIm[j] = im[j * this.n + column];
+      }
+      this.transform1d(columnRe, columnIm, 0, inverse);
+      for (int j = 0; j < this.n; j++) {
+        re[j * this.n + column] = columnRe[j];
+        im[j * this.n + column] = columnIm[j];
+      }
+    }
+    if (inverse) {
+      double scale = 1.0 / ((double) this.n * this.n);
+      for (int k = 0; k < re.length; k++) {
+        re[k] *= scale;
+        im[k] *= scale;
+      }
+    }
+  }
+
+  /**
+   * Transforms n complex values in place with the iterative radix-2 Cooley-Tukey algorithm,
+   * without dividing by n for the inverse.
+   *
+   * @param re      real parts.
+   * @param im      imaginary parts.
+   * @param start   index of the first value.
+   * @param inverse whether to apply the inverse transform.
+   */
+  private void transform1d(double[] re, double[] im, int start, boolean inverse) {
+    for (int i = 0; i < this.n; i++) {
+      int j = this.reversed[i];
+      if (j > i) {
+        double t = re[start + i];
+        re[start + i] = re[start + j];
+        re[start + j] = t;
+        t = im[start + i];
+        im[start + i] = im[start + j];
+        im[start + j] = t;
+      }
+    }
+    double sign = inverse ? 1 : -1;
+    for (int half = 1; half < this.n; half *= 2) {
+      int step = this.n / (2 * half);
+      for (int group = 0; group < this.n; group += 2 * half) {
+        for (int k = 0; k < half; k++) {
+          double wRe = this.cos[k * step];
+          double wIm = sign * this.sin[k * step];
+          int a = start + group + k;
+          int b = a + half;
+          double tRe = re[b] * wRe - im[b] * wIm;
+          double tIm = re[b] * wIm + im[b] * wRe;
+          re[b] = re[a] - tRe;
+          im[b] = im[a] - tIm;
+          re[a] += tRe;
+          im[a] += tIm;
+        }
+      }
+    }
+  }
+
+  /**
+   * Converts a sum into a channel value the same way as AbstractOperation.toChannel, after
+   * taking sums within SNAP of a whole number to be it.
+   *
+   * @param sum the sum.
+   * @return int between 0 and 255, inclusive.
+   */
+  private static int toChannel(double sum) {
+    double whole = Math.rint(sum);
+    return RgbUtils.clamp((int) (Math.abs(sum - whole) < SNAP ? whole : sum));
+  }
+}
@@ -0,0 +1,152 @@
+package model.operations.filter;
+
+/**
+ * The inner loops of AbstractFilter and FixedPointKernel that have vector implementations. The
+ * only implementation, VectorFilterKernels, needs the jdk.incubator.vector module, so it is
+ * compiled from src-vector apart from the rest of the tree, and only loaded by name when the
+ * module is enabled (see AbstractOperation.vectorKernels). Every method computes exactly what
+ * the scalar loop it replaces does, so results are identical.
+ */
+interface FilterKernels {
+  /**
+   * Adds weight times each value to each sum, so sums[sumsStart + i] += values[valuesStart + i]
+   * * weight for i from 0 to length - 1.
+   *
+   * @param sums        array of sums to add to.
+   * @param sumsStart   index of the first sum.
+   * @param values      array of values to weigh.
+   * @param valuesStart index of the first value.
+   * @param length      number of sums.
+   * @param weight      weight of every value.
+   */
+  void addScaled(double[] sums, int sumsStart, double[] values, int valuesStart,
+                 int length, double weight);
+
+  /**
+   * Adds weight times each channel value of a plane to each sum, so sums[sumsStart + i] +=
+   * (plane[planeStart + i] & 0xFF) * weight for i from 0 to length - 1.
+   *
+   * @param sums       array of sums to add to.
+   * @param sumsStart  index of the first sum.
+   * @param plane      row-major plane of one channel.
+   * @param planeStart index of the first channel value.
+   * @param length     number of sums.
+   * @param weight     weight of every channel value.
+   */
+  void addScaledPlane(double[] sums, int sumsStart, byte[] plane, int planeStart,
+                      int length, double weight);
+
+  /**
+   * Adds weight times each channel of packed pixels to the sums of that channel, so that
+   * red[sumsStart + i] += RgbUtils.red(pixels[pixelsStart + i]) * weight for i from 0 to length
+   * - 1, and likewise for green and blue.
+   *
+   * @param red         array of sums of the red channel.
+   * @param green       array of sums of the green channel.
+   * @param blue        array of sums of the blue channel.
+   * @param sumsStart   index of the first sum of each channel.
+   * @param pixels      packed RGB pixels.
+   * @param pixelsStart index of the first pixel.
+   * @param length      number of pixels.
+   * @param weight      weight of every pixel.
+   */
+  void addScaledPixels(double[] red, double[] green, double[] blue, int sumsStart,
+                       int[] pixels, int pixelsStart, int length, double weight);
+
+  /**
+   * Converts sums into channel values the same way as toChannel, and writes them into a plane.
+   *
+   * @param sums      array of sums.
+   * @param sumsStart index of the first sum.
+   * @param out       plane to write the channel values into.
+   * @param outStart  index of the first channel value.
+   * @param length    number of sums.
+   */
+  void storePlane(double[] sums, int sumsStart, byte[] out, int outStart, int length);
+
+  /**
+   * Converts the sums of each channel into channel values the same way as toChannel, and
+   * writes them into packed RGB pixels.
+   *
+   * @param red       array of sums of the red channel.
+   * @param green     array of sums of the green channel.
+   * @param blue      array of sums of the blue channel.
+   * @param sumsStart index of the first sum of each channel.
+   * @param dst       array to write the packed pixels into.
+   * @param dstStart  index of the first pixel.
+   * @param length    number of pixels.
+   */
+  void storePixels(double[] red, double[] green, double[] blue, int sumsStart,
+                   int[] dst, int dstStart, int length);
+
+  /**
+   * Adds weight times each value to each integer sum, so sums[sumsStart + i] +=
+   * values[valuesStart + i] * weight for i from 0 to length - 1.
+   *
+   * @param sums        array of sums to add to.
+   * @param sumsStart   index of the first sum.
+   * @param values      array of values to weigh.
+   * @param valuesStart index of the first value.
+   * @param length      number of sums.
+   * @param weight      weight of every value.
+   */
+  void addScaledInts(int[] sums, int sumsStart, int[] values, int valuesStart,
+                     int length, int weight);
+
+  /**
+   * Adds weight times each channel value of a plane to each integer sum, so
+   * sums[sumsStart + i] += (plane[planeStart + i] & 0xFF) * weight for i from 0 to length - 1.
+   *
+   * @param sums       array of sums to add to.
+   * @param sumsStart  index of the first sum.
+   * @param plane      row-major plane of one channel.
+   * @param planeStart index of the first channel value.
+   * @param length     number of sums.
+   * @param weight     weight of every channel value.
+   */
+  void addScaledPlaneInts(int[] sums, int sumsStart, byte[] plane, int planeStart,
+                          int length, int weight);
+
+  /**
+   * Adds weight times one channel of packed pixels to the integer sums of that channel, so
+   * sums[sumsStart + i] += ((pixels[pixelsStart + i] >> shift) & 0xFF) * weight for i from 0
+   * to length - 1.
+   *
+   * @param sums        array of sums of the channel.
+   * @param sumsStart   index of the first sum.
+   * @param pixels      packed RGB pixels.
+   * @param pixelsStart index of the first pixel.
+   * @param length      number of pixels.
+   * @param weight      weight of every pixel.
+   * @param shift       bits the channel is shifted left by in a packed pixel.
+   */
+  void addScaledChannelInts(int[] sums, int sumsStart, int[] pixels, int pixelsStart,
+                            int length, int weight, int shift);
+
+  /**
+   * Converts integer sums into channel values the same way as FixedPointKernel, shifting each
+   * right and then clamping it, and writes them into a plane.
+   *
+   * @param sums     array of sums, starting at index 0.
+   * @param out      plane to write the channel values into.
+   * @param outStart index of the first channel value.
+   * @param length   number of sums.
+   * @param shift    bits to shift each sum right by.
+   */
+  void storePlaneInts(int[] sums, byte[] out, int outStart, int length, int shift);
+
+  /**
+   * Converts the integer sums of each channel into channel values the same way as
+   * FixedPointKernel, and writes them into packed RGB pixels.
+   *
+   * @param red      sums of the red channel, starting at index 0.
+   * @param green    sums of the green channel, starting at index 0.
+   * @param blue     sums of the blue channel, starting at index 0.
+   * @param dst      array to write the packed pixels into.
+   * @param dstStart index of the first pixel.
+   * @param length   number of pixels.
+   * @param shift    bits to shift each sum right by.
+   */
+  void storePixelsInts(int[] red, int[] green, int[] blue, int[] dst, int dstStart,
+                       int length, int shift);
+}
@@ -0,0 +1,475 @@
+package model.operations.filter;
+
+import model.image.RgbUtils;
+import model.operations.AbstractOperation;
+
+import java.util.Arrays;
+
+/**
+ * Applies a kernel whose weights are all multiples of a power of 2 (like 1/16 or -1/8) with
+ * integer arithmetic, for AbstractFilter. Every weight is scaled by 2^shift into an int once,
+ * every sum is accumulated in ints, and each channel is its sum shifted right by shift and then
+ * clamped.
+ *
+ * <p>A kernel is only applied this way if no sum can leave the range of an int, which also
+ * means that every sum AbstractFilter would compute with doubles is exact. Both ways then
+ * compute the exact weighted sum of every pixel, and shifting right rounds it down just like
+ * toChannel does for every sum that isn't clamped to 0, so the results are identical. The loops
+ * apply each weight to a whole row of values at a time, through the integer kernels of
+ * FilterKernels while AbstractOperation.isVectorized is true, which fit twice as many
+ * sums in a vector as doubles and skip converting between ints and doubles.</p>
+ */
+final class FixedPointKernel {
+  // weights that need to be scaled by more than 2^MAX_SHIFT are left to the doubles.
+  private static final int MAX_SHIFT = 30;
+  // largest absolute value of a channel, which every weight is multiplied by.
+  private static final long MAX_CHANNEL = 255;
+  // the vector kernels, used while isVectorized is true.
+  private static final FilterKernels VECTOR_KERNELS = AbstractFilter.VECTOR_KERNELS;
+
+  // the scaled kernel, where weights[r * size + c] weighs the pixel at
+  // (i + r - offset, j + c - offset), or null if the kernel is separable.
+  private final int[] weights;
+  // the scaled weights of each horizontal and vertical offset if the kernel is separable, else
+  // null.
+  private final int[] xWeights;
+  private final int[] yWeights;
+  private final int size;
+  private final int shift;
+  private final BorderMode borderMode;
+
+  /**
+   * Constructs a new FixedPointKernel from weights that are already scaled.
+   *
+   * @param weights    the scaled kernel, or null if separable.
+   * @param xWeights   the scaled horizontal weights, or null if not separable.
+   * @param yWeights   the scaled vertical weights, or null if not separable.
+   * @param size       length of the kernel.
+   * @param shift      bits to shift each sum right by.
+   * @param borderMode how to read pixels outside of the image.
+   */
+  private FixedPointKernel(int[] weights, int[] xWeights, int[] yWeights, int size, int shift,
+                           BorderMode borderMode) {
+    this.weights = weights;
+    this.xWeights = xWeights;
+    this.yWeights = yWeights;
+    this.size = size;
+    this.shift = shift;
+    this.borderMode = borderMode;
+  }
+
+  /**
+   * Scales a kernel to integer weights, if every sum of it fits in an int.
+   *
+   * @param kernel     square kernel of odd length, where kernel[r][c] weighs the pixel at
+   *                   (i + r - offset, j + c - offset).
+   * @param borderMode how to read pixels outside of the image.
+   * @return the kernel in fixed point, or null if it has to be applied with doubles.
+   */
+  static FixedPointKernel of(double[][] kernel, BorderMode borderMode) {
+    int size = kernel.length;
+    double[] flat = new double[size * size];
+    for (int r = 0; r < size; r++) {
+      System.arraycopy(kernel[r], 0, flat, r * size, size);
+    }
+    int shift = shiftFor(flat);
+    if (shift < 0) {
+      return null;
+    }
+    int[] weights = scale(flat, shift);
+    if (weights == null || absoluteSum(weights) > Integer.MAX_VALUE / MAX_CHANNEL) {
+      return null;
+    }
+    return new FixedPointKernel(weights, null, null, size, shift, borderMode);
+  }
+
+  /**
+   * Scales the factors of a separable kernel to integer weights, if every sum of both passes
+   * fits in an int. The vertical pass sums at most MAX_CHANNEL times the vertical weights, and
+   * the horizontal pass at most that times the horizontal weights.
+   *
+   * @param x          weight of each horizontal offset.
+   * @param y          weight of each vertical offset.
+   * @param borderMode how to read pixels outside of the image.
+   * @return the kernel in fixed point, or null if it has to be applied with doubles.
+   */
+  static FixedPointKernel separable(double[] x, double[] y, BorderMode borderMode) {
+    int xShift = shiftFor(x);
+    int yShift = shiftFor(y);
+    if (xShift < 0 || yShift < 0) {
+      return null;
+    }
+    int[] xWeights = scale(x, xShift);
+    int[] yWeights = scale(y, yShift);
+    if (xWeights == null || yWeights == null) {
+      return null;
+    }
+    long columnLimit = Integer.MAX_VALUE / MAX_CHANNEL;
+    long ySum = absoluteSum(yWeights);
+    if (ySum > columnLimit || (ySum > 0 && absoluteSum(xWeights) > columnLimit / ySum)) {
+      return null;
+    }
+    return new FixedPointKernel(null, xWeights, yWeights, x.length, xShift + yShift,
+            borderMode);
+  }
+
+  /**
+   * Finds the smallest power of 2 that scales every weight to an integer.
+   *
+   * @param weights the weights.
+   * @return the exponent of the power of 2, or -1 if there is none up to 2^MAX_SHIFT.
+   */
+  private static int shiftFor(double[] weights) {
+    int shift = 0;
+    for (double weight : weights) {
+      if (!Double.isFinite(weight)) {
+        return -1;
+      }
+      while (Math.scalb(weight, shift) != Math.rint(Math.scalb(weight, shift))) {
+        if (++shift > MAX_SHIFT) {
+          return -1;
+        }
+      }
+    }
+    return shift;
+  }
+
+  /**
+   * Scales every weight by 2^shift, which is exact for weights shiftFor accepted.
+   *
+   * @param weights the weights.
+   * @param shift   the exponent to scale by.
+   * @return the scaled weights, or null if any doesn't fit in an int.
+   */
+  private static int[] scale(double[] weights, int shift) {
+    int[] scaled = new int[weights.length];
+    for (int i = 0; i < weights.length; i++) {
+      double value = Math.scalb(weights[i], shift);
+      if (Math.abs(value) > Integer.MAX_VALUE) {
+        return null;
+      }
+      scaled[i] = (int) value;
+    }
+    return scaled;
+  }
+
+  /**
+   * Sums the absolute values of the given weights.
+   *
+   * @param weights the weights.
+   * @return the sum, as a long so that it can't overflow.
+   */
+  private static long absoluteSum(int[] weights) {
+    long sum = 0;
+    for (int weight : weights) {
+      sum += Math.abs((long) weight);
+    }
+    return sum;
+  }
+
+  /**
+   * Applies the kernel to the rows fromRow (inclusive) to toRow (exclusive) of packed pixels,
+   * the same way as AbstractFilter.applyRows.
+   *
+   * @param src     packed pixels of the image.
+   * @param dst     array to write the packed pixels of the result into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromRow first row to compute, inclusive.
+   * @param toRow   last row to compute, exclusive.
+   */
+  void applyRows(int[] src, int[] dst, int width, int height, int fromRow, int toRow) {
+    boolean vectorized = AbstractOperation.isVectorized();
+    int[] red = new int[width];
+    int[] green = new int[width];
+    int[] blue = new int[width];
+    if (this.weights == null) {
+      int offset = this.size / 2;
+      int[] columns = this.paddedColumns(width, offset);
+      int[][] columnSums = new int[3][width + 2 * offset];
+      for (int j = fromRow; j < toRow; j++) {
+        for (int[] sums : columnSums) {
+          Arrays.fill(sums, 0);
+        }
+        for (int c = 0; c < this.size; c++) {
+          int row = this.borderMode.map(j + c - offset, height);
+          int weight = this.yWeights[c];
+          if (row < 0 || weight == 0) {
+            continue;
+          }
+          addPixels(columnSums, offset, src, row * width, width, weight, vectorized);
+        }
+        this.horizontalPass(columnSums[0], columns, red, width, vectorized);
+        this.horizontalPass(columnSums[1], columns, green, width, vectorized);
+        this.horizontalPass(columnSums[2], columns, blue, width, vectorized);
+        this.storePixels(red, green, blue, dst, j * width, width, vectorized);
+      }
+      return;
+    }
+
+    int offset = this.size / 2;
+    int paddedWidth = width + 2 * offset;
+    int[] columns = this.paddedColumns(width, offset);
+    int paddedRows = toRow - fromRow + 2 * offset;
+    int[][] padded = new int[3][paddedRows * paddedWidth];
+    for (int j = fromRow - offset; j < toRow + offset; j++) {
+      int row = this.borderMode.map(j, height);
+      if (row < 0) {
+        // rows outside of the image stay 0.
+        continue;
+      }
+      int srcStart = row * width;
+      int paddedStart = (j - fromRow + offset) * paddedWidth;
+      for (int i = 0; i < paddedWidth; i++) {
+        int column = columns[i];
+        if (column >= 0) {
+          int rgb = src[srcStart + column];
+          padded[0][paddedStart + i] = RgbUtils.red(rgb);
+          padded[1][paddedStart + i] = RgbUtils.green(rgb);
+          padded[2][paddedStart + i] = RgbUtils.blue(rgb);
+        }
+      }
+    }
+    for (int j = fromRow; j < toRow; j++) {
+      this.fullRow(padded[0], paddedWidth, j - fromRow, red, width, vectorized);
+      this.fullRow(padded[1], paddedWidth, j - fromRow, green, width, vectorized);
+      this.fullRow(padded[2], paddedWidth, j - fromRow, blue, width, vectorized);
+      this.storePixels(red, green, blue, dst, j * width, width, vectorized);
+    }
+  }
+
+  /**
+   * Applies the kernel to the rows fromRow (inclusive) to toRow (exclusive) of a single channel
+   * plane, the same way as AbstractFilter.filterPlane.
+   *
+   * @param plane   row-major plane of one channel.
+   * @param out     plane to write the filtered channel into.
+   * @param width   width of the image in pixels.
+   * @param height  height of the image in pixels.
+   * @param fromRow first row to compute, inclusive.
+   * @param toRow   last row to compute, exclusive.
+   */
+  void applyPlaneRows(byte[] plane, byte[] out, int width, int height, int fromRow, int toRow) {
+    boolean vectorized = AbstractOperation.isVectorized();
+    int[] sums = new int[width];
+    int offset = this.size / 2;
+    int[] columns = this.paddedColumns(width, offset);
+    if (this.weights == null) {
+      int[] columnSums = new int[width + 2 * offset];
+      for (int j = fromRow; j < toRow; j++) {
+        Arrays.fill(columnSums, 0);
+        for (int c = 0; c < this.size; c++) {
+          int row = this.borderMode.map(j + c - offset, height);
+          int weight = this.yWeights[c];
+          if (row < 0 || weight == 0) {
+            continue;
+          }
+          int rowStart = row * width;
+          if (vectorized) {
+            VECTOR_KERNELS.addScaledPlaneInts(columnSums, offset, plane, rowStart, width,
+                    weight);
+            continue;
+          }
+          for (int i = 0; i < width; i++) {
+            columnSums[offset + i] += (plane[rowStart + i] & 0xFF) * weight;
+          }
+        }
+        this.horizontalPass(columnSums, columns, sums, width, vectorized);
+        this.storePlane(sums, out, j * width, width, vectorized);
+      }
+      return;
+    }
+
+    int paddedWidth = width + 2 * offset;
+    int[] padded = new int[(toRow - fromRow + 2 * offset) * paddedWidth];
+    for (int j = fromRow - offset; j < toRow + offset; j++) {
+      int row = this.borderMode.map(j, height);
+      if (row < 0) {
+        // rows outside of the image stay 0.
+        continue;
+      }
+      int srcStart = row * width;
+      int paddedStart = (j - fromRow + offset) * paddedWidth;
+      for (int i = 0; i < paddedWidth; i++) {
+        int column = columns[i];
+        padded[paddedStart + i] = column < 0 ? 0 : plane[srcStart + column] & 0xFF;
+      }
+    }
+    for (int j = fromRow; j < toRow; j++) {
+      this.fullRow(padded, paddedWidth, j - fromRow, sums, width, vectorized);
+      this.storePlane(sums, out, j * width, width, vectorized);
+    }
+  }
+
+  /**
+   * Sums every weight of the full kernel times its pixel of one channel, for one row.
+   *
+   * @param padded      one channel of the rows the kernel reaches, padded on each side.
+   * @param paddedWidth width of each padded row.
+   * @param bandRow     row to compute, counted from the first row of the band.
+   * @param sums        array to write the sum of each column into.
+   * @param width       width of the image in pixels.
+   * @param vectorized  whether to use the vector kernels.
+   */
+  private void fullRow(int[] padded, int paddedWidth, int bandRow, int[] sums, int width,
+                       boolean vectorized) {
+    Arrays.fill(sums, 0);
+    for (int r = 0; r < this.size; r++) {
+      for (int c = 0; c < this.size; c++) {
+        int weight = this.weights[r * this.size + c];
+        if (weight == 0) {
+          continue;
+        }
+        // the pixel at (i + r - offset, j + c - offset), in padded coordinates.
+        int tapStart = (bandRow + c) * paddedWidth + r;
+        if (vectorized) {
+          VECTOR_KERNELS.addScaledInts(sums, 0, padded, tapStart, width, weight);
+          continue;
+        }
+        for (int i = 0; i < width; i++) {
+          sums[i] += padded[tapStart + i] * weight;
+        }
+      }
+    }
+  }
+
+  /**
+   * Pads the column sums of one channel on each side and applies the horizontal weights to
+   * them, for a separable kernel.
+   *
+   * @param columnSums the vertical pass of one row, starting at index offset.
+   * @param columns    image column for each padded column, or -1 for none.
+   * @param sums       array to write the sum of each column into.
+   * @param width      width of the image in pixels.
+   * @param vectorized whether to use the vector kernels.
+   */
+  private void horizontalPass(int[] columnSums, int[] columns, int[] sums, int width,
+                              boolean vectorized) {
+    int offset = this.size / 2;
+    for (int i = 0; i < offset; i++) {
+      columnSums[i] = columns[i] < 0 ? 0 : columnSums[offset + columns[i]];
+    }
+    for (int i = offset + width; i < columnSums.length; i++) {
+      columnSums[i] = columns[i] < 0 ? 0 : columnSums[offset + columns[i]];
+    }
+    Arrays.fill(sums, 0);
+    for (int r = 0; r < this.size; r++) {
+      int weight = this.xWeights[r];
+      if (weight == 0) {
+        continue;
+      }
+      if (vectorized) {
+        VECTOR_KERNELS.addScaledInts(sums, 0, columnSums, r, width, weight);
+        continue;
+      }
+      for (int i = 0; i < width; i++) {
+        sums[i] += columnSums[i + r] * weight;
+      }
+    }
+  }
+
+  /**
+   * Adds weight times each channel of a row of packed pixels to the sums of that channel.
+   *
+   * @param sums        arrays of sums of the red, green and blue channels.
+   * @param sumsStart   index of the first sum of each channel.
+   * @param pixels      packed RGB pixels.
+   * @param pixelsStart index of the first pixel.
+   * @param length      number of pixels.
+   * @param weight      weight of every pixel.
+   * @param vectorized  whether to use the vector kernels.
+   */
+  private static void addPixels(int[][] sums, int sumsStart, int[] pixels, int pixelsStart,
+                                int length, int weight, boolean vectorized) {
+    if (vectorized) {
+      // one channel at a time, so each loop is simple enough to become vector instructions.
+      VECTOR_KERNELS.addScaledChannelInts(sums[0], sumsStart, pixels, pixelsStart, length,
+              weight, 16);
+      VECTOR_KERNELS.addScaledChannelInts(sums[1], sumsStart, pixels, pixelsStart, length,
+              weight, 8);
+      VECTOR_KERNELS.addScaledChannelInts(sums[2], sumsStart, pixels, pixelsStart, length,
+              weight, 0);
+      return;
+    }
+    int[] red = sums[0];
+    int[] green = sums[1];
+    int[] blue = sums[2];
+    for (int i = 0; i < length; i++) {
+      int rgb = pixels[pixelsStart + i];
+      red[sumsStart + i] += RgbUtils.red(rgb) * weight;
+      green[sumsStart + i] += RgbUtils.green(rgb) * weight;
+      blue[sumsStart + i] += RgbUtils.blue(rgb) * weight;
+    }
+  }
+
+  /**
+   * Converts the sums of each channel into channel values, and writes them into packed pixels.
+   *
+   * @param red        sums of the red channel.
+   * @param green      sums of the green channel.
+   * @param blue       sums of the blue channel.
+   * @param dst        array to write the packed pixels into.
+   * @param dstStart   index of the first pixel.
+   * @param width      number of pixels.
+   * @param vectorized whether to use the vector kernels.
+   */
+  private void storePixels(int[] red, int[] green, int[] blue, int[] dst, int dstStart,
+                           int width, boolean vectorized) {
+    if (vectorized) {
+      VECTOR_KERNELS.storePixelsInts(red, green, blue, dst, dstStart, width, this.shift);
+      return;
+    }
+    for (int i = 0; i < width; i++) {
+      dst[dstStart + i] = RgbUtils.pack(this.toChannel(red[i]), this.toChannel(green[i]),
+              this.toChannel(blue[i]));
+    }
+  }
+
+  /**
+   * Converts sums into channel values, and writes them into a plane.
+   *
+   * @param sums       sums of the channel.
+   * @param out        plane to write the channel values into.
+   * @param outStart   index of the first channel value.
+   * @param width      number of sums.
+   * @param vectorized whether to use the vector kernels.
+   */
+  private void storePlane(int[] sums, byte[] out, int outStart, int width,
+                          boolean vectorized) {
+    if (vectorized) {
+      VECTOR_KERNELS.storePlaneInts(sums, out, outStart, width, this.shift);
+      return;
+    }
+    for (int i = 0; i < width; i++) {
+      out[outStart + i] = (byte) this.toChannel(sums[i]);
+    }
+  }
+
+  /**
+   * Converts a scaled sum into a channel value. Negative sums become 0 either way, and other
+   * sums are rounded down by the shift just as toChannel truncates them.
+   *
+   * @param sum the sum, scaled by 2^shift.
+   * @return int between 0 and 255, inclusive.
+   */
+  private int toChannel(int sum) {
+    return RgbUtils.clamp(sum >> this.shift);
+  }
+
+  /**
+   * Maps every column of a row padded by offset columns on each side to the column of the
+   * image it reads from, according to the border mode.
+   *
+   * @param width  width of the image in pixels.
+   * @param offset number of padding columns on each side.
+   * @return array of width + 2 * offset columns, where index i holds the image column for
+   *         padded column i, or -1 if it reads nothing.
+   */
+  private int[] paddedColumns(int width, int offset) {
+    int[] columns = new int[width + 2 * offset];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = this.borderMode.map(i - offset, width);
+    }
+    return columns;
+  }
+}
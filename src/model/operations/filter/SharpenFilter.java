@@ -20,7 +20,19 @@ public class SharpenFilter extends AbstractFilter {
    * @throws IllegalArgumentException if given null.
    */
   public SharpenFilter(IImage img) throws IllegalArgumentException {
-    super(img);
+    this(img, BorderMode.ZERO);
+  }
+
+  /**
+   * Will construct a new model.operations.filter.SharpenFilter object with the same kernel as
+   * above, that reads pixels outside of the image according to the given BorderMode.
+   *
+   * @param img        IImage to apply Sharpen effect to.
+   * @param borderMode how to read pixels outside of the image.
+   * @throws IllegalArgumentException if given null.
+   */
+  public SharpenFilter(IImage img, BorderMode borderMode) throws IllegalArgumentException {
+    super(img, borderMode);
     this.kernel = new double[5][5];
     for (int i = 0; i < 5; i++) {
       for (int j = 0; j < 5; j++) {
@@ -69,4 +69,13 @@ public interface ISwingView extends IImageView {
    * @throws IllegalArgumentException if given null.
    */
   File openDialogBox(DialogType d, String... extensions) throws IllegalArgumentException;
+
+  /**
+   * Observer for the settings of MOSAIC as they are typed into this view at the moment, so
+   * the controller can read them whenever MOSAIC is applied.
+   *
+   * @return the number of seeds and the random seed as typed, in that order, without leading
+   *         or trailing whitespace.
+   */
+  String[] getMosaicSettings();
 }
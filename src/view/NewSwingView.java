@@ -2,7 +2,7 @@ package view;
 
 import controller.importexport.DialogType;
 import model.image.IImage;
-import model.image.IPixel;
+import model.operations.ImagePyramid;
 import model.operations.OperationType;
 
 import javax.swing.JComboBox;
@@ -24,6 +24,8 @@ import java.awt.FlowLayout;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
@@ -31,14 +33,26 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * ISwingView implementation that uses a JFrame and Swing components to represent a view
  * object that can renders state changes and operations of an Image processing software.
  * Not coupled to a model, but relies on a controller object or at least a listener object
  * to dictate the results of action listeners being triggered.
+ *
+ * <p>Images larger than the image panel are shown shrunk to fit it (unless "Fit to View" is
+ * unchecked), drawn from the smallest level of an ImagePyramid of the image that is still at
+ * least as large as what is shown, so showing them only reads a few times as many pixels as are
+ * shown. What is shown for each image is kept until the image is garbage collected or the panel
+ * changes size, so showing the same image again (after switching layers, or making one
+ * invisible) doesn't read it at all. Images are never edited, so an edited layer is a new image
+ * and is always drawn anew.</p>
  */
 public class NewSwingView implements ISwingView {
+  // width and height of the image panel, including its border.
+  private static final int VIEW_SIZE = 400;
+  private static final int VIEW_BORDER = 15;
 
   private final JTextField renderMessageOutput;
   private final JComboBox<String> operationList;
@@ -56,6 +70,16 @@ public class NewSwingView implements ISwingView {
   private final JButton findScriptButton;
   private final JButton enterNewName;
   private final JButton exportAll;
+  private final JTextField mosaicSeeds;
+  private final JTextField randomSeed;
+  private final JScrollPane imageScrollPane;
+  private final JCheckBox fitToView;
+  // what is shown for each image, for the size of shownSize, dropped with the image.
+  private final Map<IImage, ImageIcon> fittedIcons;
+  private Dimension shownSize;
+  // the image being shown, and the pyramid of it, which is built the first time it is needed.
+  private IImage shownImage;
+  private ImagePyramid shownPyramid;
 
   /**
    * Constructs a new NewSwingView object, and sets up all the components and
@@ -96,6 +120,17 @@ public class NewSwingView implements ISwingView {
     applyOperationButton = new JButton("Apply");
     applyOperationButton.setActionCommand("apply curr operation");
     operationsPanel.add(applyOperationButton);
+    // settings for MOSAIC, which the controller reads whenever MOSAIC is applied. Pressing
+    // enter in the number of seeds changes the seeds of a mosaic that was just applied.
+    operationsPanel.add(new JLabel("Mosaic Seeds:"));
+    mosaicSeeds = new JTextField();
+    mosaicSeeds.setActionCommand("mosaic seeds");
+    mosaicSeeds.setPreferredSize(new Dimension(70, 25));
+    operationsPanel.add(mosaicSeeds);
+    operationsPanel.add(new JLabel("Random Seed:"));
+    randomSeed = new JTextField("0");
+    randomSeed.setPreferredSize(new Dimension(70, 25));
+    operationsPanel.add(randomSeed);
     // button to find script:
     findScriptButton = new JButton("Run Script");
     findScriptButton.setActionCommand("find script");
@@ -115,10 +150,22 @@ public class NewSwingView implements ISwingView {
     // getting the image will be done when renderIImage is called.
 
     // packing onto frame:
-    JScrollPane imageScrollPane = new JScrollPane(placeHolderImage);
-    imageScrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY, 15));
-    imageScrollPane.setPreferredSize(new Dimension(400, 400));
+    imageScrollPane = new JScrollPane(placeHolderImage);
+    imageScrollPane.setBorder(BorderFactory.createLineBorder(Color.GRAY, VIEW_BORDER));
+    imageScrollPane.setPreferredSize(new Dimension(VIEW_SIZE, VIEW_SIZE));
     imagePanel.add(imageScrollPane);
+    fittedIcons = new WeakHashMap<>();
+
+    // low level listener for the checkbox, not for the controller to see.
+    fitToView = new JCheckBox("Fit to View");
+    fitToView.setSelected(true);
+    fitToView.addActionListener(new ActionListener() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        renderIImage(shownImage);
+      }
+    });
+    imagePanel.add(fitToView);
 
 
     /*
@@ -239,25 +286,85 @@ public class NewSwingView implements ISwingView {
 
   @Override
   public void renderIImage(IImage img) {
+    if (img != this.shownImage) {
+      this.shownImage = img;
+      this.shownPyramid = null;
+    }
     if (img == null) {
       // note, if null is given, then the current image will be removed.
       placeHolderImage.setIcon(null);
       return;
     }
-    // can convert to BufferedImage, then use ImageIcon in swing to make it show up
     // if this is called, ensure that the model has the correct number of images for this to
     // be rendered.
+    if (!fitToView.isSelected()) {
+      placeHolderImage.setIcon(new ImageIcon(toBufferedImage(img)));
+      return;
+    }
+    Dimension viewSize = imageScrollPane.getViewport().getExtentSize();
+    if (viewSize.width < 1 || viewSize.height < 1) {
+      // not laid out yet.
+      viewSize = new Dimension(VIEW_SIZE - 2 * VIEW_BORDER, VIEW_SIZE - 2 * VIEW_BORDER);
+    }
+    if (!viewSize.equals(this.shownSize)) {
+      this.fittedIcons.clear();
+      this.shownSize = viewSize;
+    }
+    ImageIcon icon = this.fittedIcons.get(img);
+    if (icon == null) {
+      icon = new ImageIcon(this.fit(img, viewSize));
+      this.fittedIcons.put(img, icon);
+    }
+    placeHolderImage.setIcon(icon);
+  }
+
+  /**
+   * Shrinks the given image to fit in an area of the given size, keeping its aspect ratio, from
+   * the smallest level of its pyramid that is at least as large. Images that already fit are
+   * drawn as they are.
+   *
+   * @param img      the image to shrink, which is the image being shown.
+   * @param viewSize size of the area to fit it in.
+   * @return a BufferedImage of the image, at most the size of the area.
+   */
+  private BufferedImage fit(IImage img, Dimension viewSize) {
+    double scale = Math.min(1, Math.min((double) viewSize.width / img.getWidth(),
+            (double) viewSize.height / img.getHeight()));
+    if (scale == 1) {
+      return toBufferedImage(img);
+    }
+    int width = Math.max(1, (int) Math.round(img.getWidth() * scale));
+    int height = Math.max(1, (int) Math.round(img.getHeight() * scale));
+    if (this.shownPyramid == null) {
+      this.shownPyramid = new ImagePyramid(img);
+    }
+    // the level is less than twice as large as the result on each side, so it is smoothed.
+    BufferedImage level = toBufferedImage(this.shownPyramid.levelFor(width, height));
+    BufferedImage fitted = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = fitted.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g.drawImage(level, 0, 0, width, height, null);
+    g.dispose();
+    return fitted;
+  }
+
+  /**
+   * Converts the given image into a BufferedImage of the same size.
+   *
+   * @param img the image to convert.
+   * @return a new BufferedImage with the same pixels.
+   */
+  private static BufferedImage toBufferedImage(IImage img) {
     BufferedImage bImg = new BufferedImage(img.getWidth(),
             img.getHeight(), BufferedImage.TYPE_INT_RGB);
-    for (int i = 0; i < img.getWidth(); i++) {
-      for (int j = 0; j < img.getHeight(); j++) {
-        IPixel currPix = img.getPixelAt(i, j);
-        int convertedRGB = new Color(currPix.getRed(),
-                currPix.getGreen(), currPix.getBlue()).getRGB();
-        bImg.setRGB(i, j, convertedRGB);
-      }
+    // packed RGB ints are already in the TYPE_INT_RGB format, so rows copy over directly.
+    int[] row = new int[img.getWidth()];
+    for (int j = 0; j < img.getHeight(); j++) {
+      img.getRow(j, row);
+      bImg.setRGB(0, j, row.length, 1, row, 0, row.length);
     }
-    placeHolderImage.setIcon(new ImageIcon(bImg));
+    return bImg;
   }
 
 
@@ -278,6 +385,12 @@ public class NewSwingView implements ISwingView {
     findScriptButton.addActionListener(listener);
     renameLayer.addActionListener(listener);
     exportAll.addActionListener(listener);
+    mosaicSeeds.addActionListener(listener);
+  }
+
+  @Override
+  public String[] getMosaicSettings() {
+    return new String[]{mosaicSeeds.getText().trim(), randomSeed.getText().trim()};
   }
 
   @Override
@@ -4,12 +4,18 @@ import model.image.BasicImage;
 import model.image.BasicPixel;
 import model.image.IImage;
 import model.image.IPixel;
+import model.image.PackedImage;
 import model.image.patterns.CheckerBoardCreator;
 import model.operations.OperationType;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test class that tests all behavior and exceptions for the BasicProcessorModel implementation of
@@ -52,6 +58,24 @@ public class BasicProcessorModelTests {
     assertEquals(mockImage.getHeight(), 1);
   }
 
+  // testing that immutable images are shared rather than copied
+  @Test
+  public void testImmutableImagesShared() {
+    IImage packed = new PackedImage(1, 1, new int[]{0x010203});
+    testModel.addImage(packed);
+    assertSame(packed, testModel.getImageAt(0));
+    assertSame(packed, testModel.removeAt(0));
+  }
+
+  // testing that images that could be mutated are still copied
+  @Test
+  public void testMutableImagesCopied() {
+    IImage basic = new BasicImage(1, 1, new IPixel[]{new BasicPixel(0, 0, 1, 2, 3)});
+    testModel.addImage(basic);
+    assertNotSame(basic, testModel.getImageAt(0));
+    assertEquals(basic.getPixelAt(0, 0), testModel.getImageAt(0).getPixelAt(0, 0));
+  }
+
   /*
   Testing core functionality
    */
@@ -372,4 +396,72 @@ public class BasicProcessorModelTests {
   public void testAddFromPatternGivenNull() {
     testModel.addFromPattern(null);
   }
+
+  @Test
+  // tests that applying several operations at once adds only the final result, the same as
+  // applying them one at a time
+  public void testApplyIOperations() {
+    int[] rgb = TestImages.pattern(30, 20);
+    testModel.addImage(new PackedImage(30, 20, rgb));
+    testModel.applyIOperation(OperationType.GREYSCALE, 0);
+    testModel.applyIOperation(OperationType.SEPIA, 1);
+    testModel.applyIOperation(OperationType.BLUR, 2);
+    testModel.applyIOperation(OperationType.SEPIA, 3);
+    testModel.applyIOperations(Arrays.asList(OperationType.GREYSCALE, OperationType.SEPIA,
+            OperationType.BLUR, OperationType.SEPIA), 0);
+    assertEquals(6, testModel.numImages());
+    IImage oneAtATime = testModel.getImageAt(4);
+    IImage atOnce = testModel.getImageAt(5);
+    for (int y = 0; y < 20; y++) {
+      for (int x = 0; x < 30; x++) {
+        assertEquals(oneAtATime.getPixelAt(x, y), atOnce.getPixelAt(x, y));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that applying several operations at once needs at least one
+  public void testApplyIOperationsEmpty() {
+    testModel.addImage(new PackedImage(1, 1, new int[1]));
+    testModel.applyIOperations(new ArrayList<>(), 0);
+  }
+
+  @Test
+  // tests that a mosaic with the same parameters is the same every time, and that the
+  // default number of seeds and random seed are used when not given
+  public void testApplyMosaicParameters() {
+    int[] rgb = TestImages.pattern(30, 20);
+    testModel.addImage(new PackedImage(30, 20, rgb));
+    testModel.applyIOperation(OperationType.MOSAIC, 0, 50, 9);
+    testModel.applyIOperation(OperationType.MOSAIC, 0, 50, 9);
+    testModel.applyIOperation(OperationType.MOSAIC, 0);
+    // 4% of 600 pixels, and a random seed of 0.
+    testModel.applyIOperation(OperationType.MOSAIC, 0, 24, 0);
+    testModel.applyIOperation(OperationType.MOSAIC, 0, 0);
+    assertEquals(6, testModel.numImages());
+    for (int y = 0; y < 20; y++) {
+      for (int x = 0; x < 30; x++) {
+        assertEquals(testModel.getImageAt(1).getPixelAt(x, y),
+                testModel.getImageAt(2).getPixelAt(x, y));
+        assertEquals(testModel.getImageAt(3).getPixelAt(x, y),
+                testModel.getImageAt(4).getPixelAt(x, y));
+        assertEquals(testModel.getImageAt(3).getPixelAt(x, y),
+                testModel.getImageAt(5).getPixelAt(x, y));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a mosaic can't have more seeds than pixels
+  public void testApplyMosaicTooManySeeds() {
+    testModel.addImage(new PackedImage(3, 3, new int[9]));
+    testModel.applyIOperation(OperationType.MOSAIC, 0, 10);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that operations without parameters can't be given any
+  public void testApplyOperationExtraParameters() {
+    testModel.addImage(new PackedImage(3, 3, new int[9]));
+    testModel.applyIOperation(OperationType.BLUR, 0, 1);
+  }
 }
@@ -0,0 +1,224 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.image.TiledImage;
+import model.operations.AbstractOperation;
+import model.operations.IOperationAdapter;
+import model.operations.IOperationAdapterImpl;
+import model.operations.OperationType;
+import model.operations.filter.BorderMode;
+import model.operations.filter.BoxBlurFilter;
+import model.operations.filter.BoxGaussianBlurFilter;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * A tester class for BoxBlurFilter and BoxGaussianBlurFilter, whose running sums must give the
+ * same pixels as summing every pixel of each square.
+ */
+public class BoxBlurTest {
+  private final int startingParallelism = AbstractOperation.getParallelism();
+
+  /**
+   * Puts the parallelism back to what it was before each test, so other tests aren't affected.
+   */
+  @After
+  public void restoreParallelism() {
+    AbstractOperation.setParallelism(this.startingParallelism);
+  }
+
+  /**
+   * Maps a position along one axis to the position read for it, the same way as BorderMode.
+   *
+   * @param mode   the BorderMode.
+   * @param index  position, which may be outside of the axis.
+   * @param length number of positions along the axis.
+   * @return the position to read, or -1 if nothing is read.
+   */
+  private static int map(BorderMode mode, int index, int length) {
+    switch (mode) {
+      case ZERO:
+        return index < 0 || index >= length ? -1 : index;
+      case CLAMP:
+        return Math.max(0, Math.min(length - 1, index));
+      case MIRROR:
+        if (length == 1) {
+          return 0;
+        }
+        int folded = Math.floorMod(index, 2 * (length - 1));
+        return folded < length ? folded : 2 * (length - 1) - folded;
+      default:
+        return Math.floorMod(index, length);
+    }
+  }
+
+  /**
+   * Computes one box blur pass the slow way, by summing every pixel of each square.
+   *
+   * @param rgb    row-major packed pixels.
+   * @param width  width of the image.
+   * @param height height of the image.
+   * @param radius radius of the square.
+   * @param mode   how to read pixels outside of the image.
+   * @return row-major packed pixels of the result.
+   */
+  private static int[] naiveBox(int[] rgb, int width, int height, int radius, BorderMode mode) {
+    int area = (2 * radius + 1) * (2 * radius + 1);
+    int[] out = new int[rgb.length];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int[] sums = new int[3];
+        for (int j = y - radius; j <= y + radius; j++) {
+          for (int i = x - radius; i <= x + radius; i++) {
+            int row = map(mode, j, height);
+            int col = map(mode, i, width);
+            if (row < 0 || col < 0) {
+              continue;
+            }
+            int pixel = rgb[row * width + col];
+            sums[0] += (pixel >> 16) & 0xFF;
+            sums[1] += (pixel >> 8) & 0xFF;
+            sums[2] += pixel & 0xFF;
+          }
+        }
+        out[y * width + x] = (sums[0] / area) << 16 | (sums[1] / area) << 8 | sums[2] / area;
+      }
+    }
+    return out;
+  }
+
+  @Test
+  // tests that a box blur gives the same pixels as summing every square, for every BorderMode,
+  // radii larger than the image, and both layouts
+  public void testMatchesNaive() {
+    int[][] sizes = {{13, 9}, {1, 5}, {6, 1}, {40, 31}};
+    for (int[] size : sizes) {
+      int[] rgb = TestImages.pattern(size[0], size[1]);
+      IImage packed = new PackedImage(size[0], size[1], rgb);
+      for (BorderMode mode : BorderMode.values()) {
+        for (int radius : new int[]{0, 1, 3, 12}) {
+          int[] expected = naiveBox(rgb, size[0], size[1], radius, mode);
+          assertArrayEquals(expected,
+                  TestImages.pixels(new BoxBlurFilter(packed, radius, mode).apply()));
+          assertArrayEquals(expected, TestImages.pixels(
+                  new BoxBlurFilter(PlanarImage.fromImage(packed), radius, mode).apply()));
+          if (radius > 0) {
+            assertArrayEquals(expected, TestImages.pixels(new IOperationAdapterImpl()
+                    .deferOperation(OperationType.BOX_BLUR, packed, radius, mode.ordinal())));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that the Gaussian approximation is three box blurs, one after another
+  public void testGaussianIsThreeBoxes() {
+    int[] rgb = TestImages.pattern(50, 40);
+    for (BorderMode mode : BorderMode.values()) {
+      for (double sigma : new double[]{0.5, 2, 4.7}) {
+        int[] radii = boxRadii(sigma);
+        int[] expected = rgb;
+        for (int radius : radii) {
+          expected = naiveBox(expected, 50, 40, radius, mode);
+        }
+        assertArrayEquals(expected, TestImages.pixels(new BoxGaussianBlurFilter(
+                new PackedImage(50, 40, rgb), sigma, mode).apply()));
+      }
+      // fused into one pass with the filter before it.
+      IOperationAdapter adapter = new IOperationAdapterImpl();
+      IImage img = new PackedImage(50, 40, rgb);
+      IImage eager = adapter.adaptOperation(OperationType.BOX_GAUSSIAN_BLUR,
+              adapter.adaptOperation(OperationType.SHARPEN, img), 2, mode.ordinal());
+      IImage deferred = adapter.deferOperation(OperationType.BOX_GAUSSIAN_BLUR,
+              adapter.deferOperation(OperationType.SHARPEN, img), 2, mode.ordinal());
+      TestImages.assertSameImage(eager, deferred);
+    }
+  }
+
+  /**
+   * Chooses the radii of the three box blurs for a sigma, the same way as
+   * BoxGaussianBlurFilter, and checks that they are within 1 of each other.
+   *
+   * @param sigma standard deviation of the Gaussian.
+   * @return radius of each pass.
+   */
+  private static int[] boxRadii(double sigma) {
+    double ideal = Math.sqrt(12 * sigma * sigma / 3 + 1);
+    int lower = (int) Math.floor(ideal);
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    long smaller = Math.round((12 * sigma * sigma - 3.0 * lower * lower - 12.0 * lower - 9)
+            / (-4.0 * lower - 4));
+    int[] radii = new int[3];
+    for (int i = 0; i < 3; i++) {
+      radii[i] = ((i < smaller ? lower : lower + 2) - 1) / 2;
+    }
+    assertTrue(radii[2] - radii[0] <= 1);
+    return radii;
+  }
+
+  @Test
+  // tests that computing a band of rows at a time, as for TiledImages and deferred chains,
+  // gives the same pixels as the whole image at once, on any number of threads
+  public void testBandsMatchWholeImage() {
+    // tall enough for the TiledImage to be split into bands even on one thread.
+    int width = 1100;
+    int height = 1000;
+    int[] rgb = TestImages.pattern(width, height);
+    IImageBuilder builder = TiledImage.builder(width, height);
+    builder.setRows(0, height, rgb, 0);
+    IImage tiled = builder.build();
+    IImage packed = new PackedImage(width, height, rgb);
+    IOperationAdapter adapter = new IOperationAdapterImpl();
+    for (int threads : new int[]{1, 4}) {
+      AbstractOperation.setParallelism(threads);
+      for (BorderMode mode : new BorderMode[]{BorderMode.ZERO, BorderMode.MIRROR}) {
+        IImage expected = new BoxGaussianBlurFilter(packed, 6, mode).apply();
+        TestImages.assertSameImage(expected, new BoxGaussianBlurFilter(tiled, 6, mode).apply());
+        IImage deferred = adapter.deferOperation(OperationType.BOX_GAUSSIAN_BLUR, packed, 6,
+                mode.ordinal());
+        TestImages.assertSameImage(expected, deferred);
+      }
+    }
+  }
+
+  @Test
+  // tests that the operation types take their default parameters, and check them
+  public void testOperationTypes() {
+    IImage img = new PackedImage(30, 30, TestImages.pattern(30, 30));
+    IOperationAdapter adapter = new IOperationAdapterImpl();
+    TestImages.assertSameImage(new BoxBlurFilter(img, 10).apply(),
+            adapter.adaptOperation(OperationType.BOX_BLUR, img));
+    TestImages.assertSameImage(new BoxGaussianBlurFilter(img, 3, BorderMode.CLAMP).apply(),
+            adapter.adaptOperation(OperationType.BOX_GAUSSIAN_BLUR, img, 3, 1));
+    long[][] invalid = {{-1}, {BoxBlurFilter.MAX_RADIUS + 1}, {5, 4}, {5, -1}, {1, 2, 3}};
+    int failures = 0;
+    for (long[] parameters : invalid) {
+      try {
+        adapter.adaptOperation(OperationType.BOX_BLUR, img, parameters);
+      } catch (IllegalArgumentException e) {
+        failures++;
+      }
+    }
+    assertEquals(invalid.length, failures);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a negative radius can't be constructed
+  public void testNegativeRadius() {
+    new BoxBlurFilter(new PackedImage(2, 2, TestImages.pattern(2, 2)), -1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that sigma must be positive
+  public void testZeroSigma() {
+    new BoxGaussianBlurFilter(new PackedImage(2, 2, TestImages.pattern(2, 2)), 0);
+  }
+}
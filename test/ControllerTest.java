@@ -6,6 +6,7 @@ import java.util.Arrays;
 
 import model.ILayeredModel;
 import model.LayeredProcessorModel;
+import model.image.IImage;
 import org.junit.Test;
 import view.BasicView;
 import view.IImageView;
@@ -222,4 +223,124 @@ public class ControllerTest {
     // assert there is only one layer left.
     assertEquals(processor.numImages(), 1);
   }
+
+  @Test
+  // test each strength of gaussian blur
+  public void gaussianBlur() {
+    Readable rd = new StringReader("add blank\ngaussian blur small\ngaussian blur medium\n"
+            + "gaussian blur large\n");
+    IController c = new ImageController(processor, rd, view);
+    c.startProcessing();
+    assertEquals(sb.toString(), "Enter command or type directory of script: \n"
+            + "add blank performed. created blank layer #1\n"
+            + "applied gaussian blur small on layer #1\n"
+            + "applied gaussian blur medium on layer #1\n"
+            + "applied gaussian blur large on layer #1\n"
+            + "Pleasure working with you :)");
+  }
+
+  @Test
+  // tests that a run of color transformations in a script gives the same messages and image
+  // as running them one at a time, even with comments and blank lines in between
+  public void colorTransformRun() {
+    String script = "import res/potat.ppm\ngreyscale\n# a comment\n\nsepia # sepia again\n"
+            + "sepia\nblur\nsepia\n";
+    ILayeredModel oneAtATime = new LayeredProcessorModel();
+    new ImageController(oneAtATime, new StringReader(script),
+            new BasicView(new StringBuilder())).startProcessing();
+    IController c = new ImageController(processor, new StringReader(script), view, true);
+    c.startProcessing();
+    assertEquals("Enter command or type directory of script: \n"
+            + "imported res/potat.ppm successfully!\n"
+            + "applied greyscale on layer #1\n"
+            + "applied sepia on layer #1\n"
+            + "applied sepia on layer #1\n"
+            + "applied blur on layer #1\n"
+            + "applied sepia on layer #1\n"
+            + "Pleasure working with you :)", sb.toString());
+    IImage expected = oneAtATime.getImageAt(0);
+    IImage actual = processor.getImageAt(0);
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getPixelAt(x, y), actual.getPixelAt(x, y));
+      }
+    }
+  }
+
+  @Test
+  // tests a run of color transformations in a script with no layers to apply them to
+  public void colorTransformRunNoLayers() {
+    IController c = new ImageController(processor,
+            new StringReader("greyscale\nsepia\nclose program\nsepia"), view, true);
+    c.startProcessing();
+    assertEquals("Enter command or type directory of script: \n"
+            + "no layers present\n"
+            + "no layers present\n"
+            + "Pleasure working with you :)", sb.toString());
+  }
+
+  @Test
+  // tests that running the same mosaic script twice gives exactly the same image, and that
+  // a different random seed gives a different one
+  public void mosaicScriptIsReproducible() {
+    String script = "import res/potat.ppm\nmosaic 300 7 # seeded\n";
+    IController c = new ImageController(processor, new StringReader(script), view);
+    c.startProcessing();
+    assertEquals("Enter command or type directory of script: \n"
+            + "imported res/potat.ppm successfully!\n"
+            + "applied mosaic 300 7 on layer #1\n"
+            + "Pleasure working with you :)", sb.toString());
+
+    ILayeredModel again = new LayeredProcessorModel();
+    new ImageController(again, new StringReader(script),
+            new BasicView(new StringBuilder())).startProcessing();
+    ILayeredModel otherSeed = new LayeredProcessorModel();
+    new ImageController(otherSeed, new StringReader("import res/potat.ppm\nmosaic 300 8\n"),
+            new BasicView(new StringBuilder())).startProcessing();
+    IImage expected = processor.getImageAt(0);
+    boolean anyDifferent = false;
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals(expected.getPixelAt(x, y), again.getImageAt(0).getPixelAt(x, y));
+        anyDifferent |= !expected.getPixelAt(x, y)
+                .equals(otherSeed.getImageAt(0).getPixelAt(x, y));
+      }
+    }
+    assertEquals(true, anyDifferent);
+  }
+
+  @Test
+  // tests the messages of mosaic commands that can't be applied
+  public void mosaicScriptFailures() {
+    IController c = new ImageController(processor, new StringReader(
+            "mosaic 5\nadd blank\nmosaic five\nmosaic 1 2 3 4\nmosaic 1 2 3\n"
+                    + "mosaic 99999999\nmosaic\n"),
+            view);
+    c.startProcessing();
+    assertEquals("Enter command or type directory of script: \n"
+            + "no layers present\n"
+            + "add blank performed. created blank layer #1\n"
+            + "Command failed: format is \"mosaic [seeds] [random seed] [engine]\"\n"
+            + "Command failed: format is \"mosaic [seeds] [random seed] [engine]\"\n"
+            + "Command failed: mosaic engine must be between 0 and 1\n"
+            + "Command failed: number of seeds must be between 1 and the number of pixels\n"
+            + "applied mosaic on layer #1\n"
+            + "Pleasure working with you :)", sb.toString());
+  }
+
+  @Test
+  // tests the grid mosaic commands, with and without a cell size
+  public void gridMosaicScript() {
+    IController c = new ImageController(processor, new StringReader(
+            "add blank\nsquare mosaic 8\nhex mosaic\nhex mosaic 0\nsquare mosaic 3 4\n"),
+            view);
+    c.startProcessing();
+    assertEquals("Enter command or type directory of script: \n"
+            + "add blank performed. created blank layer #1\n"
+            + "applied square mosaic 8 on layer #1\n"
+            + "applied hex mosaic on layer #1\n"
+            + "Command failed: cell size must be a positive int\n"
+            + "Command failed: format is \"square mosaic [cell size]\"\n"
+            + "Pleasure working with you :)", sb.toString());
+  }
 }
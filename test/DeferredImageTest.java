@@ -0,0 +1,162 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import model.LayeredProcessorModel;
+import model.image.BasicImage;
+import model.image.IImage;
+import model.image.IPixel;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.AbstractOperation;
+import model.operations.DeferredImage;
+import model.operations.IOperationAdapter;
+import model.operations.IOperationAdapterImpl;
+import model.operations.OperationType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A tester class for deferred operations, whose chains are computed in a single pass when read
+ * and must give exactly the same pixels as applying each operation right away.
+ */
+public class DeferredImageTest {
+  private final int startingParallelism = AbstractOperation.getParallelism();
+  private final IOperationAdapter adapter = new IOperationAdapterImpl();
+
+  /**
+   * Puts the parallelism back to what it was before each test, so other tests aren't affected.
+   */
+  @After
+  public void restoreParallelism() {
+    AbstractOperation.setParallelism(this.startingParallelism);
+  }
+
+  /**
+   * Applies the given operations one after another right away, and deferred, and asserts that
+   * both give the same image.
+   *
+   * @param img        image to apply the operations to.
+   * @param operations operations to apply, first to last.
+   */
+  private void assertDeferredMatches(IImage img, List<OperationType> operations) {
+    IImage eager = img;
+    IImage deferred = img;
+    for (OperationType type : operations) {
+      eager = this.adapter.adaptOperation(type, eager);
+      deferred = this.adapter.deferOperation(type, deferred);
+    }
+    assertTrue(deferred instanceof DeferredImage);
+    assertFalse(((DeferredImage) deferred).isEvaluated());
+    TestImages.assertSameImage(eager, deferred);
+    assertTrue(((DeferredImage) deferred).isEvaluated());
+    assertEquals(eager.getClass(), ((DeferredImage) deferred).evaluate().getClass());
+  }
+
+  @Test
+  // tests that chains of filters and color transforms give the same pixels deferred, on images
+  // tall enough to be split into several bands, with any number of threads
+  public void testChainsMatchEager() {
+    List<List<OperationType>> chains = Arrays.asList(
+            Arrays.asList(OperationType.BLUR, OperationType.SHARPEN, OperationType.SEPIA),
+            Arrays.asList(OperationType.SEPIA, OperationType.GREYSCALE, OperationType.BLUR,
+                    OperationType.GAUSSIAN_BLUR_LARGE, OperationType.SEPIA),
+            Arrays.asList(OperationType.GAUSSIAN_BLUR_MEDIUM, OperationType.SHARPEN,
+                    OperationType.SHARPEN, OperationType.GREYSCALE),
+            Arrays.asList(OperationType.GREYSCALE));
+    IImage packed = new PackedImage(300, 700, TestImages.pattern(300, 700));
+    for (int threads : new int[]{1, 3}) {
+      AbstractOperation.setParallelism(threads);
+      for (List<OperationType> chain : chains) {
+        this.assertDeferredMatches(packed, chain);
+        this.assertDeferredMatches(PlanarImage.fromImage(packed), chain);
+      }
+    }
+  }
+
+  @Test
+  // tests that small images, where the halos cover every row, still give the same pixels
+  public void testSmallImagesMatchEager() {
+    List<OperationType> chain = Arrays.asList(OperationType.SHARPEN, OperationType.BLUR,
+            OperationType.GAUSSIAN_BLUR_SMALL, OperationType.SEPIA);
+    int[][] sizes = {{1, 1}, {5, 3}, {3, 9}, {17, 6}};
+    for (int[] size : sizes) {
+      this.assertDeferredMatches(new PackedImage(size[0], size[1],
+              TestImages.pattern(size[0], size[1])), chain);
+    }
+  }
+
+  @Test
+  // tests that mosaics, which need the whole image, can be in the middle of a chain
+  public void testMosaicInChain() {
+    IImage img = new PackedImage(60, 50, TestImages.pattern(60, 50));
+    this.assertDeferredMatches(img, Arrays.asList(OperationType.BLUR, OperationType.SEPIA,
+            OperationType.MOSAIC, OperationType.SHARPEN, OperationType.HEX_MOSAIC,
+            OperationType.GREYSCALE));
+  }
+
+  @Test(timeout = 60000)
+  // tests that mosaics after deferred filters, which read the filtered image from the threads
+  // they average cells on, give the same pixels with several threads without waiting forever
+  public void testMosaicAfterChainInParallel() {
+    AbstractOperation.setParallelism(4);
+    IImage img = new PackedImage(600, 400, TestImages.pattern(600, 400));
+    this.assertDeferredMatches(img, Arrays.asList(OperationType.BLUR, OperationType.MOSAIC));
+    this.assertDeferredMatches(img, Arrays.asList(OperationType.SEPIA, OperationType.SHARPEN,
+            OperationType.HEX_MOSAIC, OperationType.BLUR));
+  }
+
+  @Test
+  // tests that images that aren't immutable are copied, and give the same pixels
+  public void testMutableSource() {
+    IImage packed = new PackedImage(20, 10, TestImages.pattern(20, 10));
+    IPixel[] pixels = new IPixel[200];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = packed.getPixelAt(i % 20, i / 20);
+    }
+    this.assertDeferredMatches(new BasicImage(20, 10, pixels),
+            Arrays.asList(OperationType.SHARPEN, OperationType.SEPIA));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that invalid parameters throw when the operation is deferred, not when it is read
+  public void testInvalidParametersThrowRightAway() {
+    IImage img = new PackedImage(4, 4, TestImages.pattern(4, 4));
+    this.adapter.deferOperation(OperationType.MOSAIC, img, 17);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that deferring onto null throws
+  public void testDeferNull() {
+    this.adapter.deferOperation(OperationType.BLUR, null);
+  }
+
+  @Test
+  // tests that a model in deferred mode only computes a layer once it is read, and holds the
+  // same pixels as one that computes it right away
+  public void testDeferredModel() {
+    IImage img = new PackedImage(40, 30, TestImages.pattern(40, 30));
+    LayeredProcessorModel eager = new LayeredProcessorModel();
+    LayeredProcessorModel deferred = new LayeredProcessorModel();
+    assertFalse(deferred.isDeferred());
+    deferred.setDeferred(true);
+    assertTrue(deferred.isDeferred());
+    for (LayeredProcessorModel model : Arrays.asList(eager, deferred)) {
+      model.addImage(img);
+      model.applyIOperation(OperationType.BLUR, 0);
+      model.applyIOperations(Arrays.asList(OperationType.SEPIA, OperationType.SHARPEN), 0);
+      model.applyIOperation(OperationType.MOSAIC, 0, 50, 3);
+    }
+    IImage layer = deferred.getImageAt(0);
+    assertTrue(layer instanceof DeferredImage);
+    assertFalse(((DeferredImage) layer).isEvaluated());
+    TestImages.assertSameImage(eager.getImageAt(0), layer);
+
+    deferred.setDeferred(false);
+    deferred.applyIOperation(OperationType.GREYSCALE, 0);
+    assertFalse(deferred.getImageAt(0) instanceof DeferredImage);
+  }
+}
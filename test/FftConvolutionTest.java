@@ -0,0 +1,160 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import model.image.IImage;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.AbstractOperation;
+import model.operations.filter.AbstractFilter;
+import model.operations.filter.BorderMode;
+import model.operations.filter.ConvolutionFilter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A tester class for applying large kernels through their Fourier transforms, which must give
+ * channels within 1 of summing every kernel entry.
+ */
+public class FftConvolutionTest {
+  /**
+   * Puts the kernel size back to the defaults after each test, so other tests aren't affected.
+   */
+  @After
+  public void restoreFftKernelSize() {
+    AbstractFilter.setFftKernelSize(0);
+  }
+
+  /**
+   * Creates a kernel that isn't separable: a line along the diagonal, like a motion blur, plus
+   * random weights that add up to about 0.
+   *
+   * @param size length of the kernel.
+   * @param seed seed of the random weights.
+   * @return the kernel.
+   */
+  private static double[][] motionKernel(int size, long seed) {
+    Random rand = new Random(seed);
+    double[][] kernel = new double[size][size];
+    for (int r = 0; r < size; r++) {
+      kernel[r][r] = 1.0 / size;
+      for (int c = 0; c < size; c++) {
+        kernel[r][c] += (rand.nextDouble() - 0.5) / (size * size);
+      }
+    }
+    return kernel;
+  }
+
+  /**
+   * Applies a kernel with and without the Fourier transforms, and asserts that every channel is
+   * within 1, returning how many pixels differ at all.
+   *
+   * @param img    image to filter.
+   * @param kernel kernel to apply.
+   * @param mode   how to read pixels outside of the image.
+   * @return number of pixels that aren't identical.
+   */
+  private static int assertWithinOne(IImage img, double[][] kernel, BorderMode mode) {
+    AbstractFilter.setFftKernelSize(Integer.MAX_VALUE);
+    int[] direct = TestImages.pixels(new ConvolutionFilter(img, kernel, mode).apply());
+    AbstractFilter.setFftKernelSize(1);
+    int[] fft = TestImages.pixels(new ConvolutionFilter(img, kernel, mode).apply());
+    int differing = 0;
+    for (int i = 0; i < direct.length; i++) {
+      for (int shift = 0; shift <= 16; shift += 8) {
+        int expected = (direct[i] >> shift) & 0xFF;
+        int actual = (fft[i] >> shift) & 0xFF;
+        assertTrue("pixel " + i + ": " + expected + " vs " + actual,
+                Math.abs(expected - actual) <= 1);
+      }
+      if (direct[i] != fft[i]) {
+        differing++;
+      }
+    }
+    return differing;
+  }
+
+  @Test
+  // tests that large kernels agree with summing directly for every BorderMode, on images both
+  // smaller and larger than a tile, in both layouts
+  public void testMatchesDirect() {
+    int[][] sizes = {{9, 7}, {130, 75}};
+    for (int[] size : sizes) {
+      IImage packed = new PackedImage(size[0], size[1], TestImages.pattern(size[0], size[1]));
+      for (BorderMode mode : BorderMode.values()) {
+        for (int length : new int[]{15, 21}) {
+          double[][] kernel = motionKernel(length, length);
+          int differing = assertWithinOne(packed, kernel, mode);
+          differing += assertWithinOne(PlanarImage.fromImage(packed), kernel, mode);
+          // only sums within a hair of a whole number may be rounded the other way.
+          assertTrue(differing <= size[0] * size[1] / 100);
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that a uniform kernel over flat colors, whose sums are whole numbers, is identical
+  public void testWholeSumsIdentical() {
+    int[] rgb = new int[40 * 30];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = i < rgb.length / 2 ? 0x102030 : 0xF0E0D0;
+    }
+    double[][] kernel = new double[17][17];
+    for (double[] row : kernel) {
+      Arrays.fill(row, 1.0 / 16);
+    }
+    // not separable once one corner is changed.
+    kernel[0][0] = 0;
+    assertEquals(0, assertWithinOne(new PackedImage(40, 30, rgb), kernel, BorderMode.CLAMP));
+  }
+
+  @Test
+  // tests that the kernel is checked and copied on construction
+  public void testConvolutionFilterKernel() {
+    IImage img = new PackedImage(3, 3, TestImages.pattern(3, 3));
+    double[][] kernel = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
+    ConvolutionFilter filter = new ConvolutionFilter(img, kernel);
+    kernel[1][1] = 0;
+    int[] out = new int[9];
+    filter.apply().getRegion(0, 0, 3, 3, out, 0, 3);
+    int[] expected = TestImages.pattern(3, 3);
+    for (int i = 0; i < out.length; i++) {
+      assertEquals(expected[i], out[i]);
+    }
+    double[][][] invalid = {null, new double[2][2], {{1, 2, 3}, {1, 2}, {1, 2, 3}}};
+    int failures = 0;
+    for (double[][] bad : invalid) {
+      try {
+        new ConvolutionFilter(img, bad);
+      } catch (IllegalArgumentException e) {
+        failures++;
+      }
+    }
+    assertEquals(invalid.length, failures);
+  }
+
+  @Test
+  // tests that the kernel size can be set, and set back to the default whether the vector
+  // kernels are used or not
+  public void testSetFftKernelSize() {
+    AbstractFilter.setFftKernelSize(40);
+    assertEquals(40, AbstractFilter.getFftKernelSize());
+    AbstractFilter.setFftKernelSize(0);
+    assertEquals(AbstractFilter.DEFAULT_FFT_KERNEL_SIZE, AbstractFilter.getFftKernelSize());
+    boolean vectorized = AbstractOperation.isVectorized();
+    if (AbstractOperation.isVectorAvailable()) {
+      AbstractOperation.setVectorized(!vectorized);
+      assertEquals(AbstractFilter.DEFAULT_FFT_KERNEL_SIZE, AbstractFilter.getFftKernelSize());
+      AbstractOperation.setVectorized(vectorized);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that the kernel size can't be negative
+  public void testNegativeFftKernelSize() {
+    AbstractFilter.setFftKernelSize(-1);
+  }
+}
@@ -3,11 +3,18 @@ import model.image.BasicImage;
 import model.image.BasicPixel;
 import model.image.IImage;
 import model.image.IPixel;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
 import model.operations.IOperation;
 import model.operations.filter.BlurFilter;
+import model.operations.filter.BorderMode;
+import model.operations.filter.GaussianBlurFilter;
 import model.operations.filter.SharpenFilter;
 import org.junit.Test;
 
+import java.util.Arrays;
+
 
 /**
  * A tester class for the model.operations.filter.AbstractFilter class and subclassses, also tests
@@ -109,4 +116,252 @@ public class FilterTest {
     assertEquals(32, edited.getPixelAt(1, 0).getRed());
     assertEquals(44, edited.getPixelAt(1, 1).getRed());
   }
+
+  /**
+   * Creates a Gaussian blur that applies its full kernel, which GaussianBlurFilter never builds
+   * itself, instead of two passes of its factors.
+   *
+   * @param img   image to blur.
+   * @param sigma standard deviation of the Gaussian.
+   * @param mode  how to read pixels outside of the image.
+   * @return the blur, ready to be applied.
+   */
+  private static IOperation fullGaussian(IImage img, double sigma, BorderMode mode) {
+    return new GaussianBlurFilter(img, sigma, mode) {
+      {
+        double[][] factors = super.kernelFactors();
+        this.kernel = new double[factors[0].length][factors[1].length];
+        for (int r = 0; r < factors[0].length; r++) {
+          for (int c = 0; c < factors[1].length; c++) {
+            this.kernel[r][c] = factors[0][r] * factors[1][c];
+          }
+        }
+      }
+
+      @Override
+      protected double[][] kernelFactors() {
+        // forces the full kernel to be used.
+        return null;
+      }
+    };
+  }
+
+  @Test
+  // tests that applying a Gaussian blur as two passes gives the same pixels as applying its
+  // full kernel, on both packed and planar images
+  public void testGaussianSeparableMatchesFull() {
+    IImage packed = TestImages.patternImage(23, 17);
+    for (IImage img : new IImage[]{packed, PlanarImage.fromImage(packed)}) {
+      IOperation full = fullGaussian(img, 2.5, BorderMode.ZERO);
+      TestImages.assertSameImage(full.apply(), new GaussianBlurFilter(img, 2.5).apply());
+    }
+  }
+
+  @Test
+  // tests that an area of a single color keeps exactly that color after any Gaussian blur
+  public void testGaussianKeepsFlatColor() {
+    int[] rgb = new int[40 * 40];
+    Arrays.fill(rgb, 0xFF0701);
+    IImage flat = new PackedImage(40, 40, rgb);
+    for (double sigma : new double[]{0.5, 1, 3, 4.7}) {
+      assertEquals(new BasicPixel(20, 20, 255, 7, 1),
+              new GaussianBlurFilter(flat, sigma).apply().getPixelAt(20, 20));
+    }
+  }
+
+  @Test
+  // tests that the Gaussian blur reaches 3 sigma away, and no further
+  public void testGaussianRadius() {
+    // a red vertical line down the middle of a 9x9 image.
+    IPixel[] pixels = new IPixel[81];
+    for (int i = 0; i < 81; i++) {
+      pixels[i] = new BasicPixel(i % 9, i / 9, i % 9 == 4 ? 255 : 0, 0, 0);
+    }
+    IImage edited = new GaussianBlurFilter(new BasicImage(9, 9, pixels), 1).apply();
+    assertEquals(0, edited.getPixelAt(0, 4).getRed());
+    assertEquals(0, edited.getPixelAt(8, 4).getRed());
+    // 3 pixels away gets e^(-4.5) of the weight of the center, about 0.0044 of 255.
+    assertEquals(1, edited.getPixelAt(1, 4).getRed());
+    assertEquals(1, edited.getPixelAt(7, 4).getRed());
+  }
+
+  @Test
+  // tests that the largest sigma, whose full kernel would be 6001 x 6001, is applied from its
+  // factors alone
+  public void testGaussianLargestSigma() {
+    int[] rgb = new int[20 * 20];
+    Arrays.fill(rgb, 0x3080C0);
+    IImage blurred = new GaussianBlurFilter(new PackedImage(20, 20, rgb), 1000,
+            BorderMode.CLAMP).apply();
+    assertEquals(new BasicPixel(7, 3, 0x30, 0x80, 0xC0), blurred.getPixelAt(7, 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that sigma must be positive
+  public void testGaussianZeroSigma() {
+    new GaussianBlurFilter(this.img, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that sigma must be a number
+  public void testGaussianNaNSigma() {
+    new GaussianBlurFilter(this.img, Double.NaN);
+  }
+
+  @Test
+  // tests that the 3x3 blur is still exactly the same as before now that it is separable
+  public void testBlurSeparableMatchesFull() {
+    IImage img = TestImages.patternImage(11, 7);
+    IOperation full = new BlurFilter(img) {
+      @Override
+      protected double[][] kernelFactors() {
+        // forces the full kernel to be used.
+        return null;
+      }
+    };
+    TestImages.assertSameImage(full.apply(), new BlurFilter(img).apply());
+  }
+
+  /**
+   * Maps a position along one axis the way the given BorderMode should, written out the long
+   * way to check the filters against.
+   *
+   * @param mode   the border mode.
+   * @param index  position along the axis, which may be outside of the image.
+   * @param length number of pixels along the axis.
+   * @return position to read from, or -1 if nothing should be read.
+   */
+  private static int borderIndex(BorderMode mode, int index, int length) {
+    switch (mode) {
+      case CLAMP:
+        return Math.max(0, Math.min(length - 1, index));
+      case MIRROR:
+        while (index < 0 || index >= length) {
+          index = index < 0 ? -index : 2 * (length - 1) - index;
+        }
+        return index;
+      case WRAP:
+        return ((index % length) + length) % length;
+      default:
+        return index < 0 || index >= length ? -1 : index;
+    }
+  }
+
+  /**
+   * Applies the given kernel to every pixel of the image one tap at a time, reading pixels
+   * outside of the image according to the given BorderMode.
+   *
+   * @param img    image to filter.
+   * @param kernel square kernel with an odd length, indexed by x offset and then y offset.
+   * @param mode   how to read pixels outside of the image.
+   * @return the filtered image.
+   */
+  private static IImage referenceFilter(IImage img, double[][] kernel, BorderMode mode) {
+    int offset = kernel.length / 2;
+    int[] rgb = new int[img.getWidth() * img.getHeight()];
+    for (int y = 0; y < img.getHeight(); y++) {
+      for (int x = 0; x < img.getWidth(); x++) {
+        double[] sums = new double[3];
+        for (int r = 0; r < kernel.length; r++) {
+          for (int c = 0; c < kernel.length; c++) {
+            int kx = borderIndex(mode, x + r - offset, img.getWidth());
+            int ky = borderIndex(mode, y + c - offset, img.getHeight());
+            if (kx >= 0 && ky >= 0) {
+              IPixel p = img.getPixelAt(kx, ky);
+              sums[0] += p.getRed() * kernel[r][c];
+              sums[1] += p.getGreen() * kernel[r][c];
+              sums[2] += p.getBlue() * kernel[r][c];
+            }
+          }
+        }
+        rgb[y * img.getWidth() + x] = RgbUtils.pack((int) sums[0], (int) sums[1],
+                (int) sums[2]);
+      }
+    }
+    return new PackedImage(img.getWidth(), img.getHeight(), rgb);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a filter cannot be given a null border mode
+  public void testBorderModeGivenNull() {
+    new BlurFilter(this.img, null);
+  }
+
+  @Test
+  // tests blur and sharpen with every border mode against applying their kernels one tap at a
+  // time, on both packed and planar images
+  public void testBorderModesMatchReference() {
+    double[][] blur = {{0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    double[][] sharpen = new double[5][5];
+    for (double[] row : sharpen) {
+      Arrays.fill(row, -0.125);
+    }
+    for (int r = 1; r < 4; r++) {
+      Arrays.fill(sharpen[r], 1, 4, 0.25);
+    }
+    sharpen[2][2] = 1;
+    for (BorderMode mode : BorderMode.values()) {
+      // 4 rows is shorter than the sharpen kernel reaches, so mirroring has to bounce.
+      IImage tall = TestImages.patternImage(13, 9);
+      IImage shortImg = TestImages.patternImage(6, 4);
+      for (IImage img : new IImage[]{tall, PlanarImage.fromImage(tall),
+          shortImg, PlanarImage.fromImage(shortImg)}) {
+        TestImages.assertSameImage(referenceFilter(img, blur, mode),
+                new BlurFilter(img, mode).apply());
+        TestImages.assertSameImage(referenceFilter(img, sharpen, mode),
+                new SharpenFilter(img, mode).apply());
+      }
+    }
+  }
+
+  @Test
+  // tests that the two passes of a Gaussian blur give the same pixels as its full kernel with
+  // every border mode
+  public void testGaussianBorderModesSeparableMatchesFull() {
+    for (BorderMode mode : BorderMode.values()) {
+      IImage packed = TestImages.patternImage(15, 8);
+      for (IImage img : new IImage[]{packed, PlanarImage.fromImage(packed)}) {
+        IOperation full = fullGaussian(img, 1.5, mode);
+        TestImages.assertSameImage(full.apply(),
+                new GaussianBlurFilter(img, 1.5, mode).apply());
+      }
+    }
+  }
+
+  @Test
+  // tests what a blur reads past the corner of the image with each border mode
+  public void testBlurBorderModesAtCorner() {
+    // a single red pixel in the top left corner.
+    int[] rgb = new int[25];
+    rgb[0] = 0xFF0000;
+    IImage corner = new PackedImage(5, 5, rgb);
+    // only the center weight of 1/4 reads the pixel itself.
+    assertEquals(63, new BlurFilter(corner, BorderMode.ZERO).apply().getPixelAt(0, 0).getRed());
+    // -1 mirrors to 1, so it still only reads the pixel once.
+    assertEquals(63,
+            new BlurFilter(corner, BorderMode.MIRROR).apply().getPixelAt(0, 0).getRed());
+    // -1 clamps to 0, so the pixel is read for 1/16 + 1/8 + 1/8 + 1/4 of the weight.
+    assertEquals(143,
+            new BlurFilter(corner, BorderMode.CLAMP).apply().getPixelAt(0, 0).getRed());
+    // the opposite corner wraps around to read the pixel for 1/16 of the weight.
+    IImage wrapped = new BlurFilter(corner, BorderMode.WRAP).apply();
+    assertEquals(15, wrapped.getPixelAt(4, 4).getRed());
+    assertEquals(0, new BlurFilter(corner, BorderMode.ZERO).apply().getPixelAt(4, 4).getRed());
+  }
+
+  @Test
+  // tests that only zero padding darkens the edges of an image of a single color
+  public void testBorderModesKeepFlatColor() {
+    int[] rgb = new int[8 * 6];
+    Arrays.fill(rgb, 0x80C020);
+    IImage flat = new PackedImage(8, 6, rgb);
+    for (BorderMode mode : new BorderMode[]{BorderMode.CLAMP, BorderMode.MIRROR,
+        BorderMode.WRAP}) {
+      TestImages.assertSameImage(flat, new BlurFilter(flat, mode).apply());
+      TestImages.assertSameImage(flat, new SharpenFilter(flat, mode).apply());
+      TestImages.assertSameImage(flat, new GaussianBlurFilter(flat, 2, mode).apply());
+    }
+    assertEquals(72, new BlurFilter(flat, BorderMode.ZERO).apply().getPixelAt(0, 0).getRed());
+  }
 }
@@ -0,0 +1,138 @@
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import model.image.IImage;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.AbstractOperation;
+import model.operations.filter.AbstractFilter;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.BorderMode;
+import model.operations.filter.ConvolutionFilter;
+import model.operations.filter.GaussianBlurFilter;
+import model.operations.filter.SharpenFilter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * A tester class for applying kernels with integer sums, which must give exactly the same
+ * pixels as applying them with doubles.
+ */
+public class FixedPointFilterTest {
+  private final int startingParallelism = AbstractOperation.getParallelism();
+
+  /**
+   * Turns integer sums back on and puts the parallelism back after each test, so other tests
+   * aren't affected.
+   */
+  @After
+  public void restore() {
+    AbstractFilter.setFixedPoint(true);
+    AbstractOperation.setParallelism(this.startingParallelism);
+  }
+
+  /**
+   * Applies a filter with integer sums and with doubles, to a packed and a planar image, and
+   * asserts that all four give the same pixels.
+   *
+   * @param filter function from an image to the filter to apply to it.
+   * @param img    the image to filter.
+   */
+  private static void assertSameBothWays(Function<IImage, AbstractFilter> filter,
+                                         IImage img) {
+    AbstractFilter.setFixedPoint(false);
+    IImage expected = filter.apply(img).apply();
+    TestImages.assertSameImage(expected, filter.apply(PlanarImage.fromImage(img)).apply());
+    AbstractFilter.setFixedPoint(true);
+    TestImages.assertSameImage(expected, filter.apply(img).apply());
+    TestImages.assertSameImage(expected, filter.apply(PlanarImage.fromImage(img)).apply());
+  }
+
+  /**
+   * Creates a kernel of random multiples of 2^-shift, some negative, which isn't separable.
+   *
+   * @param size  length of the kernel.
+   * @param shift exponent of the power of 2 the weights are multiples of.
+   * @param rand  source of the weights.
+   * @return the kernel.
+   */
+  private static double[][] dyadicKernel(int size, int shift, Random rand) {
+    double[][] kernel = new double[size][size];
+    for (int r = 0; r < size; r++) {
+      for (int c = 0; c < size; c++) {
+        kernel[r][c] = Math.scalb((double) rand.nextInt(9) - 3, -shift);
+      }
+    }
+    return kernel;
+  }
+
+  @Test
+  // tests that blur and sharpen give the same pixels with integer sums, for every BorderMode,
+  // sizes smaller than their kernels, and any number of threads
+  public void testBlurAndSharpen() {
+    int[][] sizes = {{1, 1}, {3, 2}, {13, 9}, {120, 301}};
+    for (int threads : new int[]{1, 3}) {
+      AbstractOperation.setParallelism(threads);
+      for (int[] size : sizes) {
+        IImage img = new PackedImage(size[0], size[1], TestImages.pattern(size[0], size[1]));
+        for (BorderMode mode : BorderMode.values()) {
+          assertSameBothWays(image -> new BlurFilter(image, mode), img);
+          assertSameBothWays(image -> new SharpenFilter(image, mode), img);
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that kernels of random multiples of powers of 2, separable or not, and with negative
+  // weights, give the same pixels with integer sums
+  public void testDyadicKernels() {
+    Random rand = new Random(21);
+    IImage img = new PackedImage(57, 40, TestImages.pattern(57, 40));
+    for (int size : new int[]{1, 3, 7, 11}) {
+      for (int shift : new int[]{0, 4, 9}) {
+        double[][] kernel = dyadicKernel(size, shift, rand);
+        // the outer product of two rows of random weights is separable.
+        double[][] separable = new double[size][size];
+        for (int r = 0; r < size; r++) {
+          for (int c = 0; c < size; c++) {
+            separable[r][c] = kernel[r][0] * kernel[0][c];
+          }
+        }
+        for (BorderMode mode : BorderMode.values()) {
+          assertSameBothWays(image -> new ConvolutionFilter(image, kernel, mode), img);
+          assertSameBothWays(image -> new ConvolutionFilter(image, separable, mode), img);
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that kernels that can't be scaled to ints, whose weights aren't multiples of a power
+  // of 2 or whose sums could overflow, still give the same pixels by falling back to doubles
+  public void testFallsBack() {
+    IImage img = new PackedImage(30, 20, TestImages.pattern(30, 20));
+    double[][] thirds = new double[3][3];
+    double[][] huge = new double[3][3];
+    for (int r = 0; r < 3; r++) {
+      for (int c = 0; c < 3; c++) {
+        thirds[r][c] = 1.0 / 9;
+        huge[r][c] = (r + c) % 2 == 0 ? 1 << 24 : -(1 << 24) + Math.scalb(1, -20);
+      }
+    }
+    assertSameBothWays(image -> new ConvolutionFilter(image, thirds), img);
+    assertSameBothWays(image -> new ConvolutionFilter(image, huge), img);
+    assertSameBothWays(image -> new GaussianBlurFilter(image, 2.5), img);
+  }
+
+  @Test
+  // tests that integer sums can be turned off and on
+  public void testSetFixedPoint() {
+    assertTrue(AbstractFilter.isFixedPoint());
+    AbstractFilter.setFixedPoint(false);
+    assertFalse(AbstractFilter.isFixedPoint());
+  }
+}
@@ -0,0 +1,130 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.PackedImage;
+import model.image.TiledImage;
+import model.operations.AbstractOperation;
+import model.operations.ImagePyramid;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * A tester class for ImagePyramid, whose levels must each average the 2x2 squares of the level
+ * before them.
+ */
+public class ImagePyramidTest {
+  private final int startingParallelism = AbstractOperation.getParallelism();
+
+  /**
+   * Puts the parallelism back to what it was before each test, so other tests aren't affected.
+   */
+  @After
+  public void restoreParallelism() {
+    AbstractOperation.setParallelism(this.startingParallelism);
+  }
+
+  /**
+   * Halves an image the slow way, by averaging the pixels of each square that are inside it.
+   *
+   * @param img image to halve.
+   * @return row-major packed pixels of the halved image.
+   */
+  private static int[] naiveHalve(IImage img) {
+    int[] rgb = TestImages.pixels(img);
+    int width = img.getWidth();
+    int height = img.getHeight();
+    int halfWidth = (width + 1) / 2;
+    int halfHeight = (height + 1) / 2;
+    int[] out = new int[halfWidth * halfHeight];
+    for (int y = 0; y < halfHeight; y++) {
+      for (int x = 0; x < halfWidth; x++) {
+        int[] sums = new int[3];
+        int count = 0;
+        for (int j = 2 * y; j < Math.min(height, 2 * y + 2); j++) {
+          for (int i = 2 * x; i < Math.min(width, 2 * x + 2); i++) {
+            int pixel = rgb[j * width + i];
+            sums[0] += (pixel >> 16) & 0xFF;
+            sums[1] += (pixel >> 8) & 0xFF;
+            sums[2] += pixel & 0xFF;
+            count++;
+          }
+        }
+        int packed = 0;
+        for (int c = 0; c < 3; c++) {
+          packed = packed << 8 | (int) Math.floor((double) sums[c] / count + 0.5);
+        }
+        out[y * halfWidth + x] = packed;
+      }
+    }
+    return out;
+  }
+
+  @Test
+  // tests that every level averages the level before it, and is half its size rounded up, on
+  // any number of threads and for images split into many bands
+  public void testLevelsMatchNaive() {
+    int[][] sizes = {{13, 5}, {1, 9}, {8, 8}, {1500, 1201}};
+    for (int threads : new int[]{1, 3}) {
+      AbstractOperation.setParallelism(threads);
+      for (int[] size : sizes) {
+        IImage img = new PackedImage(size[0], size[1], TestImages.pattern(size[0], size[1]));
+        ImagePyramid pyramid = new ImagePyramid(img);
+        assertSame(img, pyramid.getLevel(0));
+        for (int level = 1; level < pyramid.numLevels(); level++) {
+          IImage before = pyramid.getLevel(level - 1);
+          IImage halved = pyramid.getLevel(level);
+          assertEquals((before.getWidth() + 1) / 2, halved.getWidth());
+          assertEquals((before.getHeight() + 1) / 2, halved.getHeight());
+          assertArrayEquals(naiveHalve(before), TestImages.pixels(halved));
+        }
+        IImage last = pyramid.getLevel(pyramid.numLevels() - 1);
+        assertEquals(1, last.getWidth());
+        assertEquals(1, last.getHeight());
+      }
+    }
+  }
+
+  @Test
+  // tests that a TiledImage gives the same levels as a PackedImage of the same pixels
+  public void testTiledSource() {
+    int[] rgb = TestImages.pattern(700, 300);
+    IImageBuilder builder = TiledImage.builder(700, 300);
+    builder.setRows(0, 300, rgb, 0);
+    ImagePyramid tiled = new ImagePyramid(builder.build());
+    ImagePyramid packed = new ImagePyramid(new PackedImage(700, 300, rgb));
+    assertEquals(11, tiled.numLevels());
+    for (int level = 0; level < tiled.numLevels(); level++) {
+      TestImages.assertSameImage(packed.getLevel(level), tiled.getLevel(level));
+    }
+  }
+
+  @Test
+  // tests that the level for an area is the smallest one at least as large as it
+  public void testLevelFor() {
+    IImage img = new PackedImage(1000, 600, TestImages.pattern(1000, 600));
+    ImagePyramid pyramid = new ImagePyramid(img);
+    assertSame(img, pyramid.levelFor(2000, 100));
+    assertSame(img, pyramid.levelFor(501, 300));
+    assertSame(pyramid.getLevel(1), pyramid.levelFor(500, 300));
+    assertSame(pyramid.getLevel(2), pyramid.levelFor(250, 1));
+    assertSame(pyramid.getLevel(3), pyramid.levelFor(125, 75));
+    assertSame(pyramid.getLevel(9), pyramid.levelFor(1, 2));
+    assertSame(pyramid.getLevel(10), pyramid.levelFor(1, 1));
+    assertEquals(11, pyramid.numLevels());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that there is no level past a single pixel
+  public void testLevelOutOfRange() {
+    new ImagePyramid(new PackedImage(4, 3, TestImages.pattern(4, 3))).getLevel(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a pyramid needs an image
+  public void testNullImage() {
+    new ImagePyramid(null);
+  }
+}
@@ -1,9 +1,12 @@
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import model.image.BasicImage;
 import model.image.BasicPixel;
 import model.image.IImage;
+import model.image.IImageBuilder;
 import model.image.IPixel;
+import model.image.RgbUtils;
 import org.junit.Test;
 
 /**
@@ -146,4 +149,91 @@ public class ImageTest {
     pixels[3] = new BasicPixel(0, 2, 0, 0, 0);
     IImage newImage = new BasicImage(2, 2, pixels);
   }
-}
\ No newline at end of file
+
+  @Test
+  // tests reading a rectangle of pixels into an array as packed ints, with an offset and a
+  // scan size wider than the rectangle
+  public void testGetRegion() {
+    int[] out = new int[5];
+    this.img.getRegion(0, 0, 1, 2, out, 1, 2);
+    assertEquals(0, out[0]);
+    assertEquals(0x787878, out[1]);
+    assertEquals(0, out[2]);
+    assertEquals(0xF0F1F2, out[3]);
+  }
+
+  @Test
+  // tests that reading a row matches getPixelAt
+  public void testGetRow() {
+    int[] row = new int[1];
+    this.img.getRow(1, row);
+    assertEquals(RgbUtils.pack(this.p2), row[0]);
+  }
+
+  @Test
+  // tests that the default implementation of getRegion in IImage allows empty regions
+  public void testDefaultGetRegion() {
+    int[] out = new int[1];
+    new MockTinyIImage().getRegion(0, 0, 0, 0, out, 0, 0);
+    assertEquals(0, out[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that reading a region out of bounds throws an exception
+  public void testGetRegionOOB() {
+    this.img.getRegion(0, 1, 1, 2, new int[2], 0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that reading into an array that is too small throws an exception
+  public void testGetRegionSmallArray() {
+    this.img.getRegion(0, 0, 1, 2, new int[1], 0, 1);
+  }
+
+  @Test
+  // tests that a builder from createBuilder makes a BasicImage with the given rows, and black
+  // pixels for rows that were never set
+  public void testCreateBuilder() {
+    IImageBuilder builder = this.img.createBuilder(2, 2);
+    builder.setRows(0, 1, new int[]{0x0A0B0C, 0xFFFFFF}, 0);
+    IImage built = builder.build();
+    assertTrue(built instanceof BasicImage);
+    assertEquals(new BasicPixel(0, 0, 10, 11, 12), built.getPixelAt(0, 0));
+    assertEquals(new BasicPixel(1, 0, 255, 255, 255), built.getPixelAt(1, 0));
+    assertEquals(new BasicPixel(1, 1, 0, 0, 0), built.getPixelAt(1, 1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  // tests that a builder can't be used once it has built its image
+  public void testBuilderUsedTwice() {
+    IImageBuilder builder = this.img.createBuilder(1, 1);
+    builder.build();
+    builder.build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that setting rows from an array that is too small throws an exception
+  public void testBuilderSmallArray() {
+    this.img.createBuilder(2, 2).setRows(0, 2, new int[3], 0);
+  }
+
+  @Test
+  // tests that writing a rectangle into a builder, with an offset and a scan size wider than
+  // the rectangle, leaves the pixels outside of the rectangle as they were
+  public void testBuilderSetRegion() {
+    IImageBuilder builder = this.img.createBuilder(2, 2);
+    builder.setRows(0, 2, new int[]{1, 2, 3, 4}, 0);
+    builder.setRegion(1, 0, 1, 2, new int[]{0, 0x0A0B0C, 0, 0x0D0E0F}, 1, 2);
+    IImage built = builder.build();
+    assertEquals(new BasicPixel(0, 0, 0, 0, 1), built.getPixelAt(0, 0));
+    assertEquals(new BasicPixel(1, 0, 10, 11, 12), built.getPixelAt(1, 0));
+    assertEquals(new BasicPixel(0, 1, 0, 0, 3), built.getPixelAt(0, 1));
+    assertEquals(new BasicPixel(1, 1, 13, 14, 15), built.getPixelAt(1, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that writing a rectangle outside of the image being built throws an exception
+  public void testBuilderSetRegionOOB() {
+    this.img.createBuilder(2, 2).setRegion(1, 1, 2, 1, new int[2], 0, 2);
+  }
+}
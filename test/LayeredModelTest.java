@@ -1,9 +1,12 @@
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import model.ILayeredModel;
 import model.ProcessorModelCreator;
+import model.image.IImage;
+import model.operations.MosaicSession;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -96,4 +99,40 @@ public class LayeredModelTest {
     assertEquals(0, layer.getInvisibleLayers().size());
   }
 
+  @Test
+  // tests that replacing a layer with a mosaic from a MosaicSession keeps its position, name
+  // and visibility
+  public void testReplaceLayerAt() {
+    layer.addImage(TestImages.patternImage(100, 100));
+    layer.addBlankLayer();
+    layer.setCurrentLayer(0);
+    layer.makeLayerInvisible(0);
+    String name = layer.getNamesMap().get(0);
+    MosaicSession session = new MosaicSession(layer.getImageAt(0), 50, 3);
+    session.setSeedCount(60);
+    IImage mosaic = session.getImage();
+    layer.replaceLayerAt(0, mosaic);
+    assertSame(mosaic, layer.getImageAt(0));
+    assertEquals(2, layer.numImages());
+    assertEquals(0, layer.getCurrentLayer());
+    assertEquals(name, layer.getNamesMap().get(0));
+    assertTrue(layer.isLayerInvisible(0));
+    assertFalse(layer.isLayerInvisible(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that only the current layer can be replaced
+  public void testReplaceLayerAtNotCurrent() {
+    layer.addBlankLayer();
+    layer.addBlankLayer();
+    layer.replaceLayerAt(0, TestImages.patternImage(100, 100));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a layer can't be replaced with an image of another size
+  public void testReplaceLayerAtWrongSize() {
+    layer.addBlankLayer();
+    layer.replaceLayerAt(0, TestImages.patternImage(100, 99));
+  }
+
 }
@@ -0,0 +1,63 @@
+import model.image.IImage;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.colortransform.Sepia;
+import model.operations.filter.BlurFilter;
+
+/**
+ * Tester code to run to compare the throughput of blur and sepia on the packed int layout
+ * (PackedImage) and the planar byte layout (PlanarImage) of the same image.
+ */
+public class MainForLayoutBenchmark {
+  private static final int WARMUP_RUNS = 5;
+  private static final int TIMED_RUNS = 10;
+
+  /**
+   * Entry point for timing each operation on each layout.
+   *
+   * @param args optionally, the width and height of the image to use, 2000x2000 by default.
+   */
+  public static void main(String[] args) {
+    int width = args.length >= 2 ? Integer.parseInt(args[0]) : 2000;
+    int height = args.length >= 2 ? Integer.parseInt(args[1]) : 2000;
+    int[] rgb = TestImages.pattern(width, height);
+    IImage packed = new PackedImage(width, height, rgb);
+    IImage planar = PlanarImage.fromImage(packed);
+
+    report("blur  packed", packed, true);
+    report("blur  planar", planar, true);
+    report("sepia packed", packed, false);
+    report("sepia planar", planar, false);
+  }
+
+  /**
+   * Times blur or sepia on the given image, and prints the throughput in megapixels per second.
+   *
+   * @param label name to print the result with.
+   * @param img   image to apply the operation to.
+   * @param blur  true to time blur, false to time sepia.
+   */
+  private static void report(String label, IImage img, boolean blur) {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      run(img, blur);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < TIMED_RUNS; i++) {
+      run(img, blur);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    double megapixels = (double) img.getWidth() * img.getHeight() * TIMED_RUNS / 1e6;
+    System.out.printf("%s: %.1f MP/s%n", label, megapixels / seconds);
+  }
+
+  /**
+   * Applies blur or sepia to the given image once.
+   *
+   * @param img  image to apply the operation to.
+   * @param blur true to apply blur, false to apply sepia.
+   * @return the edited image.
+   */
+  private static IImage run(IImage img, boolean blur) {
+    return blur ? new BlurFilter(img).apply() : new Sepia(img).apply();
+  }
+}
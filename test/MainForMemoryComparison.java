@@ -0,0 +1,81 @@
+import model.image.BasicImage;
+import model.image.BasicPixel;
+import model.image.IImage;
+import model.image.IPixel;
+import model.image.PackedImage;
+
+/**
+ * Tester code to run to compare how much heap a BasicImage and a PackedImage of the same size
+ * take up. Run with a large enough -Xmx for the BasicImage, such as -Xmx2g.
+ */
+public class MainForMemoryComparison {
+  /**
+   * Entry point for measuring the heap used by each image implementation.
+   *
+   * @param args optionally, the width and height of the images to create, 2000x2000 by default.
+   */
+  public static void main(String[] args) {
+    int width = args.length >= 2 ? Integer.parseInt(args[0]) : 2000;
+    int height = args.length >= 2 ? Integer.parseInt(args[1]) : 2000;
+
+    long before = usedHeap();
+    IImage basic = basicImage(width, height);
+    long basicBytes = usedHeap() - before;
+    System.out.println("BasicImage  " + width + "x" + height + ": "
+            + (basicBytes / (1024 * 1024)) + " MB, "
+            + (basicBytes / ((long) width * height)) + " bytes per pixel");
+    basic = null;
+
+    before = usedHeap();
+    IImage packed = packedImage(width, height);
+    long packedBytes = usedHeap() - before;
+    System.out.println("PackedImage " + width + "x" + height + ": "
+            + (packedBytes / (1024 * 1024)) + " MB, "
+            + (packedBytes / ((long) width * height)) + " bytes per pixel");
+    // keep the image reachable until it is measured.
+    System.out.println("(" + packed.getWidth() + " px wide)");
+  }
+
+  /**
+   * Creates a BasicImage of the given size, with the pixel array it was created from discarded.
+   *
+   * @param width  width of the image.
+   * @param height height of the image.
+   * @return a BasicImage filled with a gradient.
+   */
+  private static IImage basicImage(int width, int height) {
+    IPixel[] pixels = new IPixel[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = new BasicPixel(i % width, i / width, i % 256, (i / 3) % 256, (i / 7) % 256);
+    }
+    return new BasicImage(width, height, pixels);
+  }
+
+  /**
+   * Creates a PackedImage of the given size, with the packed array it was created from discarded.
+   *
+   * @param width  width of the image.
+   * @param height height of the image.
+   * @return a PackedImage filled with the same gradient as basicImage.
+   */
+  private static IImage packedImage(int width, int height) {
+    int[] rgb = new int[width * height];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = ((i % 256) << 16) | (((i / 3) % 256) << 8) | ((i / 7) % 256);
+    }
+    return new PackedImage(width, height, rgb);
+  }
+
+  /**
+   * Returns the heap currently in use, after asking for garbage collection.
+   *
+   * @return bytes of heap in use.
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
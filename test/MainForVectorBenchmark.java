@@ -0,0 +1,93 @@
+import model.image.IImage;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.AbstractOperation;
+import model.operations.colortransform.Greyscale;
+import model.operations.colortransform.Sepia;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.SharpenFilter;
+
+/**
+ * Tester code to run to compare the throughput of blur, sharpen, sepia and greyscale with the
+ * scalar loops and with the vector kernels, on both image layouts. Must be run with
+ * "--add-modules jdk.incubator.vector" to time the vector kernels, otherwise only the scalar
+ * loops are timed.
+ */
+public class MainForVectorBenchmark {
+  private static final int WARMUP_RUNS = 5;
+  private static final int TIMED_RUNS = 10;
+  private static final String[] OPERATIONS = {"blur", "sharpen", "sepia", "greyscale"};
+
+  /**
+   * Entry point for timing each operation on each layout with each kind of kernel.
+   *
+   * @param args optionally, the width and height of the image to use, 2000x2000 by default.
+   */
+  public static void main(String[] args) {
+    int width = args.length >= 2 ? Integer.parseInt(args[0]) : 2000;
+    int height = args.length >= 2 ? Integer.parseInt(args[1]) : 2000;
+    int[] rgb = TestImages.pattern(width, height);
+    IImage packed = new PackedImage(width, height, rgb);
+    IImage planar = PlanarImage.fromImage(packed);
+    boolean vector = AbstractOperation.isVectorAvailable();
+    if (!vector) {
+      System.out.println("vector kernels unavailable, timing the scalar loops only");
+    }
+
+    for (String operation : OPERATIONS) {
+      for (IImage img : new IImage[]{packed, planar}) {
+        String label = String.format("%-9s %-6s", operation,
+                img == packed ? "packed" : "planar");
+        AbstractOperation.setVectorized(false);
+        double scalar = throughput(operation, img);
+        if (vector) {
+          AbstractOperation.setVectorized(true);
+          double vectorized = throughput(operation, img);
+          System.out.printf("%s: scalar %.1f MP/s, vector %.1f MP/s (%.2fx)%n", label, scalar,
+                  vectorized, vectorized / scalar);
+        } else {
+          System.out.printf("%s: scalar %.1f MP/s%n", label, scalar);
+        }
+      }
+    }
+  }
+
+  /**
+   * Times an operation on the given image.
+   *
+   * @param operation name of the operation, one of OPERATIONS.
+   * @param img       image to apply the operation to.
+   * @return the throughput in megapixels per second.
+   */
+  private static double throughput(String operation, IImage img) {
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      run(operation, img);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < TIMED_RUNS; i++) {
+      run(operation, img);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    return (double) img.getWidth() * img.getHeight() * TIMED_RUNS / 1e6 / seconds;
+  }
+
+  /**
+   * Applies an operation to the given image once.
+   *
+   * @param operation name of the operation, one of OPERATIONS.
+   * @param img       image to apply the operation to.
+   * @return the edited image.
+   */
+  private static IImage run(String operation, IImage img) {
+    switch (operation) {
+      case "blur":
+        return new BlurFilter(img).apply();
+      case "sharpen":
+        return new SharpenFilter(img).apply();
+      case "sepia":
+        return new Sepia(img).apply();
+      default:
+        return new Greyscale(img).apply();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IPixel;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Mock class that reads the pixels of another IImage, and records every thread that read them,
+ * to show which threads an operation computes on.
+ */
+public class MockThreadRecordingImage implements IImage {
+  private final IImage img;
+  private final Set<Thread> readers;
+
+  /**
+   * Constructs a new MockThreadRecordingImage that reads the pixels of the given image.
+   *
+   * @param img image to read the pixels of.
+   */
+  public MockThreadRecordingImage(IImage img) {
+    this.img = img;
+    this.readers = new HashSet<>();
+  }
+
+  /**
+   * Records the thread that is reading pixels.
+   */
+  private void record() {
+    synchronized (this.readers) {
+      this.readers.add(Thread.currentThread());
+    }
+  }
+
+  /**
+   * Observer for every thread that has read pixels of this image so far.
+   *
+   * @return a copy of the threads.
+   */
+  public Set<Thread> getReaders() {
+    synchronized (this.readers) {
+      return new HashSet<>(this.readers);
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return this.img.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return this.img.getHeight();
+  }
+
+  @Override
+  public IPixel getPixelAt(int x, int y) throws IllegalArgumentException {
+    this.record();
+    return this.img.getPixelAt(x, y);
+  }
+
+  @Override
+  public void getRegion(int x, int y, int w, int h, int[] rgbOut, int offset, int scanSize)
+          throws IllegalArgumentException {
+    this.record();
+    this.img.getRegion(x, y, w, h, rgbOut, offset, scanSize);
+  }
+
+  @Override
+  public void getRow(int y, int[] rgbOut) throws IllegalArgumentException {
+    this.record();
+    this.img.getRow(y, rgbOut);
+  }
+
+  @Override
+  public IImageBuilder createBuilder(int w, int h) throws IllegalArgumentException {
+    return this.img.createBuilder(w, h);
+  }
+
+  @Override
+  public IImage createImage(int w, int h, IPixel[] pixels) throws IllegalArgumentException {
+    return this.img.createImage(w, h, pixels);
+  }
+}
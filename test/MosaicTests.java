@@ -2,12 +2,23 @@ import model.image.BasicImage;
 import model.image.BasicPixel;
 import model.image.IImage;
 import model.image.IPixel;
+import model.image.PackedImage;
+import model.operations.GridMosaic;
+import model.operations.GridShape;
 import model.operations.Mosaic;
+import model.operations.MosaicEngine;
+import model.operations.MosaicSession;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Testing the ability of the Mosaic operation on a small scale.
@@ -35,4 +46,316 @@ public class MosaicTests {
       }
     }
   }
+
+  @Test
+  // tests that every pixel gets the same seed as measuring the distance to every seed would,
+  // including which seed wins when several are equally close
+  public void testMatchesLinearScan() {
+    int[][] sizes = {{40, 30, 150}, {40, 30, 3}, {7, 5, 2}, {64, 1, 9}, {1, 50, 5}, {25, 25, 625}};
+    for (int[] size : sizes) {
+      int[] rgb = new int[size[0] * size[1]];
+      for (int i = 0; i < rgb.length; i++) {
+        rgb[i] = ((i * 37) % 256) << 16 | ((i * 91) % 256) << 8 | (i * 13) % 256;
+      }
+      IImage img = new PackedImage(size[0], size[1], rgb);
+      for (long seed = 0; seed < 5; seed++) {
+        IImage expected = linearScanMosaic(img, size[2], new Random(seed));
+        IImage actual = new Mosaic(img, size[2], new Random(seed)).apply();
+        for (int y = 0; y < size[1]; y++) {
+          for (int x = 0; x < size[0]; x++) {
+            assertEquals(expected.getPixelAt(x, y), actual.getPixelAt(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that jump flooding gives every pixel the same color as the exact engine, except for
+  // a few along the edges between seeds
+  public void testJumpFloodNearlyExact() {
+    int[][] sizes = {{40, 30, 150}, {40, 30, 3}, {7, 5, 2}, {64, 1, 9}, {1, 50, 5}, {90, 70, 60}};
+    for (int[] size : sizes) {
+      int[] rgb = new int[size[0] * size[1]];
+      for (int i = 0; i < rgb.length; i++) {
+        rgb[i] = ((i * 37) % 256) << 16 | ((i * 91) % 256) << 8 | (i * 13) % 256;
+      }
+      IImage img = new PackedImage(size[0], size[1], rgb);
+      for (long seed = 0; seed < 5; seed++) {
+        IImage expected = new Mosaic(img, size[2], new Random(seed)).apply();
+        IImage actual = new Mosaic(img, size[2], new Random(seed),
+                MosaicEngine.JUMP_FLOOD).apply();
+        int different = 0;
+        for (int y = 0; y < size[1]; y++) {
+          for (int x = 0; x < size[0]; x++) {
+            if (!expected.getPixelAt(x, y).equals(actual.getPixelAt(x, y))) {
+              different++;
+            }
+          }
+        }
+        // a pixel given to the wrong seed changes the color of both seeds' pixels.
+        assertTrue(different <= rgb.length / 20);
+      }
+    }
+  }
+
+  @Test
+  // tests that jump flooding keeps every pixel of a single seed, and a flat image flat
+  public void testJumpFloodFlat() {
+    int[] rgb = new int[33 * 17];
+    Arrays.fill(rgb, 0x3C82F0);
+    IImage img = new PackedImage(33, 17, rgb);
+    for (int seeds : new int[]{1, 10, 33 * 17}) {
+      IImage mosaic = new Mosaic(img, seeds, new Random(3), MosaicEngine.JUMP_FLOOD).apply();
+      for (int y = 0; y < 17; y++) {
+        for (int x = 0; x < 33; x++) {
+          assertEquals(img.getPixelAt(x, y), mosaic.getPixelAt(x, y));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a Mosaic needs an engine
+  public void testNullEngine() {
+    new Mosaic(new PackedImage(2, 2, new int[4]), 2, new Random(), null);
+  }
+
+  @Test
+  // tests that every square cell is the average of its own pixels, including the cells cut
+  // off by the right and bottom edges
+  public void testSquareGridMosaic() {
+    int[] rgb = TestImages.pattern(23, 17);
+    IImage img = new PackedImage(23, 17, rgb);
+    IImage mosaic = new GridMosaic(img, 5, GridShape.SQUARE).apply();
+    for (int y = 0; y < 17; y++) {
+      for (int x = 0; x < 23; x++) {
+        int red = 0;
+        int green = 0;
+        int blue = 0;
+        int count = 0;
+        for (int j = y / 5 * 5; j < Math.min(17, y / 5 * 5 + 5); j++) {
+          for (int i = x / 5 * 5; i < Math.min(23, x / 5 * 5 + 5); i++) {
+            red += img.getPixelAt(i, j).getRed();
+            green += img.getPixelAt(i, j).getGreen();
+            blue += img.getPixelAt(i, j).getBlue();
+            count++;
+          }
+        }
+        assertEquals(red / count, mosaic.getPixelAt(x, y).getRed());
+        assertEquals(green / count, mosaic.getPixelAt(x, y).getGreen());
+        assertEquals(blue / count, mosaic.getPixelAt(x, y).getBlue());
+      }
+    }
+  }
+
+  @Test
+  // tests that square cells of one pixel leave the image as it was, and a cell bigger than the
+  // image makes it one color
+  public void testSquareGridMosaicExtremes() {
+    IImage img = new PackedImage(9, 4, TestImages.pattern(9, 4));
+    IImage same = new GridMosaic(img, 1, GridShape.SQUARE).apply();
+    IImage oneCell = new GridMosaic(img, 50, GridShape.SQUARE).apply();
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 9; x++) {
+        assertEquals(img.getPixelAt(x, y), same.getPixelAt(x, y));
+        assertEquals(packed(oneCell.getPixelAt(0, 0)), packed(oneCell.getPixelAt(x, y)));
+      }
+    }
+  }
+
+  @Test
+  // tests that every pixel clearly closer to the center of one hexagon than any other gets the
+  // same color as that center, for several sizes of cells and images
+  public void testHexGridMosaic() {
+    int[][] sizes = {{60, 45, 10}, {31, 70, 7}, {200, 3, 12}, {5, 5, 2}, {40, 40, 100}};
+    for (int[] size : sizes) {
+      IImage img = new PackedImage(size[0], size[1], TestImages.pattern(size[0], size[1]));
+      IImage mosaic = new GridMosaic(img, size[2], GridShape.HEX).apply();
+      double radius = size[2] / Math.sqrt(3);
+      for (int y = 0; y < size[1]; y++) {
+        for (int x = 0; x < size[0]; x++) {
+          // centers of hexagons are size[2] apart in a row, and rows are 1.5 radii apart, with
+          // every odd row shifted by half a hexagon.
+          double nearest = Double.MAX_VALUE;
+          double second = Double.MAX_VALUE;
+          double nearestX = 0;
+          double nearestY = 0;
+          for (int row = -1; row * 1.5 * radius < size[1] + 2 * radius; row++) {
+            for (int col = -1; col * size[2] < size[0] + size[2]; col++) {
+              double centerX = size[2] * (col + (Math.floorMod(row, 2) == 1 ? 0.5 : 0));
+              double centerY = 1.5 * radius * row;
+              double distance = Math.hypot(centerX - x - 0.5, centerY - y - 0.5);
+              if (distance < nearest) {
+                second = nearest;
+                nearest = distance;
+                nearestX = centerX;
+                nearestY = centerY;
+              } else if (distance < second) {
+                second = distance;
+              }
+            }
+          }
+          int centerX = (int) Math.floor(nearestX);
+          int centerY = (int) Math.floor(nearestY);
+          if (second - nearest > 0.01 && centerX >= 0 && centerX < size[0] && centerY >= 0
+                  && centerY < size[1]) {
+            assertEquals(packed(mosaic.getPixelAt(centerX, centerY)),
+                    packed(mosaic.getPixelAt(x, y)));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that grid mosaics keep a flat image flat
+  public void testGridMosaicFlat() {
+    int[] rgb = new int[33 * 17];
+    Arrays.fill(rgb, 0x3C82F0);
+    IImage img = new PackedImage(33, 17, rgb);
+    for (GridShape shape : GridShape.values()) {
+      for (int cellSize : new int[]{1, 4, 40}) {
+        IImage mosaic = new GridMosaic(img, cellSize, shape).apply();
+        for (int y = 0; y < 17; y++) {
+          for (int x = 0; x < 33; x++) {
+            assertEquals(img.getPixelAt(x, y), mosaic.getPixelAt(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a grid mosaic needs cells of at least one pixel
+  public void testGridMosaicZeroCellSize() {
+    new GridMosaic(new PackedImage(2, 2, new int[4]), 0, GridShape.HEX);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a grid mosaic needs a shape
+  public void testGridMosaicNullShape() {
+    new GridMosaic(new PackedImage(2, 2, new int[4]), 3, null);
+  }
+
+  @Test
+  // tests that changing the number of seeds of a session up, down, and back up always gives the
+  // same mosaic as building it from scratch with that many seeds
+  public void testSessionMatchesMosaic() {
+    int[][] sizes = {{40, 30}, {7, 5}, {64, 1}, {1, 50}, {33, 21}};
+    int[][] counts = {{12, 40, 5, 300, 1, 60, 61, 59}, {3, 35, 1, 17},
+        {2, 64, 9, 10}, {1, 50, 25, 3}, {30, 31, 200, 2, 693, 100}};
+    for (int s = 0; s < sizes.length; s++) {
+      IImage img = TestImages.patternImage(sizes[s][0], sizes[s][1]);
+      for (long seed = 0; seed < 3; seed++) {
+        MosaicSession session = new MosaicSession(img, counts[s][0], seed);
+        TestImages.assertSameImage(new Mosaic(img, counts[s][0], new Random(seed)).apply(),
+                session.getImage());
+        for (int c = 1; c < counts[s].length; c++) {
+          session.setSeedCount(counts[s][c]);
+          assertEquals(counts[s][c], session.getSeedCount());
+          TestImages.assertSameImage(new Mosaic(img, counts[s][c], new Random(seed)).apply(),
+                  session.getImage());
+        }
+      }
+    }
+  }
+
+  @Test
+  // tests that a session picks the seed drawn first when several are equally close, after
+  // removing seeds as well as adding them
+  public void testSessionTies() {
+    // a flat image would hide ties, so every pixel gets its own color.
+    int[] rgb = new int[16 * 16];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = i * 65793;
+    }
+    IImage img = new PackedImage(16, 16, rgb);
+    MosaicSession session = new MosaicSession(img, 128, 7);
+    for (int count = 127; count > 0; count -= 9) {
+      session.setSeedCount(count);
+      TestImages.assertSameImage(new Mosaic(img, count, new Random(7)).apply(), session.getImage());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a session needs at least one seed
+  public void testSessionZeroSeeds() {
+    new MosaicSession(new PackedImage(2, 2, new int[4]), 0, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a session can't have more seeds than pixels
+  public void testSessionTooManySeeds() {
+    new MosaicSession(new PackedImage(2, 2, new int[4]), 1, 0).setSeedCount(5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a session needs an image
+  public void testSessionNullImage() {
+    new MosaicSession(null, 1, 0);
+  }
+
+  /**
+   * Packs the channels of a pixel into an RGB int, to compare the colors of pixels at different
+   * positions.
+   *
+   * @param p the pixel.
+   * @return its color as a packed RGB int.
+   */
+  private static int packed(IPixel p) {
+    return p.getRed() << 16 | p.getGreen() << 8 | p.getBlue();
+  }
+
+  /**
+   * Builds a mosaic the way Mosaic originally did, by measuring the distance from each pixel to
+   * every seed, to check Mosaic against. Seeds are chosen exactly like Mosaic does, and the one
+   * drawn first wins when several are equally close.
+   *
+   * @param img   image to build a mosaic of.
+   * @param seeds number of seeds.
+   * @param rand  random object to choose the seeds with.
+   * @return the mosaic.
+   */
+  private static IImage linearScanMosaic(IImage img, int seeds, Random rand) {
+    List<int[]> posns = new ArrayList<>();
+    Map<int[], List<IPixel>> seedsToPixels = new HashMap<>();
+    while (posns.size() < seeds) {
+      int[] newKey = {rand.nextInt(img.getWidth()), rand.nextInt(img.getHeight())};
+      if (posns.stream().noneMatch(p -> Arrays.equals(p, newKey))) {
+        posns.add(newKey);
+        seedsToPixels.put(newKey, new ArrayList<>());
+      }
+    }
+    for (int x = 0; x < img.getWidth(); x++) {
+      for (int y = 0; y < img.getHeight(); y++) {
+        int[] closest = posns.get(0);
+        double lowest = Math.sqrt(Math.pow(closest[0] - x, 2) + Math.pow(closest[1] - y, 2));
+        for (int[] p : posns) {
+          double distance = Math.sqrt(Math.pow(p[0] - x, 2) + Math.pow(p[1] - y, 2));
+          if (distance < lowest) {
+            lowest = distance;
+            closest = p;
+          }
+        }
+        seedsToPixels.get(closest).add(img.getPixelAt(x, y));
+      }
+    }
+    int[] rgb = new int[img.getWidth() * img.getHeight()];
+    for (List<IPixel> pixels : seedsToPixels.values()) {
+      int red = 0;
+      int green = 0;
+      int blue = 0;
+      for (IPixel p : pixels) {
+        red += p.getRed();
+        green += p.getGreen();
+        blue += p.getBlue();
+      }
+      for (IPixel p : pixels) {
+        rgb[p.getY() * img.getWidth() + p.getX()] = red / pixels.size() << 16
+                | green / pixels.size() << 8 | blue / pixels.size();
+      }
+    }
+    return new PackedImage(img.getWidth(), img.getHeight(), rgb);
+  }
 }
@@ -0,0 +1,178 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import model.image.BasicImage;
+import model.image.IImage;
+import model.image.IPixel;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.IOperationAdapter;
+import model.operations.IOperationAdapterImpl;
+import model.operations.OperationResultCache;
+import model.operations.OperationType;
+import model.operations.filter.AbstractFilter;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.SharpenFilter;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * A tester class for OperationResultCache, through the IOperationAdapterImpl that looks up its
+ * results in it.
+ */
+public class OperationResultCacheTest {
+
+  @Test
+  // tests that the same operation on the same pixels is only computed once, even for a
+  // different image object, and that anything else that differs is computed again
+  public void testHitsAndMisses() {
+    OperationResultCache cache = new OperationResultCache(1 << 20);
+    IOperationAdapter adapter = new IOperationAdapterImpl(cache);
+    int[] rgb = TestImages.pattern(40, 30);
+    IImage img = new PackedImage(40, 30, rgb);
+    IImage blurred = adapter.adaptOperation(OperationType.BLUR, img);
+    TestImages.assertSameImage(new BlurFilter(img).apply(), blurred);
+    assertSame(blurred, adapter.adaptOperation(OperationType.BLUR, img));
+    assertSame(blurred, adapter.adaptOperation(OperationType.BLUR, new PackedImage(40, 30, rgb)));
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+
+    rgb[599] ^= 1;
+    IImage changed = new PackedImage(40, 30, rgb);
+    assertNotSame(blurred, adapter.adaptOperation(OperationType.BLUR, changed));
+    assertNotSame(blurred, adapter.adaptOperation(OperationType.SHARPEN, img));
+    IImage mosaic = adapter.adaptOperation(OperationType.MOSAIC, img, 50, 1);
+    assertNotSame(mosaic, adapter.adaptOperation(OperationType.MOSAIC, img, 50, 2));
+    assertSame(mosaic, adapter.adaptOperation(OperationType.MOSAIC, img, 50, 1));
+    // results are built in the implementation of the image, so other ones don't share them.
+    IImage planar = adapter.adaptOperation(OperationType.BLUR, PlanarImage.fromImage(img));
+    assertEquals(PlanarImage.class, planar.getClass());
+    TestImages.assertSameImage(blurred, planar);
+    assertEquals(3, cache.getHits());
+    assertEquals(6, cache.getMisses());
+    assertEquals(6, cache.size());
+    assertEquals(6 * 4 * 40 * 30, cache.getBytes());
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getBytes());
+    assertEquals(0, cache.getHits());
+    assertNotSame(blurred, adapter.adaptOperation(OperationType.BLUR, img));
+  }
+
+  @Test
+  // tests that the least recently used results are dropped to stay within the budget
+  public void testLeastRecentlyUsedDropped() {
+    // room for 3 results of 10x10 pixels.
+    OperationResultCache cache = new OperationResultCache(3 * 400 + 399);
+    IOperationAdapter adapter = new IOperationAdapterImpl(cache);
+    IImage img = new PackedImage(10, 10, TestImages.pattern(10, 10));
+    IImage blurred = adapter.adaptOperation(OperationType.BLUR, img);
+    IImage sharpened = adapter.adaptOperation(OperationType.SHARPEN, img);
+    IImage sepia = adapter.adaptOperation(OperationType.SEPIA, img);
+    // blurred is now more recently used than sharpened, which is dropped next.
+    assertSame(blurred, adapter.adaptOperation(OperationType.BLUR, img));
+    adapter.adaptOperation(OperationType.GREYSCALE, img);
+    assertEquals(3, cache.size());
+    assertEquals(1200, cache.getBytes());
+    assertSame(blurred, adapter.adaptOperation(OperationType.BLUR, img));
+    assertSame(sepia, adapter.adaptOperation(OperationType.SEPIA, img));
+    assertNotSame(sharpened, adapter.adaptOperation(OperationType.SHARPEN, img));
+
+    cache.setBudget(400);
+    assertEquals(1, cache.size());
+    assertEquals(400, cache.getBytes());
+    // too large to hold at all.
+    IImage large = new PackedImage(11, 10, TestImages.pattern(11, 10));
+    assertNotSame(adapter.adaptOperation(OperationType.BLUR, large),
+            adapter.adaptOperation(OperationType.BLUR, large));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  // tests that results that can change are never held, and that a budget of 0 holds nothing
+  public void testNothingHeld() {
+    OperationResultCache cache = new OperationResultCache(1 << 20);
+    IOperationAdapter adapter = new IOperationAdapterImpl(cache);
+    IImage packed = new PackedImage(8, 8, TestImages.pattern(8, 8));
+    IPixel[] pixels = new IPixel[64];
+    for (int i = 0; i < 64; i++) {
+      pixels[i] = packed.getPixelAt(i % 8, i / 8);
+    }
+    IImage basic = new BasicImage(8, 8, pixels);
+    assertNotSame(adapter.adaptOperation(OperationType.SEPIA, basic),
+            adapter.adaptOperation(OperationType.SEPIA, basic));
+    assertEquals(0, cache.size());
+    assertEquals(2, cache.getMisses());
+
+    cache.setBudget(0);
+    assertNotSame(adapter.adaptOperation(OperationType.SEPIA, packed),
+            adapter.adaptOperation(OperationType.SEPIA, packed));
+    assertEquals(0, cache.size());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  // tests that lists of operations look up single color transformations the same way as
+  // adaptOperation, and runs of them by their types
+  public void testColorTransformRuns() {
+    OperationResultCache cache = new OperationResultCache(1 << 20);
+    IOperationAdapter adapter = new IOperationAdapterImpl(cache);
+    IImage img = new PackedImage(40, 30, TestImages.pattern(40, 30));
+    IImage sepia = adapter.adaptOperation(OperationType.SEPIA, img);
+    assertSame(sepia, adapter.adaptOperations(Arrays.asList(OperationType.SEPIA), img));
+    assertEquals(1, cache.getHits());
+
+    IImage run = adapter.adaptOperations(Arrays.asList(OperationType.SEPIA,
+            OperationType.GREYSCALE), img);
+    assertEquals(2, cache.size());
+    assertSame(run, adapter.adaptOperations(Arrays.asList(OperationType.SEPIA,
+            OperationType.GREYSCALE), img));
+    assertNotSame(run, adapter.adaptOperations(Arrays.asList(OperationType.GREYSCALE,
+            OperationType.SEPIA), img));
+    assertEquals(2, cache.getHits());
+    assertEquals(3, cache.size());
+
+    IImage blurredRun = adapter.adaptOperations(Arrays.asList(OperationType.BLUR,
+            OperationType.GREYSCALE, OperationType.SEPIA), img);
+    assertSame(blurredRun, adapter.adaptOperations(Arrays.asList(OperationType.BLUR,
+            OperationType.GREYSCALE, OperationType.SEPIA), img));
+    assertEquals(4, cache.getHits());
+  }
+
+  @Test
+  // tests that a result computed under one FFT kernel size isn't returned under another, since
+  // SHARPEN through its Fourier transform can differ by 1 from summing its kernel
+  public void testFftKernelSizeInKey() {
+    OperationResultCache cache = new OperationResultCache(1 << 20);
+    IOperationAdapter adapter = new IOperationAdapterImpl(cache);
+    IImage img = TestImages.patternImage(40, 30);
+    IImage summed = adapter.adaptOperation(OperationType.SHARPEN, img);
+    try {
+      AbstractFilter.setFftKernelSize(5);
+      IImage transformed = adapter.adaptOperation(OperationType.SHARPEN, img);
+      assertNotSame(summed, transformed);
+      TestImages.assertSameImage(new SharpenFilter(img).apply(), transformed);
+      assertSame(transformed, adapter.adaptOperation(OperationType.SHARPEN, img));
+    } finally {
+      AbstractFilter.setFftKernelSize(0);
+    }
+    assertSame(summed, adapter.adaptOperation(OperationType.SHARPEN, img));
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that the budget can't be negative
+  public void testNegativeBudget() {
+    new OperationResultCache(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that an adapter needs a cache
+  public void testNullCache() {
+    new IOperationAdapterImpl(null);
+  }
+}
@@ -0,0 +1,167 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import model.image.BasicImage;
+import model.image.BasicPixel;
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IPixel;
+import model.image.PackedImage;
+import org.junit.Test;
+
+/**
+ * A tester class for the PackedImage implementation of IImage, checking that it follows the same
+ * rules as BasicImage.
+ */
+public class PackedImageTest {
+
+  IPixel p1 = new BasicPixel(0, 0, 120, 120, 120);
+  IPixel p2 = new BasicPixel(0, 1, 240, 241, 242);
+
+  IPixel[] pixels = {p1, p2};
+  IImage img = new PackedImage(1, 2, this.pixels);
+
+  @Test
+  // tests the getPixelAt method
+  public void testGetPixelAt() {
+    assertEquals(this.p1, this.img.getPixelAt(0, 0));
+    assertEquals(this.p2, this.img.getPixelAt(0, 1));
+    assertEquals(1, this.img.getWidth());
+    assertEquals(2, this.img.getHeight());
+  }
+
+  @Test
+  // tests that constructing from packed ints is row-major and ignores alpha bits
+  public void testFromPackedInts() {
+    IImage packed = new PackedImage(2, 1, new int[]{0xFF010203, 0x00FFFEFD});
+    assertEquals(new BasicPixel(0, 0, 1, 2, 3), packed.getPixelAt(0, 0));
+    assertEquals(new BasicPixel(1, 0, 255, 254, 253), packed.getPixelAt(1, 0));
+  }
+
+  @Test
+  // tests that the packed array given is copied, and can't mutate the image afterwards
+  public void testPackedIntsCopied() {
+    int[] rgb = {0x010203};
+    IImage packed = new PackedImage(1, 1, rgb);
+    rgb[0] = 0;
+    assertEquals(new BasicPixel(0, 0, 1, 2, 3), packed.getPixelAt(0, 0));
+  }
+
+  @Test
+  // tests that a PackedImage has the same pixels as a BasicImage made from the same pixels
+  public void testMatchesBasicImage() {
+    IPixel[] square = new IPixel[9];
+    for (int i = 0; i < 9; i++) {
+      square[i] = new BasicPixel(i % 3, i / 3, i * 10, i * 20, i * 30);
+    }
+    IImage basic = new BasicImage(3, 3, square);
+    IImage packed = new PackedImage(3, 3, square);
+    for (int y = 0; y < 3; y++) {
+      for (int x = 0; x < 3; x++) {
+        assertEquals(basic.getPixelAt(x, y), packed.getPixelAt(x, y));
+      }
+    }
+  }
+
+  @Test
+  // test for the factory method
+  public void testFactory() {
+    IImage single = img.createImage(1, 1, new IPixel[]{new BasicPixel(0, 0, 20, 20, 20)});
+    assertEquals(new BasicPixel(0, 0, 20, 20, 20), single.getPixelAt(0, 0));
+    assertEquals(PackedImage.class, single.getClass());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that an exception is thrown if the pixels have the same x and y values
+  public void testRepeatPixels() {
+    new PackedImage(1, 2, new IPixel[]{new BasicPixel(0, 0, 1, 1, 1),
+        new BasicPixel(0, 0, 2, 2, 2)});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that an exception is thrown if a pixel is out of bounds
+  public void testOOBPixels() {
+    new PackedImage(1, 2, new IPixel[]{new BasicPixel(0, 0, 1, 1, 1),
+        new BasicPixel(0, 3, 2, 2, 2)});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that an exception is thrown if given the wrong number of packed ints
+  public void testWrongLength() {
+    new PackedImage(2, 2, new int[3]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that an exception is thrown for invalid dimensions
+  public void testBadDimensions() {
+    new PackedImage(0, 1, new int[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests the exception for getPixelAt method
+  public void testGetPixelAtOOB() {
+    this.img.getPixelAt(1, 0);
+  }
+
+  @Test
+  // tests reading rows and rectangles of a PackedImage into arrays
+  public void testGetRegion() {
+    IImage packed = new PackedImage(3, 2, new int[]{1, 2, 3, 4, 5, 6});
+    int[] row = new int[3];
+    packed.getRow(1, row);
+    assertEquals(4, row[0]);
+    assertEquals(6, row[2]);
+    int[] region = new int[4];
+    packed.getRegion(1, 0, 2, 2, region, 0, 2);
+    assertEquals(2, region[0]);
+    assertEquals(3, region[1]);
+    assertEquals(5, region[2]);
+    assertEquals(6, region[3]);
+  }
+
+  @Test
+  // tests that the builder makes a PackedImage that ignores alpha bits, and that the rows
+  // given to it are copied
+  public void testBuilder() {
+    IImageBuilder builder = PackedImage.builder(2, 2);
+    int[] rows = {0, 0, 0xFF010203, 0x040506};
+    builder.setRows(1, 1, rows, 2);
+    rows[2] = 0;
+    IImage built = builder.build();
+    assertTrue(built instanceof PackedImage);
+    assertEquals(new BasicPixel(0, 1, 1, 2, 3), built.getPixelAt(0, 1));
+    assertEquals(new BasicPixel(1, 1, 4, 5, 6), built.getPixelAt(1, 1));
+    assertEquals(new BasicPixel(0, 0, 0, 0, 0), built.getPixelAt(0, 0));
+  }
+
+  @Test
+  // tests that a builder from createBuilder writes rectangles into the right part of a new
+  // PackedImage, ignoring alpha bits and leaving the rest of the image black
+  public void testBuilderSetRegion() {
+    IImageBuilder builder = this.img.createBuilder(3, 2);
+    int[] region = {0xFF010203, 0x040506, 9, 0x070809, 0x0A0B0C};
+    builder.setRegion(1, 0, 2, 2, region, 0, 3);
+    IImage built = builder.build();
+    assertTrue(built instanceof PackedImage);
+    assertEquals(new BasicPixel(0, 0, 0, 0, 0), built.getPixelAt(0, 0));
+    assertEquals(new BasicPixel(1, 0, 1, 2, 3), built.getPixelAt(1, 0));
+    assertEquals(new BasicPixel(2, 0, 4, 5, 6), built.getPixelAt(2, 0));
+    assertEquals(new BasicPixel(0, 1, 0, 0, 0), built.getPixelAt(0, 1));
+    assertEquals(new BasicPixel(1, 1, 7, 8, 9), built.getPixelAt(1, 1));
+    assertEquals(new BasicPixel(2, 1, 10, 11, 12), built.getPixelAt(2, 1));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  // tests that a builder can't write into the image it already built
+  public void testBuilderUsedTwice() {
+    IImageBuilder builder = this.img.createBuilder(1, 1);
+    builder.build();
+    builder.setRows(0, 1, new int[1], 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that the builder has the same rules for dimensions as the constructors
+  public void testBuilderBadDimensions() {
+    PackedImage.builder(1, 0);
+  }
+}
@@ -0,0 +1,203 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.image.TiledImage;
+import model.operations.AbstractOperation;
+import model.operations.GridMosaic;
+import model.operations.GridShape;
+import model.operations.IOperationAdapter;
+import model.operations.IOperationAdapterImpl;
+import model.operations.Mosaic;
+import model.operations.MosaicEngine;
+import model.operations.OperationResultCache;
+import model.operations.OperationType;
+import model.operations.colortransform.Greyscale;
+import model.operations.colortransform.Sepia;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.SharpenFilter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A tester class for computing AbstractOperations on several threads, which must give exactly
+ * the same pixels as computing them on one thread.
+ */
+public class ParallelismTest {
+  private final int startingParallelism = AbstractOperation.getParallelism();
+
+  /**
+   * Puts the parallelism back to what it was before each test, so other tests aren't affected.
+   */
+  @After
+  public void restoreParallelism() {
+    AbstractOperation.setParallelism(this.startingParallelism);
+  }
+
+  /**
+   * Applies blur, sharpen, sepia and greyscale to the given image.
+   *
+   * @param img image to apply each operation to.
+   * @return the result of each operation, in that order.
+   */
+  private static IImage[] applyAll(IImage img) {
+    return new IImage[]{new BlurFilter(img).apply(), new SharpenFilter(img).apply(),
+        new Sepia(img).apply(), new Greyscale(img).apply()};
+  }
+
+  /**
+   * Asserts that every image in both arrays has the same size and pixels as its counterpart.
+   *
+   * @param expected images with expected pixels.
+   * @param actual   images to check.
+   */
+  private static void assertSameImages(IImage[] expected, IImage[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int k = 0; k < expected.length; k++) {
+      TestImages.assertSameImage(expected[k], actual[k]);
+    }
+  }
+
+  /**
+   * Asserts that every operation gives the same pixels on the given image with one thread as
+   * with several.
+   *
+   * @param img image to apply each operation to.
+   */
+  private static void assertMatchesSequential(IImage img) {
+    AbstractOperation.setParallelism(1);
+    IImage[] sequential = applyAll(img);
+    for (int threads : new int[]{2, 3, 8}) {
+      AbstractOperation.setParallelism(threads);
+      assertSameImages(sequential, applyAll(img));
+    }
+  }
+
+  @Test
+  // tests that packed images give the same results on any number of threads
+  public void testPackedMatchesSequential() {
+    assertMatchesSequential(new PackedImage(301, 257, TestImages.pattern(301, 257)));
+  }
+
+  @Test
+  // tests that planar images give the same results on any number of threads
+  public void testPlanarMatchesSequential() {
+    assertMatchesSequential(
+            PlanarImage.fromImage(new PackedImage(301, 257, TestImages.pattern(301, 257))));
+  }
+
+  @Test
+  // tests that tiled images, which are split into bands, give the same results on any number
+  // of threads
+  public void testTiledMatchesSequential() {
+    IImageBuilder builder = TiledImage.builder(640, 1800);
+    builder.setRows(0, 1800, TestImages.pattern(640, 1800), 0);
+    assertMatchesSequential(builder.build());
+  }
+
+  @Test
+  // tests that both Mosaic engines, which find the seed of each pixel and average their colors
+  // on several threads, give the same results on any number of threads
+  public void testMosaicMatchesSequential() {
+    IImage img = new PackedImage(301, 257, TestImages.pattern(301, 257));
+    for (MosaicEngine engine : MosaicEngine.values()) {
+      AbstractOperation.setParallelism(1);
+      IImage sequential = new Mosaic(img, 700, new Random(5), engine).apply();
+      for (int threads : new int[]{2, 3, 8}) {
+        AbstractOperation.setParallelism(threads);
+        assertSameImages(new IImage[]{sequential},
+                new IImage[]{new Mosaic(img, 700, new Random(5), engine).apply()});
+      }
+    }
+  }
+
+  @Test
+  // tests that a jump flooding mosaic chosen by its parameter reads its image from the threads
+  // of the pool when there are several, and gives the same pixels as on one thread
+  public void testJumpFloodParameterOnThreads() {
+    // nothing is cached, so every mosaic is computed.
+    IOperationAdapter adapter = new IOperationAdapterImpl(new OperationResultCache(0));
+    IImage img = new PackedImage(600, 400, TestImages.pattern(600, 400));
+    AbstractOperation.setParallelism(1);
+    IImage sequential = adapter.adaptOperation(OperationType.MOSAIC, img, 2000, 5, 1);
+    assertSameImages(new IImage[]{new Mosaic(img, 2000, new Random(5),
+        MosaicEngine.JUMP_FLOOD).apply()}, new IImage[]{sequential});
+
+    AbstractOperation.setParallelism(4);
+    MockThreadRecordingImage recording = new MockThreadRecordingImage(img);
+    IImage parallel = adapter.adaptOperation(OperationType.MOSAIC, recording, 2000, 5, 1);
+    assertSameImages(new IImage[]{sequential}, new IImage[]{parallel});
+    boolean readOnPool = false;
+    for (Thread reader : recording.getReaders()) {
+      readOnPool |= reader != Thread.currentThread();
+    }
+    assertTrue(readOnPool);
+  }
+
+  @Test
+  // tests that grid mosaics, which add up the colors of their cells on several threads, give
+  // the same results on any number of threads
+  public void testGridMosaicMatchesSequential() {
+    IImage img = new PackedImage(301, 257, TestImages.pattern(301, 257));
+    for (GridShape shape : GridShape.values()) {
+      AbstractOperation.setParallelism(1);
+      IImage sequential = new GridMosaic(img, 9, shape).apply();
+      for (int threads : new int[]{2, 3, 8}) {
+        AbstractOperation.setParallelism(threads);
+        assertSameImages(new IImage[]{sequential},
+                new IImage[]{new GridMosaic(img, 9, shape).apply()});
+      }
+    }
+  }
+
+  @Test
+  // tests that the parallelism can be changed and observed
+  public void testSetParallelism() {
+    AbstractOperation.setParallelism(5);
+    assertEquals(5, AbstractOperation.getParallelism());
+  }
+
+  @Test
+  // tests that changing the parallelism while another thread is computing bands never stops
+  // it from finishing, and it still gives the same pixels
+  public void testChangeParallelismWhileRunning() throws InterruptedException {
+    IImage img = new PackedImage(301, 257, TestImages.pattern(301, 257));
+    AbstractOperation.setParallelism(1);
+    IImage[] expected = applyAll(img);
+    Throwable[] failure = new Throwable[1];
+    Thread worker = new Thread(() -> {
+      try {
+        for (int i = 0; i < 20; i++) {
+          assertSameImages(expected, applyAll(img));
+        }
+      } catch (Throwable t) {
+        failure[0] = t;
+      }
+    });
+    worker.start();
+    while (worker.isAlive()) {
+      AbstractOperation.setParallelism(2);
+      AbstractOperation.setParallelism(3);
+    }
+    worker.join();
+    assertEquals(null, failure[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that there must be at least one thread
+  public void testZeroParallelism() {
+    AbstractOperation.setParallelism(0);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  // tests that an invalid kernel is still reported when computing on several threads
+  public void testInvalidKernelParallel() {
+    AbstractOperation.setParallelism(4);
+    new MockFilter(new PackedImage(300, 300, TestImages.pattern(300, 300))).apply();
+  }
+}
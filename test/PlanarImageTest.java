@@ -0,0 +1,86 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import model.image.BasicImage;
+import model.image.BasicPixel;
+import model.image.Channel;
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IPixel;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.IOperation;
+import model.operations.colortransform.Greyscale;
+import model.operations.colortransform.Sepia;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.SharpenFilter;
+import org.junit.Test;
+
+/**
+ * A tester class for the PlanarImage implementation of IImage, and for the planar paths of
+ * the operations, which must give the same results as the packed paths.
+ */
+public class PlanarImageTest {
+
+  @Test
+  // tests converting to and from BasicImage keeps every pixel
+  public void testConversions() {
+    IPixel[] pixels = {new BasicPixel(0, 0, 255, 0, 10), new BasicPixel(1, 0, 1, 2, 3)};
+    BasicImage basic = new BasicImage(2, 1, pixels);
+    PlanarImage planar = PlanarImage.fromImage(basic);
+    TestImages.assertSameImage(basic, planar);
+    TestImages.assertSameImage(basic, planar.toBasicImage());
+    TestImages.assertSameImage(basic, new PlanarImage(2, 1, pixels));
+  }
+
+  @Test
+  // tests that planes are copied on the way in and out
+  public void testPlanesCopied() {
+    byte[] red = {(byte) 200};
+    PlanarImage planar = new PlanarImage(1, 1, red, new byte[1], new byte[1]);
+    red[0] = 0;
+    planar.getPlane(Channel.RED)[0] = 0;
+    assertEquals(200, planar.getPixelAt(0, 0).getRed());
+  }
+
+  @Test
+  // tests that every operation gives the same pixels on both layouts, and keeps the layout
+  public void testOperationsMatchPacked() {
+    IImage packed = TestImages.patternImage(13, 9);
+    PlanarImage planar = PlanarImage.fromImage(packed);
+    IOperation[] onPacked = {new BlurFilter(packed), new SharpenFilter(packed),
+        new Sepia(packed), new Greyscale(packed)};
+    IOperation[] onPlanar = {new BlurFilter(planar), new SharpenFilter(planar),
+        new Sepia(planar), new Greyscale(planar)};
+    for (int i = 0; i < onPacked.length; i++) {
+      IImage result = onPlanar[i].apply();
+      assertEquals(PlanarImage.class, result.getClass());
+      TestImages.assertSameImage(onPacked[i].apply(), result);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that planes of the wrong size are rejected
+  public void testWrongPlaneSize() {
+    new PlanarImage(2, 2, new byte[4], new byte[3], new byte[4]);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  // tests that the planar path still enforces the kernel invariant
+  public void testPlanarNonOddKernel() {
+    new MockFilter(PlanarImage.fromImage(TestImages.patternImage(2, 2))).apply();
+  }
+
+  @Test
+  // tests that the builder splits rows into planes the same way as converting a PackedImage
+  public void testBuilder() {
+    IImage packed = TestImages.patternImage(5, 4);
+    int[] rgb = new int[20];
+    packed.getRegion(0, 0, 5, 4, rgb, 0, 5);
+    IImageBuilder builder = PlanarImage.builder(5, 4);
+    builder.setRows(0, 4, rgb, 0);
+    IImage built = builder.build();
+    assertTrue(built instanceof PlanarImage);
+    TestImages.assertSameImage(packed, built);
+  }
+}
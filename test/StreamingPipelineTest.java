@@ -0,0 +1,234 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import controller.StreamingController;
+import controller.importexport.AdvancedBasicImporter;
+import controller.importexport.BasicPpmImporter;
+import controller.importexport.PPMExporter;
+import model.image.IImage;
+import model.image.IRowSink;
+import model.image.IRowSource;
+import model.image.PackedImage;
+import model.operations.AbstractOperation;
+import model.operations.IOperationAdapter;
+import model.operations.IOperationAdapterImpl;
+import model.operations.OperationType;
+import model.operations.StreamingPipeline;
+import org.junit.After;
+import org.junit.Test;
+import view.BasicView;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A tester class for StreamingPipeline and StreamingController, which must give the same pixels
+ * as applying each operation to a whole image, while only holding a few rows at a time.
+ */
+public class StreamingPipelineTest {
+  private final int startingParallelism = AbstractOperation.getParallelism();
+  private final IOperationAdapter adapter = new IOperationAdapterImpl();
+
+  /**
+   * Puts the parallelism back to what it was before each test, so other tests aren't affected.
+   */
+  @After
+  public void restoreParallelism() {
+    AbstractOperation.setParallelism(this.startingParallelism);
+  }
+
+  /**
+   * Rows of an array in memory, which remember how many rows were read ahead of the rows
+   * written to a RecordingSink.
+   */
+  private static class ArraySource implements IRowSource {
+    private final int[] rgb;
+    private final int width;
+    private final int height;
+    private int rowsRead;
+
+    /**
+     * Creates a new ArraySource of the given pixels.
+     *
+     * @param rgb    row-major packed pixels.
+     * @param width  width of the image.
+     * @param height height of the image.
+     */
+    private ArraySource(int[] rgb, int width, int height) {
+      this.rgb = rgb;
+      this.width = width;
+      this.height = height;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public void readRow(int[] rgbOut, int offset) {
+      assertTrue(this.rowsRead < this.height);
+      System.arraycopy(this.rgb, this.rowsRead * this.width, rgbOut, offset, this.width);
+      this.rowsRead++;
+    }
+
+    @Override
+    public void close() {
+      // nothing to close.
+    }
+  }
+
+  /**
+   * Collects the rows written to it, and the most rows its source was read ahead of them.
+   */
+  private static class RecordingSink implements IRowSink {
+    private final ArraySource source;
+    private final int[] rgb;
+    private int rowsWritten;
+    private int mostAhead;
+
+    /**
+     * Creates a new RecordingSink for the rows streamed from the given source.
+     *
+     * @param source source of the rows being streamed.
+     */
+    private RecordingSink(ArraySource source) {
+      this.source = source;
+      this.rgb = new int[source.width * source.height];
+    }
+
+    @Override
+    public void writeRow(int[] rgb, int offset) {
+      this.mostAhead = Math.max(this.mostAhead, this.source.rowsRead - this.rowsWritten);
+      System.arraycopy(rgb, offset, this.rgb, this.rowsWritten * this.source.width,
+              this.source.width);
+      this.rowsWritten++;
+    }
+
+    @Override
+    public void close() {
+      // nothing to close.
+    }
+  }
+
+  /**
+   * Streams an image through the given operations, and asserts that it gives the same pixels
+   * as applying them to the whole image one after another.
+   *
+   * @param width      width of the image.
+   * @param height     height of the image.
+   * @param operations operations to apply, first to last.
+   * @param parameters parameters of each operation.
+   * @return the most rows that were read ahead of the rows written.
+   */
+  private int assertStreamMatches(int width, int height, List<OperationType> operations,
+                                  long[]... parameters) throws Exception {
+    int[] rgb = TestImages.pattern(width, height);
+    IImage eager = new PackedImage(width, height, rgb);
+    StreamingPipeline pipeline = new StreamingPipeline(width, height);
+    for (int i = 0; i < operations.size(); i++) {
+      long[] params = i < parameters.length ? parameters[i] : new long[0];
+      eager = this.adapter.adaptOperation(operations.get(i), eager, params);
+      pipeline.add(operations.get(i), params);
+    }
+    assertEquals(operations.size(), pipeline.size());
+    ArraySource source = new ArraySource(rgb, width, height);
+    RecordingSink sink = new RecordingSink(source);
+    pipeline.run(source, sink);
+    assertEquals(height, sink.rowsWritten);
+    assertArrayEquals(TestImages.pixels(eager), sink.rgb);
+    return sink.mostAhead;
+  }
+
+  @Test
+  // tests that chains of filters and color transforms give the same pixels streamed, for
+  // images of any size, with any number of threads
+  public void testChainsMatchEager() throws Exception {
+    List<OperationType> chain = Arrays.asList(OperationType.BLUR, OperationType.SEPIA,
+            OperationType.SHARPEN, OperationType.GAUSSIAN_BLUR_SMALL, OperationType.GREYSCALE);
+    int[][] sizes = {{1, 1}, {3, 2}, {17, 6}, {300, 700}};
+    for (int threads : new int[]{1, 3}) {
+      AbstractOperation.setParallelism(threads);
+      for (int[] size : sizes) {
+        this.assertStreamMatches(size[0], size[1], chain);
+      }
+    }
+    // no operations copies the image, and wrapping reads the whole image.
+    this.assertStreamMatches(20, 30, Arrays.asList());
+    this.assertStreamMatches(40, 90, Arrays.asList(OperationType.BOX_BLUR,
+            OperationType.BOX_GAUSSIAN_BLUR, OperationType.BLUR), new long[]{4, 3},
+            new long[]{2, 2});
+  }
+
+  @Test
+  // tests that only the rows of a band and the rows around it are held, not the whole image
+  public void testHoldsFewRows() throws Exception {
+    AbstractOperation.setParallelism(1);
+    int ahead = this.assertStreamMatches(1000, 3000, Arrays.asList(OperationType.BLUR,
+            OperationType.SHARPEN, OperationType.SEPIA));
+    // a band of 65 rows, plus the 3 rows the filters read on each side.
+    assertTrue("read " + ahead + " rows ahead", ahead <= 65 + 2 * 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that mosaics, which need the whole image, can't be added
+  public void testMosaicCantStream() {
+    new StreamingPipeline(10, 10).add(OperationType.MOSAIC, 5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a source of the wrong size can't be streamed
+  public void testWrongSize() throws Exception {
+    ArraySource source = new ArraySource(TestImages.pattern(4, 5), 4, 5);
+    new StreamingPipeline(5, 4).run(source, new RecordingSink(source));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that an image must have pixels to stream
+  public void testEmptyPipeline() {
+    new StreamingPipeline(0, 4);
+  }
+
+  @Test
+  // tests that the controller streams a ppm file into ppm and png files that hold the same
+  // pixels as applying the operations to the imported image, and reports bad operations
+  public void testControllerStreamsFiles() throws Exception {
+    IImage img = new PackedImage(60, 45, TestImages.pattern(60, 45));
+    new PPMExporter().export(img, "res/stream_test_in");
+    IImage expected = this.adapter.adaptOperation(OperationType.GREYSCALE,
+            this.adapter.adaptOperation(OperationType.BOX_BLUR,
+                    this.adapter.adaptOperation(OperationType.SHARPEN, img), 2, 1));
+    List<String> operations = Arrays.asList("sharpen", "BOX-BLUR", "2", "1", "greyscale");
+    String[] outputs = {"res/stream_test_out.ppm", "res/stream_test_out.png"};
+    try {
+      StringBuilder log = new StringBuilder();
+      for (String output : outputs) {
+        new StreamingController("res/stream_test_in.ppm", output, operations,
+                new BasicView(log)).startProcessing();
+      }
+      TestImages.assertSameImage(expected, new BasicPpmImporter().importFrom(outputs[0]));
+      TestImages.assertSameImage(expected, new AdvancedBasicImporter().importFrom(outputs[1]));
+
+      log.setLength(0);
+      new StreamingController("res/stream_test_in.ppm", "res/stream_test_bad.ppm",
+              Arrays.asList("blur", "swirl"), new BasicView(log)).startProcessing();
+      assertEquals("unknown operation: swirl\n", log.toString());
+      new StreamingController("res/stream_test_in.ppm", "res/stream_test_bad.ppm",
+              Arrays.asList("mosaic", "30"), new BasicView(log)).startProcessing();
+      assertFalse(new File("res/stream_test_bad.ppm").exists());
+    } finally {
+      new File("res/stream_test_in.ppm").delete();
+      for (String output : outputs) {
+        new File(output).delete();
+      }
+    }
+  }
+}
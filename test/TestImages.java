@@ -0,0 +1,71 @@
+import static org.junit.Assert.assertEquals;
+
+import model.image.IImage;
+import model.image.PackedImage;
+
+/**
+ * Images and assertions shared by the tester classes and benchmarks, so every one of them
+ * builds its images the same way and compares them pixel for pixel.
+ */
+public class TestImages {
+
+  private TestImages() {
+    // only static methods.
+  }
+
+  /**
+   * Creates a row-major array of packed RGB ints with varied colors, where every 7th pixel is
+   * white so that some channels are at their largest value.
+   *
+   * @param width  width of the image.
+   * @param height height of the image.
+   * @return array with a pattern of colors.
+   */
+  public static int[] pattern(int width, int height) {
+    int[] rgb = new int[width * height];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = i % 7 == 0 ? 0xFFFFFF
+              : ((i * 37) % 256) << 16 | ((i * 91) % 256) << 8 | (i * 13) % 256;
+    }
+    return rgb;
+  }
+
+  /**
+   * Creates a PackedImage of the pattern of colors of the given size.
+   *
+   * @param width  width of the image.
+   * @param height height of the image.
+   * @return a new PackedImage with the pixels of pattern.
+   */
+  public static IImage patternImage(int width, int height) {
+    return new PackedImage(width, height, pattern(width, height));
+  }
+
+  /**
+   * Reads every pixel of an image as packed RGB ints.
+   *
+   * @param img image to read.
+   * @return row-major packed pixels of the image.
+   */
+  public static int[] pixels(IImage img) {
+    int[] rgb = new int[img.getWidth() * img.getHeight()];
+    img.getRegion(0, 0, img.getWidth(), img.getHeight(), rgb, 0, img.getWidth());
+    return rgb;
+  }
+
+  /**
+   * Asserts that two images have the same size and pixels.
+   *
+   * @param expected the expected image.
+   * @param actual   the actual image.
+   */
+  public static void assertSameImage(IImage expected, IImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    int[] expectedRgb = pixels(expected);
+    int[] actualRgb = pixels(actual);
+    for (int i = 0; i < expectedRgb.length; i++) {
+      assertEquals("pixel " + i, expectedRgb[i], actualRgb[i]);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import controller.importexport.AdvancedBasicImporter;
+import controller.importexport.AdvancedFileType;
+import controller.importexport.AdvancedUtilExporter;
+import model.image.BasicPixel;
+import model.image.IImage;
+import model.image.IImageBuilder;
+import model.image.IPixel;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.image.TiledImage;
+import model.operations.IOperation;
+import model.operations.Mosaic;
+import model.operations.MosaicEngine;
+import model.operations.colortransform.Greyscale;
+import model.operations.colortransform.Sepia;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.BorderMode;
+import model.operations.filter.BoxGaussianBlurFilter;
+import model.operations.filter.GaussianBlurFilter;
+import model.operations.filter.SharpenFilter;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A tester class for the TiledImage implementation of IImage, and for operations and
+ * exporters on it, which must give the same results as on a PackedImage.
+ */
+public class TiledImageTest {
+
+  /**
+   * Builds a TiledImage out of a row-major array of packed RGB ints.
+   *
+   * @param width  width of the image.
+   * @param height height of the image.
+   * @param rgb    packed pixels of the image.
+   * @return a new TiledImage with the given pixels.
+   */
+  private static IImage tiled(int width, int height, int[] rgb) {
+    IImageBuilder builder = TiledImage.builder(width, height);
+    builder.setRows(0, height, rgb, 0);
+    return builder.build();
+  }
+
+  @Test
+  // tests that pixels read back correctly across the edges of tiles
+  public void testAcrossTiles() {
+    int[] rgb = TestImages.pattern(300, 270);
+    IImage packed = new PackedImage(300, 270, rgb);
+    IImage tiled = tiled(300, 270, rgb);
+    TestImages.assertSameImage(packed, tiled);
+    assertEquals(packed.getPixelAt(299, 269), tiled.getPixelAt(299, 269));
+
+    int[] fromPacked = new int[100 * 30];
+    int[] fromTiled = new int[100 * 30];
+    packed.getRegion(200, 240, 100, 30, fromPacked, 0, 100);
+    tiled.getRegion(200, 240, 100, 30, fromTiled, 0, 100);
+    for (int i = 0; i < fromPacked.length; i++) {
+      assertEquals(fromPacked[i], fromTiled[i]);
+    }
+  }
+
+  @Test
+  // tests that unset rows are black and that the array given to setRows is copied
+  public void testBuilder() {
+    IImageBuilder builder = TiledImage.builder(2, 2);
+    int[] row = {0xFF0000, 0x00FF00};
+    builder.setRows(1, 1, row, 0);
+    row[0] = 0;
+    IImage built = builder.build();
+    assertEquals(new BasicPixel(0, 0, 0, 0, 0), built.getPixelAt(0, 0));
+    assertEquals(new BasicPixel(0, 1, 255, 0, 0), built.getPixelAt(0, 1));
+    assertEquals(new BasicPixel(1, 1, 0, 255, 0), built.getPixelAt(1, 1));
+  }
+
+  @Test
+  // tests that writing a rectangle that crosses the edge of a tile only changes that rectangle
+  public void testBuilderSetRegion() {
+    int[] rgb = TestImages.pattern(300, 4);
+    int[] region = TestImages.pattern(60, 2);
+    IImageBuilder builder = TiledImage.builder(300, 4);
+    builder.setRows(0, 4, rgb, 0);
+    builder.setRegion(230, 1, 60, 2, region, 0, 60);
+    for (int j = 0; j < 2; j++) {
+      System.arraycopy(region, j * 60, rgb, (1 + j) * 300 + 230, 60);
+    }
+    TestImages.assertSameImage(new PackedImage(300, 4, rgb), builder.build());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  // tests that a builder cannot write to an image it already built
+  public void testBuilderUsedTwice() {
+    IImageBuilder builder = TiledImage.builder(1, 1);
+    builder.build();
+    builder.setRows(0, 1, new int[1], 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that setRows rejects rows outside of the image
+  public void testBuilderOOB() {
+    TiledImage.builder(2, 2).setRows(1, 2, new int[4], 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that createImage enforces the same rules as the other images
+  public void testCreateImageRepeated() {
+    IPixel[] pixels = {new BasicPixel(0, 0, 1, 1, 1), new BasicPixel(0, 0, 2, 2, 2)};
+    tiled(1, 1, new int[1]).createImage(2, 1, pixels);
+  }
+
+  @Test
+  // tests that every operation gives the same pixels on tiled images, and keeps them tiled,
+  // on an image tall enough to be split into several bands of rows
+  public void testOperationsMatchPacked() {
+    int[] rgb = TestImages.pattern(700, 1700);
+    IImage packed = new PackedImage(700, 1700, rgb);
+    IImage tiled = tiled(700, 1700, rgb);
+    IOperation[] onPacked = {new BlurFilter(packed), new SharpenFilter(packed),
+        new Sepia(packed), new Greyscale(packed)};
+    IOperation[] onTiled = {new BlurFilter(tiled), new SharpenFilter(tiled),
+        new Sepia(tiled), new Greyscale(tiled)};
+    for (int i = 0; i < onPacked.length; i++) {
+      IImage result = onTiled[i].apply();
+      assertTrue(result instanceof TiledImage);
+      TestImages.assertSameImage(onPacked[i].apply(), result);
+    }
+  }
+
+  @Test
+  // tests that filters that wrap around give the same pixels on tiled images, which are split
+  // into bands that read the rows past each edge from the other edge, as on planar images,
+  // which are filtered whole
+  public void testWrapMatchesWhole() {
+    int[] rgb = TestImages.pattern(700, 1700);
+    IImage planar = PlanarImage.fromImage(new PackedImage(700, 1700, rgb));
+    IImage tiled = tiled(700, 1700, rgb);
+    IOperation[] onPlanar = {new BlurFilter(planar, BorderMode.WRAP),
+        new GaussianBlurFilter(planar, 4, BorderMode.WRAP),
+        new BoxGaussianBlurFilter(planar, 6, BorderMode.WRAP)};
+    IOperation[] onTiled = {new BlurFilter(tiled, BorderMode.WRAP),
+        new GaussianBlurFilter(tiled, 4, BorderMode.WRAP),
+        new BoxGaussianBlurFilter(tiled, 6, BorderMode.WRAP)};
+    for (int i = 0; i < onPlanar.length; i++) {
+      TestImages.assertSameImage(onPlanar[i].apply(), onTiled[i].apply());
+    }
+  }
+
+  @Test
+  // tests that mosaic picks the same seeds and colors on tiled images
+  public void testMosaicMatchesPacked() {
+    int[] rgb = TestImages.pattern(40, 30);
+    IImage packed = new PackedImage(40, 30, rgb);
+    IImage tiled = tiled(40, 30, rgb);
+    TestImages.assertSameImage(new Mosaic(packed, 25, new Random(7)).apply(),
+            new Mosaic(tiled, 25, new Random(7)).apply());
+  }
+
+  @Test(timeout = 300000)
+  // tests that the mosaic of a tiled image twice as large as the heap can be made with both
+  // engines, by running LargeMosaic in a new JVM with a 32MB heap
+  public void testMosaicLargerThanHeap() throws Exception {
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    Process process = new ProcessBuilder(java, "-Xmx32m", "-cp",
+            System.getProperty("java.class.path"), LargeMosaic.class.getName())
+            .inheritIO().start();
+    assertEquals(0, process.waitFor());
+  }
+
+  /**
+   * Makes the mosaic of a 4000x4000 TiledImage (64MB of pixels) with both engines, which must
+   * give the same pixels since jump flooding labels tiled images exactly. Exits with a status
+   * other than 0 if the mosaics differ or aren't tiled, or if the heap runs out.
+   */
+  public static class LargeMosaic {
+    /**
+     * Makes and compares the mosaics.
+     *
+     * @param args not used.
+     */
+    public static void main(String[] args) {
+      int size = 4000;
+      IImageBuilder builder = TiledImage.builder(size, size);
+      int[] row = new int[size];
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          row[x] = ((x * 37) % 256) << 16 | ((y * 91) % 256) << 8 | ((x + y) * 13) % 256;
+        }
+        builder.setRows(y, 1, row, 0);
+      }
+      IImage img = builder.build();
+      IImage exact = new Mosaic(img, 1000, new Random(3)).apply();
+      IImage flooded = new Mosaic(img, 1000, new Random(3), MosaicEngine.JUMP_FLOOD).apply();
+      boolean same = exact instanceof TiledImage && flooded instanceof TiledImage;
+      int[] other = new int[size];
+      for (int y = 0; y < size && same; y++) {
+        exact.getRow(y, row);
+        flooded.getRow(y, other);
+        same = Arrays.equals(row, other);
+      }
+      System.exit(same ? 0 : 1);
+    }
+  }
+
+  @Test
+  // tests that a tiled image is written a row at a time to png, and reads back the same
+  public void testPngRoundTrip() throws Exception {
+    int[] rgb = TestImages.pattern(300, 20);
+    IImage tiled = tiled(300, 20, rgb);
+    new AdvancedUtilExporter(AdvancedFileType.PNG).export(tiled, "res/tiled_test");
+    File file = new File("res/tiled_test.png");
+    try {
+      TestImages.assertSameImage(tiled,
+              new AdvancedBasicImporter().importFrom("res/tiled_test.png"));
+    } finally {
+      file.delete();
+    }
+  }
+}
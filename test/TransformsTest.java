@@ -4,12 +4,20 @@ import model.image.BasicImage;
 import model.image.BasicPixel;
 import model.image.IImage;
 import model.image.IPixel;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.image.RgbUtils;
 import model.operations.IOperation;
+import model.operations.colortransform.AbstractColorTransform;
+import model.operations.colortransform.ColorTransformChain;
 import model.operations.colortransform.Greyscale;
 import model.operations.colortransform.Sepia;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 /**
  * A tester class for the Color Transforms implementation of the IOperation interface.
  * A mix of programmatically created images and images imported from visually verified
@@ -120,4 +128,71 @@ public class TransformsTest {
     assertEquals(255, edited.getPixelAt(1, 1).getGreen());
     assertEquals(207, edited.getPixelAt(1, 1).getBlue());
   }
+
+  @Test
+  // tests that transforming through lookup tables gives exactly the same channels as
+  // multiplying by the matrix, for every channel value, on both packed and planar images
+  public void testMatrixMatchesMultiplying() {
+    double[][] matrix = {{0.393, 0.769, 0.189}, {-0.5, 1.7, 0.1}, {0.2126, 0.7152, -0.0722}};
+    // every pair of red and green values, with a different blue value for most of them.
+    int[] rgb = new int[256 * 256];
+    for (int i = 0; i < rgb.length; i++) {
+      rgb[i] = i << 8 | (i * 7) % 256;
+    }
+    IImage packed = new PackedImage(256, 256, rgb);
+    for (IImage img : new IImage[]{packed, PlanarImage.fromImage(packed)}) {
+      IOperation transform = new AbstractColorTransform(img) {
+        {
+          for (int r = 0; r < 3; r++) {
+            System.arraycopy(matrix[r], 0, this.colorMatrix[r], 0, 3);
+          }
+        }
+      };
+      IImage edited = transform.apply();
+      for (int i = 0; i < rgb.length; i++) {
+        int red = RgbUtils.red(rgb[i]);
+        int green = RgbUtils.green(rgb[i]);
+        int blue = RgbUtils.blue(rgb[i]);
+        int[] expected = new int[3];
+        for (int r = 0; r < 3; r++) {
+          expected[r] = RgbUtils.clamp((int) (matrix[r][0] * red + matrix[r][1] * green
+                  + matrix[r][2] * blue));
+        }
+        IPixel actual = edited.getPixelAt(i % 256, i / 256);
+        assertEquals(expected[0], actual.getRed());
+        assertEquals(expected[1], actual.getGreen());
+        assertEquals(expected[2], actual.getBlue());
+      }
+    }
+  }
+
+  @Test
+  // tests that a chain of color transformations gives exactly the same pixels as applying them
+  // one at a time, on both packed and planar images
+  public void testChainMatchesOneAtATime() {
+    int[] rgb = TestImages.pattern(64, 48);
+    IImage packed = new PackedImage(64, 48, rgb);
+    for (IImage img : new IImage[]{packed, PlanarImage.fromImage(packed)}) {
+      IImage oneAtATime = new Sepia(new Sepia(new Greyscale(img).apply()).apply()).apply();
+      IImage chained = new ColorTransformChain(img,
+              Arrays.asList(new Greyscale(img), new Sepia(img), new Sepia(img))).apply();
+      for (int y = 0; y < 48; y++) {
+        for (int x = 0; x < 64; x++) {
+          assertEquals(oneAtATime.getPixelAt(x, y), chained.getPixelAt(x, y));
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a chain needs at least one color transformation
+  public void testChainGivenEmpty() {
+    new ColorTransformChain(this.img, new ArrayList<>());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  // tests that a chain cannot contain null
+  public void testChainGivenNullStep() {
+    new ColorTransformChain(this.img, Arrays.asList(new Sepia(this.img), null));
+  }
 }
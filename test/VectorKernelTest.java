@@ -0,0 +1,113 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import model.image.IImage;
+import model.image.PackedImage;
+import model.image.PlanarImage;
+import model.operations.AbstractOperation;
+import model.operations.colortransform.Greyscale;
+import model.operations.colortransform.Sepia;
+import model.operations.filter.BlurFilter;
+import model.operations.filter.BorderMode;
+import model.operations.filter.GaussianBlurFilter;
+import model.operations.filter.SharpenFilter;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tester class for computing AbstractOperations with the vector kernels, which must give
+ * exactly the same pixels as the scalar loops. The vector kernels are only available when the
+ * tests are run with "--add-modules jdk.incubator.vector", otherwise only the fallback is tested.
+ */
+public class VectorKernelTest {
+  private final boolean startingVectorized = AbstractOperation.isVectorized();
+
+  /**
+   * Puts the vector kernels back to how they were before each test, so other tests aren't
+   * affected.
+   */
+  @After
+  public void restoreVectorized() {
+    AbstractOperation.setVectorized(this.startingVectorized);
+  }
+
+  /**
+   * Applies every color transform, and every filter with every BorderMode, to the given image.
+   *
+   * @param img image to apply each operation to.
+   * @return the packed pixels of the result of each operation.
+   */
+  private static List<int[]> applyAll(IImage img) {
+    List<IImage> results = new ArrayList<>();
+    results.add(new Sepia(img).apply());
+    results.add(new Greyscale(img).apply());
+    for (BorderMode mode : BorderMode.values()) {
+      results.add(new BlurFilter(img, mode).apply());
+      results.add(new SharpenFilter(img, mode).apply());
+      results.add(new GaussianBlurFilter(img, 2.5, mode).apply());
+    }
+    List<int[]> pixels = new ArrayList<>();
+    for (IImage result : results) {
+      pixels.add(TestImages.pixels(result));
+    }
+    return pixels;
+  }
+
+  /**
+   * Asserts that the vector kernels give the same results as the scalar loops on the given
+   * image, if they are available.
+   *
+   * @param img image to apply every operation to.
+   */
+  private static void assertMatchesScalar(IImage img) {
+    if (!AbstractOperation.isVectorAvailable()) {
+      return;
+    }
+    AbstractOperation.setVectorized(false);
+    List<int[]> expected = applyAll(img);
+    AbstractOperation.setVectorized(true);
+    List<int[]> actual = applyAll(img);
+    assertEquals(expected.size(), actual.size());
+    for (int k = 0; k < expected.size(); k++) {
+      for (int i = 0; i < expected.get(k).length; i++) {
+        assertEquals("operation " + k + ", pixel " + i, expected.get(k)[i], actual.get(k)[i]);
+      }
+    }
+  }
+
+  @Test
+  // tests that packed images give the same pixels with either kernels, including rows that
+  // aren't a multiple of the 8 pixels the vector kernels read at once
+  public void testPackedMatchesScalar() {
+    int[][] sizes = {{37, 23}, {8, 8}, {5, 9}, {64, 3}, {1, 17}};
+    for (int[] size : sizes) {
+      assertMatchesScalar(new PackedImage(size[0], size[1], TestImages.pattern(size[0], size[1])));
+    }
+  }
+
+  @Test
+  // tests that planar images give the same pixels with either kernels
+  public void testPlanarMatchesScalar() {
+    int[][] sizes = {{37, 23}, {8, 8}, {5, 9}, {64, 3}, {1, 17}};
+    for (int[] size : sizes) {
+      assertMatchesScalar(PlanarImage.fromImage(
+              new PackedImage(size[0], size[1], TestImages.pattern(size[0], size[1]))));
+    }
+  }
+
+  @Test
+  // tests that the vector kernels can always be turned off, and only be turned on when available
+  public void testSetVectorized() {
+    AbstractOperation.setVectorized(false);
+    assertFalse(AbstractOperation.isVectorized());
+    try {
+      AbstractOperation.setVectorized(true);
+      assertEquals(true, AbstractOperation.isVectorAvailable());
+    } catch (IllegalStateException e) {
+      assertFalse(AbstractOperation.isVectorAvailable());
+    }
+  }
+}